@@ -443,6 +443,10 @@ public class CassandraServer implements Cassandra {
                 schedule();
                 StorageProxy.mutate(Arrays.asList(rm));
             }
+            catch (TimeoutException e)
+            {
+                throw new TimedOutException();
+            }
             finally
             {
                 release();
@@ -481,6 +485,10 @@ public class CassandraServer implements Cassandra {
                 schedule();
                 StorageProxy.mutate(rowMutations);
             }
+            catch (TimeoutException te)
+            {
+                throw newTimedOutException();
+            }
             finally
             {
                 release();
@@ -719,7 +727,7 @@ public class CassandraServer implements Cassandra {
     /**
      * Schedule the current thread for access to the required services
      */
-    private void schedule()
+    private void schedule() throws TimeoutException
     {
         requestScheduler.queue(Thread.currentThread(), requestSchedulerId.get());
     }
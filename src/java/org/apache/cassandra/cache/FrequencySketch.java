@@ -0,0 +1,117 @@
+package org.apache.cassandra.cache;
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A count-min sketch of how often keys have been seen recently, used to decide whether a key is worth caching.
+ *
+ * Each key maps to one counter in each of four rows; its frequency is the smallest of them, which overestimates
+ * only when every one of them is shared with other keys. Counters saturate at 15, and once ten times as many
+ * accesses as there are counters per row have been recorded, all counters are halved, so that keys that used to
+ * be popular are eventually forgotten. Updates are not synchronized: a lost increment makes no real difference
+ * to an estimate.
+ */
+public class FrequencySketch
+{
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int MIN_WIDTH = 256;
+    private static final int MAX_WIDTH = 1 << 22;
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param expectedEntries the number of keys whose frequencies should be told apart, usually the cache capacity
+     */
+    public FrequencySketch(int expectedEntries)
+    {
+        // twice as many counters per row as entries, so that the entries rarely share all of theirs
+        int width = Math.min(MAX_WIDTH, Integer.highestOneBit(Math.max(2 * expectedEntries, MIN_WIDTH) - 1) << 1);
+        counters = new byte[DEPTH][width];
+        mask = width - 1;
+        sampleSize = 10 * width;
+    }
+
+    public int width()
+    {
+        return mask + 1;
+    }
+
+    /**
+     * Records an access to the key. Only the counters at the current minimum are incremented, which keeps keys
+     * that share some of their counters with a popular key from being overestimated.
+     */
+    public void increment(Object key)
+    {
+        int hash = key.hashCode();
+        int frequency = frequency(hash);
+        if (frequency == MAX_COUNT)
+            return;
+        for (int i = 0; i < DEPTH; i++)
+        {
+            int index = index(hash, i);
+            if (counters[i][index] == frequency)
+                counters[i][index]++;
+        }
+        if (additions.incrementAndGet() >= sampleSize)
+            age();
+    }
+
+    /**
+     * @return how often the key has been seen recently, between 0 and 15
+     */
+    public int frequency(Object key)
+    {
+        return frequency(key.hashCode());
+    }
+
+    private int frequency(int hash)
+    {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++)
+            frequency = Math.min(frequency, counters[i][index(hash, i)]);
+        return frequency;
+    }
+
+    private int index(int hash, int row)
+    {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private synchronized void age()
+    {
+        if (additions.get() < sampleSize)
+            return; // another thread just did it
+        for (byte[] row : counters)
+        {
+            for (int i = 0; i < row.length; i++)
+                row[i] >>= 1;
+        }
+        additions.set(0);
+    }
+}
@@ -21,12 +21,17 @@ package org.apache.cassandra.cache;
  */
 
 
+import java.util.Iterator;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.reardencommerce.kernel.collections.shared.evictable.ConcurrentLinkedHashMap;
 
 public class InstrumentedCache<K, V>
 {
+    // how many cached keys are looked at to choose the one a new entry would displace
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
     private int capacity;
     private final ConcurrentLinkedHashMap<K, V> map;
     private final AtomicLong requests = new AtomicLong(0);
@@ -35,19 +40,91 @@ public class InstrumentedCache<K, V>
     private final AtomicLong lastHits = new AtomicLong(0);
     private volatile boolean capacitySetManually;
 
+    // with an admission filter, the recent access frequencies of keys, whether cached or not
+    private volatile FrequencySketch sketch;
+    private final AtomicLong rejections = new AtomicLong(0);
+    // walks the cached keys across calls to evictionCandidate, so that successive samples cover all of them
+    private Iterator<K> sampler;
+
     public InstrumentedCache(int capacity)
+    {
+        this(capacity, false);
+    }
+
+    /**
+     * @param admissionFilter if true, a new entry only makes it into a full cache if its key has been requested
+     * more often than the key of the entry it would evict. This keeps one-off requests, such as those of a scan
+     * over cold keys, from flushing out the entries that are in demand.
+     */
+    public InstrumentedCache(int capacity, boolean admissionFilter)
     {
         this.capacity = capacity;
+        if (admissionFilter)
+            sketch = new FrequencySketch(capacity);
         map = ConcurrentLinkedHashMap.create(ConcurrentLinkedHashMap.EvictionPolicy.SECOND_CHANCE, capacity);
     }
 
     public void put(K key, V value)
     {
+        FrequencySketch sketch = this.sketch;
+        if (sketch == null || map.size() < capacity || map.containsKey(key))
+        {
+            map.put(key, value);
+            return;
+        }
+
+        // the cache is full: the new entry only gets in if its key has been asked for more often than the
+        // entry it displaces, which is decided before anything is inserted.  an evicted entry is never put
+        // back, since a write-through to it may have been missed in the meantime.
+        K candidate = evictionCandidate(sketch);
+        if (candidate != null)
+        {
+            if (sketch.frequency(key) <= sketch.frequency(candidate))
+            {
+                rejections.incrementAndGet();
+                return;
+            }
+            map.remove(candidate);
+        }
         map.put(key, value);
     }
 
+    /**
+     * ConcurrentLinkedHashMap does not expose the entry it would evict next, so the candidate is
+     * the least requested of a few cached keys.  Each sample carries on where the previous one stopped;
+     * always starting from the beginning would only ever look at the same few keys.
+     */
+    private synchronized K evictionCandidate(FrequencySketch sketch)
+    {
+        K candidate = null;
+        int candidateFrequency = Integer.MAX_VALUE;
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++)
+        {
+            // the iterator is weakly consistent, so it survives the puts and removes made since the last sample,
+            // though it may still return a key removed in the meantime
+            if (sampler == null || !sampler.hasNext())
+            {
+                sampler = map.keySet().iterator();
+                if (!sampler.hasNext())
+                    break;
+            }
+            K k = sampler.next();
+            if (!map.containsKey(k))
+                continue;
+            int frequency = sketch.frequency(k);
+            if (frequency < candidateFrequency)
+            {
+                candidate = k;
+                candidateFrequency = frequency;
+            }
+        }
+        return candidate;
+    }
+
     public V get(K key)
     {
+        if (sketch != null)
+            sketch.increment(key);
         V v = map.get(key);
         requests.incrementAndGet();
         if (v != null)
@@ -79,6 +156,9 @@ public class InstrumentedCache<K, V>
     {
         map.setCapacity(capacity);
         this.capacity = capacity;
+        // a sketch too narrow for the new capacity can't tell its keys apart; recent history is lost with it
+        if (sketch != null && sketch.width() < 2 * capacity)
+            sketch = new FrequencySketch(capacity);
     }
 
     public void setCapacity(int capacity)
@@ -92,6 +172,11 @@ public class InstrumentedCache<K, V>
         return map.size();
     }
 
+    public Set<K> getKeySet()
+    {
+        return map.keySet();
+    }
+
     public long getHits()
     {
         return hits.get();
@@ -102,6 +187,14 @@ public class InstrumentedCache<K, V>
         return requests.get();
     }
 
+    /**
+     * @return the number of new entries kept out of the cache by the admission filter
+     */
+    public long getAdmissionRejections()
+    {
+        return rejections.get();
+    }
+
     public double getRecentHitRate()
     {
         long r = requests.get();
@@ -25,7 +25,12 @@ public class JMXInstrumentedCache<K, V> extends InstrumentedCache<K, V> implemen
 {
     public JMXInstrumentedCache(String table, String name, int capacity)
     {
-        super(capacity);
+        this(table, name, capacity, false);
+    }
+
+    public JMXInstrumentedCache(String table, String name, int capacity, boolean admissionFilter)
+    {
+        super(capacity, admissionFilter);
         AbstractCache.registerMBean(this, table, name);
     }
 }
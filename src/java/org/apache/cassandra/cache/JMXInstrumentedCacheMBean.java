@@ -27,6 +27,9 @@ public interface JMXInstrumentedCacheMBean
     public void setCapacity(int capacity);
     public int getSize();
 
+    /** number of new entries kept out of the cache by its admission filter */
+    public long getAdmissionRejections();
+
     /** total request count since cache creation */
     public long getRequests();
 
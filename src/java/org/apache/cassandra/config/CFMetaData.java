@@ -46,8 +46,17 @@ public final class CFMetaData
     public final static double DEFAULT_KEY_CACHE_SIZE = 200000;
     public final static double DEFAULT_ROW_CACHE_SIZE = 0.0;
     public final static boolean DEFAULT_PRELOAD_ROW_CACHE = false;
+    public final static int DEFAULT_ROW_CACHE_HEAD_COLUMNS = 0;
+    public final static Class<? extends AbstractCompactionStrategy> DEFAULT_COMPACTION_STRATEGY_CLASS = SizeTieredCompactionStrategy.class;
     private static final int MIN_CF_ID = 1000;
 
+    // Definitions are embedded unframed in keyspace definitions and migrations, so later fields can only be
+    // recognized by a marker up front.  Unversioned definitions begin with the UTF length of the table name,
+    // which is also a directory name and so can never be 65535 bytes long.
+    private static final int VERSIONED_MARKER = 0xFFFF;
+    // 1 appends rowCacheHeadColumns, bloomFilterFpChance and compactionStrategyClass
+    private static final int SERIALIZATION_VERSION = 1;
+
     private static final Logger logger = LoggerFactory.getLogger(DatacenterShardStrategy.class);
 
     private static final AtomicInteger idGen = new AtomicInteger(MIN_CF_ID);
@@ -113,6 +122,9 @@ public final class CFMetaData
     public final double readRepairChance; //chance 0 to 1, of doing a read repair; defaults 1.0 (always)
     public final Integer cfId;
     public boolean preloadRowCache;
+    public int rowCacheHeadColumns = DEFAULT_ROW_CACHE_HEAD_COLUMNS; // cache only the first N columns of each row; 0 caches entire rows
+    public volatile Double bloomFilterFpChance; // target false positive chance for new bloom filters; null for the default sizing
+    public Class<? extends AbstractCompactionStrategy> compactionStrategyClass = DEFAULT_COMPACTION_STRATEGY_CLASS;
 
     // BytesToken because byte[].hashCode|equals is inherited from Object.  gggrrr...
     public final Map<byte[], ColumnDefinition> column_metadata;
@@ -173,13 +185,20 @@ public final class CFMetaData
     public static CFMetaData rename(CFMetaData cfm, String newName)
     {
         CFMetaData newCfm = new CFMetaData(cfm.tableName, newName, cfm.cfType, cfm.clockType, cfm.comparator, cfm.subcolumnComparator, cfm.reconciler, cfm.comment, cfm.rowCacheSize, cfm.preloadRowCache, cfm.keyCacheSize, cfm.readRepairChance, cfm.cfId, cfm.column_metadata);
+        newCfm.rowCacheHeadColumns = cfm.rowCacheHeadColumns;
+        newCfm.bloomFilterFpChance = cfm.bloomFilterFpChance;
+        newCfm.compactionStrategyClass = cfm.compactionStrategyClass;
         return newCfm;
     }
     
     /** clones existing CFMetaData. keeps the id but changes the table name.*/
     public static CFMetaData renameTable(CFMetaData cfm, String tableName)
     {
-        return new CFMetaData(tableName, cfm.cfName, cfm.cfType, cfm.clockType, cfm.comparator, cfm.subcolumnComparator, cfm.reconciler, cfm.comment, cfm.rowCacheSize, cfm.preloadRowCache, cfm.keyCacheSize, cfm.readRepairChance, cfm.cfId, cfm.column_metadata);
+        CFMetaData newCfm = new CFMetaData(tableName, cfm.cfName, cfm.cfType, cfm.clockType, cfm.comparator, cfm.subcolumnComparator, cfm.reconciler, cfm.comment, cfm.rowCacheSize, cfm.preloadRowCache, cfm.keyCacheSize, cfm.readRepairChance, cfm.cfId, cfm.column_metadata);
+        newCfm.rowCacheHeadColumns = cfm.rowCacheHeadColumns;
+        newCfm.bloomFilterFpChance = cfm.bloomFilterFpChance;
+        newCfm.compactionStrategyClass = cfm.compactionStrategyClass;
+        return newCfm;
     }
     
     /** used for evicting cf data out of static tracking collections. */
@@ -202,6 +221,8 @@ public final class CFMetaData
     {
         ByteArrayOutputStream bout = new ByteArrayOutputStream();
         DataOutputStream dout = new DataOutputStream(bout);
+        dout.writeShort(VERSIONED_MARKER);
+        dout.writeByte(SERIALIZATION_VERSION);
         dout.writeUTF(cfm.tableName);
         dout.writeUTF(cfm.cfName);
         dout.writeUTF(cfm.cfType.name());
@@ -226,6 +247,12 @@ public final class CFMetaData
             dout.writeInt(cdBytes.length);
             dout.write(cdBytes);
         }
+        dout.writeInt(cfm.rowCacheHeadColumns);
+        Double bloomFilterFpChance = cfm.bloomFilterFpChance;
+        dout.writeBoolean(bloomFilterFpChance != null);
+        if (bloomFilterFpChance != null)
+            dout.writeDouble(bloomFilterFpChance);
+        dout.writeUTF(cfm.compactionStrategyClass.getName());
         dout.close();
         return bout.toByteArray();
     }
@@ -233,7 +260,21 @@ public final class CFMetaData
     public static CFMetaData deserialize(InputStream in) throws IOException, ConfigurationException
     {
         DataInputStream din = new DataInputStream(in);
-        String tableName = din.readUTF();
+        int version;
+        String tableName;
+        int utfLength = din.readUnsignedShort();
+        if (utfLength == VERSIONED_MARKER)
+        {
+            version = din.readUnsignedByte();
+            if (version > SERIALIZATION_VERSION)
+                throw new IOException("Unknown column family definition version " + version);
+            tableName = din.readUTF();
+        }
+        else
+        {
+            version = 0;
+            tableName = readUTF(utfLength, din);
+        }
         String cfName = din.readUTF();
         ColumnFamilyType cfType = ColumnFamilyType.create(din.readUTF());
         ClockType clockType = ClockType.create(din.readUTF());
@@ -265,7 +306,24 @@ public final class CFMetaData
             ColumnDefinition cd = ColumnDefinition.deserialize(cdBytes);
             column_metadata.put(cd.name, cd);
         }
-        return new CFMetaData(tableName, cfName, cfType, clockType, comparator, subcolumnComparator, reconciler, comment, rowCacheSize, preloadRowCache, keyCacheSize, readRepairChance, cfId, column_metadata);
+        CFMetaData cfm = new CFMetaData(tableName, cfName, cfType, clockType, comparator, subcolumnComparator, reconciler, comment, rowCacheSize, preloadRowCache, keyCacheSize, readRepairChance, cfId, column_metadata);
+        if (version >= 1)
+        {
+            cfm.rowCacheHeadColumns = din.readInt();
+            cfm.bloomFilterFpChance = din.readBoolean() ? din.readDouble() : null;
+            cfm.compactionStrategyClass = DatabaseDescriptor.getCompactionStrategyClass(din.readUTF());
+        }
+        return cfm;
+    }
+
+    /** reads the body of a string written by writeUTF, whose length has already been consumed */
+    private static String readUTF(int utfLength, DataInput in) throws IOException
+    {
+        byte[] bytes = new byte[2 + utfLength];
+        bytes[0] = (byte) (utfLength >>> 8);
+        bytes[1] = (byte) utfLength;
+        in.readFully(bytes, 2, utfLength);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
     }
 
     public boolean equals(Object obj) 
@@ -290,6 +348,9 @@ public final class CFMetaData
             .append(reconciler, rhs.reconciler)
             .append(comment, rhs.comment)
             .append(rowCacheSize, rhs.rowCacheSize)
+            .append(rowCacheHeadColumns, rhs.rowCacheHeadColumns)
+            .append(bloomFilterFpChance, rhs.bloomFilterFpChance)
+            .append(compactionStrategyClass, rhs.compactionStrategyClass)
             .append(keyCacheSize, rhs.keyCacheSize)
             .append(readRepairChance, rhs.readRepairChance)
             .append(cfId.intValue(), rhs.cfId.intValue())
@@ -309,6 +370,9 @@ public final class CFMetaData
             .append(reconciler)
             .append(comment)
             .append(rowCacheSize)
+            .append(rowCacheHeadColumns)
+            .append(bloomFilterFpChance)
+            .append(compactionStrategyClass)
             .append(keyCacheSize)
             .append(readRepairChance)
             .append(cfId)
@@ -18,5 +18,8 @@ public class ColumnFamily {
     public double keys_cached = CFMetaData.DEFAULT_KEY_CACHE_SIZE; 
     public double read_repair_chance = CFMetaData.DEFAULT_READ_REPAIR_CHANCE;
     public boolean preload_row_cache = CFMetaData.DEFAULT_PRELOAD_ROW_CACHE;
+    public int row_cache_head_columns = CFMetaData.DEFAULT_ROW_CACHE_HEAD_COLUMNS;
+    public Double bloom_filter_fp_chance;
+    public String compaction_strategy;
     public RawColumnDefinition[] column_metadata = new RawColumnDefinition[0];
 }
@@ -38,15 +38,21 @@ public class Config {
     
     public Integer sliced_buffer_size_in_kb = 64;
     
+    public Integer concurrent_streams = 2;
+    public Integer stream_throughput_outbound_megabits_per_sec = 0;
+    
     public Integer storage_port = 7000;
     public String listen_address;
     
     public String rpc_address;
     public Integer rpc_port = 9160;
+    public RpcServerType rpc_server_type = RpcServerType.sync;
+    public Integer rpc_max_threads = null; // hsha only: will get set to concurrent_reads + concurrent_writes
 
     public Integer thrift_max_message_length_in_mb = 16;
     public Integer thrift_framed_transport_size_in_mb = 15;
     public Boolean snapshot_before_compaction = false;
+    public Boolean incremental_backups = false;
     
     public Integer binary_memtable_throughput_in_mb = 256;
     /* Number of minutes to keep a memtable in memory */
@@ -55,6 +61,16 @@ public class Config {
     public Integer memtable_throughput_in_mb = 64;
     /* Number of objects in millions in the memtable before it is dumped */
     public Double memtable_operations_in_millions = 0.1;
+    public MemtableAllocation memtable_allocation = MemtableAllocation.heap;
+    /* Heap all memtables may occupy before the largest is flushed; null for a third of the heap */
+    public Integer memtable_total_space_in_mb;
+    /* Fraction of the old generation still in use after it is collected at which memtables are flushed and caches shrunk */
+    public Double heap_pressure_threshold = 0.85;
+    public Double reduce_cache_capacity_to = 0.6;
+    /* Heap shared by all key and row caches, tuned by hit rate; null to keep per-CF capacities */
+    public Integer cache_total_space_in_mb;
+    public Boolean row_cache_admission_filter = true;
+    public Boolean scans_populate_row_cache = true;
     
     /* if the size of columns or super-columns are more than this, indexing will kick in */
     public Integer column_index_size_in_kb = 64;
@@ -94,4 +110,16 @@ public class Config {
     {
         keyspace
     }
+
+    public static enum RpcServerType
+    {
+        sync,
+        hsha
+    }
+
+    public static enum MemtableAllocation
+    {
+        heap,
+        slab
+    }
 }
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.cassandra.auth.AllowAllAuthenticator;
 import org.apache.cassandra.auth.IAuthenticator;
 import org.apache.cassandra.config.Config.RequestSchedulerId;
+import org.apache.cassandra.db.AbstractCompactionStrategy;
 import org.apache.cassandra.db.ClockType;
 import org.apache.cassandra.db.ColumnFamilyType;
 import org.apache.cassandra.db.DefsTable;
@@ -52,6 +53,7 @@ import org.apache.cassandra.scheduler.IRequestScheduler;
 import org.apache.cassandra.scheduler.NoScheduler;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.Filter;
 import org.apache.cassandra.utils.Pair;
 import org.yaml.snakeyaml.Loader;
 import org.yaml.snakeyaml.TypeDescription;
@@ -241,6 +243,15 @@ public class DatabaseDescriptor
                 conf.memtable_flush_writers = conf.data_file_directories.length;
             }
 
+            if (conf.concurrent_streams == null || conf.concurrent_streams < 1)
+            {
+                throw new ConfigurationException("concurrent_streams must be at least 1");
+            }
+            if (conf.stream_throughput_outbound_megabits_per_sec == null || conf.stream_throughput_outbound_megabits_per_sec < 0)
+            {
+                throw new ConfigurationException("stream_throughput_outbound_megabits_per_sec must be positive, or 0 to disable throttling");
+            }
+
             /* Local IP or hostname to bind services to */
             if (conf.listen_address != null)
             {
@@ -267,6 +278,17 @@ public class DatabaseDescriptor
             {
                 throw new ConfigurationException("thrift_max_message_length_in_mb must be greater than thrift_framed_transport_size_in_mb when using TFramedTransport");
             }
+
+            /* Thrift server type */
+            if (conf.rpc_server_type == Config.RpcServerType.hsha)
+            {
+                if (conf.thrift_framed_transport_size_in_mb <= 0)
+                    throw new ConfigurationException("rpc_server_type hsha requires TFramedTransport; set thrift_framed_transport_size_in_mb");
+                if (conf.rpc_max_threads != null && conf.rpc_max_threads < 1)
+                    throw new ConfigurationException("rpc_max_threads must be at least 1");
+            }
+            if (conf.rpc_max_threads == null)
+                conf.rpc_max_threads = conf.concurrent_reads + conf.concurrent_writes;
             
             /* end point snitch */
             if (conf.endpoint_snitch == null)
@@ -319,6 +341,26 @@ public class DatabaseDescriptor
                 throw new ConfigurationException("memtable_operations_in_millions must be a positive double");
             }
             
+            if (conf.memtable_total_space_in_mb != null && conf.memtable_total_space_in_mb < 0)
+            {
+                throw new ConfigurationException("memtable_total_space_in_mb must not be negative");
+            }
+
+            if (conf.heap_pressure_threshold == null || conf.heap_pressure_threshold <= 0)
+            {
+                throw new ConfigurationException("heap_pressure_threshold must be a positive fraction of the heap");
+            }
+
+            if (conf.reduce_cache_capacity_to == null || conf.reduce_cache_capacity_to < 0 || conf.reduce_cache_capacity_to > 1)
+            {
+                throw new ConfigurationException("reduce_cache_capacity_to must be between 0 and 1");
+            }
+
+            if (conf.cache_total_space_in_mb != null && conf.cache_total_space_in_mb < 0)
+            {
+                throw new ConfigurationException("cache_total_space_in_mb must not be negative");
+            }
+
             if (conf.in_memory_compaction_limit_in_mb != null && conf.in_memory_compaction_limit_in_mb <= 0)
             {
                 throw new ConfigurationException("in_memory_compaction_limit_in_mb must be a positive integer");
@@ -603,7 +645,18 @@ public class DatabaseDescriptor
                     }
                 }
 
-                cfDefs[j++] = new CFMetaData(keyspace.name, 
+                if (cf.row_cache_head_columns < 0)
+                {
+                    throw new ConfigurationException("row_cache_head_columns must not be negative");
+                }
+                if (cf.bloom_filter_fp_chance != null)
+                {
+                    double minFpChance = Filter.minSupportedFalsePositiveChance();
+                    if (cf.bloom_filter_fp_chance < minFpChance || cf.bloom_filter_fp_chance > 1.0)
+                        throw new ConfigurationException("bloom_filter_fp_chance must be between " + minFpChance + " and 1.0");
+                }
+
+                CFMetaData cfm = new CFMetaData(keyspace.name, 
                                              cf.name, 
                                              cfType, 
                                              cf.clock_type, 
@@ -616,6 +669,11 @@ public class DatabaseDescriptor
                                              cf.keys_cached, 
                                              cf.read_repair_chance, 
                                              metadata);
+                cfm.rowCacheHeadColumns = cf.row_cache_head_columns;
+                cfm.bloomFilterFpChance = cf.bloom_filter_fp_chance;
+                if (cf.compaction_strategy != null)
+                    cfm.compactionStrategyClass = getCompactionStrategyClass(cf.compaction_strategy);
+                cfDefs[j++] = cfm;
             }
             defs.add(new KSMetaData(keyspace.name, strategyClass, keyspace.replication_factor, cfDefs));
             
@@ -644,6 +702,16 @@ public class DatabaseDescriptor
         return conf.thrift_framed_transport_size_in_mb * 1024 * 1024;
     }
 
+    public static Config.RpcServerType getRpcServerType()
+    {
+        return conf.rpc_server_type;
+    }
+
+    public static int getRpcMaxThreads()
+    {
+        return conf.rpc_max_threads;
+    }
+
     public static AbstractType getComparator(String compareWith) throws ConfigurationException
     {
         logger.info(compareWith);
@@ -685,6 +753,23 @@ public class DatabaseDescriptor
         }
     }
 
+    public static Class<? extends AbstractCompactionStrategy> getCompactionStrategyClass(String strategy) throws ConfigurationException
+    {
+        String className = strategy.contains(".") ? strategy : AbstractCompactionStrategy.class.getPackage().getName() + "." + strategy;
+        Class<?> strategyClass;
+        try
+        {
+            strategyClass = Class.forName(className);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new ConfigurationException("Unable to load class " + className);
+        }
+        if (!AbstractCompactionStrategy.class.isAssignableFrom(strategyClass))
+            throw new ConfigurationException(className + " is not a compaction strategy");
+        return strategyClass.asSubclass(AbstractCompactionStrategy.class);
+    }
+
     public static AbstractReconciler getReconciler(String reconcileWith) throws ConfigurationException
     {
         if (reconcileWith == null || "".equals(reconcileWith))
@@ -828,6 +913,55 @@ public class DatabaseDescriptor
       return conf.memtable_operations_in_millions;
     }
 
+    public static Config.MemtableAllocation getMemtableAllocation()
+    {
+        return conf.memtable_allocation;
+    }
+
+    /**
+     * @return the heap, in bytes, that all memtables may occupy before the largest is flushed; 0 for no limit
+     */
+    public static long getTotalMemtableSpace()
+    {
+        if (conf.memtable_total_space_in_mb == null)
+            return Runtime.getRuntime().maxMemory() / 3;
+        return conf.memtable_total_space_in_mb * 1024L * 1024L;
+    }
+
+    /**
+     * @return the fraction of the old generation in use after it is collected beyond which memtables are flushed
+     * and caches shrunk
+     */
+    public static double getHeapPressureThreshold()
+    {
+        return conf.heap_pressure_threshold;
+    }
+
+    public static double getReduceCacheCapacityTo()
+    {
+        return conf.reduce_cache_capacity_to;
+    }
+
+    /**
+     * @return the heap, in bytes, that the key and row caches of all column families share; 0 for no tuning
+     */
+    public static long getCacheTotalSpace()
+    {
+        if (conf.cache_total_space_in_mb == null)
+            return 0;
+        return conf.cache_total_space_in_mb * 1024L * 1024L;
+    }
+
+    public static boolean isRowCacheAdmissionFilterEnabled()
+    {
+        return conf.row_cache_admission_filter;
+    }
+
+    public static boolean getScansPopulateRowCache()
+    {
+        return conf.scans_populate_row_cache;
+    }
+
     public static String getClusterName()
     {
         return conf.cluster_name;
@@ -948,6 +1082,21 @@ public class DatabaseDescriptor
         return conf.concurrent_writes;
     }
 
+    public static int getConcurrentStreams()
+    {
+        return conf.concurrent_streams;
+    }
+
+    public static int getStreamThroughputOutboundMegabitsPerSec()
+    {
+        return conf.stream_throughput_outbound_megabits_per_sec;
+    }
+
+    public static void setStreamThroughputOutboundMegabitsPerSec(int value)
+    {
+        conf.stream_throughput_outbound_megabits_per_sec = value;
+    }
+
     public static int getFlushWriters()
     {
             return conf.memtable_flush_writers;
@@ -1164,6 +1313,16 @@ public class DatabaseDescriptor
         return conf.snapshot_before_compaction;
     }
 
+    public static boolean isIncrementalBackupsEnabled()
+    {
+        return conf.incremental_backups;
+    }
+
+    public static void setIncrementalBackupsEnabled(boolean value)
+    {
+        conf.incremental_backups = value;
+    }
+
     public static boolean isAutoBootstrap()
     {
         return conf.auto_bootstrap;
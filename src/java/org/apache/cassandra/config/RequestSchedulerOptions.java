@@ -20,10 +20,18 @@ package org.apache.cassandra.config;
  * 
  */
 
+import java.util.Map;
+
 /**
  *
  */
 public class RequestSchedulerOptions
 {
     public Integer throttle_limit = 80;
+
+    // WeightedFairScheduler only
+    public Integer default_weight = 1;
+    public Map<String, Integer> weights;
+    public Integer queue_depth_limit = 1000;
+    public Integer latency_target_in_ms = 100;
 }
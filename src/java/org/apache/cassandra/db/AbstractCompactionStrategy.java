@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.cassandra.io.sstable.SSTableReader;
+
+/**
+ * Decides which sstables of a column family to compact together.  One instance is created per
+ * ColumnFamilyStore, through a constructor taking that store, from the class named in its CFMetaData.
+ *
+ * compactIfNeeded is only ever called from the (single-threaded) compaction executor; sstablesChanged
+ * is called whenever the live sstable set changes, from flushes as well as compactions.
+ */
+public abstract class AbstractCompactionStrategy
+{
+    protected final ColumnFamilyStore cfs;
+
+    protected AbstractCompactionStrategy(ColumnFamilyStore cfs)
+    {
+        this.cfs = cfs;
+    }
+
+    /**
+     * Performs at most one compaction, if one is worth doing.
+     * @return the number of sstables compacted, or 0 if nothing was done
+     */
+    public abstract int compactIfNeeded(int gcBefore) throws IOException;
+
+    /**
+     * @return roughly how many compactions are needed before compactIfNeeded would have nothing left to do
+     */
+    public abstract int getEstimatedRemainingTasks();
+
+    /**
+     * Called after sstables are added to or removed from the column family.
+     */
+    public void sstablesChanged(Collection<SSTableReader> removed, Iterable<SSTableReader> added)
+    {
+    }
+
+    /**
+     * @return the number of sstables in each level, or null if this strategy does not organize sstables in levels
+     */
+    public int[] getSSTableCountPerLevel()
+    {
+        return null;
+    }
+
+    /**
+     * @return the data size in bytes of each level, or null if this strategy does not organize sstables in levels
+     */
+    public long[] getBytesPerLevel()
+    {
+        return null;
+    }
+}
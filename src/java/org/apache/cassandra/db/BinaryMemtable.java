@@ -117,10 +117,10 @@ public class BinaryMemtable implements IFlushable
         return keys;
     }
 
-    private SSTableReader writeSortedContents(List<DecoratedKey> sortedKeys) throws IOException
+    private SSTableReader writeSortedContents(List<DecoratedKey> sortedKeys, String directory) throws IOException
     {
         logger.info("Writing " + this);
-        String path = cfs.getFlushPath();
+        String path = cfs.getTempSSTablePath(directory);
         SSTableWriter writer = new SSTableWriter(path, sortedKeys.size(), StorageService.getPartitioner());
 
         for (DecoratedKey key : sortedKeys)
@@ -134,21 +134,23 @@ public class BinaryMemtable implements IFlushable
         return sstable;
     }
 
-    public void flushAndSignal(final Condition condition, ExecutorService sorter, final ExecutorService writer)
+    public void flushAndSignal(final Condition condition, ExecutorService sorter, final FlushWriters writers)
     {
         sorter.submit(new Runnable()
         {
             public void run()
             {
                 final List<DecoratedKey> sortedKeys = getSortedKeys();
+                long bytes = currentSize.get();
+                final FlushWriters.Writer writer = writers.getWriter(bytes);
                 writer.submit(new WrappedRunnable()
                 {
                     public void runMayThrow() throws IOException
                     {
-                        cfs.addSSTable(writeSortedContents(sortedKeys));
+                        cfs.addSSTable(writeSortedContents(sortedKeys, writer.getDirectoryForTable(cfs.getTable().name)));
                         condition.signalAll();
                     }
-                });
+                }, bytes);
             }
         });
     }
@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db;
+
+import java.util.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.cache.InstrumentedCache;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTableTracker;
+import org.apache.cassandra.utils.ObjectSizes;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * Shares cache_total_space_in_mb between the key and row caches of all column families, moving capacity towards
+ * the caches that make the best use of it.
+ *
+ * Each run measures, for every cache, the hits it served since the last run per byte it occupies. A cache that is
+ * full is assumed to gain about that much again per byte it grows, while a cache that is not full gains nothing
+ * from growing. A step of the budget is then taken from the cache earning the least per byte and given to the full
+ * cache earning the most, provided it earns clearly more, so that capacity does not oscillate between caches of
+ * similar value. Bytes per entry are estimated from a sample of each cache's contents.
+ */
+class CacheTuner extends TimerTask
+{
+    private static final Logger logger = LoggerFactory.getLogger(CacheTuner.class);
+
+    static final long INTERVAL_IN_MS = 60 * 1000;
+    // fraction of the budget moved per run
+    static final double STEP = 0.05;
+    // how much more per byte a cache must earn than another before capacity moves to it
+    static final double HYSTERESIS = 1.25;
+    // caches are never tuned below this, so that they can still show what they would earn
+    static final int MIN_CAPACITY = 100;
+    static final int SAMPLE_SIZE = 100;
+
+    // a ConcurrentLinkedHashMap node and the ConcurrentHashMap entry that refers to it
+    private static final int CACHE_ENTRY = ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 4 * ObjectSizes.REFERENCE)
+                                           + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 4 + 3 * ObjectSizes.REFERENCE);
+    // a DecoratedKey, without its key and token
+    private static final int DECORATED_KEY = ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 2 * ObjectSizes.REFERENCE);
+    // a Pair holding a Descriptor and a DecoratedKey, mapped to a Long position
+    private static final int KEY_CACHE_ENTRY = CACHE_ENTRY
+                                               + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 2 * ObjectSizes.REFERENCE)
+                                               + DECORATED_KEY
+                                               + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 8);
+    // a DecoratedKey mapped to a ColumnFamily, without its columns
+    private static final int ROW_CACHE_ENTRY = CACHE_ENTRY
+                                               + DECORATED_KEY
+                                               + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 8 * ObjectSizes.REFERENCE)
+                                               + ObjectSizes.SKIP_LIST;
+
+    private final Map<InstrumentedCache, Long> lastHits = new IdentityHashMap<InstrumentedCache, Long>();
+
+    public void run()
+    {
+        long budget = DatabaseDescriptor.getCacheTotalSpace();
+        if (budget <= 0)
+            return;
+        // the timer is shared with the memtable expiry checks, which an exception would cancel along with it
+        try
+        {
+            tune(budget);
+        }
+        catch (Throwable t)
+        {
+            logger.error("Error tuning cache capacities to stay within cache_total_space_in_mb", t);
+        }
+    }
+
+    /**
+     * Moves at most one step of the budget between caches, or shrinks them all if together they exceed it.
+     */
+    void tune(long budget)
+    {
+        List<TunedCache> caches = tunedCaches();
+        if (caches.isEmpty())
+            return;
+
+        long total = totalBytes(caches);
+        if (total > budget)
+        {
+            double ratio = (double) budget / total;
+            logger.info("Caches would occupy {} bytes, over the budget of {} bytes; shrinking them all to {} of their capacities",
+                        new Object[]{ total, budget, String.format("%.2f", ratio) });
+            // leave every cache enough capacity to show what it would earn, even if that overshoots the budget a little
+            for (TunedCache cache : caches)
+                cache.resize(Math.max(Math.min(cache.capacity, MIN_CAPACITY), (int) (cache.capacity * ratio)));
+            return;
+        }
+
+        TunedCache best = null;
+        TunedCache worst = null;
+        for (TunedCache cache : caches)
+        {
+            long hits = cache.cache.getHits();
+            Long previous = lastHits.put(cache.cache, hits);
+            // hits served since the last run, per byte of capacity
+            cache.score = cache.capacity == 0 ? 0 : (previous == null || previous > hits ? hits : hits - previous) / (double) cache.bytes();
+            if (cache.isFull() && (best == null || cache.score > best.score))
+                best = cache;
+            if (cache.capacity > MIN_CAPACITY && (worst == null || cache.score < worst.score))
+                worst = cache;
+        }
+        if (best == null || best.score == 0)
+            return;
+
+        long step = (long) (budget * STEP);
+        long granted = Math.min(step, budget - total);
+        if (granted < step && worst != null && worst != best && best.score > worst.score * HYSTERESIS)
+        {
+            int taken = (int) Math.min((step - granted) / worst.entrySize, worst.capacity - MIN_CAPACITY);
+            logger.info("Moving {} bytes from {} to {}, which earns {} times as many hits per byte",
+                        new Object[]{ (long) (taken * worst.entrySize), worst, best, String.format("%.1f", worst.score == 0 ? Double.POSITIVE_INFINITY : best.score / worst.score) });
+            worst.resize(worst.capacity - taken);
+            granted += (long) (taken * worst.entrySize);
+        }
+        if (granted > 0)
+        {
+            int added = (int) Math.min(granted / best.entrySize, Integer.MAX_VALUE - best.capacity);
+            if (logger.isDebugEnabled())
+                logger.debug("Growing {} by {} entries", best, added);
+            best.resize(best.capacity + added);
+        }
+    }
+
+    /**
+     * @return the caches that are tuned: those of all column families, unless configured to be off or resized manually
+     */
+    static List<TunedCache> tunedCaches()
+    {
+        List<TunedCache> caches = new ArrayList<TunedCache>();
+        for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+        {
+            SSTableTracker tracker = cfs.getSSTableTracker();
+            if (!tracker.getKeyCache().isCapacitySetManually() && tracker.getConfiguredKeyCacheCapacity() > 0)
+                caches.add(new TunedCache(cfs, false));
+            if (!tracker.getRowCache().isCapacitySetManually() && tracker.getConfiguredRowCacheCapacity() > 0)
+                caches.add(new TunedCache(cfs, true));
+        }
+        return caches;
+    }
+
+    static long totalBytes(List<TunedCache> caches)
+    {
+        long total = 0;
+        for (TunedCache cache : caches)
+            total += cache.bytes();
+        return total;
+    }
+
+    static class TunedCache
+    {
+        final ColumnFamilyStore cfs;
+        final boolean isRowCache;
+        final InstrumentedCache cache;
+        final int capacity;
+        final double entrySize;
+        double score;
+
+        TunedCache(ColumnFamilyStore cfs, boolean isRowCache)
+        {
+            this.cfs = cfs;
+            this.isRowCache = isRowCache;
+            SSTableTracker tracker = cfs.getSSTableTracker();
+            cache = isRowCache ? tracker.getRowCache() : tracker.getKeyCache();
+            capacity = isRowCache ? tracker.getRowCacheBaseCapacity() : tracker.getKeyCacheBaseCapacity();
+            entrySize = isRowCache ? rowCacheEntrySize(cfs, tracker.getRowCache()) : keyCacheEntrySize(tracker.getKeyCache());
+        }
+
+        long bytes()
+        {
+            return (long) (capacity * entrySize);
+        }
+
+        boolean isFull()
+        {
+            // the cache may be resized below its base capacity under heap pressure, so compare against that
+            return cache.getCapacity() > 0 && cache.getSize() >= cache.getCapacity() * 0.95;
+        }
+
+        void resize(int newCapacity)
+        {
+            if (isRowCache)
+                cfs.getSSTableTracker().setTunedRowCacheCapacity(newCapacity);
+            else
+                cfs.getSSTableTracker().setTunedKeyCacheCapacity(newCapacity);
+        }
+
+        public String toString()
+        {
+            return cfs.getColumnFamilyName() + (isRowCache ? " row cache" : " key cache");
+        }
+    }
+
+    static double keyCacheEntrySize(InstrumentedCache<Pair<Descriptor, DecoratedKey>, Long> cache)
+    {
+        int sampled = 0;
+        long keyBytes = 0;
+        for (Pair<Descriptor, DecoratedKey> key : cache.getKeySet())
+        {
+            if (sampled == SAMPLE_SIZE)
+                break;
+            // the token usually holds a copy of the key, or a number of about the same size
+            keyBytes += 2 * ObjectSizes.sizeOf(key.right.key);
+            sampled++;
+        }
+        return KEY_CACHE_ENTRY + (sampled == 0 ? 2 * ObjectSizes.ARRAY_HEADER : (double) keyBytes / sampled);
+    }
+
+    static double rowCacheEntrySize(ColumnFamilyStore cfs, InstrumentedCache<DecoratedKey, ColumnFamily> cache)
+    {
+        int sampled = 0;
+        long rowBytes = 0;
+        for (DecoratedKey key : cache.getKeySet())
+        {
+            ColumnFamily cf = cache.getInternal(key);
+            if (cf == null)
+                continue;
+            if (sampled == SAMPLE_SIZE)
+                break;
+            rowBytes += 2 * ObjectSizes.sizeOf(key.key);
+            for (IColumn column : cf.getSortedColumns())
+                rowBytes += ObjectSizes.SKIP_LIST_ENTRY + column.heapSize();
+            sampled++;
+        }
+        // with nothing cached yet, assume rows take about twice their serialized size on the heap
+        return ROW_CACHE_ENTRY + (sampled == 0 ? 2 * cfs.getMeanRowCompactedSize() : (double) rowBytes / sampled);
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.cassandra.db;
 import java.util.Arrays;
 import java.util.Collection;
 import java.security.MessageDigest;
+import java.io.DataOutput;
 import java.io.IOException;
 
 import org.slf4j.Logger;
@@ -31,6 +32,7 @@ import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.IClock.ClockRelationship;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.ObjectSizes;
 
 
 /**
@@ -50,6 +52,9 @@ public class Column implements IColumn
 
     protected final byte[] name;
     protected final byte[] value;
+    // a timestamp clock is kept as a primitive, so that there is no clock object per column and reconciling
+    // compares longs directly; clock is only set for other clock types
+    protected final long timestamp;
     protected final IClock clock;
 
     Column(byte[] name)
@@ -70,7 +75,27 @@ public class Column implements IColumn
         assert name.length <= IColumn.MAX_NAME_LENGTH;
         this.name = name;
         this.value = value;
-        this.clock = clock;
+        if (clock == null || clock instanceof TimestampClock)
+        {
+            this.timestamp = clock == null ? Long.MIN_VALUE : ((TimestampClock) clock).timestamp();
+            this.clock = null;
+        }
+        else
+        {
+            this.timestamp = Long.MIN_VALUE;
+            this.clock = clock;
+        }
+    }
+
+    public Column(byte[] name, byte[] value, long timestamp)
+    {
+        assert name != null;
+        assert value != null;
+        assert name.length <= IColumn.MAX_NAME_LENGTH;
+        this.name = name;
+        this.value = value;
+        this.timestamp = timestamp;
+        this.clock = null;
     }
 
     public byte[] name()
@@ -95,7 +120,48 @@ public class Column implements IColumn
 
     public IClock clock()
     {
-        return clock;
+        return clock == null ? new TimestampClock(timestamp) : clock;
+    }
+
+    /**
+     * @return true if this column has a timestamp clock, which timestamp() returns without allocating
+     */
+    public boolean hasTimestamp()
+    {
+        return clock == null;
+    }
+
+    public long timestamp()
+    {
+        assert clock == null : "column does not have a timestamp clock";
+        return timestamp;
+    }
+
+    /**
+     * @return how this column's clock relates to the given one; the same as clock().compare(other), without
+     * allocating a clock when both are timestamps
+     */
+    public ClockRelationship compareClock(IClock other)
+    {
+        if (clock == null && other instanceof TimestampClock)
+            return compareTimestamps(timestamp, ((TimestampClock) other).timestamp());
+        return clock().compare(other);
+    }
+
+    private static ClockRelationship compareTimestamps(long t1, long t2)
+    {
+        return t1 > t2 ? ClockRelationship.GREATER_THAN : (t1 == t2 ? ClockRelationship.EQUAL : ClockRelationship.LESS_THAN);
+    }
+
+    /**
+     * Writes the clock as its ClockType serializer would.
+     */
+    protected void serializeClock(DataOutput out) throws IOException
+    {
+        if (clock == null)
+            out.writeLong(timestamp);
+        else
+            clock.serialize(out);
     }
 
     public boolean isMarkedForDelete()
@@ -110,7 +176,16 @@ public class Column implements IColumn
 
     public IClock mostRecentLiveChangeAt()
     {
-        return clock;
+        return clock();
+    }
+
+    public int heapSize()
+    {
+        // a clock object is assumed to be unshared, and to cost its serialized size plus a header
+        return ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 3 * ObjectSizes.REFERENCE + DBConstants.tsSize_)
+               + ObjectSizes.sizeOf(name)
+               + ObjectSizes.sizeOf(value)
+               + (clock == null ? 0 : ObjectSizes.align(ObjectSizes.OBJECT_HEADER + clock.size()));
     }
 
     public int size()
@@ -123,7 +198,8 @@ public class Column implements IColumn
          * + 4 bytes which basically indicates the size of the byte array
          * + entire byte array.
         */
-        return DBConstants.shortSize_ + name.length + DBConstants.boolSize_ + clock.size() + DBConstants.intSize_ + value.length;
+        int clockSize = clock == null ? DBConstants.tsSize_ : clock.size();
+        return DBConstants.shortSize_ + name.length + DBConstants.boolSize_ + clockSize + DBConstants.intSize_ + value.length;
     }
 
     /*
@@ -142,7 +218,9 @@ public class Column implements IColumn
 
     public IColumn diff(IColumn column)
     {
-        if (ClockRelationship.GREATER_THAN == column.clock().compare(clock))
+        if (clock == null && column instanceof Column && ((Column) column).clock == null)
+            return ((Column) column).timestamp > timestamp ? column : null;
+        if (ClockRelationship.GREATER_THAN == column.clock().compare(clock()))
         {
             return column;
         }
@@ -156,7 +234,7 @@ public class Column implements IColumn
         DataOutputBuffer buffer = new DataOutputBuffer();
         try
         {
-            clock.serialize(buffer);
+            serializeClock(buffer);
             buffer.writeByte((isMarkedForDelete()) ? ColumnSerializer.DELETION_MASK : 0);
         }
         catch (IOException e)
@@ -174,7 +252,9 @@ public class Column implements IColumn
     // note that we do not call this simply compareTo since it also makes sense to compare Columns by name
     public ClockRelationship comparePriority(Column o)
     {
-        ClockRelationship rel = clock.compare(o.clock());
+        ClockRelationship rel = clock == null && o.clock == null
+                                ? compareTimestamps(timestamp, o.timestamp)
+                                : clock().compare(o.clock());
 
         // tombstone always wins ties.
         if (isMarkedForDelete())
@@ -224,6 +304,8 @@ public class Column implements IColumn
 
         Column column = (Column)o;
 
+        if (timestamp != column.timestamp)
+            return false;
         if (clock != null ? !clock.equals(column.clock) : column.clock != null)
             return false;
         if (!Arrays.equals(name, column.name))
@@ -237,7 +319,7 @@ public class Column implements IColumn
     {
         int result = name != null ? Arrays.hashCode(name) : 0;
         result = 31 * result + (value != null ? Arrays.hashCode(value) : 0);
-        result = 31 * result + (clock != null ? clock.hashCode() : 0);
+        result = 31 * result + (clock != null ? clock.hashCode() : (int) (timestamp ^ (timestamp >>> 32)));
         return result;
     }
 
@@ -250,7 +332,7 @@ public class Column implements IColumn
         sb.append(":");
         sb.append(value.length);
         sb.append("@");
-        sb.append(clock.toString());
+        sb.append(clock == null ? Long.toString(timestamp) : clock.toString());
         return sb.toString();
     }
 }
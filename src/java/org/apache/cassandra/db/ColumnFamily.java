@@ -37,6 +37,7 @@ import org.apache.cassandra.db.filter.QueryPath;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.io.util.IIterableColumns;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.ObjectSizes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -227,29 +228,35 @@ public class ColumnFamily implements IColumnContainer, IIterableColumns
      * the ask it to resolve itself else add the new column .
     */
     public void addColumn(IColumn column)
+    {
+        addColumnWithSizeDelta(column);
+    }
+
+    /**
+     * Same as addColumn.
+     * @return the change in the heap held by this column family's columns
+     */
+    long addColumnWithSizeDelta(IColumn column)
     {
         byte[] name = column.name();
         IColumn oldColumn = columns.putIfAbsent(name, column);
-        if (oldColumn != null)
+        if (oldColumn == null)
+            return ObjectSizes.SKIP_LIST_ENTRY + column.heapSize();
+
+        if (oldColumn instanceof SuperColumn)
+            return ((SuperColumn) oldColumn).putColumnWithSizeDelta(column);
+
+        // calculate reconciled col from old (existing) col and new col
+        IColumn reconciledColumn = reconciler.reconcile((Column)column, (Column)oldColumn);
+        while (!columns.replace(name, oldColumn, reconciledColumn))
         {
-            if (oldColumn instanceof SuperColumn)
-            {
-                ((SuperColumn) oldColumn).putColumn(column);
-            }
-            else
-            {
-                // calculate reconciled col from old (existing) col and new col
-                IColumn reconciledColumn = reconciler.reconcile((Column)column, (Column)oldColumn);
-                while (!columns.replace(name, oldColumn, reconciledColumn))
-                {
-                    // if unable to replace, then get updated old (existing) col
-                    oldColumn = columns.get(name);
-                    // re-calculate reconciled col from updated old col and original new col
-                    reconciledColumn = reconciler.reconcile((Column)column, (Column)oldColumn);
-                    // try to re-update value, again
-                }
-            }
+            // if unable to replace, then get updated old (existing) col
+            oldColumn = columns.get(name);
+            // re-calculate reconciled col from updated old col and original new col
+            reconciledColumn = reconciler.reconcile((Column)column, (Column)oldColumn);
+            // try to re-update value, again
         }
+        return reconciledColumn.heapSize() - oldColumn.heapSize();
     }
 
     public IColumn getColumn(byte[] name)
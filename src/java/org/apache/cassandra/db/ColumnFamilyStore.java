@@ -41,6 +41,7 @@ import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.IClock.ClockRelationship;
 import org.apache.cassandra.db.clock.TimestampReconciler;
@@ -60,6 +61,7 @@ import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.thrift.IndexClause;
 import org.apache.cassandra.thrift.IndexExpression;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.Filter;
 import org.apache.cassandra.utils.LatencyTracker;
 import org.apache.cassandra.utils.SimpleCondition;
 import org.apache.cassandra.utils.WrappedRunnable;
@@ -90,13 +92,6 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                                                TimeUnit.SECONDS,
                                                new LinkedBlockingQueue<Runnable>(Runtime.getRuntime().availableProcessors()),
                                                new NamedThreadFactory("FLUSH-SORTER-POOL"));
-    private static ExecutorService flushWriter_
-            = new JMXEnabledThreadPoolExecutor(1,
-                                               DatabaseDescriptor.getFlushWriters(),
-                                               StageManager.KEEPALIVE,
-                                               TimeUnit.SECONDS,
-                                               new LinkedBlockingQueue<Runnable>(DatabaseDescriptor.getFlushWriters()),
-                                               new NamedThreadFactory("FLUSH-WRITER-POOL"));
     private static ExecutorService commitLogUpdater_ = new JMXEnabledThreadPoolExecutor("MEMTABLE-POST-FLUSHER");
     
     private static final FilenameFilter DB_NAME_FILTER = new FilenameFilter()
@@ -137,6 +132,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     private long rowsCompactedTotalSize = 0L;
     private long rowsCompactedCount = 0L;
     final CFMetaData metadata;
+    private final AbstractCompactionStrategy compactionStrategy;
 
     ColumnFamilyStore(String table, String columnFamilyName, IPartitioner partitioner, int generation, CFMetaData metadata)
     {
@@ -146,19 +142,19 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         this.metadata = metadata;
         this.partitioner_ = partitioner;
         fileIndexGenerator_.set(generation);
-        memtable_ = new Memtable(this, partitioner_);
+        memtable_ = newMemtable();
         binaryMemtable_ = new AtomicReference<BinaryMemtable>(new BinaryMemtable(this));
 
         if (logger_.isDebugEnabled())
             logger_.debug("Starting CFS {}", columnFamily_);
         // scan for data files corresponding to this CF
         List<File> sstableFiles = new ArrayList<File>();
-        Pattern auxFilePattern = Pattern.compile("(.*)(-Filter\\.db$|-Index\\.db$)");
+        Pattern auxFilePattern = Pattern.compile("(.*)(-Filter\\.db$|-Index\\.db$|-Hashes\\.db$)");
         for (File file : files())
         {
             String filename = file.getName();
 
-            /* look for and remove orphans. An orphan is a -Filter.db or -Index.db with no corresponding -Data.db. */
+            /* look for and remove orphans. An orphan is a -Filter.db, -Index.db or -Hashes.db with no corresponding -Data.db. */
             Matcher matcher = auxFilePattern.matcher(file.getAbsolutePath());
             if (matcher.matches())
             {
@@ -220,6 +216,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         }
         ssTables_ = new SSTableTracker(table, columnFamilyName);
         ssTables_.add(sstables);
+        compactionStrategy = createCompactionStrategy(metadata.compactionStrategyClass);
 
         indexedColumns_ = new TreeMap<byte[], ColumnFamilyStore>(BytesType.instance);
         for (Map.Entry<byte[], ColumnDefinition> entry : metadata.column_metadata.entrySet())
@@ -255,6 +252,23 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         }
     }
 
+    private AbstractCompactionStrategy createCompactionStrategy(Class<? extends AbstractCompactionStrategy> strategyClass)
+    {
+        try
+        {
+            return strategyClass.getConstructor(ColumnFamilyStore.class).newInstance(this);
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException("Unable to create compaction strategy " + strategyClass.getName() + " for " + columnFamily_, e);
+        }
+    }
+
+    public AbstractCompactionStrategy getCompactionStrategy()
+    {
+        return compactionStrategy;
+    }
+
     public void addToCompactedRowStats(long rowsize)
     {
         if (minRowCompactedSize < 1 || rowsize < minRowCompactedSize)
@@ -382,6 +396,13 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return desc.filenameFor("Data.db");
     }
 
+    private Memtable newMemtable()
+    {
+        return DatabaseDescriptor.getMemtableAllocation() == Config.MemtableAllocation.slab
+               ? new SlabMemtable(this, partitioner_)
+               : new Memtable(this, partitioner_);
+    }
+
     /** flush the given memtable and swap in a new one for its CFS, if it hasn't been frozen already.  threadsafe. */
     Future<?> maybeSwitchMemtable(Memtable oldMemtable, final boolean writeCommitLog)
     {
@@ -402,7 +423,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
             final CommitLogSegment.CommitLogContext ctx = writeCommitLog ? CommitLog.instance().getContext() : null;
             logger_.info(columnFamily_ + " has reached its threshold; switching in a fresh Memtable at " + ctx);
             final Condition condition = submitFlush(oldMemtable);
-            memtable_ = new Memtable(this, partitioner_);
+            memtable_ = newMemtable();
             // a second executor that makes sure the onMemtableFlushes get called in the right order,
             // while keeping the wait-for-flush (future.get) out of anything latency-sensitive.
             return commitLogUpdater_.submit(new WrappedRunnable()
@@ -546,7 +567,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
             }
             else
             {
-                ClockRelationship rel = c.clock().compare(cf.getMarkedForDeleteAt());
+                ClockRelationship rel = ((Column) c).compareClock(cf.getMarkedForDeleteAt());
                 if ((ClockRelationship.LESS_THAN == rel) || (ClockRelationship.EQUAL == rel))
                 {
                     cf.remove(cname);
@@ -577,7 +598,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 }
                 else
                 {
-                    ClockRelationship subRel = subColumn.clock().compare(minClock);
+                    ClockRelationship subRel = ((Column) subColumn).compareClock(minClock);
                     if ((ClockRelationship.LESS_THAN == subRel) || (ClockRelationship.EQUAL == subRel))
                     {
                         c.remove(subColumn.name());
@@ -591,6 +612,35 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         }
     }
 
+    /**
+     * @return True if removeDeleted would leave the given (non-empty) row untouched for any value of gcBefore: ie,
+     * if it contains no tombstones and nothing that can expire. Only timestamp clocks are considered, since
+     * other clock types may be rewritten when rows are merged.
+     */
+    public static boolean isUnaffectedByPurge(ColumnFamily cf)
+    {
+        if (cf.getClockType() != ClockType.Timestamp || cf.isMarkedForDelete() || cf.getColumnCount() == 0)
+            return false;
+        for (IColumn column : cf.getSortedColumns())
+        {
+            if (column instanceof SuperColumn)
+            {
+                if (column.isMarkedForDelete() || column.getSubColumns().isEmpty())
+                    return false;
+                for (IColumn subColumn : column.getSubColumns())
+                {
+                    if (subColumn.isMarkedForDelete() || subColumn instanceof ExpiringColumn)
+                        return false;
+                }
+            }
+            else if (column.isMarkedForDelete() || column instanceof ExpiringColumn)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /*
      * Called after the Memtable flushes its in-memory data, or we add a file
      * via bootstrap. This information is
@@ -604,6 +654,8 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     public void addSSTable(SSTableReader sstable)
     {
         ssTables_.add(Arrays.asList(sstable));
+        compactionStrategy.sstablesChanged(Collections.<SSTableReader>emptyList(), Arrays.asList(sstable));
+        maybeBackup(Arrays.asList(sstable));
         CompactionManager.instance.submitMinorIfNeeded(this);
     }
 
@@ -650,9 +702,23 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return Table.open(table_);
     }
 
+    SSTableTracker getSSTableTracker()
+    {
+        return ssTables_;
+    }
+
+    /**
+     * Shrinks (or restores) the key and row caches to the given fraction of their configured capacities.
+     */
+    public void setCacheCapacityScale(double scale)
+    {
+        ssTables_.setCacheCapacityScale(scale);
+    }
+
     void markCompacted(Collection<SSTableReader> sstables)
     {
         ssTables_.markCompacted(sstables);
+        compactionStrategy.sstablesChanged(sstables, Collections.<SSTableReader>emptyList());
     }
 
     boolean isCompleteSSTables(Collection<SSTableReader> sstables)
@@ -663,10 +729,37 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     void replaceCompactedSSTables(Collection<SSTableReader> sstables, Iterable<SSTableReader> replacements)
     {
         ssTables_.replace(sstables, replacements);
+        compactionStrategy.sstablesChanged(sstables, replacements);
+        maybeBackup(replacements);
     }
 
     /**
-     * submits flush sort on the flushSorter executor, which will in turn submit to flushWriter when sorted.
+     * With incremental backups on, hard-links newly written sstables into the backups
+     * directory of their data directory, so they outlive compaction of the originals.
+     */
+    private void maybeBackup(Iterable<SSTableReader> sstables)
+    {
+        if (!DatabaseDescriptor.isIncrementalBackupsEnabled())
+            return;
+
+        for (SSTableReader sstable : sstables)
+        {
+            try
+            {
+                File dataDirectory = new File(sstable.getFilename()).getParentFile().getParentFile();
+                String backupsDirectoryPath = Table.getBackupsPath(dataDirectory.getAbsolutePath(), table_);
+                FileUtils.createDirectory(backupsDirectoryPath);
+                sstable.createLinks(backupsDirectoryPath);
+            }
+            catch (IOException e)
+            {
+                throw new IOError(e);
+            }
+        }
+    }
+
+    /**
+     * submits flush sort on the flushSorter executor, which will in turn submit to a FlushWriters queue when sorted.
      * TODO because our executors use CallerRunsPolicy, when flushSorter fills up, no writes will proceed
      * because the next flush will start executing on the caller, mutation-stage thread that has the
      * flush write lock held.  (writes aquire this as a read lock before proceeding.)
@@ -678,7 +771,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     {
         logger_.info("Enqueuing flush of {}", flushable);
         final Condition condition = new SimpleCondition();
-        flushable.flushAndSignal(condition, flushSorter_, flushWriter_);
+        flushable.flushAndSignal(condition, flushSorter_, FlushWriters.instance);
         return condition;
     }
 
@@ -692,6 +785,22 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return getMemtableThreadSafe().getCurrentThroughput();
     }
 
+    public long getMemtableLiveSize()
+    {
+        return getMemtableThreadSafe().getLiveSize();
+    }
+
+    /**
+     * @return the live size of the memtables that have been switched out but are not yet written
+     */
+    public long getMemtablesPendingFlushLiveSize()
+    {
+        long size = 0;
+        for (Memtable memtable : memtablesPendingFlush)
+            size += memtable.getLiveSize();
+        return size;
+    }
+
     public int getMemtableSwitchCount()
     {
         return memtableSwitchCount;
@@ -798,7 +907,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
      */
     public ColumnFamily getColumnFamily(QueryFilter filter)
     {
-        return getColumnFamily(filter, CompactionManager.getDefaultGCBefore());
+        return getColumnFamily(filter, CompactionManager.getDefaultGCBefore(), true);
     }
 
     private ColumnFamily cacheRow(DecoratedKey key)
@@ -806,7 +915,16 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         ColumnFamily cached;
         if ((cached = ssTables_.getRowCache().get(key)) == null)
         {
-            cached = getTopLevelColumns(QueryFilter.getIdentityFilter(key, new QueryPath(columnFamily_)), Integer.MIN_VALUE);
+            QueryFilter filter = metadata.rowCacheHeadColumns > 0
+                               ? QueryFilter.getSliceFilter(key,
+                                                            new QueryPath(columnFamily_),
+                                                            ArrayUtils.EMPTY_BYTE_ARRAY,
+                                                            ArrayUtils.EMPTY_BYTE_ARRAY,
+                                                            null,
+                                                            false,
+                                                            metadata.rowCacheHeadColumns)
+                               : QueryFilter.getIdentityFilter(key, new QueryPath(columnFamily_));
+            cached = getTopLevelColumns(filter, Integer.MIN_VALUE);
             if (cached == null)
                 return null;
             ssTables_.getRowCache().put(key, cached);
@@ -814,14 +932,18 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return cached;
     }
 
-    private ColumnFamily getColumnFamily(QueryFilter filter, int gcBefore)
+    /**
+     * @param populateRowCache if false, the row cache is used if it holds the row, but the row is not added to it
+     */
+    private ColumnFamily getColumnFamily(QueryFilter filter, int gcBefore, boolean populateRowCache)
     {
         assert columnFamily_.equals(filter.getColumnFamilyName());
 
         long start = System.nanoTime();
         try
         {
-            if (ssTables_.getRowCache().getCapacity() == 0)
+            if (ssTables_.getRowCache().getCapacity() == 0
+                || (!populateRowCache && ssTables_.getRowCache().getInternal(filter.key) == null))
             {
                 ColumnFamily cf = getTopLevelColumns(filter, gcBefore);
                 // TODO this is necessary because when we collate supercolumns together, we don't check
@@ -832,6 +954,14 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
             ColumnFamily cached = cacheRow(filter.key);
             if (cached == null)
                 return null;
+
+            if (metadata.rowCacheHeadColumns > 0)
+            {
+                ColumnFamily cf = getColumnFamilyFromHead(filter, cached, gcBefore);
+                if (cf == null)
+                    cf = getTopLevelColumns(filter, gcBefore);
+                return cf.isSuper() ? removeDeleted(cf, gcBefore) : removeDeletedCF(cf, gcBefore);
+            }
             
             // special case slicing the entire row:
             // we can skip the filter step entirely, and we can help out removeDeleted by re-caching the result
@@ -864,6 +994,99 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         }
     }
 
+    /**
+     * A cached head holds every column of the row up to its last cached column, and is complete (holds the entire
+     * row) if fewer than rowCacheHeadColumns columns were found when it was read.
+     */
+    private boolean isCompleteHead(ColumnFamily head)
+    {
+        return head.getColumnCount() < metadata.rowCacheHeadColumns;
+    }
+
+    /**
+     * @return the filter result computed from the cached head of the row, or null if the head may be missing
+     * columns that the filter selects
+     */
+    private ColumnFamily getColumnFamilyFromHead(QueryFilter filter, ColumnFamily head, int gcBefore) throws IOException
+    {
+        boolean complete = isCompleteHead(head);
+        SliceQueryFilter countedSlice = null;
+        if (!complete)
+        {
+            AbstractType comparator = getComparator();
+            byte[] last = head.getColumnNames().last();
+            if (filter.path.superColumnName != null)
+            {
+                if (comparator.compare(filter.path.superColumnName, last) > 0)
+                    return null;
+            }
+            else if (filter.filter instanceof NamesQueryFilter)
+            {
+                for (byte[] name : ((NamesQueryFilter) filter.filter).columns)
+                {
+                    if (comparator.compare(name, last) > 0)
+                        return null;
+                }
+            }
+            else if (filter.filter instanceof SliceQueryFilter)
+            {
+                SliceQueryFilter sliceFilter = (SliceQueryFilter) filter.filter;
+                if (sliceFilter.reversed)
+                {
+                    // a reversed slice starts at its start column and walks towards the head of the row
+                    if (sliceFilter.start.length == 0 || comparator.compare(sliceFilter.start, last) > 0)
+                        return null;
+                }
+                else if (sliceFilter.finish.length == 0 || comparator.compare(sliceFilter.finish, last) > 0)
+                {
+                    // unbounded forward slice: the head answers it only if it holds enough live columns
+                    countedSlice = sliceFilter;
+                }
+            }
+            else
+            {
+                return null;
+            }
+        }
+
+        IColumnIterator ci = filter.getMemtableColumnIterator(head, null, getComparator());
+        ColumnFamily cf = ci.getColumnFamily().cloneMeShallow();
+        filter.collectCollatedColumns(cf, ci, gcBefore);
+        if (countedSlice != null && countLiveColumns(cf) < countedSlice.count)
+            return null;
+        return cf;
+    }
+
+    private static int countLiveColumns(ColumnFamily cf)
+    {
+        int live = 0;
+        for (IColumn column : cf.getSortedColumns())
+        {
+            if (!column.isMarkedForDelete()
+                && (!cf.isMarkedForDelete()
+                    || ClockRelationship.GREATER_THAN == column.mostRecentLiveChangeAt().compare(cf.getMarkedForDeleteAt())))
+            {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    /** @return the first rowCacheHeadColumns columns of a complete row, as cached in head mode */
+    private ColumnFamily headOf(ColumnFamily cf)
+    {
+        if (metadata.rowCacheHeadColumns == 0 || cf.getColumnCount() <= metadata.rowCacheHeadColumns)
+            return cf;
+        ColumnFamily head = cf.cloneMeShallow();
+        for (IColumn column : cf.getSortedColumns())
+        {
+            if (head.getColumnCount() >= metadata.rowCacheHeadColumns)
+                break;
+            head.addColumn(column);
+        }
+        return head;
+    }
+
     private ColumnFamily getTopLevelColumns(QueryFilter filter, int gcBefore)
     {
         // we are querying top-level columns, do a merging fetch with indexes.
@@ -895,6 +1118,9 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
             /* add the SSTables on disk */
             for (SSTableReader sstable : ssTables_)
             {
+                // no point seeking into more sstables for a reader that has already given up on us
+                if (filter.isExpired())
+                    break;
                 iter = filter.getSSTableColumnIterator(sstable);
                 if (iter.getColumnFamily() != null)
                 {
@@ -903,7 +1129,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 }
             }
 
-            Comparator<IColumn> comparator = QueryFilter.getColumnComparator(getComparator());
+            Comparator<IColumn> comparator = filter.filter.getColumnComparator(getComparator());
             Iterator collated = IteratorUtils.collatedIterator(comparator, iterators);
             filter.collectCollatedColumns(returnCF, collated, gcBefore);
             // Caller is responsible for final removeDeletedCF.  This is important for cacheRow to work correctly:
@@ -1055,7 +1281,9 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         for (byte[] dataKey : indexRow.getColumnNames())
         {
             DecoratedKey dk = partitioner_.decorateKey(dataKey);
-            ColumnFamily data = getColumnFamily(new QueryFilter(dk, new QueryPath(columnFamily_), dataFilter));
+            ColumnFamily data = getColumnFamily(new QueryFilter(dk, new QueryPath(columnFamily_), dataFilter),
+                                                CompactionManager.getDefaultGCBefore(),
+                                                DatabaseDescriptor.getScansPopulateRowCache());
             rows.add(new Row(dk, data));
         }
 
@@ -1094,25 +1322,15 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
             try
             {
                 // mkdir
-                File sourceFile = new File(ssTable.getFilename());
-                File dataDirectory = sourceFile.getParentFile().getParentFile();
+                File dataDirectory = new File(ssTable.getFilename()).getParentFile().getParentFile();
                 String snapshotDirectoryPath = Table.getSnapshotPath(dataDirectory.getAbsolutePath(), table_, snapshotName);
                 FileUtils.createDirectory(snapshotDirectoryPath);
 
                 // hard links
-                File targetLink = new File(snapshotDirectoryPath, sourceFile.getName());
-                FileUtils.createHardLink(sourceFile, targetLink);
-
-                sourceFile = new File(ssTable.indexFilename());
-                targetLink = new File(snapshotDirectoryPath, sourceFile.getName());
-                FileUtils.createHardLink(sourceFile, targetLink);
-
-                sourceFile = new File(ssTable.filterFilename());
-                targetLink = new File(snapshotDirectoryPath, sourceFile.getName());
-                FileUtils.createHardLink(sourceFile, targetLink);
+                ssTable.createLinks(snapshotDirectoryPath);
                 if (logger_.isDebugEnabled())
-                    logger_.debug("Snapshot for " + table_ + " table data file " + sourceFile.getAbsolutePath() +
-                        " created as " + targetLink.getAbsolutePath());
+                    logger_.debug("Snapshot for " + table_ + " table data file " + ssTable.getFilename() +
+                        " created in " + snapshotDirectoryPath);
             }
             catch (IOException e)
             {
@@ -1144,7 +1362,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 }
 
                 for (Row row : result)
-                    ssTables_.getRowCache().put(row.key, row.cf);
+                    ssTables_.getRowCache().put(row.key, headOf(row.cf));
                 i += result.size();
                 if (result.size() < ROWS)
                     break;
@@ -1182,6 +1400,35 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return ssTables_.getRowCache().getCapacity() == 0 ? null : ssTables_.getRowCache().getInternal(key);
     }
 
+    /** applies a write to the cached copy of the row, if there is one */
+    void updateRowCache(DecoratedKey key, ColumnFamily columnFamily)
+    {
+        ColumnFamily cachedRow = getRawCachedRow(key);
+        if (cachedRow == null)
+            return;
+
+        if (metadata.rowCacheHeadColumns == 0 || isCompleteHead(cachedRow))
+        {
+            cachedRow.addAll(columnFamily);
+        }
+        else
+        {
+            // columns past the end of the head stay out of it, or it would no longer be contiguous
+            byte[] last = cachedRow.getColumnNames().last();
+            for (IColumn column : columnFamily.getSortedColumns())
+            {
+                if (getComparator().compare(column.name(), last) > 0)
+                    break;
+                cachedRow.addColumn(column);
+            }
+            cachedRow.delete(columnFamily);
+        }
+
+        // a head that has grown well past its size is dropped and re-read on the next query
+        if (metadata.rowCacheHeadColumns > 0 && cachedRow.getColumnCount() > 2 * metadata.rowCacheHeadColumns)
+            invalidateCachedRow(key);
+    }
+
     void invalidateCachedRow(DecoratedKey key)
     {
         ssTables_.getRowCache().remove(key);
@@ -1231,7 +1478,9 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     void clearUnsafe()
     {
         memtable_.clearUnsafe();
+        Collection<SSTableReader> sstables = ssTables_.getSSTables();
         ssTables_.clearUnsafe();
+        compactionStrategy.sstablesChanged(sstables, Collections.<SSTableReader>emptyList());
     }
 
 
@@ -1331,6 +1580,44 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return (double) falseCount / (trueCount + falseCount);
     }
 
+    public long getBloomFilterSpaceUsed()
+    {
+        long total = 0L;
+        for (SSTableReader sstable: getSSTables())
+        {
+            total += sstable.getBloomFilterSizeInBytes();
+        }
+        return total;
+    }
+
+    public Double getBloomFilterFpChance()
+    {
+        return metadata.bloomFilterFpChance;
+    }
+
+    public void setBloomFilterFpChance(Double fpChance)
+    {
+        if (fpChance != null && (fpChance < Filter.minSupportedFalsePositiveChance() || fpChance > 1.0))
+            throw new IllegalArgumentException("bloom filter false positive chance must be between "
+                                               + Filter.minSupportedFalsePositiveChance() + " and 1.0");
+        metadata.bloomFilterFpChance = fpChance;
+    }
+
+    public String getCompactionStrategyClass()
+    {
+        return metadata.compactionStrategyClass.getName();
+    }
+
+    public int[] getSSTableCountPerLevel()
+    {
+        return compactionStrategy.getSSTableCountPerLevel();
+    }
+
+    public long[] getSSTableBytesPerLevel()
+    {
+        return compactionStrategy.getBytesPerLevel();
+    }
+
     public Set<byte[]> getIndexedColumns()
     {
         return indexedColumns_.keySet();
@@ -39,6 +39,14 @@ public interface ColumnFamilyStoreMBean
      * @return The size in bytes.
      */
     public int getMemtableDataSize();
+
+    /**
+     * Returns an estimate of the heap occupied by the memtable, which
+     * is what counts against memtable_total_space_in_mb.
+     *
+     * @return The size in bytes.
+     */
+    public long getMemtableLiveSize();
     
     /**
      * Returns the total number of columns present in the memtable.
@@ -165,4 +173,36 @@ public interface ColumnFamilyStoreMBean
     public double getBloomFilterFalseRatio();
 
     public double getRecentBloomFilterFalseRatio();
+
+    /**
+     * @return the memory used by the bloom filters of the live sstables, in bytes
+     */
+    public long getBloomFilterSpaceUsed();
+
+    /**
+     * @return the target false positive chance for new bloom filters, or null for the default sizing
+     */
+    public Double getBloomFilterFpChance();
+
+    /**
+     * Sets the target false positive chance for bloom filters of sstables written from now on;
+     * existing sstables get new filters when they are next compacted.  Not persisted in the schema.
+     * @param fpChance the target chance, or null to return to the default sizing
+     */
+    public void setBloomFilterFpChance(Double fpChance);
+
+    /**
+     * @return the name of the class choosing which sstables this CF compacts together
+     */
+    public String getCompactionStrategyClass();
+
+    /**
+     * @return the number of sstables in each level, from level 0 up, or null if the compaction strategy is not leveled
+     */
+    public int[] getSSTableCountPerLevel();
+
+    /**
+     * @return the bytes of sstable data in each level, from level 0 up, or null if the compaction strategy is not leveled
+     */
+    public long[] getSSTableBytesPerLevel();
 }
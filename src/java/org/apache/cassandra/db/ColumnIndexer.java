@@ -24,6 +24,7 @@ import java.io.DataOutput;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.io.sstable.IndexHelper;
@@ -59,7 +60,11 @@ public class ColumnIndexer
     {
         int columnCount = columns.getEstimatedColumnCount();
 
-        BloomFilter bf = BloomFilter.getFilter(columnCount, 4);
+        CFMetaData cfm = columns.metadata();
+        Double fpChance = cfm == null ? null : cfm.bloomFilterFpChance;
+        BloomFilter bf = fpChance == null
+                       ? BloomFilter.getFilter(columnCount, 4)
+                       : BloomFilter.getFilter(columnCount, fpChance);
 
         if (columnCount == 0)
         {
@@ -52,7 +52,10 @@ public class ColumnSerializer implements ICompactSerializer2<IColumn>
             } else {
               dos.writeByte((column.isMarkedForDelete()) ? DELETION_MASK : 0);
             }
-            clockType.serializer().serialize(column.clock(), dos);
+            if (clockType == ClockType.Timestamp)
+                dos.writeLong(((Column) column).timestamp());
+            else
+                clockType.serializer().serialize(column.clock(), dos);
             FBUtilities.writeByteArray(column.value(), dos);
         }
         catch (IOException e)
@@ -69,6 +72,14 @@ public class ColumnSerializer implements ICompactSerializer2<IColumn>
         {
             int ttl = dis.readInt();
             int expiration = dis.readInt();
+            if (clockType == ClockType.Timestamp)
+            {
+                long timestamp = dis.readLong();
+                byte[] value = FBUtilities.readByteArray(dis);
+                if ((int) (System.currentTimeMillis() / 1000 ) > expiration)
+                    return new DeletedColumn(name, FBUtilities.toByteArray(expiration), timestamp);
+                return new ExpiringColumn(name, value, timestamp, ttl, expiration);
+            }
             IClock clock = clockType.serializer().deserialize(dis);
             byte[] value = FBUtilities.readByteArray(dis);
             if ((int) (System.currentTimeMillis() / 1000 ) > expiration)
@@ -87,6 +98,12 @@ public class ColumnSerializer implements ICompactSerializer2<IColumn>
         else
         {
             boolean delete = FBUtilities.testBitUsingBitMask(b, DELETION_MASK);
+            if (clockType == ClockType.Timestamp)
+            {
+                long timestamp = dis.readLong();
+                byte[] value = FBUtilities.readByteArray(dis);
+                return delete ? new DeletedColumn(name, value, timestamp) : new Column(name, value, timestamp);
+            }
             IClock clock = clockType.serializer().deserialize(dis);
             byte[] value = FBUtilities.readByteArray(dis);
             if (FBUtilities.testBitUsingBitMask(b, DELETION_MASK)) {
@@ -42,6 +42,7 @@ import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.service.AntiEntropyService;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.MerkleTree;
 import org.apache.cassandra.utils.Pair;
 import org.cliffc.high_scale_lib.NonBlockingHashMap;
 
@@ -139,36 +140,16 @@ public class CompactionManager implements CompactionManagerMBean
                     return 0;
                 }
                 logger.debug("Checking to see if compaction of " + cfs.columnFamily_ + " would be useful");
-                Set<List<SSTableReader>> buckets = getBuckets(convertSSTablesToPairs(cfs.getSSTables()), 50L * 1024L * 1024L);
-                updateEstimateFor(cfs, buckets);
-                
-                for (List<SSTableReader> sstables : buckets)
-                {
-                    if (sstables.size() >= minimumCompactionThreshold)
-                    {
-                        // if we have too many to compact all at once, compact older ones first -- this avoids
-                        // re-compacting files we just created.
-                        Collections.sort(sstables);
-                        return doCompaction(cfs, sstables.subList(0, Math.min(sstables.size(), maximumCompactionThreshold)), getDefaultGCBefore());
-                    }
-                }
-                return 0;
+                updateEstimateFor(cfs);
+                return cfs.getCompactionStrategy().compactIfNeeded(getDefaultGCBefore());
             }
         };
         return executor.submit(callable);
     }
 
-    private void updateEstimateFor(ColumnFamilyStore cfs, Set<List<SSTableReader>> buckets)
+    private void updateEstimateFor(ColumnFamilyStore cfs)
     {
-        int n = 0;
-        for (List<SSTableReader> sstables : buckets)
-        {
-            if (sstables.size() >= minimumCompactionThreshold)
-            {
-                n += 1 + sstables.size() / (maximumCompactionThreshold - minimumCompactionThreshold);
-            }
-        }
-        estimatedCompactions.put(cfs, n);
+        estimatedCompactions.put(cfs, cfs.getCompactionStrategy().getEstimatedRemainingTasks());
     }
 
     public Future<Object> submitCleanup(final ColumnFamilyStore cfStore)
@@ -287,6 +268,15 @@ public class CompactionManager implements CompactionManagerMBean
      * which are properly serialized.
      */
     int doCompaction(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, int gcBefore) throws IOException
+    {
+        return doCompaction(cfs, sstables, gcBefore, Long.MAX_VALUE);
+    }
+
+    /**
+     * As doCompaction(cfs, sstables, gcBefore), but starts a new output sstable (at a row boundary)
+     * each time the current one reaches maxSSTableSize bytes.
+     */
+    int doCompaction(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, int gcBefore, long maxSSTableSize) throws IOException
     {
         // The collection of sstables passed may be empty (but not null); even if
         // it is not empty, it may compact down to nothing if all rows are deleted.
@@ -319,12 +309,18 @@ public class CompactionManager implements CompactionManagerMBean
         long startTime = System.currentTimeMillis();
         long totalkeysWritten = 0;
 
+        long startsize = SSTable.getTotalBytes(sstables);
+        long expectedKeys = SSTableReader.getApproximateKeyCount(sstables);
+        if (startsize > maxSSTableSize)
+            expectedKeys = (long) Math.ceil(expectedKeys * ((double) maxSSTableSize / startsize));
         // TODO the int cast here is potentially buggy
-        int expectedBloomFilterSize = Math.max(SSTableReader.indexInterval(), (int)SSTableReader.getApproximateKeyCount(sstables));
+        int expectedBloomFilterSize = Math.max(SSTableReader.indexInterval(), (int)expectedKeys);
         if (logger.isDebugEnabled())
           logger.debug("Expected bloom filter size : " + expectedBloomFilterSize);
 
-        SSTableWriter writer;
+        long maxDataAge = getMaxDataAge(sstables);
+        List<SSTableReader> results = new ArrayList<SSTableReader>();
+        SSTableWriter writer = null;
         CompactionIterator ci = new CompactionIterator(sstables, gcBefore, major); // retain a handle so we can call close()
         Iterator<AbstractCompactedRow> nni = new FilterIterator(ci, PredicateUtils.notNullPredicate());
         executor.beginCompaction(cfs, ci);
@@ -340,11 +336,14 @@ public class CompactionManager implements CompactionManagerMBean
                 return 0;
             }
 
-            String newFilename = new File(cfs.getTempSSTablePath(compactionFileLocation)).getAbsolutePath();
-            writer = new SSTableWriter(newFilename, expectedBloomFilterSize, StorageService.getPartitioner());
             while (nni.hasNext())
             {
                 AbstractCompactedRow row = nni.next();
+                if (writer == null)
+                {
+                    String newFilename = new File(cfs.getTempSSTablePath(compactionFileLocation)).getAbsolutePath();
+                    writer = new SSTableWriter(newFilename, expectedBloomFilterSize, StorageService.getPartitioner());
+                }
                 long prevpos = writer.getFilePointer();
 
                 writer.append(row);
@@ -352,6 +351,12 @@ public class CompactionManager implements CompactionManagerMBean
 
                 long rowsize = writer.getFilePointer() - prevpos;
                 cfs.addToCompactedRowStats(rowsize);
+
+                if (writer.getFilePointer() >= maxSSTableSize)
+                {
+                    results.add(writer.closeAndOpenReader(maxDataAge));
+                    writer = null;
+                }
             }
         }
         finally
@@ -359,16 +364,16 @@ public class CompactionManager implements CompactionManagerMBean
             ci.close();
         }
 
-        SSTableReader ssTable = writer.closeAndOpenReader(getMaxDataAge(sstables));
-        cfs.replaceCompactedSSTables(sstables, Arrays.asList(ssTable));
+        if (writer != null)
+            results.add(writer.closeAndOpenReader(maxDataAge));
+        cfs.replaceCompactedSSTables(sstables, results);
         submitMinorIfNeeded(cfs);
 
         String format = "Compacted to %s.  %,d to %,d (~%d%% of original) bytes for %,d keys.  Time: %,dms.";
         long dTime = System.currentTimeMillis() - startTime;
-        long startsize = SSTable.getTotalBytes(sstables);
-        long endsize = ssTable.length();
+        long endsize = SSTable.getTotalBytes(results);
         double ratio = (double)endsize / (double)startsize;
-        logger.info(String.format(format, writer.getFilename(), startsize, endsize, (int) (ratio * 100), totalkeysWritten, dTime));
+        logger.info(String.format(format, StringUtils.join(results, ","), startsize, endsize, (int) (ratio * 100), totalkeysWritten, dTime));
         return sstables.size();
     }
 
@@ -483,24 +488,27 @@ public class CompactionManager implements CompactionManagerMBean
     private void doValidationCompaction(ColumnFamilyStore cfs, AntiEntropyService.Validator validator) throws IOException
     {
         Collection<SSTableReader> sstables = cfs.getSSTables();
-        CompactionIterator ci = new CompactionIterator(sstables, getDefaultGCBefore(), true);
-        executor.beginCompaction(cfs, ci);
+        // rows with a single version reuse the hash computed when they were written
+        ValidationIterator vi = new ValidationIterator(sstables, getDefaultGCBefore());
+        executor.beginCompaction(cfs, vi);
         try
         {
-            Iterator<AbstractCompactedRow> nni = new FilterIterator(ci, PredicateUtils.notNullPredicate());
+            Iterator<MerkleTree.RowHash> nni = new FilterIterator(vi, PredicateUtils.notNullPredicate());
 
             // validate the CF as we iterate over it
             validator.prepare(cfs);
             while (nni.hasNext())
             {
-                AbstractCompactedRow row = nni.next();
+                MerkleTree.RowHash row = nni.next();
                 validator.add(row);
             }
             validator.complete();
+            logger.info(String.format("Validated %s: reused the hashes of %d rows, and read %d rows",
+                                      cfs.getColumnFamilyName(), vi.getRowsReused(), vi.getRowsRead()));
         }
         finally
         {
-            ci.close();
+            vi.close();
         }
     }
 
@@ -558,16 +566,6 @@ public class CompactionManager implements CompactionManagerMBean
         return buckets.keySet();
     }
 
-    private static Collection<Pair<SSTableReader, Long>> convertSSTablesToPairs(Collection<SSTableReader> collection)
-    {
-        Collection<Pair<SSTableReader, Long>> tablePairs = new ArrayList<Pair<SSTableReader, Long>>();
-        for(SSTableReader table: collection)
-        {
-            tablePairs.add(new Pair<SSTableReader, Long>(table, table.length()));
-        }
-        return tablePairs;
-    }
-
     public static int getDefaultGCBefore()
     {
         return (int)(System.currentTimeMillis() / 1000) - DatabaseDescriptor.getGcGraceInSeconds();
@@ -626,8 +624,7 @@ public class CompactionManager implements CompactionManagerMBean
                 public void run ()
                 {
                     logger.debug("Estimating compactions for " + cfs.columnFamily_);
-                    final Set<List<SSTableReader>> buckets = getBuckets(convertSSTablesToPairs(cfs.getSSTables()), 50L * 1024L * 1024L);
-                    updateEstimateFor(cfs, buckets);
+                    updateEstimateFor(cfs);
                 }
             };
             executor.submit(runnable);
@@ -644,7 +641,7 @@ public class CompactionManager implements CompactionManagerMBean
     private static class CompactionExecutor extends DebuggableThreadPoolExecutor
     {
         private volatile ColumnFamilyStore cfs;
-        private volatile CompactionIterator ci;
+        private volatile ICompactionProgress ci;
 
         public CompactionExecutor()
         {
@@ -661,7 +658,7 @@ public class CompactionManager implements CompactionManagerMBean
             ci = null;
         }
 
-        void beginCompaction(ColumnFamilyStore cfs, CompactionIterator ci)
+        void beginCompaction(ColumnFamilyStore cfs, ICompactionProgress ci)
         {
             this.cfs = cfs;
             this.ci = ci;
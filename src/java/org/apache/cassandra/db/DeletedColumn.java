@@ -38,6 +38,11 @@ public class DeletedColumn extends Column
         super(name, value, clock);
     }
 
+    public DeletedColumn(byte[] name, byte[] value, long timestamp)
+    {
+        super(name, value, timestamp);
+    }
+
     @Override
     public boolean isMarkedForDelete()
     {
@@ -47,7 +52,7 @@ public class DeletedColumn extends Column
     @Override
     public IClock getMarkedForDeleteAt()
     {
-        return clock;
+        return clock();
     }
 
     @Override
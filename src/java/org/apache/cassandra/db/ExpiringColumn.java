@@ -57,6 +57,15 @@ public class ExpiringColumn extends Column
         this.localExpirationTime = localExpirationTime;
     }
 
+    public ExpiringColumn(byte[] name, byte[] value, long timestamp, int timeToLive, int localExpirationTime)
+    {
+        super(name, value, timestamp);
+        assert timeToLive > 0;
+        assert localExpirationTime > 0;
+        this.timeToLive = timeToLive;
+        this.localExpirationTime = localExpirationTime;
+    }
+
     public int getTimeToLive()
     {
         return timeToLive;
@@ -68,6 +77,12 @@ public class ExpiringColumn extends Column
         return (int) (System.currentTimeMillis() / 1000 ) > localExpirationTime;
     }
 
+    @Override
+    public int heapSize()
+    {
+        return super.heapSize() + 2 * DBConstants.intSize_;
+    }
+
     @Override
     public int size()
     {
@@ -87,7 +102,7 @@ public class ExpiringColumn extends Column
         DataOutputBuffer buffer = new DataOutputBuffer();
         try
         {
-            clock.serialize(buffer);
+            serializeClock(buffer);
             buffer.writeByte(ColumnSerializer.EXPIRATION_MASK);
             buffer.writeInt(timeToLive);
         }
@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.config.DatabaseDescriptor;
+
+/**
+ * One flush writer queue per data directory, so that memtables flushed at the same time (e.g. by a keyspace-wide
+ * flush) are written to separate disks in parallel instead of queueing behind each other. Each flush goes to the
+ * directory with the least flush work queued, and among those, the one with the most free space.
+ */
+public class FlushWriters implements FlushWritersMBean
+{
+    public static final String MBEAN_OBJECT_NAME = "org.apache.cassandra.db:type=FlushWriters";
+    public static final FlushWriters instance;
+
+    static
+    {
+        instance = new FlushWriters("FLUSH-WRITER-POOL", DatabaseDescriptor.getAllDataFileLocations(), DatabaseDescriptor.getFlushWriters());
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            mbs.registerMBean(instance, new ObjectName(MBEAN_OBJECT_NAME));
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final List<Writer> writers = new ArrayList<Writer>();
+
+    /**
+     * @param threads the total number of writer threads, shared out between the directories (at least one each)
+     */
+    FlushWriters(String poolName, String[] directories, int threads)
+    {
+        int threadsPerDirectory = Math.max(1, threads / directories.length);
+        for (int i = 0; i < directories.length; i++)
+        {
+            ExecutorService executor = new JMXEnabledThreadPoolExecutor(1,
+                                                                        threadsPerDirectory,
+                                                                        StageManager.KEEPALIVE,
+                                                                        TimeUnit.SECONDS,
+                                                                        new LinkedBlockingQueue<Runnable>(threadsPerDirectory),
+                                                                        new NamedThreadFactory(poolName + "-" + i));
+            writers.add(new Writer(directories[i], executor));
+        }
+    }
+
+    /**
+     * Chooses the directory a flush of the given serialized size will be written to. The size counts as pending
+     * on that directory until the flush submitted with Writer.submit completes.
+     */
+    public synchronized Writer getWriter(long bytes)
+    {
+        Writer best = null;
+        long bestFreeSpace = 0;
+        for (Writer writer : writers)
+        {
+            long freeSpace = writer.getFreeSpace();
+            // 2* adds room for keys and column indexes; like compaction, leave 10% of the disk free
+            if (2 * bytes >= 0.9 * freeSpace)
+                continue;
+            if (best == null
+                || writer.pendingBytes.get() < best.pendingBytes.get()
+                || (writer.pendingBytes.get() == best.pendingBytes.get() && freeSpace > bestFreeSpace))
+            {
+                best = writer;
+                bestFreeSpace = freeSpace;
+            }
+        }
+        if (best == null)
+            throw new RuntimeException("Insufficient disk space to flush " + bytes + " bytes");
+        best.pendingBytes.addAndGet(bytes);
+        return best;
+    }
+
+    public Map<String, Long> getPendingFlushBytes()
+    {
+        Map<String, Long> pending = new LinkedHashMap<String, Long>();
+        for (Writer writer : writers)
+            pending.put(writer.directory, writer.pendingBytes.get());
+        return pending;
+    }
+
+    public static class Writer
+    {
+        public final String directory;
+        private final ExecutorService executor;
+        private final AtomicLong pendingBytes = new AtomicLong(0);
+
+        Writer(String directory, ExecutorService executor)
+        {
+            this.directory = directory;
+            this.executor = executor;
+        }
+
+        long getFreeSpace()
+        {
+            return new File(directory).getUsableSpace() - 2 * pendingBytes.get();
+        }
+
+        /**
+         * @return the directory of the given keyspace within this writer's data directory
+         */
+        public String getDirectoryForTable(String table)
+        {
+            return directory + File.separator + table;
+        }
+
+        /**
+         * Queues a flush of the given serialized size, which must be the size it was chosen for by getWriter.
+         */
+        public void submit(final Runnable flush, final long bytes)
+        {
+            executor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        flush.run();
+                    }
+                    finally
+                    {
+                        pendingBytes.addAndGet(-bytes);
+                    }
+                }
+            });
+        }
+    }
+}
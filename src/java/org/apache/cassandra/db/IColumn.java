@@ -34,6 +34,8 @@ public interface IColumn
     public byte[] name();
     public int size();
     public int serializedSize();
+    /** @return an estimate of the heap occupied by this column and everything it references */
+    public int heapSize();
     public IClock clock();
     public byte[] value();
     public Collection<IColumn> getSubColumns();
@@ -26,5 +26,5 @@ import java.util.concurrent.locks.Condition;
 
 public interface IFlushable
 {
-    public void flushAndSignal(Condition condition, ExecutorService sorter, ExecutorService writer);
+    public void flushAndSignal(Condition condition, ExecutorService sorter, FlushWriters writers);
 }
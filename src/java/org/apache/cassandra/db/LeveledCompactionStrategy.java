@@ -0,0 +1,352 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db;
+
+import java.io.*;
+import java.util.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.io.util.FileUtils;
+
+/**
+ * Organizes sstables into levels.  Level 0 holds freshly flushed sstables, which may overlap one another.
+ * Every higher level is made of sstables of about maxSSTableSize bytes whose key ranges do not overlap,
+ * so a point read touches at most one sstable per level; level L may hold up to 10^L * maxSSTableSize bytes.
+ *
+ * Once level 0 has at least the minimum compaction threshold of sstables, they are compacted together with
+ * the level 1 sstables they overlap.  Otherwise, an sstable from the level furthest over its size limit is
+ * compacted with the sstables it overlaps in the next level; successive compactions of a level rotate
+ * through its key range.
+ *
+ * The level of each sstable is kept in a manifest, [cf]-levels.txt, in the first data directory of the table.
+ */
+public class LeveledCompactionStrategy extends AbstractCompactionStrategy
+{
+    private static final Logger logger = LoggerFactory.getLogger(LeveledCompactionStrategy.class);
+
+    public static final long DEFAULT_MAX_SSTABLE_SIZE = 5L * 1024L * 1024L;
+    private static final int LEVEL_FANOUT = 10;
+
+    private final List<Set<SSTableReader>> levels = new ArrayList<Set<SSTableReader>>();
+    private final List<DecoratedKey> lastCompactedKeys = new ArrayList<DecoratedKey>();
+    private long maxSSTableSize = DEFAULT_MAX_SSTABLE_SIZE;
+
+    // the sstables of the compaction in progress, and the level its output belongs in
+    private Collection<SSTableReader> compacting = Collections.emptySet();
+    private int compactingLevel;
+
+    public LeveledCompactionStrategy(ColumnFamilyStore cfs)
+    {
+        super(cfs);
+        Map<Integer, Integer> manifest = readManifest();
+        for (SSTableReader sstable : cfs.getSSTables())
+        {
+            Integer level = manifest.get(sstable.getDescriptor().generation);
+            add(sstable, level == null ? 0 : level);
+        }
+    }
+
+    /** for testing: the size at which compaction output rolls over to a new sstable */
+    synchronized void setMaxSSTableSize(long maxSSTableSize)
+    {
+        this.maxSSTableSize = maxSSTableSize;
+    }
+
+    public int compactIfNeeded(int gcBefore) throws IOException
+    {
+        Collection<SSTableReader> candidates;
+        synchronized (this)
+        {
+            candidates = getCandidates();
+            if (candidates == null)
+                return 0;
+            if (candidates.size() == 1)
+            {
+                // nothing overlaps it in the next level, so it can move up without being rewritten
+                SSTableReader sstable = candidates.iterator().next();
+                remove(sstable);
+                add(sstable, compactingLevel);
+                writeManifest();
+                logger.debug("Moved {} to level {}", sstable, compactingLevel);
+                CompactionManager.instance.submitMinorIfNeeded(cfs);
+                return 0;
+            }
+            compacting = candidates;
+        }
+
+        try
+        {
+            return CompactionManager.instance.doCompaction(cfs, candidates, gcBefore, maxSSTableSize);
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                compacting = Collections.emptySet();
+            }
+        }
+    }
+
+    /**
+     * @return the sstables to compact next, with compactingLevel set to the level the result belongs in;
+     * or null if every level is within its limits
+     */
+    private Collection<SSTableReader> getCandidates()
+    {
+        Set<SSTableReader> level0 = getLevel(0);
+        if (level0.size() >= CompactionManager.instance.getMinimumCompactionThreshold())
+        {
+            // compact older ones first, as the size-tiered strategy does
+            List<SSTableReader> sstables = new ArrayList<SSTableReader>(level0);
+            Collections.sort(sstables);
+            sstables = sstables.subList(0, Math.min(sstables.size(), CompactionManager.instance.getMaximumCompactionThreshold()));
+
+            DecoratedKey first = null;
+            DecoratedKey last = null;
+            for (SSTableReader sstable : sstables)
+            {
+                if (first == null || sstable.getFirstKey().compareTo(first) < 0)
+                    first = sstable.getFirstKey();
+                if (last == null || sstable.getLastKey().compareTo(last) > 0)
+                    last = sstable.getLastKey();
+            }
+            Set<SSTableReader> candidates = new HashSet<SSTableReader>(sstables);
+            candidates.addAll(overlapping(getLevel(1), first, last));
+            compactingLevel = 1;
+            return candidates;
+        }
+
+        int worstLevel = 0;
+        double worstScore = 1.0;
+        for (int level = 1; level < levels.size(); level++)
+        {
+            double score = (double) SSTable.getTotalBytes(levels.get(level)) / getMaxBytesForLevel(level);
+            if (score > worstScore)
+            {
+                worstLevel = level;
+                worstScore = score;
+            }
+        }
+        if (worstLevel == 0)
+            return null;
+
+        // pick up where the last compaction of this level left off, wrapping around at the end of the ring
+        List<SSTableReader> sstables = new ArrayList<SSTableReader>(levels.get(worstLevel));
+        Collections.sort(sstables, new Comparator<SSTableReader>()
+        {
+            public int compare(SSTableReader o1, SSTableReader o2)
+            {
+                return o1.getFirstKey().compareTo(o2.getFirstKey());
+            }
+        });
+        DecoratedKey lastCompactedKey = lastCompactedKeys.get(worstLevel);
+        SSTableReader next = sstables.get(0);
+        if (lastCompactedKey != null)
+        {
+            for (SSTableReader sstable : sstables)
+            {
+                if (sstable.getFirstKey().compareTo(lastCompactedKey) > 0)
+                {
+                    next = sstable;
+                    break;
+                }
+            }
+        }
+        lastCompactedKeys.set(worstLevel, next.getLastKey());
+
+        Set<SSTableReader> candidates = new HashSet<SSTableReader>();
+        candidates.add(next);
+        candidates.addAll(overlapping(getLevel(worstLevel + 1), next.getFirstKey(), next.getLastKey()));
+        compactingLevel = worstLevel + 1;
+        return candidates;
+    }
+
+    public synchronized int getEstimatedRemainingTasks()
+    {
+        int tasks = 0;
+        int level0Count = getLevel(0).size();
+        if (level0Count >= CompactionManager.instance.getMinimumCompactionThreshold())
+            tasks += (int) Math.ceil((double) level0Count / Math.max(1, CompactionManager.instance.getMaximumCompactionThreshold()));
+        for (int level = 1; level < levels.size(); level++)
+        {
+            long excess = SSTable.getTotalBytes(levels.get(level)) - getMaxBytesForLevel(level);
+            if (excess > 0)
+                tasks += (int) Math.ceil((double) excess / maxSSTableSize);
+        }
+        return tasks;
+    }
+
+    public synchronized void sstablesChanged(Collection<SSTableReader> removed, Iterable<SSTableReader> added)
+    {
+        for (SSTableReader sstable : removed)
+            remove(sstable);
+        // anything other than the output of our own compaction (flushes, major and cleanup compactions) starts over in level 0
+        int level = !removed.isEmpty() && compacting.containsAll(removed) ? compactingLevel : 0;
+        for (SSTableReader sstable : added)
+            add(sstable, level);
+        writeManifest();
+    }
+
+    public synchronized int[] getSSTableCountPerLevel()
+    {
+        int[] counts = new int[levels.size()];
+        for (int level = 0; level < levels.size(); level++)
+            counts[level] = levels.get(level).size();
+        return counts;
+    }
+
+    public synchronized long[] getBytesPerLevel()
+    {
+        long[] bytes = new long[levels.size()];
+        for (int level = 0; level < levels.size(); level++)
+            bytes[level] = SSTable.getTotalBytes(levels.get(level));
+        return bytes;
+    }
+
+    /** for testing */
+    synchronized Set<SSTableReader> getSSTables(int level)
+    {
+        return level < levels.size() ? new HashSet<SSTableReader>(levels.get(level)) : Collections.<SSTableReader>emptySet();
+    }
+
+    private long getMaxBytesForLevel(int level)
+    {
+        return (long) (Math.pow(LEVEL_FANOUT, level) * maxSSTableSize);
+    }
+
+    private Set<SSTableReader> getLevel(int level)
+    {
+        while (levels.size() <= level)
+        {
+            levels.add(new HashSet<SSTableReader>());
+            lastCompactedKeys.add(null);
+        }
+        return levels.get(level);
+    }
+
+    private void add(SSTableReader sstable, int level)
+    {
+        if (level > 0 && !overlapping(getLevel(level), sstable.getFirstKey(), sstable.getLastKey()).isEmpty())
+        {
+            logger.debug("{} overlaps sstables in level {}; adding it to level 0 instead", sstable, level);
+            level = 0;
+        }
+        getLevel(level).add(sstable);
+    }
+
+    private void remove(SSTableReader sstable)
+    {
+        for (Set<SSTableReader> level : levels)
+        {
+            if (level.remove(sstable))
+                return;
+        }
+    }
+
+    private static List<SSTableReader> overlapping(Collection<SSTableReader> sstables, DecoratedKey first, DecoratedKey last)
+    {
+        List<SSTableReader> overlapping = new ArrayList<SSTableReader>();
+        for (SSTableReader sstable : sstables)
+        {
+            if (sstable.getFirstKey().compareTo(last) <= 0 && first.compareTo(sstable.getLastKey()) <= 0)
+                overlapping.add(sstable);
+        }
+        return overlapping;
+    }
+
+    private File getManifestFile()
+    {
+        String directory = DatabaseDescriptor.getAllDataFileLocationsForTable(cfs.metadata.tableName)[0];
+        return new File(directory, cfs.columnFamily_ + "-levels.txt");
+    }
+
+    /**
+     * @return the level of each sstable generation recorded in the manifest
+     */
+    private Map<Integer, Integer> readManifest()
+    {
+        Map<Integer, Integer> manifest = new HashMap<Integer, Integer>();
+        File file = getManifestFile();
+        if (!file.exists())
+            return manifest;
+        try
+        {
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    String[] parts = line.trim().split(" ");
+                    if (parts.length == 2)
+                        manifest.put(Integer.valueOf(parts[0]), Integer.valueOf(parts[1]));
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            logger.warn("Ignoring corrupt level manifest " + file + "; all sstables start in level 0", e);
+            manifest.clear();
+        }
+        catch (IOException e)
+        {
+            throw new IOError(e);
+        }
+        return manifest;
+    }
+
+    private void writeManifest()
+    {
+        File file = getManifestFile();
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try
+        {
+            FileUtils.createDirectory(file.getParent());
+            PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(tmpFile)));
+            try
+            {
+                for (int level = 0; level < levels.size(); level++)
+                {
+                    for (SSTableReader sstable : levels.get(level))
+                        writer.println(sstable.getDescriptor().generation + " " + level);
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+            if (writer.checkError())
+                throw new IOException("Unable to write " + tmpFile);
+            FileUtils.renameWithConfirm(tmpFile, file);
+        }
+        catch (IOException e)
+        {
+            throw new IOError(e);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 
 import com.google.common.collect.Iterators;
@@ -39,12 +40,22 @@ import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.io.sstable.SSTableWriter;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.ObjectSizes;
 import org.apache.cassandra.utils.WrappedRunnable;
 
 public class Memtable implements Comparable<Memtable>, IFlushable
 {
     private static final Logger logger = LoggerFactory.getLogger(Memtable.class);
 
+    // heap occupied by a row besides its key and columns: its entry in columnFamilies, the DecoratedKey and
+    // Token, and the ColumnFamily with its column map
+    private static final int ROW_OVERHEAD = ObjectSizes.SKIP_LIST_ENTRY
+                                            + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 2 * ObjectSizes.REFERENCE)
+                                            + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + ObjectSizes.REFERENCE)
+                                            + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 8 * ObjectSizes.REFERENCE)
+                                            + 2 * ObjectSizes.ATOMIC
+                                            + ObjectSizes.SKIP_LIST;
+
     private boolean isFrozen;
 
     private final int THRESHOLD = DatabaseDescriptor.getMemtableThroughput() * 1024*1024; // not static since we might want to change at runtime
@@ -52,6 +63,7 @@ public class Memtable implements Comparable<Memtable>, IFlushable
 
     private final AtomicInteger currentThroughput = new AtomicInteger(0);
     private final AtomicInteger currentOperations = new AtomicInteger(0);
+    private final AtomicLong currentLiveSize = new AtomicLong(0);
 
     private final long creationTime;
     private final ConcurrentNavigableMap<DecoratedKey, ColumnFamily> columnFamilies = new ConcurrentSkipListMap<DecoratedKey, ColumnFamily>();
@@ -93,9 +105,18 @@ public class Memtable implements Comparable<Memtable>, IFlushable
         return currentOperations.get();
     }
 
+    /**
+     * @return an estimate of the heap this memtable occupies, counting the objects that hold its data rather
+     * than the serialized size of what was written to it
+     */
+    public long getLiveSize()
+    {
+        return currentLiveSize.get();
+    }
+
     boolean isThresholdViolated()
     {
-        return currentThroughput.get() >= this.THRESHOLD || currentOperations.get() >= this.THRESHOLD_COUNT;
+        return getCurrentThroughput() >= this.THRESHOLD || currentOperations.get() >= this.THRESHOLD_COUNT;
     }
 
     boolean isFrozen()
@@ -116,19 +137,31 @@ public class Memtable implements Comparable<Memtable>, IFlushable
     void put(DecoratedKey key, ColumnFamily columnFamily)
     {
         assert !isFrozen; // not 100% foolproof but hell, it's an assert
+        currentOperations.addAndGet(columnFamily.getColumnCount());
         resolve(key, columnFamily);
     }
 
-    private void resolve(DecoratedKey key, ColumnFamily cf)
+    protected void resolve(DecoratedKey key, ColumnFamily cf)
     {
         currentThroughput.addAndGet(cf.size());
-        currentOperations.addAndGet(cf.getColumnCount());
 
         ColumnFamily oldCf = columnFamilies.putIfAbsent(key, cf);
         if (oldCf == null)
+        {
+            // the key is counted twice, since most tokens hold a copy of it
+            long size = ROW_OVERHEAD + 2 * ObjectSizes.sizeOf(key.key);
+            for (IColumn column : cf.getSortedColumns())
+                size += ObjectSizes.SKIP_LIST_ENTRY + column.heapSize();
+            currentLiveSize.addAndGet(size);
             return;
+        }
 
-        oldCf.resolve(cf);
+        // same as oldCf.resolve(cf), but measuring what each column adds or replaces
+        long size = 0;
+        for (IColumn column : cf.getSortedColumns())
+            size += oldCf.addColumnWithSizeDelta(column);
+        oldCf.delete(cf);
+        currentLiveSize.addAndGet(size);
     }
 
     // for debugging
@@ -136,46 +169,70 @@ public class Memtable implements Comparable<Memtable>, IFlushable
     {
         StringBuilder builder = new StringBuilder();
         builder.append("{");
-        for (Map.Entry<DecoratedKey, ColumnFamily> entry : columnFamilies.entrySet())
+        Iterator<Map.Entry<DecoratedKey, ColumnFamily>> iter = getEntryIterator();
+        while (iter.hasNext())
         {
+            Map.Entry<DecoratedKey, ColumnFamily> entry = iter.next();
             builder.append(entry.getKey()).append(": ").append(entry.getValue()).append(", ");
         }
         builder.append("}");
         return builder.toString();
     }
 
+    /**
+     * @return the number of rows in this memtable
+     */
+    protected int getRowCount()
+    {
+        return columnFamilies.size();
+    }
+
+    /**
+     * @return all the rows of this memtable, in key order
+     */
+    protected Iterator<Map.Entry<DecoratedKey, ColumnFamily>> getEntryIterator()
+    {
+        return columnFamilies.entrySet().iterator();
+    }
 
-    private SSTableReader writeSortedContents() throws IOException
+    private SSTableReader writeSortedContents(String directory) throws IOException
     {
         logger.info("Writing " + this);
-        SSTableWriter writer = new SSTableWriter(cfs.getFlushPath(), columnFamilies.size(), partitioner);
+        SSTableWriter writer = new SSTableWriter(cfs.getTempSSTablePath(directory), getRowCount(), partitioner);
 
-        for (Map.Entry<DecoratedKey, ColumnFamily> entry : columnFamilies.entrySet())
+        Iterator<Map.Entry<DecoratedKey, ColumnFamily>> iter = getEntryIterator();
+        while (iter.hasNext())
+        {
+            Map.Entry<DecoratedKey, ColumnFamily> entry = iter.next();
             writer.append(entry.getKey(), entry.getValue());
+        }
 
         SSTableReader ssTable = writer.closeAndOpenReader();
         logger.info("Completed flushing " + ssTable.getFilename());
         return ssTable;
     }
 
-    public void flushAndSignal(final Condition condition, ExecutorService sorter, final ExecutorService writer)
+    public void flushAndSignal(final Condition condition, ExecutorService sorter, FlushWriters writers)
     {
+        long bytes = getCurrentThroughput();
+        // choose the writer first: if no directory has room, the memtable must not be left pending forever
+        final FlushWriters.Writer writer = writers.getWriter(bytes);
         cfs.getMemtablesPendingFlush().add(this); // it's ok for the MT to briefly be both active and pendingFlush
         writer.submit(new WrappedRunnable()
         {
             public void runMayThrow() throws IOException
             {
-                cfs.addSSTable(writeSortedContents());
+                cfs.addSSTable(writeSortedContents(writer.getDirectoryForTable(getTableName())));
                 cfs.getMemtablesPendingFlush().remove(Memtable.this);
                 condition.signalAll();
             }
-        });
+        }, bytes);
     }
 
     public String toString()
     {
         return String.format("Memtable-%s@%s(%s bytes, %s operations)",
-                             cfs.getColumnFamilyName(), hashCode(), currentThroughput, currentOperations);
+                             cfs.getColumnFamilyName(), hashCode(), getCurrentThroughput(), currentOperations);
     }
 
     /**
@@ -283,6 +340,15 @@ public class Memtable implements Comparable<Memtable>, IFlushable
         return columnFamilies.get(key);
     }
 
+    /**
+     * @return the row for the given key, or null if there is none.  Implementations may leave out columns that
+     * the filter does not select, but must keep the row's deletion info.
+     */
+    public ColumnFamily getColumnFamily(DecoratedKey key, IFilter filter)
+    {
+        return getColumnFamily(key);
+    }
+
     void clearUnsafe()
     {
         columnFamilies.clear();
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db;
+
+import java.util.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+
+/**
+ * Keeps the memtables of all column families within memtable_total_space_in_mb, by flushing the largest ones
+ * when they outgrow it. Memtables already waiting to be flushed will free their memory once written, so they
+ * are not flushed again: the active memtables get whatever they leave of the budget, and nothing more is
+ * flushed while they take all of it.
+ */
+public class MeteredFlusher extends TimerTask
+{
+    private static final Logger logger = LoggerFactory.getLogger(MeteredFlusher.class);
+
+    public void run()
+    {
+        long budget = DatabaseDescriptor.getTotalMemtableSpace();
+        if (budget <= 0)
+            return;
+        // the timer is shared with the memtable expiry checks, which an exception would cancel along with it
+        try
+        {
+            flush(budget);
+        }
+        catch (Throwable t)
+        {
+            logger.error("Error flushing memtables to stay within memtable_total_space_in_mb", t);
+        }
+    }
+
+    /**
+     * Flushes the largest active memtables until at least half of the memory they hold is on its way to disk,
+     * whatever the budget. Used to relieve heap pressure.
+     * @return the column families that were flushed
+     */
+    public static List<ColumnFamilyStore> flushLargest()
+    {
+        Map<ColumnFamilyStore, Long> sizes = sizes();
+        return flush(sizes, total(sizes) / 2, 0);
+    }
+
+    /**
+     * Flushes the largest active memtables until those that remain fit in what the ones pending flush leave of
+     * the budget. Memtables too small to make much room are left alone, as is everything while the memtables
+     * pending flush fill the budget by themselves.
+     * @return the column families that were flushed
+     */
+    static List<ColumnFamilyStore> flush(long budget)
+    {
+        Map<ColumnFamilyStore, Long> sizes = sizes();
+        long active = total(sizes);
+        long pending = 0;
+        for (ColumnFamilyStore cfs : sizes.keySet())
+            pending += cfs.getMemtablesPendingFlushLiveSize();
+        long room = budget - pending;
+        if (room <= 0)
+        {
+            if (active > 0)
+                logger.debug("{} bytes pending flush fill the budget of {} bytes: waiting for them to be written",
+                             pending, budget);
+            return Collections.emptyList();
+        }
+        if (active <= room)
+            return Collections.emptyList();
+
+        logger.info("Memtables occupy {} bytes ({} pending flush), over the budget of {} bytes",
+                    new Object[]{ active + pending, pending, budget });
+        // every flush writer may be busy with a memtable of this size while another fills up
+        return flush(sizes, room, room / (DatabaseDescriptor.getFlushWriters() + 1));
+    }
+
+    private static Map<ColumnFamilyStore, Long> sizes()
+    {
+        Map<ColumnFamilyStore, Long> sizes = new HashMap<ColumnFamilyStore, Long>();
+        for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+            sizes.put(cfs, cfs.getMemtableLiveSize());
+        return sizes;
+    }
+
+    private static long total(Map<ColumnFamilyStore, Long> sizes)
+    {
+        long total = 0;
+        for (long size : sizes.values())
+            total += size;
+        return total;
+    }
+
+    /**
+     * Flushes the largest of the given memtables, but none smaller than minimum, until the rest fit in target.
+     */
+    private static List<ColumnFamilyStore> flush(final Map<ColumnFamilyStore, Long> sizes, long target, long minimum)
+    {
+        long active = total(sizes);
+        List<ColumnFamilyStore> largestFirst = new ArrayList<ColumnFamilyStore>(sizes.keySet());
+        Collections.sort(largestFirst, new Comparator<ColumnFamilyStore>()
+        {
+            public int compare(ColumnFamilyStore o1, ColumnFamilyStore o2)
+            {
+                return sizes.get(o2).compareTo(sizes.get(o1));
+            }
+        });
+
+        List<ColumnFamilyStore> flushed = new ArrayList<ColumnFamilyStore>();
+        for (ColumnFamilyStore cfs : largestFirst)
+        {
+            if (active <= target || sizes.get(cfs) == 0 || sizes.get(cfs) < minimum)
+                break;
+            logger.info("Flushing {} to free {} bytes", cfs.getColumnFamilyName(), sizes.get(cfs));
+            cfs.forceFlush();
+            flushed.add(cfs);
+            active -= sizes.get(cfs);
+        }
+        return flushed;
+    }
+}
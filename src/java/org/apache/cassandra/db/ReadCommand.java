@@ -60,6 +60,8 @@ public abstract class ReadCommand
     public final byte[] key;
     private boolean isDigestQuery = false;    
     protected final byte commandType;
+    // local time in milliseconds after which the result of this command is no longer wanted
+    protected long deadline = Long.MAX_VALUE;
 
     protected ReadCommand(String table, byte[] key, QueryPath queryPath, byte cmdType)
     {
@@ -83,6 +85,20 @@ public abstract class ReadCommand
     {
         return queryPath.columnFamilyName;
     }
+
+    /**
+     * Allows the read to give up early once the given local time has passed. A Row returned after the
+     * deadline has passed may be incomplete, and must be discarded.
+     */
+    public void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    public long getDeadline()
+    {
+        return deadline;
+    }
     
     public abstract ReadCommand copy();
 
@@ -49,6 +49,13 @@ public class ReadVerbHandler implements IVerbHandler
 
     public void doVerb(Message message)
     {
+        // the coordinator has already given up on this read: don't spend i/o on an answer nobody will read
+        if (message.isTimedOut())
+        {
+            MessagingService.incrementDroppedMessages(message.getVerb());
+            return;
+        }
+
         byte[] body = message.getMessageBody();
         /* Obtain a Read Context from TLS */
         ReadContext readCtx = tls_.get();
@@ -67,8 +74,15 @@ public class ReadVerbHandler implements IVerbHandler
                 throw new RuntimeException("Cannot service reads while bootstrapping!");
             }
             ReadCommand command = ReadCommand.serializer().deserialize(new DataInputStream(readCtx.bufIn_));
+            command.setDeadline(message.getTimestamp() + DatabaseDescriptor.getRpcTimeout());
             Table table = Table.open(command.table);
             Row row = command.getRow(table);
+            if (System.currentTimeMillis() > command.getDeadline())
+            {
+                // the row may have been cut short by the deadline, and in any case is too late to be useful
+                MessagingService.incrementDroppedMessages(message.getVerb());
+                return;
+            }
             ReadResponse readResponse;
             if (command.isDigestQuery())
             {
@@ -38,6 +38,13 @@ public class RowMutationVerbHandler implements IVerbHandler
 
     public void doVerb(Message message)
     {
+        // the coordinator has already timed out this write, so it will have to be repaired anyway
+        if (message.isTimedOut())
+        {
+            MessagingService.incrementDroppedMessages(message.getVerb());
+            return;
+        }
+
         byte[] bytes = message.getMessageBody();
         ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
 
@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db;
+
+import java.io.IOException;
+import java.util.*;
+
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * The default strategy: groups sstables of similar size into buckets and compacts a bucket
+ * once it holds at least the minimum compaction threshold of sstables.
+ */
+public class SizeTieredCompactionStrategy extends AbstractCompactionStrategy
+{
+    private static final long SMALL_SSTABLE_SIZE = 50L * 1024L * 1024L;
+
+    public SizeTieredCompactionStrategy(ColumnFamilyStore cfs)
+    {
+        super(cfs);
+    }
+
+    public int compactIfNeeded(int gcBefore) throws IOException
+    {
+        int minThreshold = CompactionManager.instance.getMinimumCompactionThreshold();
+        int maxThreshold = CompactionManager.instance.getMaximumCompactionThreshold();
+        for (List<SSTableReader> sstables : getBuckets())
+        {
+            if (sstables.size() >= minThreshold)
+            {
+                // if we have too many to compact all at once, compact older ones first -- this avoids
+                // re-compacting files we just created.
+                Collections.sort(sstables);
+                return CompactionManager.instance.doCompaction(cfs, sstables.subList(0, Math.min(sstables.size(), maxThreshold)), gcBefore);
+            }
+        }
+        return 0;
+    }
+
+    public int getEstimatedRemainingTasks()
+    {
+        int minThreshold = CompactionManager.instance.getMinimumCompactionThreshold();
+        int maxThreshold = CompactionManager.instance.getMaximumCompactionThreshold();
+        int n = 0;
+        for (List<SSTableReader> sstables : getBuckets())
+        {
+            if (sstables.size() >= minThreshold)
+            {
+                n += 1 + sstables.size() / (maxThreshold - minThreshold);
+            }
+        }
+        return n;
+    }
+
+    private Set<List<SSTableReader>> getBuckets()
+    {
+        Collection<Pair<SSTableReader, Long>> tablePairs = new ArrayList<Pair<SSTableReader, Long>>();
+        for (SSTableReader table : cfs.getSSTables())
+        {
+            tablePairs.add(new Pair<SSTableReader, Long>(table, table.length()));
+        }
+        return CompactionManager.getBuckets(tablePairs, SMALL_SSTABLE_SIZE);
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOError;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.filter.IFilter;
+import org.apache.cassandra.db.filter.NamesQueryFilter;
+import org.apache.cassandra.db.filter.SliceQueryFilter;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.io.ICompactSerializer2;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.utils.ObjectSizes;
+import org.apache.cassandra.utils.SlabAllocator;
+
+/**
+ * A memtable that copies every column, serialized, into regions of a SlabAllocator it owns. A row holds no column
+ * objects: just a sorted array of references to its serialized columns, so a memtable of millions of columns is a
+ * few objects per row plus a few large arrays, which are freed together when the memtable is flushed. Reads
+ * deserialize the columns they select.
+ *
+ * Writers to a row serialize on it and publish a new reference array; readers use whichever array they find, and
+ * never lock. Overwritten columns stay in their region (unreferenced) until the memtable is dropped.
+ */
+public class SlabMemtable extends Memtable
+{
+    // heap held by a row besides its key: its entry in rows, the DecoratedKey and Token, the SlabRow and its
+    // (initially empty) array of references
+    private static final int ROW_OVERHEAD = ObjectSizes.SKIP_LIST_ENTRY
+                                            + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 2 * ObjectSizes.REFERENCE)
+                                            + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + ObjectSizes.REFERENCE)
+                                            + ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 2 * ObjectSizes.REFERENCE)
+                                            + ObjectSizes.ARRAY_HEADER;
+
+    private final ConcurrentSkipListMap<DecoratedKey, SlabRow> rows = new ConcurrentSkipListMap<DecoratedKey, SlabRow>();
+    private final SlabAllocator allocator = new SlabAllocator();
+    // the heap held outside the allocator: rows, keys and reference arrays
+    private final AtomicLong indexSize = new AtomicLong();
+    private final CFMetaData metadata;
+    private final ICompactSerializer2<IColumn> serializer;
+
+    public SlabMemtable(ColumnFamilyStore cfs, IPartitioner partitioner)
+    {
+        super(cfs, partitioner);
+        metadata = cfs.metadata;
+        serializer = ColumnFamily.create(metadata).getColumnSerializer();
+    }
+
+    /**
+     * @return the number of bytes copied into this memtable's regions, including columns since overwritten
+     */
+    @Override
+    public int getCurrentThroughput()
+    {
+        return (int) Math.min(allocator.allocated(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the heap held by this memtable: its regions, whether or not they are full, plus its rows
+     */
+    @Override
+    public long getLiveSize()
+    {
+        return allocator.size() + indexSize.get();
+    }
+
+    @Override
+    protected void resolve(DecoratedKey key, ColumnFamily cf)
+    {
+        SlabRow row = rows.get(key);
+        if (row == null)
+        {
+            SlabRow newRow = new SlabRow();
+            row = rows.putIfAbsent(key, newRow);
+            if (row == null)
+            {
+                row = newRow;
+                // the key is counted twice, since most tokens hold a copy of it
+                indexSize.addAndGet(ROW_OVERHEAD + 2 * ObjectSizes.sizeOf(key.key));
+            }
+        }
+
+        DataOutputBuffer buffer = new DataOutputBuffer();
+        synchronized (row)
+        {
+            if (cf.isMarkedForDelete())
+            {
+                if (row.deletion == null)
+                    row.deletion = cf.cloneMeShallow();
+                else
+                    row.deletion.delete(cf);
+            }
+
+            long[] refs = row.refs;
+            long[] updated = refs;
+            long[] added = new long[cf.getColumnCount()];
+            int addedCount = 0;
+            for (IColumn column : cf.getSortedColumns())
+            {
+                int i = search(refs, column.name());
+                if (i < 0)
+                {
+                    added[addedCount++] = write(column, buffer);
+                    continue;
+                }
+
+                IColumn reconciled = reconcile(read(refs[i]), column);
+                if (reconciled == null)
+                    continue;
+                if (updated == refs)
+                    updated = refs.clone();
+                updated[i] = write(reconciled, buffer);
+            }
+            if (addedCount > 0)
+            {
+                updated = merge(updated, added, addedCount);
+                indexSize.addAndGet(addedCount * 8);
+            }
+            row.refs = updated;
+        }
+    }
+
+    /**
+     * @return the column that should replace existing, or null if existing already supersedes column
+     */
+    private IColumn reconcile(IColumn existing, IColumn column)
+    {
+        if (existing instanceof SuperColumn)
+        {
+            // existing was just deserialized, so it is ours to modify
+            ((SuperColumn) existing).putColumn(column);
+            return existing;
+        }
+        IColumn reconciled = metadata.reconciler.reconcile((Column) column, (Column) existing);
+        return reconciled == existing ? null : reconciled;
+    }
+
+    private long write(IColumn column, DataOutputBuffer buffer)
+    {
+        buffer.reset();
+        try
+        {
+            serializer.serialize(column, buffer);
+        }
+        catch (IOException e)
+        {
+            throw new IOError(e);
+        }
+        long ref = allocator.allocate(buffer.getLength());
+        System.arraycopy(buffer.getData(), 0, allocator.region(ref), SlabAllocator.offset(ref), buffer.getLength());
+        return ref;
+    }
+
+    private IColumn read(long ref)
+    {
+        byte[] region = allocator.region(ref);
+        int offset = SlabAllocator.offset(ref);
+        try
+        {
+            return serializer.deserialize(new DataInputStream(new ByteArrayInputStream(region, offset, region.length - offset)));
+        }
+        catch (IOException e)
+        {
+            throw new IOError(e);
+        }
+    }
+
+    /**
+     * @return the name of the column with the given reference. (Columns and super columns are both serialized
+     * name first, as a short length followed by the bytes.)
+     */
+    private byte[] name(long ref)
+    {
+        byte[] region = allocator.region(ref);
+        int offset = SlabAllocator.offset(ref);
+        int length = ((region[offset] & 0xFF) << 8) | (region[offset + 1] & 0xFF);
+        return Arrays.copyOfRange(region, offset + 2, offset + 2 + length);
+    }
+
+    /**
+     * @return the index of the column with the given name, or (-(insertion point) - 1), as Arrays.binarySearch
+     */
+    private int search(long[] refs, byte[] name)
+    {
+        int low = 0;
+        int high = refs.length - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = metadata.comparator.compare(name(refs[mid]), name);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    private long[] merge(long[] refs, long[] added, int addedCount)
+    {
+        long[] merged = new long[refs.length + addedCount];
+        int i = 0, j = 0, k = 0;
+        while (i < refs.length && j < addedCount)
+        {
+            if (metadata.comparator.compare(name(refs[i]), name(added[j])) < 0)
+                merged[k++] = refs[i++];
+            else
+                merged[k++] = added[j++];
+        }
+        while (i < refs.length)
+            merged[k++] = refs[i++];
+        while (j < addedCount)
+            merged[k++] = added[j++];
+        return merged;
+    }
+
+    private ColumnFamily materialize(SlabRow row, long[] refs, int from, int to)
+    {
+        ColumnFamily cf = row.deletion == null ? ColumnFamily.create(metadata) : row.deletion.cloneMeShallow();
+        for (int i = from; i < to; i++)
+            cf.addColumn(read(refs[i]));
+        return cf;
+    }
+
+    private ColumnFamily materialize(SlabRow row)
+    {
+        long[] refs = row.refs;
+        return materialize(row, refs, 0, refs.length);
+    }
+
+    @Override
+    public ColumnFamily getColumnFamily(DecoratedKey key)
+    {
+        SlabRow row = rows.get(key);
+        return row == null ? null : materialize(row);
+    }
+
+    /**
+     * Deserializes only the columns that a names or slice filter selects.
+     */
+    @Override
+    public ColumnFamily getColumnFamily(DecoratedKey key, IFilter filter)
+    {
+        SlabRow row = rows.get(key);
+        if (row == null)
+            return null;
+        long[] refs = row.refs;
+
+        if (filter instanceof NamesQueryFilter)
+        {
+            ColumnFamily cf = materialize(row, refs, 0, 0);
+            for (byte[] name : ((NamesQueryFilter) filter).columns)
+            {
+                int i = search(refs, name);
+                if (i >= 0)
+                    cf.addColumn(read(refs[i]));
+            }
+            return cf;
+        }
+
+        if (filter instanceof SliceQueryFilter)
+        {
+            SliceQueryFilter slice = (SliceQueryFilter) filter;
+            byte[] first = slice.reversed ? slice.finish : slice.start;
+            byte[] last = slice.reversed ? slice.start : slice.finish;
+            int from = 0;
+            if (first.length > 0)
+            {
+                int i = search(refs, first);
+                from = i >= 0 ? i : -i - 1;
+            }
+            int to = refs.length;
+            if (last.length > 0)
+            {
+                int i = search(refs, last);
+                to = i >= 0 ? i + 1 : -i - 1;
+            }
+            return materialize(row, refs, from, Math.max(from, to));
+        }
+
+        return materialize(row);
+    }
+
+    @Override
+    public Iterator<Map.Entry<DecoratedKey, ColumnFamily>> getEntryIterator(DecoratedKey startWith)
+    {
+        return materialize(rows.tailMap(startWith).entrySet().iterator());
+    }
+
+    @Override
+    protected Iterator<Map.Entry<DecoratedKey, ColumnFamily>> getEntryIterator()
+    {
+        return materialize(rows.entrySet().iterator());
+    }
+
+    private Iterator<Map.Entry<DecoratedKey, ColumnFamily>> materialize(Iterator<Map.Entry<DecoratedKey, SlabRow>> iter)
+    {
+        return Iterators.transform(iter, new Function<Map.Entry<DecoratedKey, SlabRow>, Map.Entry<DecoratedKey, ColumnFamily>>()
+        {
+            public Map.Entry<DecoratedKey, ColumnFamily> apply(Map.Entry<DecoratedKey, SlabRow> entry)
+            {
+                return new AbstractMap.SimpleImmutableEntry<DecoratedKey, ColumnFamily>(entry.getKey(), materialize(entry.getValue()));
+            }
+        });
+    }
+
+    @Override
+    protected int getRowCount()
+    {
+        return rows.size();
+    }
+
+    @Override
+    public boolean isClean()
+    {
+        return rows.isEmpty();
+    }
+
+    @Override
+    void clearUnsafe()
+    {
+        rows.clear();
+    }
+
+    private static class SlabRow
+    {
+        // references to the row's serialized columns, sorted by name; replaced, never modified, by writers
+        volatile long[] refs = new long[0];
+        // a column family holding the row's deletion info, if it has been deleted
+        volatile ColumnFamily deletion;
+    }
+}
@@ -56,7 +56,9 @@ public class SliceByNamesReadCommand extends ReadCommand
     public Row getRow(Table table) throws IOException
     {
         DecoratedKey dk = StorageService.getPartitioner().decorateKey(key);
-        return table.getRow(QueryFilter.getNamesFilter(dk, queryPath, columnNames));
+        QueryFilter filter = QueryFilter.getNamesFilter(dk, queryPath, columnNames);
+        filter.setDeadline(deadline);
+        return table.getRow(filter);
     }
 
     @Override
@@ -68,7 +68,9 @@ public class SliceFromReadCommand extends ReadCommand
     public Row getRow(Table table) throws IOException
     {
         DecoratedKey dk = StorageService.getPartitioner().decorateKey(key);
-        return table.getRow(QueryFilter.getSliceFilter(dk, queryPath, start, finish, bitmasks, reversed, count));
+        QueryFilter filter = QueryFilter.getSliceFilter(dk, queryPath, start, finish, bitmasks, reversed, count);
+        filter.setDeadline(deadline);
+        return table.getRow(filter);
     }
 
     @Override
@@ -36,6 +36,7 @@ import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.clock.AbstractReconciler;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.ObjectSizes;
 
 
 public class SuperColumn implements IColumn, IColumnContainer
@@ -112,6 +113,17 @@ public class SuperColumn implements IColumn, IColumnContainer
         return column;
     }
 
+    public int heapSize()
+    {
+        int size = ObjectSizes.align(ObjectSizes.OBJECT_HEADER + 5 * ObjectSizes.REFERENCE)
+                   + ObjectSizes.sizeOf(name_)
+                   + ObjectSizes.SKIP_LIST
+                   + 2 * ObjectSizes.ATOMIC;
+        for (IColumn subColumn : getSubColumns())
+            size += ObjectSizes.SKIP_LIST_ENTRY + subColumn.heapSize();
+        return size;
+    }
+
     /**
      * This calculates the exact size of the sub columns on the fly
      */
@@ -168,23 +180,32 @@ public class SuperColumn implements IColumn, IColumnContainer
     }
 
     public void addColumn(IColumn column)
+    {
+        addColumnWithSizeDelta(column);
+    }
+
+    /**
+     * @return the change in the heap held by this super column's subcolumns
+     */
+    private long addColumnWithSizeDelta(IColumn column)
     {
         assert column instanceof Column : "A super column can only contain simple columns";
 
         byte[] name = column.name();
         IColumn oldColumn = columns_.putIfAbsent(name, column);
-        if (oldColumn != null)
+        if (oldColumn == null)
+            return ObjectSizes.SKIP_LIST_ENTRY + column.heapSize();
+
+        IColumn reconciledColumn = reconciler.reconcile((Column)column, (Column)oldColumn);
+        while (!columns_.replace(name, oldColumn, reconciledColumn))
         {
-            IColumn reconciledColumn = reconciler.reconcile((Column)column, (Column)oldColumn);
-            while (!columns_.replace(name, oldColumn, reconciledColumn))
-            {
-                // if unable to replace, then get updated old (existing) col
-                oldColumn = columns_.get(name);
-                // re-calculate reconciled col from updated old col and original new col
-                reconciledColumn = reconciler.reconcile((Column)column, (Column)oldColumn);
-                // try to re-update value, again
-            }
-    	}
+            // if unable to replace, then get updated old (existing) col
+            oldColumn = columns_.get(name);
+            // re-calculate reconciled col from updated old col and original new col
+            reconciledColumn = reconciler.reconcile((Column)column, (Column)oldColumn);
+            // try to re-update value, again
+        }
+        return reconciledColumn.heapSize() - oldColumn.heapSize();
     }
 
     /*
@@ -192,15 +213,26 @@ public class SuperColumn implements IColumn, IColumnContainer
      * if the column does not exist then create it.
      */
     public void putColumn(IColumn column)
+    {
+        putColumnWithSizeDelta(column);
+    }
+
+    /**
+     * Same as putColumn.
+     * @return the change in the heap held by this super column's subcolumns
+     */
+    long putColumnWithSizeDelta(IColumn column)
     {
         assert column instanceof SuperColumn;
 
+        long delta = 0;
         for (IColumn subColumn : column.getSubColumns())
         {
-        	addColumn(subColumn);
+            delta += addColumnWithSizeDelta(subColumn);
         }
         FBUtilities.atomicSetMax(localDeletionTime, column.getLocalDeletionTime()); // do this first so we won't have a column that's "deleted" but has no local deletion time
         FBUtilities.atomicSetMax(markedForDeleteAt, column.getMarkedForDeleteAt());
+        return delta;
     }
 
     public IClock getMarkedForDeleteAt()
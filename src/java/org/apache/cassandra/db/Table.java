@@ -55,11 +55,20 @@ public class Table
 
     private static final Logger logger = LoggerFactory.getLogger(Table.class);
     private static final String SNAPSHOT_SUBDIR_NAME = "snapshots";
+    private static final String BACKUPS_SUBDIR_NAME = "backups";
     /* accesses to CFS.memtable should acquire this for thread safety.  only switchMemtable should aquire the writeLock. */
     static final ReentrantReadWriteLock flusherLock = new ReentrantReadWriteLock(true);
 
     private static Timer flushTimer = new Timer("FLUSH-TIMER");
 
+    static
+    {
+        // keep all memtables together within memtable_total_space_in_mb
+        flushTimer.schedule(new MeteredFlusher(), 1000, 1000);
+        // share cache_total_space_in_mb between the caches that make the best use of it
+        flushTimer.schedule(new CacheTuner(), CacheTuner.INTERVAL_IN_MS, CacheTuner.INTERVAL_IN_MS);
+    }
+
     // This is a result of pushing down the point in time when storage directories get created.  It used to happen in
     // CassandraDaemon, but it is possible to call Table.open without a running daemon, so it made sense to ensure
     // proper directories here.
@@ -398,9 +407,7 @@ public class Table
                     }
                 }
 
-                ColumnFamily cachedRow = cfs.getRawCachedRow(key);
-                if (cachedRow != null)
-                    cachedRow.addAll(columnFamily);
+                cfs.updateRowCache(key, columnFamily);
             }
         }
         finally
@@ -472,6 +479,11 @@ public class Table
         return dataDirPath + File.separator + tableName + File.separator + SNAPSHOT_SUBDIR_NAME + File.separator + snapshotName;
     }
 
+    public static String getBackupsPath(String dataDirPath, String tableName)
+    {
+        return dataDirPath + File.separator + tableName + File.separator + BACKUPS_SUBDIR_NAME;
+    }
+
     public static Iterable<Table> all()
     {
         Function<String, Table> transformer = new Function<String, Table>()
@@ -29,6 +29,9 @@ public class TimestampReconciler extends AbstractReconciler
 
     public Column reconcile(Column left, Column right)
     {
+        if (left.hasTimestamp() && right.hasTimestamp())
+            return left.timestamp() >= right.timestamp() ? left : right;
+
         ClockRelationship cr = left.clock().compare(right.clock());
         switch (cr)
         {
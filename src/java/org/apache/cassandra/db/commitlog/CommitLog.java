@@ -19,6 +19,8 @@
 package org.apache.cassandra.db.commitlog;
 
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Config;
@@ -29,17 +31,20 @@ import org.apache.cassandra.io.DeletionService;
 import org.apache.cassandra.io.util.BufferedRandomAccessFile;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.utils.FBUtilities;
-import org.apache.cassandra.utils.WrappedRunnable;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
@@ -179,132 +184,197 @@ public class CommitLog
         logger.info("Log replay complete");
     }
 
+    /**
+     * Replays the given segments. The calling thread reads them, validating checksums and carving out each
+     * entry; deserializing and applying the mutations is spread over concurrent_writes workers. Mutations are
+     * partitioned by key, and each worker applies its mutations in log order, so that successive mutations of a
+     * row are replayed in the order they were written.
+     */
     public static void recover(File[] clogs) throws IOException
     {
         Set<Table> tablesRecovered = new HashSet<Table>();
-        List<Future<?>> futures = new ArrayList<Future<?>>();
         byte[] bytes = new byte[4096];
 
-        for (File file : clogs)
+        final AtomicReference<Throwable> replayError = new AtomicReference<Throwable>();
+        ThreadPoolExecutor[] workers = new ThreadPoolExecutor[DatabaseDescriptor.getConcurrentWriters()];
+        int queueSize = Math.max(1, MAX_OUTSTANDING_REPLAY_COUNT / workers.length);
+        for (int i = 0; i < workers.length; i++)
         {
-            CommitLogHeader clHeader = null;
-            int bufferSize = (int)Math.min(file.length(), 32 * 1024 * 1024);
-            BufferedRandomAccessFile reader = new BufferedRandomAccessFile(file.getAbsolutePath(), "r", bufferSize);
-
-            int replayPosition = 0;
-            String headerPath = CommitLogHeader.getHeaderPathFromSegmentPath(file.getAbsolutePath());
-            try
-            {
-                clHeader = CommitLogHeader.readCommitLogHeader(headerPath);
-                replayPosition = clHeader.getReplayPosition();
-            }
-            catch (IOException ioe)
-            {
-                logger.info(headerPath + " incomplete, missing or corrupt.  Everything is ok, don't panic.  CommitLog will be replayed from the beginning");
-                logger.debug("exception was", ioe);
-            }
-            reader.seek(replayPosition);
-
-            if (logger.isDebugEnabled())
-                logger.debug("Replaying " + file + " starting at " + reader.getFilePointer());
+            // single threaded, so that tasks run in order; a full queue blocks the reader
+            workers[i] = new DebuggableThreadPoolExecutor(1,
+                                                          1,
+                                                          StageManager.KEEPALIVE,
+                                                          TimeUnit.SECONDS,
+                                                          new ArrayBlockingQueue<Runnable>(queueSize),
+                                                          new NamedThreadFactory("COMMITLOG-REPLAY-" + i));
+        }
 
-            /* read the logs populate RowMutation and apply */
-            while (!reader.isEOF())
+        long startTime = System.currentTimeMillis();
+        long replayedBytes = 0;
+        long replayedCount = 0;
+        try
+        {
+            for (File file : clogs)
             {
-                if (logger.isDebugEnabled())
-                    logger.debug("Reading mutation at " + reader.getFilePointer());
+                CommitLogHeader clHeader = null;
+                int bufferSize = (int)Math.min(file.length(), 32 * 1024 * 1024);
+                BufferedRandomAccessFile reader = new BufferedRandomAccessFile(file.getAbsolutePath(), "r", bufferSize);
 
-                long claimedCRC32;
-
-                Checksum checksum = new CRC32();
-                int serializedSize;
+                int replayPosition = 0;
+                String headerPath = CommitLogHeader.getHeaderPathFromSegmentPath(file.getAbsolutePath());
                 try
                 {
-                    // any of the reads may hit EOF
-                    serializedSize = reader.readInt();
-                    long claimedSizeChecksum = reader.readLong();
-                    checksum.update(serializedSize);
-                    if (checksum.getValue() != claimedSizeChecksum || serializedSize <= 0)
-                        break; // entry wasn't synced correctly/fully.  that's ok.
-
-                    if (serializedSize > bytes.length)
-                        bytes = new byte[(int) (1.2 * serializedSize)];
-                    reader.readFully(bytes, 0, serializedSize);
-                    claimedCRC32 = reader.readLong();
-                }
-                catch(EOFException eof)
-                {
-                    break; // last CL entry didn't get completely written.  that's ok.
+                    clHeader = CommitLogHeader.readCommitLogHeader(headerPath);
+                    replayPosition = clHeader.getReplayPosition();
                 }
-
-                checksum.update(bytes, 0, serializedSize);
-                if (claimedCRC32 != checksum.getValue())
+                catch (IOException ioe)
                 {
-                    // this entry must not have been fsynced.  probably the rest is bad too,
-                    // but just in case there is no harm in trying them (since we still read on an entry boundary)
-                    continue;
+                    logger.info(headerPath + " incomplete, missing or corrupt.  Everything is ok, don't panic.  CommitLog will be replayed from the beginning");
+                    logger.debug("exception was", ioe);
                 }
+                reader.seek(replayPosition);
 
-                /* deserialize the commit log entry */
-                ByteArrayInputStream bufIn = new ByteArrayInputStream(bytes, 0, serializedSize);
-                final RowMutation rm = RowMutation.serializer().deserialize(new DataInputStream(bufIn));
                 if (logger.isDebugEnabled())
-                    logger.debug(String.format("replaying mutation for %s.%s: %s",
-                                                rm.getTable(),
-                                                rm.key(),
-                                                "{" + StringUtils.join(rm.getColumnFamilies(), ", ") + "}"));
-                final Table table = Table.open(rm.getTable());
-                tablesRecovered.add(table);
-                final Collection<ColumnFamily> columnFamilies = new ArrayList<ColumnFamily>(rm.getColumnFamilies());
-                final long entryLocation = reader.getFilePointer();
-                final CommitLogHeader finalHeader = clHeader;
-                Runnable runnable = new WrappedRunnable()
+                    logger.debug("Replaying " + file + " starting at " + reader.getFilePointer());
+
+                /* read the logs populate RowMutation and apply */
+                while (!reader.isEOF())
                 {
-                    public void runMayThrow() throws IOException
+                    if (logger.isDebugEnabled())
+                        logger.debug("Reading mutation at " + reader.getFilePointer());
+
+                    long claimedCRC32;
+
+                    Checksum checksum = new CRC32();
+                    int serializedSize;
+                    try
                     {
-                        RowMutation newRm = new RowMutation(rm.getTable(), rm.key());
-                        
-                        // Rebuild the row mutation, omitting column families that a) have already been flushed,
-                        // b) are part of a cf that was dropped. Keep in mind that the cf.name() is suspect. do every
-                        // thing based on the cfid instead.
-                        for (ColumnFamily columnFamily : columnFamilies)
-                        {
-                            if (CFMetaData.getCF(columnFamily.id()) == null)
-                                // null means the cf has been dropped
-                                continue;
-                            
-                            if (finalHeader == null || (finalHeader.isDirty(columnFamily.id()) && entryLocation >= finalHeader.getPosition(columnFamily.id())))
-                                newRm.add(columnFamily);
-                        }
-                        if (!newRm.isEmpty())
+                        // any of the reads may hit EOF
+                        serializedSize = reader.readInt();
+                        long claimedSizeChecksum = reader.readLong();
+                        checksum.update(serializedSize);
+                        if (checksum.getValue() != claimedSizeChecksum || serializedSize <= 0)
+                            break; // entry wasn't synced correctly/fully.  that's ok.
+
+                        if (serializedSize > bytes.length)
+                            bytes = new byte[(int) (1.2 * serializedSize)];
+                        reader.readFully(bytes, 0, serializedSize);
+                        claimedCRC32 = reader.readLong();
+                    }
+                    catch(EOFException eof)
+                    {
+                        break; // last CL entry didn't get completely written.  that's ok.
+                    }
+
+                    checksum.update(bytes, 0, serializedSize);
+                    if (claimedCRC32 != checksum.getValue())
+                    {
+                        // this entry must not have been fsynced.  probably the rest is bad too,
+                        // but just in case there is no harm in trying them (since we still read on an entry boundary)
+                        continue;
+                    }
+
+                    // the worker deserializes its own copy of the entry; only the table and key are read here,
+                    // to pick the worker
+                    final byte[] entry = Arrays.copyOf(bytes, serializedSize);
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+                    String tableName = in.readUTF();
+                    byte[] key = FBUtilities.readShortByteArray(in);
+                    tablesRecovered.add(Table.open(tableName));
+
+                    final long entryLocation = reader.getFilePointer();
+                    final CommitLogHeader finalHeader = clHeader;
+                    Runnable runnable = new Runnable()
+                    {
+                        public void run()
                         {
-                            Table.open(newRm.getTable()).apply(newRm, null, false);
+                            if (replayError.get() != null)
+                                return;
+                            try
+                            {
+                                replay(entry, entryLocation, finalHeader);
+                            }
+                            catch (Throwable t)
+                            {
+                                replayError.compareAndSet(null, t);
+                            }
                         }
-                    }
-                };
-                futures.add(StageManager.getStage(StageManager.MUTATION_STAGE).submit(runnable));
-                if (futures.size() > MAX_OUTSTANDING_REPLAY_COUNT)
+                    };
+                    workers[(Arrays.hashCode(key) & Integer.MAX_VALUE) % workers.length].execute(runnable);
+                    replayedBytes += serializedSize;
+                    replayedCount++;
+                }
+                reader.close();
+                logger.info("Finished reading " + file + " for recovery");
+            }
+        }
+        finally
+        {
+            // wait for all the mutations to be applied
+            for (ThreadPoolExecutor worker : workers)
+                worker.shutdown();
+            for (ThreadPoolExecutor worker : workers)
+            {
+                try
+                {
+                    worker.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e)
                 {
-                    FBUtilities.waitOnFutures(futures);
-                    futures.clear();
+                    throw new AssertionError(e);
                 }
             }
-            reader.close();
-            logger.info("Finished reading " + file + " for recovery");
         }
-
-        // wait for all the writes to finish on the mutation stage
-        FBUtilities.waitOnFutures(futures);
-        logger.debug("Finished waiting on mutations from recovery");
+        if (replayError.get() != null)
+            throw new RuntimeException("Error replaying the commit log", replayError.get());
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        logger.info(String.format("Replayed %d mutations (%d bytes) in %d ms: %.1f mutations/s, %.2f MB/s",
+                                  replayedCount,
+                                  replayedBytes,
+                                  elapsed,
+                                  replayedCount * 1000.0 / elapsed,
+                                  replayedBytes * 1000.0 / elapsed / (1024 * 1024)));
 
         // flush replayed tables
-        futures.clear();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
         for (Table table : tablesRecovered)
             futures.addAll(table.flush());
         FBUtilities.waitOnFutures(futures);
         logger.info("Recovery complete");
     }
 
+    /**
+     * Deserializes a commit log entry and applies it, omitting column families that have already been flushed or
+     * that were dropped since.
+     */
+    private static void replay(byte[] entry, long entryLocation, CommitLogHeader header) throws IOException
+    {
+        RowMutation rm = RowMutation.serializer().deserialize(new DataInputStream(new ByteArrayInputStream(entry)));
+        if (logger.isDebugEnabled())
+            logger.debug(String.format("replaying mutation for %s.%s: %s",
+                                        rm.getTable(),
+                                        rm.key(),
+                                        "{" + StringUtils.join(rm.getColumnFamilies(), ", ") + "}"));
+        RowMutation newRm = new RowMutation(rm.getTable(), rm.key());
+
+        // Rebuild the row mutation, omitting column families that a) have already been flushed,
+        // b) are part of a cf that was dropped. Keep in mind that the cf.name() is suspect. do every
+        // thing based on the cfid instead.
+        for (ColumnFamily columnFamily : rm.getColumnFamilies())
+        {
+            if (CFMetaData.getCF(columnFamily.id()) == null)
+                // null means the cf has been dropped
+                continue;
+
+            if (header == null || (header.isDirty(columnFamily.id()) && entryLocation >= header.getPosition(columnFamily.id())))
+                newRm.add(columnFamily);
+        }
+        if (!newRm.isEmpty())
+        {
+            Table.open(newRm.getTable()).apply(newRm, null, false);
+        }
+    }
+
     private CommitLogSegment currentSegment()
     {
         return segments.getLast();
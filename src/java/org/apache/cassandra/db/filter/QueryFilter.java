@@ -23,6 +23,8 @@ package org.apache.cassandra.db.filter;
 
 import java.util.*;
 
+import com.google.common.collect.AbstractIterator;
+
 import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.io.util.FileDataInput;
 import org.apache.cassandra.thrift.SlicePredicate;
@@ -42,6 +44,7 @@ public class QueryFilter
     public final QueryPath path;
     public final IFilter filter;
     private final IFilter superFilter;
+    private long deadline = Long.MAX_VALUE;
 
     public QueryFilter(DecoratedKey key, QueryPath path, IFilter filter)
     {
@@ -51,9 +54,26 @@ public class QueryFilter
         superFilter = path.superColumnName == null ? null : new NamesQueryFilter(path.superColumnName);
     }
 
+    /**
+     * Sets a local time in milliseconds after which collecting columns will stop early. Results collected
+     * past the deadline are incomplete, and must be discarded by the caller.
+     */
+    public void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return True if this filter has a deadline, and it has passed.
+     */
+    public boolean isExpired()
+    {
+        return deadline != Long.MAX_VALUE && System.currentTimeMillis() > deadline;
+    }
+
     public IColumnIterator getMemtableColumnIterator(Memtable memtable, AbstractType comparator)
     {
-        ColumnFamily cf = memtable.getColumnFamily(key);
+        ColumnFamily cf = memtable.getColumnFamily(key, path.superColumnName == null ? filter : superFilter);
         if (cf == null)
             return null;
         return getMemtableColumnIterator(cf, key, comparator);
@@ -95,6 +115,9 @@ public class QueryFilter
     
     public void collectCollatedColumns(final ColumnFamily returnCF, Iterator<IColumn> collatedColumns, final int gcBefore)
     {
+        if (deadline != Long.MAX_VALUE)
+            collatedColumns = new DeadlineIterator(collatedColumns);
+
         // define a 'reduced' iterator that merges columns w/ the same name, which
         // greatly simplifies computing liveColumns in the presence of tombstones.
         ReducingIterator<IColumn, IColumn> reduced = new ReducingIterator<IColumn, IColumn>(collatedColumns)
@@ -139,6 +162,30 @@ public class QueryFilter
         return path.columnFamilyName;
     }
 
+    /**
+     * Ends the iteration early once the deadline has passed. The clock is only consulted every CHECK_INTERVAL
+     * columns, to keep the cost of the check negligible.
+     */
+    private class DeadlineIterator extends AbstractIterator<IColumn>
+    {
+        private static final int CHECK_INTERVAL = 128;
+
+        private final Iterator<IColumn> iter;
+        private int count = 0;
+
+        DeadlineIterator(Iterator<IColumn> iter)
+        {
+            this.iter = iter;
+        }
+
+        protected IColumn computeNext()
+        {
+            if (!iter.hasNext() || (++count % CHECK_INTERVAL == 0 && isExpired()))
+                return endOfData();
+            return iter.next();
+        }
+    }
+
     public static boolean isRelevant(IColumn column, IColumnContainer container, int gcBefore)
     {
         // the column itself must be not gc-able (it is live, or a still relevant tombstone, or has live subcolumns), (1)
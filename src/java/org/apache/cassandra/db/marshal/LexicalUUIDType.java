@@ -24,6 +24,8 @@ package org.apache.cassandra.db.marshal;
 import java.util.UUID;
 import java.nio.ByteBuffer;
 
+import org.apache.cassandra.utils.FastByteComparisons;
+
 public class LexicalUUIDType extends AbstractType
 {
     public static final LexicalUUIDType instance = new LexicalUUIDType();
@@ -47,7 +49,14 @@ public class LexicalUUIDType extends AbstractType
             return 1;
         }
 
-        return getUUID(o1).compareTo(getUUID(o2));
+        // the same order as UUID.compareTo: signed most, then least significant bits
+        long msb1 = FastByteComparisons.getLong(o1, 0);
+        long msb2 = FastByteComparisons.getLong(o2, 0);
+        if (msb1 != msb2)
+            return msb1 < msb2 ? -1 : 1;
+        long lsb1 = FastByteComparisons.getLong(o1, 8);
+        long lsb2 = FastByteComparisons.getLong(o2, 8);
+        return lsb1 < lsb2 ? -1 : (lsb1 > lsb2 ? 1 : 0);
     }
 
     public String getString(byte[] bytes)
@@ -24,6 +24,8 @@ package org.apache.cassandra.db.marshal;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+import org.apache.cassandra.utils.FastByteComparisons;
+
 public class LongType extends AbstractType
 {
     public static final LongType instance = new LongType();
@@ -41,9 +43,9 @@ public class LongType extends AbstractType
             return 1;
         }
 
-        long L1 = ByteBuffer.wrap(o1).getLong();
-        long L2 = ByteBuffer.wrap(o2).getLong();
-        return Long.valueOf(L1).compareTo(Long.valueOf(L2));
+        long L1 = FastByteComparisons.getLong(o1, 0);
+        long L2 = FastByteComparisons.getLong(o2, 0);
+        return L1 < L2 ? -1 : (L1 > L2 ? 1 : 0);
     }
 
     public String getString(byte[] bytes)
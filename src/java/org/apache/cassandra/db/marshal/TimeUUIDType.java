@@ -23,6 +23,7 @@ package org.apache.cassandra.db.marshal;
 
 import java.util.UUID;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.FastByteComparisons;
 
 public class TimeUUIDType extends AbstractType
 {
@@ -48,18 +49,12 @@ public class TimeUUIDType extends AbstractType
 
     static long getTimestamp(byte[] bytes)
     {
-        long low = 0;
-        int mid = 0;
-        int hi = 0;
-
-        for (int i = 0; i < 4; i++)
-            low = (low << 8) | (bytes[i] & 0xff);
-        for (int i = 4; i < 6; i++)
-            mid = (mid << 8) | (bytes[i] & 0xff);
-        for (int i = 6; i < 8; i++)
-            hi = (hi << 8) | (bytes[i] & 0xff);
-
-        return low + ((long)mid << 32) + ((long)(hi & 0x0FFF) << 48);
+        // the first 8 bytes are time_low (4), time_mid (2), version and time_hi (2), in that order
+        long msb = FastByteComparisons.getLong(bytes, 0);
+        long low = msb >>> 32;
+        long mid = (msb >>> 16) & 0xFFFF;
+        long hi = msb & 0x0FFF;
+        return low | (mid << 32) | (hi << 48);
     }
 
     public String getString(byte[] bytes)
@@ -30,6 +30,8 @@ import org.slf4j.LoggerFactory;
 
  import org.apache.commons.lang.ArrayUtils;
 
+ import org.apache.cassandra.locator.AbstractRackAwareSnitch;
+ import org.apache.cassandra.locator.IEndpointSnitch;
  import org.apache.cassandra.locator.TokenMetadata;
  import org.apache.cassandra.locator.AbstractReplicationStrategy;
  import org.apache.cassandra.net.*;
@@ -189,20 +191,65 @@ public class BootStrapper
          * target and value is the list of ranges to be sent to it.
         */
         Multimap<InetAddress, Range> sources = ArrayListMultimap.create();
+        IPartitioner partitioner = StorageService.getPartitioner();
 
         // TODO look for contiguous ranges and map them to the same source
         for (Range range : rangesWithSourceTarget.keySet())
         {
-            for (InetAddress source : rangesWithSourceTarget.get(range))
+            // every live replica holds the whole range: split it between them, so that they stream in parallel
+            List<InetAddress> live = getLiveSources(rangesWithSourceTarget.get(range), failureDetector);
+            if (live.isEmpty())
+                continue;
+            List<Range> parts = split(range, live.size(), partitioner);
+            for (int i = 0; i < parts.size(); i++)
+                sources.put(live.get(i), parts.get(i));
+        }
+        return sources;
+    }
+
+    /**
+     * @param sources replicas of a range, closest first.
+     * @return the live sources, closest first; if the snitch knows about datacenters, only those in the datacenter
+     * of the closest one, since streaming from a remote datacenter is unlikely to make things faster.
+     */
+    static List<InetAddress> getLiveSources(Collection<InetAddress> sources, IFailureDetector failureDetector)
+    {
+        IEndpointSnitch snitch = DatabaseDescriptor.getEndpointSnitch();
+        List<InetAddress> live = new ArrayList<InetAddress>(sources.size());
+        for (InetAddress source : sources)
+        {
+            if (!failureDetector.isAlive(source))
+                continue;
+            if (!live.isEmpty() && snitch instanceof AbstractRackAwareSnitch)
             {
-                if (failureDetector.isAlive(source))
-                {
-                    sources.put(source, range);
-                    break;
-                }
+                AbstractRackAwareSnitch rackAwareSnitch = (AbstractRackAwareSnitch) snitch;
+                if (!rackAwareSnitch.getDatacenter(source).equals(rackAwareSnitch.getDatacenter(live.get(0))))
+                    continue;
             }
+            live.add(source);
         }
-        return sources;
+        return live;
+    }
+
+    /**
+     * Splits a range into (at most) the given number of contiguous, roughly equal parts.
+     */
+    static List<Range> split(Range range, int parts, IPartitioner partitioner)
+    {
+        if (parts > 1)
+        {
+            Token mid = partitioner.midpoint(range.left, range.right);
+            // a range too small to split
+            if (!mid.equals(range.left) && !mid.equals(range.right))
+            {
+                List<Range> split = split(new Range(range.left, mid), parts / 2, partitioner);
+                split.addAll(split(new Range(mid, range.right), parts - parts / 2, partitioner));
+                return split;
+            }
+        }
+        List<Range> split = new ArrayList<Range>();
+        split.add(range);
+        return split;
     }
 
     public static class BootstrapTokenVerbHandler implements IVerbHandler
@@ -0,0 +1,70 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.dht;
+
+/**
+ * A token holding a primitive long, so that comparing tokens costs a single primitive comparison and creating
+ * one does not box.
+ */
+public class LongToken extends Token<Long>
+{
+    private static final long serialVersionUID = 1L;
+
+    final long value;
+
+    public LongToken(long value)
+    {
+        super(null);
+        this.value = value;
+    }
+
+    public long longValue()
+    {
+        return value;
+    }
+
+    @Override
+    public int compareTo(Token<Long> o)
+    {
+        long other = ((LongToken) o).value;
+        return value < other ? -1 : (value == other ? 0 : 1);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Long.toString(value);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (int) (value ^ (value >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof LongToken))
+            return false;
+        return value == ((LongToken) obj).value;
+    }
+}
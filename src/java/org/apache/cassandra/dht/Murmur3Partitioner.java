@@ -0,0 +1,133 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.dht;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.GuidGenerator;
+import org.apache.cassandra.utils.MurmurHash;
+import org.apache.cassandra.utils.Pair;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * This class generates a LongToken using the first half of a 128-bit MurmurHash3. Like RandomPartitioner it
+ * distributes keys evenly around the ring, but the hash is much cheaper than MD5 and tokens are primitive longs
+ * rather than BigIntegers, so both decorating keys and comparing tokens are faster.
+ *
+ * Tokens range over [Long.MIN_VALUE, Long.MAX_VALUE]; Long.MIN_VALUE is reserved for the minimum token.
+ */
+public class Murmur3Partitioner implements IPartitioner<LongToken>
+{
+    public static final LongToken MINIMUM = new LongToken(Long.MIN_VALUE);
+
+    private static final byte DELIMITER_BYTE = ":".getBytes()[0];
+
+    private static final BigInteger OFFSET = BigInteger.valueOf(Long.MIN_VALUE);
+
+    public DecoratedKey<LongToken> decorateKey(byte[] key)
+    {
+        return new DecoratedKey<LongToken>(getToken(key), key);
+    }
+
+    public DecoratedKey<LongToken> convertFromDiskFormat(byte[] fromdisk)
+    {
+        // find the delimiter position
+        int splitPoint = -1;
+        for (int i = 0; i < fromdisk.length; i++)
+        {
+            if (fromdisk[i] == DELIMITER_BYTE)
+            {
+                splitPoint = i;
+                break;
+            }
+        }
+        assert splitPoint != -1;
+
+        // and decode the token and key
+        String token = new String(fromdisk, 0, splitPoint, UTF_8);
+        byte[] key = Arrays.copyOfRange(fromdisk, splitPoint + 1, fromdisk.length);
+        return new DecoratedKey<LongToken>(new LongToken(Long.parseLong(token)), key);
+    }
+
+    public LongToken midpoint(LongToken ltoken, LongToken rtoken)
+    {
+        // shift the signed range onto [0, 2^64) so that FBUtilities can handle wrapping as usual
+        BigInteger left = BigInteger.valueOf(ltoken.value).subtract(OFFSET);
+        BigInteger right = BigInteger.valueOf(rtoken.value).subtract(OFFSET);
+        Pair<BigInteger,Boolean> midpair = FBUtilities.midpoint(left, right, 64);
+        // discard the remainder
+        return new LongToken(midpair.left.add(OFFSET).longValue());
+    }
+
+    public LongToken getMinimumToken()
+    {
+        return MINIMUM;
+    }
+
+    public LongToken getRandomToken()
+    {
+        return getToken(GuidGenerator.guid().getBytes());
+    }
+
+    private final Token.TokenFactory<Long> tokenFactory = new Token.TokenFactory<Long>() {
+        public byte[] toByteArray(Token<Long> longToken)
+        {
+            return FBUtilities.toByteArray(((LongToken) longToken).value);
+        }
+
+        public Token<Long> fromByteArray(byte[] bytes)
+        {
+            return new LongToken(ByteBuffer.wrap(bytes).getLong());
+        }
+
+        public String toString(Token<Long> longToken)
+        {
+            return Long.toString(((LongToken) longToken).value);
+        }
+
+        public Token<Long> fromString(String string)
+        {
+            return new LongToken(Long.parseLong(string));
+        }
+    };
+
+    public Token.TokenFactory<Long> getTokenFactory()
+    {
+        return tokenFactory;
+    }
+
+    public boolean preservesOrder()
+    {
+        return false;
+    }
+
+    public LongToken getToken(byte[] key)
+    {
+        if (key.length == 0)
+            return MINIMUM;
+        long hash = MurmurHash.hash3_x64_128(key, 0, key.length, 0)[0];
+        // keep the minimum token for the empty key
+        return new LongToken(hash == Long.MIN_VALUE ? Long.MAX_VALUE : hash);
+    }
+}
@@ -3,6 +3,7 @@ package org.apache.cassandra.io;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import org.apache.cassandra.db.DecoratedKey;
 
@@ -22,7 +23,37 @@ public abstract class AbstractCompactedRow
 
     public abstract void write(DataOutput out) throws IOException;
     
+    /**
+     * Hashes the column data of the row: its deletion info, column count and columns.  The row bloom filter
+     * and column index are left out, since their size depends on settings that may differ between nodes.
+     */
     public abstract void update(MessageDigest digest);
 
     public abstract boolean isEmpty();
+
+    /**
+     * @return The digest that anti-entropy validation would compute for this row, if it were still the only
+     * version of the row at validation time; or null if that cannot be known in advance (because the row contains
+     * tombstones or expiring columns that a later purge could remove).
+     */
+    public byte[] stableDigest()
+    {
+        return null;
+    }
+
+    /**
+     * @return A new instance of the digest used to hash rows for anti-entropy validation.
+     */
+    public static MessageDigest newDigest()
+    {
+        try
+        {
+            // MerkleTree uses XOR internally, so we want lots of output bits here
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
 }
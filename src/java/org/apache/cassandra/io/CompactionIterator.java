@@ -43,7 +43,7 @@ import org.apache.cassandra.io.sstable.SSTableReader;
 import org.apache.cassandra.io.sstable.SSTableScanner;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 
-public class CompactionIterator extends ReducingIterator<SSTableIdentityIterator, AbstractCompactedRow> implements Closeable
+public class CompactionIterator extends ReducingIterator<SSTableIdentityIterator, AbstractCompactedRow> implements Closeable, ICompactionProgress
 {
     private static Logger logger = LoggerFactory.getLogger(CompactionIterator.class);
 
@@ -122,6 +122,14 @@ public class CompactionIterator extends ReducingIterator<SSTableIdentityIterator
     }
 
     protected AbstractCompactedRow getCompactedRow()
+    {
+        return getCompactedRow(rows, major, gcBefore);
+    }
+
+    /**
+     * @return The given versions of a row merged, in memory or incrementally depending on their total size.
+     */
+    public static AbstractCompactedRow getCompactedRow(List<SSTableIdentityIterator> rows, boolean major, int gcBefore)
     {
         long rowSize = 0;
         for (SSTableIdentityIterator row : rows)
@@ -0,0 +1,38 @@
+package org.apache.cassandra.io;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+/**
+ * Progress of a pass over sstables on the compaction executor, as reported by CompactionManager.
+ */
+public interface ICompactionProgress
+{
+    /**
+     * @return The total size of the sstables being processed.
+     */
+    public long getTotalBytes();
+
+    /**
+     * @return Roughly how many of those bytes have been processed so far.
+     */
+    public long getBytesRead();
+}
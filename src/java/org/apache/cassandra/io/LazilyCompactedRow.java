@@ -10,6 +10,7 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.Iterators;
 import org.apache.commons.collections.iterators.CollatingIterator;
 
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.io.sstable.SSTableIdentityIterator;
@@ -96,8 +97,17 @@ public class LazilyCompactedRow extends AbstractCompactedRow implements IIterabl
     {
         // no special-case for rows.size == 1, we're actually skipping some bytes here so just
         // blindly updating everything wouldn't be correct
-        digest.update(headerBuffer.getData(), 0, headerBuffer.getLength());
         DataOutputBuffer out = new DataOutputBuffer();
+        try
+        {
+            ColumnFamily.serializer().serializeCFInfo(emptyColumnFamily, out);
+            out.writeInt(columnCount);
+        }
+        catch (IOException e)
+        {
+            throw new IOError(e);
+        }
+        digest.update(out.getData(), 0, out.getLength());
         Iterator<IColumn> iter = iterator();
         while (iter.hasNext())
         {
@@ -134,6 +144,11 @@ public class LazilyCompactedRow extends AbstractCompactedRow implements IIterabl
         return emptyColumnFamily.getComparator();
     }
 
+    public CFMetaData metadata()
+    {
+        return emptyColumnFamily.metadata();
+    }
+
     public Iterator<IColumn> iterator()
     {
         for (SSTableIdentityIterator row : rows)
@@ -1,5 +1,7 @@
 package org.apache.cassandra.io;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOError;
 import java.io.IOException;
@@ -9,6 +11,7 @@ import java.util.List;
 import org.apache.cassandra.db.ColumnFamily;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.io.sstable.IndexHelper;
 import org.apache.cassandra.io.sstable.SSTableIdentityIterator;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.slf4j.Logger;
@@ -22,6 +25,10 @@ public class PrecompactedRow extends AbstractCompactedRow
     private static Logger logger = LoggerFactory.getLogger(PrecompactedRow.class);
 
     private final DataOutputBuffer buffer;
+    // the merged row, or for a single echoed row, its metadata (with no columns); null if unknown
+    private ColumnFamily columnFamily;
+    private boolean echoed;
+    private int columnDataOffset = -1;
 
     public PrecompactedRow(DecoratedKey key, DataOutputBuffer buffer)
     {
@@ -62,6 +69,7 @@ public class PrecompactedRow extends AbstractCompactedRow
             if (cfPurged == null)
                 return;
             ColumnFamily.serializer().serializeWithIndexes(cfPurged, buffer);
+            columnFamily = cfPurged;
         }
         else
         {
@@ -74,6 +82,8 @@ public class PrecompactedRow extends AbstractCompactedRow
             {
                 throw new IOError(e);
             }
+            columnFamily = rows.get(0).getColumnFamily();
+            echoed = true;
         }
     }
 
@@ -85,11 +95,67 @@ public class PrecompactedRow extends AbstractCompactedRow
 
     public void update(MessageDigest digest)
     {
-        digest.update(buffer.getData(), 0, buffer.getLength());
+        if (buffer.getLength() == 0)
+            return;
+        int offset = getColumnDataOffset();
+        digest.update(buffer.getData(), offset, buffer.getLength() - offset);
+    }
+
+    /**
+     * @return the offset in the buffer of the column data, past the row bloom filter and column index
+     */
+    private int getColumnDataOffset()
+    {
+        if (columnDataOffset < 0)
+        {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(buffer.getData(), 0, buffer.getLength());
+            DataInputStream in = new DataInputStream(bytes);
+            try
+            {
+                IndexHelper.skipBloomFilter(in);
+                IndexHelper.skipIndex(in);
+            }
+            catch (IOException e)
+            {
+                throw new IOError(e);
+            }
+            columnDataOffset = buffer.getLength() - bytes.available();
+        }
+        return columnDataOffset;
     }
 
     public boolean isEmpty()
     {
         return buffer.getLength() == 0;
     }
+
+    @Override
+    public byte[] stableDigest()
+    {
+        if (columnFamily == null)
+            return null;
+        ColumnFamily cf = columnFamily;
+        if (echoed)
+        {
+            // the row was copied as-is: its columns must be read to tell whether a purge could change it
+            cf = columnFamily.cloneMeShallow();
+            int offset = getColumnDataOffset();
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.getData(), offset, buffer.getLength() - offset));
+            try
+            {
+                ColumnFamily.serializer().deserializeFromSSTableNoColumns(cf, in);
+                ColumnFamily.serializer().deserializeColumns(in, cf);
+            }
+            catch (IOException e)
+            {
+                throw new IOError(e);
+            }
+        }
+
+        if (!ColumnFamilyStore.isUnaffectedByPurge(cf))
+            return null;
+        MessageDigest digest = newDigest();
+        update(digest);
+        return digest.digest();
+    }
 }
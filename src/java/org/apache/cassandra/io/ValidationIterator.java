@@ -0,0 +1,204 @@
+package org.apache.cassandra.io;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.Closeable;
+import java.io.IOError;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import org.apache.commons.collections.iterators.CollatingIterator;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.io.sstable.SSTableHashScanner;
+import org.apache.cassandra.io.sstable.SSTableIdentityIterator;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.io.sstable.SSTableScanner;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.MerkleTree;
+import org.apache.cassandra.utils.ReducingIterator;
+
+/**
+ * Produces the same row hashes as hashing the output of a major CompactionIterator over the given sstables, but
+ * reads as little of the data as possible: a row that exists in only one sstable, and that was hashed when that
+ * sstable was written, is not read at all. Only rows with several versions (generally, data written since the
+ * last compaction), rows that might be affected by purging tombstones, and rows from sstables that have no
+ * persisted hashes are read and merged.
+ *
+ * Yields null for rows that are empty after purging.
+ */
+public class ValidationIterator extends ReducingIterator<ValidationIterator.Fragment, MerkleTree.RowHash> implements Closeable, ICompactionProgress
+{
+    private final List<Closeable> scanners = new ArrayList<Closeable>();
+    private final List<Fragment> fragments = new ArrayList<Fragment>();
+    private final int gcBefore;
+
+    private long rowsReused;
+    private long rowsRead;
+    private long totalBytes;
+    private long bytesRead;
+
+    public ValidationIterator(Iterable<SSTableReader> sstables, int gcBefore) throws IOException
+    {
+        super(FBUtilities.<Fragment>getCollatingIterator());
+        this.gcBefore = gcBefore;
+        for (SSTableReader sstable : sstables)
+        {
+            totalBytes += sstable.length();
+            SSTableHashScanner hashScanner = sstable.getHashScanner(CompactionIterator.FILE_BUFFER_SIZE);
+            if (hashScanner != null)
+            {
+                scanners.add(hashScanner);
+                ((CollatingIterator)source).addIterator(Iterators.transform(hashScanner, new Function<SSTableHashScanner.Entry, Fragment>()
+                {
+                    public Fragment apply(SSTableHashScanner.Entry entry)
+                    {
+                        return new Fragment(entry.key, entry, null);
+                    }
+                }));
+            }
+            else
+            {
+                SSTableScanner scanner = sstable.getScanner(CompactionIterator.FILE_BUFFER_SIZE);
+                scanners.add(scanner);
+                ((CollatingIterator)source).addIterator(Iterators.transform(scanner, new Function<Object, Fragment>()
+                {
+                    public Fragment apply(Object row)
+                    {
+                        return new Fragment(((SSTableIdentityIterator)row).getKey(), null, (SSTableIdentityIterator)row);
+                    }
+                }));
+            }
+        }
+    }
+
+    @Override
+    protected boolean isEqual(Fragment o1, Fragment o2)
+    {
+        return o1.key.equals(o2.key);
+    }
+
+    public void reduce(Fragment current)
+    {
+        fragments.add(current);
+        bytesRead += current.row == null ? current.entry.dataSize : current.row.getDataSize();
+    }
+
+    protected MerkleTree.RowHash getReduced()
+    {
+        assert fragments.size() > 0;
+
+        try
+        {
+            Fragment first = fragments.get(0);
+            if (fragments.size() == 1
+                && first.entry != null
+                && first.entry.digest != null
+                && first.entry.dataSize <= DatabaseDescriptor.getInMemoryCompactionLimit())
+            {
+                // the only version of the row, and unaffected by purging: its persisted hash is what merging would produce
+                rowsReused++;
+                return new MerkleTree.RowHash(first.key.token, first.entry.digest);
+            }
+
+            List<SSTableIdentityIterator> rows = new ArrayList<SSTableIdentityIterator>(fragments.size());
+            for (Fragment fragment : fragments)
+                rows.add(fragment.row == null ? fragment.entry.getRow() : fragment.row);
+            AbstractCompactedRow row = CompactionIterator.getCompactedRow(rows, true, gcBefore);
+            rowsRead++;
+            if (row.isEmpty())
+                return null;
+            MessageDigest digest = AbstractCompactedRow.newDigest();
+            row.update(digest);
+            return new MerkleTree.RowHash(row.key.token, digest.digest());
+        }
+        catch (IOException e)
+        {
+            throw new IOError(e);
+        }
+        finally
+        {
+            fragments.clear();
+        }
+    }
+
+    /**
+     * @return The number of rows whose persisted hash was used without reading them.
+     */
+    public long getRowsReused()
+    {
+        return rowsReused;
+    }
+
+    /**
+     * @return The number of rows that had to be read and merged.
+     */
+    public long getRowsRead()
+    {
+        return rowsRead;
+    }
+
+    public long getTotalBytes()
+    {
+        return totalBytes;
+    }
+
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    public void close() throws IOException
+    {
+        for (Closeable scanner : scanners)
+            scanner.close();
+    }
+
+    /**
+     * One version of a row: either a persisted hash entry (from which the row can be read if necessary), or a row
+     * read directly from an sstable without persisted hashes.
+     */
+    static class Fragment implements Comparable<Fragment>
+    {
+        final DecoratedKey key;
+        final SSTableHashScanner.Entry entry;
+        final SSTableIdentityIterator row;
+
+        Fragment(DecoratedKey key, SSTableHashScanner.Entry entry, SSTableIdentityIterator row)
+        {
+            this.key = key;
+            this.entry = entry;
+            this.row = row;
+        }
+
+        public int compareTo(Fragment o)
+        {
+            return key.compareTo(o.key);
+        }
+    }
+}
@@ -15,7 +15,7 @@ import com.google.common.base.Objects;
 public class Descriptor
 {
     public static final String LEGACY_VERSION = "a";
-    public static final String CURRENT_VERSION = "e";
+    public static final String CURRENT_VERSION = "g";
 
     public final File directory;
     public final String version;
@@ -28,6 +28,8 @@ public class Descriptor
     public final boolean hasStringsInBloomFilter;
     public final boolean hasIntRowSize;
     public final boolean hasEncodedKeys;
+    public final boolean usesHeapBloomFilter;
+    public final boolean hasColumnDataDigests;
     public final boolean isLatestVersion;
 
     /**
@@ -52,6 +54,8 @@ public class Descriptor
         hasStringsInBloomFilter = version.compareTo("c") < 0;
         hasIntRowSize = version.compareTo("d") < 0;
         hasEncodedKeys = version.compareTo("e") < 0;
+        usesHeapBloomFilter = version.compareTo("f") < 0;
+        hasColumnDataDigests = version.compareTo("g") >= 0;
         isLatestVersion = version.compareTo(CURRENT_VERSION) == 0;
     }
 
@@ -38,6 +38,7 @@ public class IndexSummary
     private ArrayList<KeyPosition> indexPositions;
     private int keysWritten = 0;
     private long lastIndexPosition;
+    private DecoratedKey lastKey;
 
     public void maybeAddEntry(DecoratedKey decoratedKey, long indexPosition)
     {
@@ -51,6 +52,7 @@ public class IndexSummary
             indexPositions.add(info);
         }
         lastIndexPosition = indexPosition;
+        lastKey = decoratedKey;
     }
 
     public List<KeyPosition> getIndexPositions()
@@ -68,6 +70,16 @@ public class IndexSummary
         return lastIndexPosition;
     }
 
+    public DecoratedKey getFirstKey()
+    {
+        return indexPositions.get(0).key;
+    }
+
+    public DecoratedKey getLastKey()
+    {
+        return lastKey;
+    }
+
     /**
      * This is a simple container for the index Key and its corresponding position
      * in the index file. Binary search is performed on a list of these objects
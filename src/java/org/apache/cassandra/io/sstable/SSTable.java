@@ -42,7 +42,9 @@ import org.apache.cassandra.io.util.FileUtils;
  * SSTable keys and the offset into the SSTable at which they are found.
  * Every 1/indexInterval key is read into memory when the SSTable is opened.
  *
- * Finally, a bloom filter file is also kept for the keys in each SSTable.
+ * Finally, a bloom filter file is also kept for the keys in each SSTable, and
+ * optionally a file of row hashes, which anti-entropy validation can use instead
+ * of re-reading and hashing rows that exist in only one SSTable.
  */
 public abstract class SSTable
 {
@@ -52,6 +54,8 @@ public abstract class SSTable
     public static final String COMPONENT_DATA = "Data.db";
     public static final String COMPONENT_INDEX = "Index.db";
     public static final String COMPONENT_FILTER = "Filter.db";
+    // optional: sstables written before it existed, or received by streaming, do not have one
+    public static final String COMPONENT_HASHES = "Hashes.db";
 
     public static final String COMPONENT_COMPACTED = "Compacted";
 
@@ -118,6 +122,7 @@ public abstract class SSTable
                 FileUtils.deleteWithConfirm(new File(dataFilename));
                 FileUtils.deleteWithConfirm(new File(SSTable.indexFilename(dataFilename)));
                 FileUtils.deleteWithConfirm(new File(SSTable.filterFilename(dataFilename)));
+                deleteIfExists(new File(SSTable.hashesFilename(dataFilename)));
                 FileUtils.deleteWithConfirm(new File(SSTable.compactedFilename(dataFilename)));
             }
             catch (IOException e)
@@ -130,6 +135,12 @@ public abstract class SSTable
         return false;
     }
 
+    static void deleteIfExists(File file) throws IOException
+    {
+        if (file.exists())
+            FileUtils.deleteWithConfirm(file);
+    }
+
     protected String compactedFilename()
     {
         return desc.filenameFor(COMPONENT_COMPACTED);
@@ -145,6 +156,31 @@ public abstract class SSTable
         return desc.filenameFor(COMPONENT_FILTER);
     }
 
+    protected static String hashesFilename(String dataFile)
+    {
+        return Descriptor.fromFilename(dataFile).filenameFor(COMPONENT_HASHES);
+    }
+
+    public String hashesFilename()
+    {
+        return desc.filenameFor(COMPONENT_HASHES);
+    }
+
+    /**
+     * Hard-links each component of this sstable into the given directory, which must exist.
+     */
+    public void createLinks(String directoryPath) throws IOException
+    {
+        for (String component : Arrays.asList(COMPONENT_DATA, COMPONENT_INDEX, COMPONENT_FILTER, COMPONENT_HASHES))
+        {
+            File sourceFile = new File(desc.filenameFor(component));
+            // only the hashes component is optional
+            if (component.equals(COMPONENT_HASHES) && !sourceFile.exists())
+                continue;
+            FileUtils.createHardLink(sourceFile, new File(directoryPath, sourceFile.getName()));
+        }
+    }
+
     public String getFilename()
     {
         return desc.filenameFor(COMPONENT_DATA);
@@ -177,6 +213,7 @@ public abstract class SSTable
         {
             bytes += new File(desc.filenameFor(cname)).length();
         }
+        bytes += new File(hashesFilename()).length();
         return bytes;
     }
 
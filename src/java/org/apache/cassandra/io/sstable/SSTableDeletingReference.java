@@ -32,6 +32,8 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.io.DeletionService;
 import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.SegmentedFile;
+import org.apache.cassandra.utils.Filter;
 
 public class SSTableDeletingReference extends PhantomReference<SSTableReader>
 {
@@ -40,17 +42,27 @@ public class SSTableDeletingReference extends PhantomReference<SSTableReader>
     private static final Timer timer = new Timer("SSTABLE-CLEANUP-TIMER");
     public static final int RETRY_DELAY = 10000;
 
-    private final SSTableTracker tracker;
+    private volatile SSTableTracker tracker;
     public final String path;
     private final long size;
+    private final SegmentedFile ifile;
+    private final SegmentedFile dfile;
+    private final Filter bf;
     private boolean deleteOnCleanup;
 
-    SSTableDeletingReference(SSTableTracker tracker, SSTableReader referent, ReferenceQueue<? super SSTableReader> q)
+    SSTableDeletingReference(SSTableReader referent, SegmentedFile ifile, SegmentedFile dfile, Filter bf, ReferenceQueue<? super SSTableReader> q)
     {
         super(referent, q);
-        this.tracker = tracker;
         this.path = referent.getFilename();
         this.size = referent.bytesOnDisk();
+        this.ifile = ifile;
+        this.dfile = dfile;
+        this.bf = bf;
+    }
+
+    void setTracker(SSTableTracker tracker)
+    {
+        this.tracker = tracker;
     }
 
     public void deleteOnCleanup()
@@ -60,6 +72,12 @@ public class SSTableDeletingReference extends PhantomReference<SSTableReader>
 
     public void cleanup() throws IOException
     {
+        // segments still open on the shared file descriptors hold references to them, so each
+        // descriptor is only closed once the last of those segments is
+        ifile.cleanup();
+        dfile.cleanup();
+        bf.close();
+
         if (deleteOnCleanup)
         {
             // this is tricky because the mmapping might not have been finalized yet,
@@ -94,13 +112,15 @@ public class SSTableDeletingReference extends PhantomReference<SSTableReader>
             {
                 FileUtils.deleteWithConfirm(new File(SSTable.indexFilename(path)));
                 FileUtils.deleteWithConfirm(new File(SSTable.filterFilename(path)));
+                SSTable.deleteIfExists(new File(SSTable.hashesFilename(path)));
                 FileUtils.deleteWithConfirm(new File(SSTable.compactedFilename(path)));
             }
             catch (IOException e)
             {
                 throw new IOError(e);
             }
-            tracker.spaceReclaimed(size);
+            if (tracker != null)
+                tracker.spaceReclaimed(size);
             logger.info("Deleted " + path);
         }
     }
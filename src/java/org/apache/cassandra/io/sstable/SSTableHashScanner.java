@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cassandra.io.sstable;
+
+import java.io.Closeable;
+import java.io.IOError;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.io.util.BufferedRandomAccessFile;
+import org.apache.cassandra.utils.FBUtilities;
+
+/**
+ * Iterates over the row hashes persisted alongside an SSTable, in key order, without touching the data file.
+ * Rows whose hash could not be computed in advance can be read on demand using Entry.getRow().
+ */
+public class SSTableHashScanner implements Iterator<SSTableHashScanner.Entry>, Closeable
+{
+    private final SSTableReader sstable;
+    private final BufferedRandomAccessFile file;
+    private final int bufferSize;
+    // opened the first time a row needs to be read
+    private BufferedRandomAccessFile dataFile;
+
+    SSTableHashScanner(SSTableReader sstable, int bufferSize) throws IOException
+    {
+        this.sstable = sstable;
+        this.bufferSize = bufferSize;
+        file = new BufferedRandomAccessFile(sstable.hashesFilename(), "r", bufferSize);
+    }
+
+    public boolean hasNext()
+    {
+        try
+        {
+            return !file.isEOF();
+        }
+        catch (IOException e)
+        {
+            throw new IOError(e);
+        }
+    }
+
+    public Entry next()
+    {
+        try
+        {
+            DecoratedKey key = SSTableReader.decodeKey(sstable.getPartitioner(),
+                                                       sstable.getDescriptor(),
+                                                       FBUtilities.readShortByteArray(file));
+            long position = file.readLong();
+            long dataSize = file.readLong();
+            byte[] digest = file.readBoolean() ? FBUtilities.readShortByteArray(file) : null;
+            return new Entry(key, position, dataSize, digest);
+        }
+        catch (IOException e)
+        {
+            throw new IOError(e);
+        }
+    }
+
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close() throws IOException
+    {
+        file.close();
+        if (dataFile != null)
+            dataFile.close();
+    }
+
+    private SSTableIdentityIterator getRow(Entry entry) throws IOException
+    {
+        if (dataFile == null)
+            dataFile = new BufferedRandomAccessFile(sstable.getFilename(), "r", bufferSize);
+        dataFile.seek(entry.position);
+        FBUtilities.readShortByteArray(dataFile);
+        long dataSize = SSTableReader.readRowSize(dataFile, sstable.getDescriptor());
+        assert dataSize == entry.dataSize : "row hashes for " + sstable + " disagree with the data file at " + entry.position;
+        return new SSTableIdentityIterator(sstable, dataFile, entry.key, dataFile.getFilePointer(), dataSize);
+    }
+
+    public class Entry
+    {
+        public final DecoratedKey key;
+        public final long dataSize;
+        // null if the hash of the row could not be computed in advance
+        public final byte[] digest;
+        private final long position;
+
+        Entry(DecoratedKey key, long position, long dataSize, byte[] digest)
+        {
+            this.key = key;
+            this.position = position;
+            this.dataSize = dataSize;
+            this.digest = digest;
+        }
+
+        /**
+         * Reads this row from the data file. The result is only valid until the next call to getRow() on any entry
+         * from the same scanner.
+         */
+        public SSTableIdentityIterator getRow() throws IOException
+        {
+            return SSTableHashScanner.this.getRow(this);
+        }
+    }
+}
@@ -29,6 +29,8 @@ import com.google.common.collect.Collections2;
 import org.apache.cassandra.io.util.BufferedRandomAccessFile;
 import org.apache.cassandra.io.util.SegmentedFile;
 import org.apache.cassandra.utils.BloomFilter;
+import org.apache.cassandra.utils.Filter;
+import org.apache.cassandra.utils.OffHeapBloomFilter;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.Pair;
 import org.slf4j.Logger;
@@ -60,7 +62,7 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
 
     // `finalizers` is required to keep the PhantomReferences alive after the enclosing SSTR is itself
     // unreferenced.  otherwise they will never get enqueued.
-    private static final Set<Reference<SSTableReader>> finalizers = new HashSet<Reference<SSTableReader>>();
+    private static final Set<Reference<SSTableReader>> finalizers = Collections.synchronizedSet(new HashSet<Reference<SSTableReader>>());
     private static final ReferenceQueue<SSTableReader> finalizerQueue = new ReferenceQueue<SSTableReader>()
     {{
         Runnable runnable = new Runnable()
@@ -112,7 +114,7 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
     private SegmentedFile dfile;
 
     private IndexSummary indexSummary;
-    private BloomFilter bf;
+    private Filter bf;
 
     private InstrumentedCache<Pair<Descriptor,DecoratedKey>, Long> keyCache;
 
@@ -191,6 +193,7 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
             sstable.load(false);
             sstable.loadBloomFilter();
         }
+        sstable.registerCleanup();
 
         return sstable;
     }
@@ -198,10 +201,12 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
     /**
      * Open a RowIndexedReader which already has its state initialized (by SSTableWriter).
      */
-    static SSTableReader internalOpen(Descriptor desc, IPartitioner partitioner, SegmentedFile ifile, SegmentedFile dfile, IndexSummary isummary, BloomFilter bf, long maxDataAge) throws IOException
+    static SSTableReader internalOpen(Descriptor desc, IPartitioner partitioner, SegmentedFile ifile, SegmentedFile dfile, IndexSummary isummary, Filter bf, long maxDataAge) throws IOException
     {
         assert desc != null && partitioner != null && ifile != null && dfile != null && isummary != null && bf != null;
-        return new SSTableReader(desc, partitioner, ifile, dfile, isummary, bf, maxDataAge);
+        SSTableReader sstable = new SSTableReader(desc, partitioner, ifile, dfile, isummary, bf, maxDataAge);
+        sstable.registerCleanup();
+        return sstable;
     }
 
     SSTableReader(Descriptor desc,
@@ -209,7 +214,7 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
                      SegmentedFile ifile,
                      SegmentedFile dfile,
                      IndexSummary indexSummary,
-                     BloomFilter bloomFilter,
+                     Filter bloomFilter,
                      long maxDataAge)
     throws IOException
     {
@@ -223,19 +228,31 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
         this.bf = bloomFilter;
     }
 
-    public void setTrackedBy(SSTableTracker tracker)
+    /**
+     * Arranges for the resources of this reader to be released once it is no longer reachable.
+     */
+    private void registerCleanup()
     {
-        phantomReference = new SSTableDeletingReference(tracker, this, finalizerQueue);
+        phantomReference = new SSTableDeletingReference(this, ifile, dfile, bf, finalizerQueue);
         finalizers.add(phantomReference);
+    }
+
+    public void setTrackedBy(SSTableTracker tracker)
+    {
+        phantomReference.setTracker(tracker);
         keyCache = tracker.getKeyCache();
     }
 
     void loadBloomFilter() throws IOException
     {
-        DataInputStream stream = new DataInputStream(new FileInputStream(filterFilename()));
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(filterFilename())));
         try
         {
-            bf = BloomFilter.serializer().deserialize(stream);
+            // versions before 'f' kept the filter in a java.util.BitSet
+            if (desc.usesHeapBloomFilter)
+                bf = BloomFilter.serializer().deserialize(stream);
+            else
+                bf = OffHeapBloomFilter.serializer().deserialize(stream);
         }
         finally
         {
@@ -259,7 +276,7 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
             long indexSize = input.length();
             if (recreatebloom)
                 // estimate key count based on index length
-                bf = BloomFilter.getFilter((int)(input.length() / 32), 15);
+                bf = OffHeapBloomFilter.getFilter(input.length() / 32, 15);
             while (true)
             {
                 long indexPosition = input.getFilePointer();
@@ -379,8 +396,9 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
      */
     public long getPosition(DecoratedKey decoratedKey, Operator op)
     {
-        // first, check bloom filter
-        if (op == Operator.EQ && !bf.isPresent(decoratedKey.key))
+        // first, check the key range and the bloom filter
+        if (op == Operator.EQ
+            && (decoratedKey.compareTo(getFirstKey()) < 0 || decoratedKey.compareTo(getLastKey()) > 0 || !bf.isPresent(decoratedKey.key)))
             return -1;
 
         // next, the key cache
@@ -460,6 +478,22 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
         return -1;
     }
 
+    /**
+     * @return the smallest key in this sstable
+     */
+    public DecoratedKey getFirstKey()
+    {
+        return indexSummary.getFirstKey();
+    }
+
+    /**
+     * @return the largest key in this sstable
+     */
+    public DecoratedKey getLastKey()
+    {
+        return indexSummary.getLastKey();
+    }
+
     /**
      * @return The length in bytes of the data file for this SSTable.
      */
@@ -484,6 +518,18 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
         phantomReference.deleteOnCleanup();
     }
 
+    /**
+     * @param bufferSize Buffer size in bytes for this Scanner.
+     * @return A Scanner over the persisted row hashes of the SSTable, or null if it has none.
+     */
+    public SSTableHashScanner getHashScanner(int bufferSize) throws IOException
+    {
+        // older versions hashed the row bloom filter and column index along with the columns
+        if (!desc.hasColumnDataDigests || !new File(hashesFilename()).exists())
+            return null;
+        return new SSTableHashScanner(this, bufferSize);
+    }
+
     /**
      * @param bufferSize Buffer size in bytes for this Scanner.
      * @return A Scanner for seeking over the rows of the SSTable.
@@ -597,6 +643,11 @@ public class SSTableReader extends SSTable implements Comparable<SSTableReader>
         }
     }
 
+    public long getBloomFilterSizeInBytes()
+    {
+        return bf.sizeInBytes();
+    }
+
     public long getBloomFilterFalsePositiveCount()
     {
         return bloomFilterTracker.getFalsePositiveCount();
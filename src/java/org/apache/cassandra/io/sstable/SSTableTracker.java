@@ -44,6 +44,11 @@ public class SSTableTracker implements Iterable<SSTableReader>
 
     private final JMXInstrumentedCache<Pair<Descriptor,DecoratedKey>,Long> keyCache;
     private final JMXInstrumentedCache<DecoratedKey, ColumnFamily> rowCache;
+    // fraction of their configured capacities the caches are sized to
+    private volatile double cacheCapacityScale = 1.0;
+    // capacities chosen at runtime in place of the configured ones; negative when not tuned
+    private volatile int tunedKeyCacheCapacity = -1;
+    private volatile int tunedRowCacheCapacity = -1;
 
     public SSTableTracker(String ksname, String cfname)
     {
@@ -51,7 +56,7 @@ public class SSTableTracker implements Iterable<SSTableReader>
         this.cfname = cfname;
         sstables = Collections.emptySet();
         keyCache = new JMXInstrumentedCache<Pair<Descriptor,DecoratedKey>,Long>(ksname, cfname + "KeyCache", 0);
-        rowCache = new JMXInstrumentedCache<DecoratedKey, ColumnFamily>(ksname, cfname + "RowCache", 0);
+        rowCache = new JMXInstrumentedCache<DecoratedKey, ColumnFamily>(ksname, cfname + "RowCache", 0, DatabaseDescriptor.isRowCacheAdmissionFilterEnabled());
     }
 
     public synchronized void replace(Collection<SSTableReader> oldSSTables, Iterable<SSTableReader> replacements)
@@ -93,16 +98,76 @@ public class SSTableTracker implements Iterable<SSTableReader>
         replace(compacted, Collections.<SSTableReader>emptyList());
     }
 
+    /**
+     * Scales the capacities the caches would otherwise be sized to, e.g. to shed memory under heap pressure.
+     * Capacities set manually are left alone.
+     */
+    public synchronized void setCacheCapacityScale(double scale)
+    {
+        assert scale >= 0 && scale <= 1 : scale;
+        cacheCapacityScale = scale;
+        updateCacheSizes();
+    }
+
+    public double getCacheCapacityScale()
+    {
+        return cacheCapacityScale;
+    }
+
+    /**
+     * Replaces the configured key cache capacity with one chosen at runtime; a negative capacity restores the
+     * configured one.
+     */
+    public synchronized void setTunedKeyCacheCapacity(int capacity)
+    {
+        tunedKeyCacheCapacity = capacity;
+        updateCacheSizes();
+    }
+
+    /**
+     * Replaces the configured row cache capacity with one chosen at runtime; a negative capacity restores the
+     * configured one.
+     */
+    public synchronized void setTunedRowCacheCapacity(int capacity)
+    {
+        tunedRowCacheCapacity = capacity;
+        updateCacheSizes();
+    }
+
+    public int getConfiguredKeyCacheCapacity()
+    {
+        return DatabaseDescriptor.getKeysCachedFor(ksname, cfname, estimatedKeys());
+    }
+
+    public int getConfiguredRowCacheCapacity()
+    {
+        return DatabaseDescriptor.getRowsCachedFor(ksname, cfname, estimatedKeys());
+    }
+
+    /**
+     * @return the capacity the key cache is sized to before any scaling: the tuned one if set, else the configured
+     */
+    public int getKeyCacheBaseCapacity()
+    {
+        return tunedKeyCacheCapacity < 0 ? getConfiguredKeyCacheCapacity() : tunedKeyCacheCapacity;
+    }
+
+    /**
+     * @return the capacity the row cache is sized to before any scaling: the tuned one if set, else the configured
+     */
+    public int getRowCacheBaseCapacity()
+    {
+        return tunedRowCacheCapacity < 0 ? getConfiguredRowCacheCapacity() : tunedRowCacheCapacity;
+    }
+
     /**
      * Resizes the key and row caches based on the current key estimate.
      */
     public synchronized void updateCacheSizes()
     {
-        long keys = estimatedKeys();
-
         if (!keyCache.isCapacitySetManually())
         {
-            int keyCacheSize = DatabaseDescriptor.getKeysCachedFor(ksname, cfname, keys);
+            int keyCacheSize = (int) (getKeyCacheBaseCapacity() * cacheCapacityScale);
             if (keyCacheSize != keyCache.getCapacity())
             {
                 // update cache size for the new key volume
@@ -114,7 +179,7 @@ public class SSTableTracker implements Iterable<SSTableReader>
 
         if (!rowCache.isCapacitySetManually())
         {
-            int rowCacheSize = DatabaseDescriptor.getRowsCachedFor(ksname, cfname, keys);
+            int rowCacheSize = (int) (getRowCacheBaseCapacity() * cacheCapacityScale);
             if (rowCacheSize != rowCache.getCapacity())
             {
                 if (logger.isDebugEnabled())
@@ -20,26 +20,32 @@
 package org.apache.cassandra.io.sstable;
 
 import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.ColumnIndexer;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.io.AbstractCompactedRow;
 import org.apache.cassandra.io.util.BufferedRandomAccessFile;
 import org.apache.cassandra.io.util.SegmentedFile;
 import org.apache.cassandra.service.StorageService;
-import org.apache.cassandra.utils.BloomFilter;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.OffHeapBloomFilter;
 
 public class SSTableWriter extends SSTable
 {
     private static Logger logger = LoggerFactory.getLogger(SSTableWriter.class);
 
     private IndexWriter iwriter;
+    private HashWriter hwriter;
     private SegmentedFile.Builder dbuilder;
     private final BufferedRandomAccessFile dataFile;
     private DecoratedKey lastWrittenKey;
@@ -48,6 +54,7 @@ public class SSTableWriter extends SSTable
     {
         super(filename, partitioner);
         iwriter = new IndexWriter(desc, partitioner, keyCount);
+        hwriter = new HashWriter(desc);
         dbuilder = SegmentedFile.getBuilder();
         dataFile = new BufferedRandomAccessFile(getFilename(), "rw", DatabaseDescriptor.getInMemoryCompactionLimit());
     }
@@ -82,26 +89,53 @@ public class SSTableWriter extends SSTable
     {
         long currentPosition = beforeAppend(row.key);
         FBUtilities.writeShortByteArray(row.key.key, dataFile);
+        long sizePosition = dataFile.getFilePointer();
         row.write(dataFile);
         afterAppend(row.key, currentPosition);
+        hwriter.append(row.key, currentPosition, dataFile.getFilePointer() - (sizePosition + 8), row.stableDigest());
     }
 
     public void append(DecoratedKey decoratedKey, ColumnFamily cf) throws IOException
     {
         long startPosition = beforeAppend(decoratedKey);
         FBUtilities.writeShortByteArray(decoratedKey.key, dataFile);
-        // write placeholder for the row size, since we don't know it yet
+        // the row size is filled in once the row has been written
         long sizePosition = dataFile.getFilePointer();
         dataFile.writeLong(-1);
-        // write out row data
-        ColumnFamily.serializer().serializeWithIndexes(cf, dataFile);
-        // seek back and write the row size (not including the size Long itself)
+        ColumnIndexer.serialize(cf, dataFile);
+        byte[] digest = null;
+        if (ColumnFamilyStore.isUnaffectedByPurge(cf))
+        {
+            // hash the column data on its way to the file, as AbstractCompactedRow.update would
+            MessageDigest md = AbstractCompactedRow.newDigest();
+            ColumnFamily.serializer().serializeForSSTable(cf, new DataOutputStream(new DigestOutputStream(new DataFileOutputStream(), md)));
+            digest = md.digest();
+        }
+        else
+        {
+            ColumnFamily.serializer().serializeForSSTable(cf, dataFile);
+        }
         long endPosition = dataFile.getFilePointer();
+        long dataSize = endPosition - (sizePosition + 8);
         dataFile.seek(sizePosition);
-        dataFile.writeLong(endPosition - (sizePosition + 8));
-        // finally, reset for next row
+        dataFile.writeLong(dataSize);
         dataFile.seek(endPosition);
         afterAppend(decoratedKey, startPosition);
+        hwriter.append(decoratedKey, startPosition, dataSize, digest);
+    }
+
+    /** writes through to the data file, for wrapping in filter streams */
+    private class DataFileOutputStream extends OutputStream
+    {
+        public void write(int b) throws IOException
+        {
+            dataFile.write(b);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            dataFile.write(b, off, len);
+        }
     }
 
     public void append(DecoratedKey decoratedKey, byte[] value) throws IOException
@@ -112,6 +146,8 @@ public class SSTableWriter extends SSTable
         dataFile.writeLong(value.length);
         dataFile.write(value);
         afterAppend(decoratedKey, currentPosition);
+        // pre-serialized: we don't know what the row contains
+        hwriter.append(decoratedKey, currentPosition, value.length, null);
     }
 
     public SSTableReader closeAndOpenReader() throws IOException
@@ -123,6 +159,7 @@ public class SSTableWriter extends SSTable
     {
         // index and filter
         iwriter.close();
+        hwriter.close();
 
         // main data
         dataFile.close(); // calls force
@@ -135,6 +172,7 @@ public class SSTableWriter extends SSTable
         SegmentedFile dfile = dbuilder.complete(newdesc.filenameFor(SSTable.COMPONENT_DATA));
         SSTableReader sstable = SSTableReader.internalOpen(newdesc, partitioner, ifile, dfile, iwriter.summary, iwriter.bf, maxDataAge);
         iwriter = null;
+        hwriter = null;
         dbuilder = null;
         return sstable;
     }
@@ -146,6 +184,8 @@ public class SSTableWriter extends SSTable
         {
             for (String component : components)
                 FBUtilities.renameWithConfirm(tmpdesc.filenameFor(component), newdesc.filenameFor(component));
+            if (new File(tmpdesc.filenameFor(COMPONENT_HASHES)).exists())
+                FBUtilities.renameWithConfirm(tmpdesc.filenameFor(COMPONENT_HASHES), newdesc.filenameFor(COMPONENT_HASHES));
         }
         catch (IOException e)
         {
@@ -269,7 +309,7 @@ public class SSTableWriter extends SSTable
         public final IPartitioner partitioner;
         public final SegmentedFile.Builder builder;
         public final IndexSummary summary;
-        public final BloomFilter bf;
+        public final OffHeapBloomFilter bf;
         
         IndexWriter(Descriptor desc, IPartitioner part, long keyCount) throws IOException
         {
@@ -278,7 +318,11 @@ public class SSTableWriter extends SSTable
             indexFile = new BufferedRandomAccessFile(desc.filenameFor(SSTable.COMPONENT_INDEX), "rw", 8 * 1024 * 1024);
             builder = SegmentedFile.getBuilder();
             summary = new IndexSummary();
-            bf = BloomFilter.getFilter(keyCount, 15);
+            CFMetaData cfm = DatabaseDescriptor.getCFMetaData(desc.ksname, desc.cfname);
+            Double fpChance = cfm == null ? null : cfm.bloomFilterFpChance;
+            bf = fpChance == null
+               ? OffHeapBloomFilter.getFilter(keyCount, 15)
+               : OffHeapBloomFilter.getFilter(keyCount, fpChance);
         }
 
         public void afterAppend(DecoratedKey key, long dataPosition) throws IOException
@@ -301,8 +345,8 @@ public class SSTableWriter extends SSTable
         {
             // bloom filter
             FileOutputStream fos = new FileOutputStream(desc.filenameFor(SSTable.COMPONENT_FILTER));
-            DataOutputStream stream = new DataOutputStream(fos);
-            BloomFilter.serializer().serialize(bf, stream);
+            DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(fos));
+            OffHeapBloomFilter.serializer().serialize(bf, stream);
             stream.flush();
             fos.getFD().sync();
             stream.close();
@@ -315,4 +359,34 @@ public class SSTableWriter extends SSTable
             summary.complete();
         }
     }
+
+    /**
+     * Encapsulates writing the row hashes for an SSTable: for each row, its key, position and data size, and the
+     * digest that validation would compute for it (if it can be known in advance). See SSTableHashScanner.
+     */
+    static class HashWriter
+    {
+        private final BufferedRandomAccessFile hashFile;
+
+        HashWriter(Descriptor desc) throws IOException
+        {
+            hashFile = new BufferedRandomAccessFile(desc.filenameFor(SSTable.COMPONENT_HASHES), "rw", 1024 * 1024);
+        }
+
+        public void append(DecoratedKey key, long dataPosition, long dataSize, byte[] digest) throws IOException
+        {
+            FBUtilities.writeShortByteArray(key.key, hashFile);
+            hashFile.writeLong(dataPosition);
+            hashFile.writeLong(dataSize);
+            hashFile.writeBoolean(digest != null);
+            if (digest != null)
+                FBUtilities.writeShortByteArray(digest, hashFile);
+        }
+
+        public void close() throws IOException
+        {
+            hashFile.getChannel().force(true);
+            hashFile.close();
+        }
+    }
 }
@@ -6,9 +6,13 @@ import java.io.IOException;
 
 public class BufferedSegmentedFile extends SegmentedFile
 {
+    // a single descriptor shared by every reader of the file
+    private final SharedFileChannel channel;
+
     public BufferedSegmentedFile(String path, long length)
     {
         super(path, length);
+        this.channel = new SharedFileChannel(path);
     }
 
     public static class Builder extends SegmentedFile.Builder
@@ -34,13 +38,20 @@ public class BufferedSegmentedFile extends SegmentedFile
         }
     }
 
+    /**
+     * @return A pooled reader from the given position to the end of the file: must be closed after use.
+     */
     public FileDataInput getSegment(long position, int bufferSize)
+    {
+        return new PooledFileDataInput(channel, position, length, bufferSize);
+    }
+
+    @Override
+    public void cleanup()
     {
         try
         {
-            BufferedRandomAccessFile file = new BufferedRandomAccessFile(path, "r", bufferSize);
-            file.seek(position);
-            return file;
+            channel.close();
         }
         catch (IOException e)
         {
@@ -19,6 +19,8 @@
 package org.apache.cassandra.io.util;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.text.DecimalFormat;
 import java.util.*;
 
@@ -35,6 +37,29 @@ public class FileUtils
     private static final double gb_ = 1024*1024*1024d;
     private static final double tb_ = 1024*1024*1024*1024d;
 
+    // java.nio.file.Files.createLink and File.toPath, when the runtime is new enough to have them
+    private static final Method createLink;
+    private static final Method toPath;
+
+    static
+    {
+        Method link = null;
+        Method path = null;
+        try
+        {
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            link = Class.forName("java.nio.file.Files").getMethod("createLink", pathClass, pathClass);
+            path = File.class.getMethod("toPath");
+        }
+        catch (Exception e)
+        {
+            logger_.info("java.nio.file is not available; hard links will be created with an external process");
+            link = null;
+        }
+        createLink = link;
+        toPath = path;
+    }
+
     public static void deleteWithConfirm(File file) throws IOException
     {
         assert file.exists() : "attempted to delete non-existing file " + file.getName();
@@ -206,6 +231,26 @@ public class FileUtils
      */
     public static void createHardLink(File sourceFile, File destinationFile) throws IOException
     {
+        if (createLink != null)
+        {
+            try
+            {
+                createLink.invoke(null, toPath.invoke(destinationFile), toPath.invoke(sourceFile));
+                return;
+            }
+            catch (InvocationTargetException e)
+            {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new AssertionError(e);
+            }
+        }
+
+        // no in-process support: fall back to forking a process per link
         String osname = System.getProperty("os.name");
         ProcessBuilder pb;
         if (osname.startsWith("Windows"))
@@ -226,13 +271,16 @@ public class FileUtils
             pb.redirectErrorStream(true);
         }
         Process p = pb.start();
+        int exitCode;
         try
         {
-            p.waitFor();
+            exitCode = p.waitFor();
         }
         catch (InterruptedException e)
         {
             throw new RuntimeException(e);
         }
+        if (exitCode != 0)
+            throw new IOException(String.format("Failed to link %s to %s (exit code %d)", sourceFile, destinationFile, exitCode));
     }
 }
@@ -2,6 +2,7 @@ package org.apache.cassandra.io.util;
 
 import java.util.Comparator;
 
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.db.IColumn;
 import org.apache.cassandra.db.marshal.AbstractType;
 
@@ -10,4 +11,9 @@ public interface IIterableColumns extends Iterable<IColumn>
     public int getEstimatedColumnCount();
 
     AbstractType getComparator();
+
+    /**
+     * @return The CFMetaData for these columns, or null if the column family was dropped.
+     */
+    CFMetaData metadata();
 }
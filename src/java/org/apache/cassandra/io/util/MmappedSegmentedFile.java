@@ -22,16 +22,20 @@ public class MmappedSegmentedFile extends SegmentedFile
      */
     private final Segment[] segments;
 
+    // shared descriptor for reading segments that could not be mmap'd
+    private final SharedFileChannel channel;
+
     public MmappedSegmentedFile(String path, long length, Segment[] segments)
     {
         super(path, length);
         this.segments = segments;
+        this.channel = new SharedFileChannel(path);
     }
 
     /**
-     * @return The segment entry for the given position.
+     * @return The index of the segment entry for the given position.
      */
-    private Segment floor(long position)
+    private int floor(long position)
     {
         assert 0 <= position && position < length: position + " vs " + length;
         Segment seg = new Segment(position, null);
@@ -40,7 +44,7 @@ public class MmappedSegmentedFile extends SegmentedFile
         if (idx < 0)
             // round down to entry at insertion point
             idx = -(idx + 2);
-        return segments[idx];
+        return idx;
     }
 
     /**
@@ -48,20 +52,25 @@ public class MmappedSegmentedFile extends SegmentedFile
      */
     public FileDataInput getSegment(long position, int bufferSize)
     {
-        Segment segment = floor(position);
+        int idx = floor(position);
+        Segment segment = segments[idx];
         if (segment.right != null)
         {
             // segment is mmap'd
             return new MappedFileDataInput(segment.right, path, (int) (position - segment.left));
         }
 
-        // not mmap'd: open a braf covering the segment
+        // not mmap'd: read positionally from the shared channel, bounded by the end of the segment
+        long end = idx + 1 < segments.length ? segments[idx + 1].left : length;
+        return new PooledFileDataInput(channel, position, end, bufferSize);
+    }
+
+    @Override
+    public void cleanup()
+    {
         try
         {
-            // FIXME: brafs are unbounded, so this segment will cover the rest of the file, rather than just the row
-            BufferedRandomAccessFile file = new BufferedRandomAccessFile(path, "r", bufferSize);
-            file.seek(position);
-            return file;
+            channel.close();
         }
         catch (IOException e)
         {
@@ -0,0 +1,369 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cassandra.io.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A FileDataInput over the range [start, limit) of a SharedFileChannel. Rather than opening a new file and
+ * allocating a private buffer per read (as a BufferedRandomAccessFile would), it borrows a direct buffer of the
+ * requested size from a global pool, fills it using positional reads on the shared channel, and returns it to the
+ * pool on close.
+ *
+ * Instances are not thread safe, and must be closed after use: an open instance keeps the channel open.
+ */
+public class PooledFileDataInput extends InputStream implements FileDataInput
+{
+    public static final int BUFFER_SIZE = 16 * 1024;
+    // upper bound on the memory held by idle buffers, over all sizes
+    private static final long MAX_POOLED_BYTES = 1024 * BUFFER_SIZE;
+
+    // idle buffers, by capacity: there are only a few distinct read buffer sizes
+    private static final ConcurrentMap<Integer, Queue<ByteBuffer>> pools = new ConcurrentHashMap<Integer, Queue<ByteBuffer>>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+    private static final AtomicLong pooledBytes = new AtomicLong();
+
+    private final SharedFileChannel channel;
+    private final long limit;
+
+    private ByteBuffer buffer;
+    // position in the file of the first byte of the buffer
+    private long bufferOffset;
+    // position in the file of the next byte to be read
+    private long position;
+
+    public PooledFileDataInput(SharedFileChannel channel, long position, long limit)
+    {
+        this(channel, position, limit, BUFFER_SIZE);
+    }
+
+    public PooledFileDataInput(SharedFileChannel channel, long position, long limit, int bufferSize)
+    {
+        assert 0 <= position && position <= limit : position + " vs " + limit;
+        assert bufferSize > 0 : bufferSize;
+        channel.reference();
+        this.channel = channel;
+        this.limit = limit;
+        this.position = position;
+        this.buffer = borrow(bufferSize);
+        // empty buffer positioned at the start
+        this.bufferOffset = position;
+        this.buffer.limit(0);
+    }
+
+    private static Queue<ByteBuffer> pool(int bufferSize)
+    {
+        Queue<ByteBuffer> pool = pools.get(bufferSize);
+        if (pool == null)
+        {
+            Queue<ByteBuffer> newPool = new ConcurrentLinkedQueue<ByteBuffer>();
+            pool = pools.putIfAbsent(bufferSize, newPool);
+            if (pool == null)
+                pool = newPool;
+        }
+        return pool;
+    }
+
+    private static ByteBuffer borrow(int bufferSize)
+    {
+        ByteBuffer buffer = pool(bufferSize).poll();
+        if (buffer == null)
+            return ByteBuffer.allocateDirect(bufferSize);
+        pooled.decrementAndGet();
+        pooledBytes.addAndGet(-bufferSize);
+        buffer.clear();
+        return buffer;
+    }
+
+    private static void release(ByteBuffer buffer)
+    {
+        if (pooledBytes.addAndGet(buffer.capacity()) > MAX_POOLED_BYTES)
+        {
+            pooledBytes.addAndGet(-buffer.capacity());
+            return;
+        }
+        pooled.incrementAndGet();
+        pool(buffer.capacity()).offer(buffer);
+    }
+
+    /**
+     * @return The capacity of this reader's buffer.
+     */
+    int bufferSize()
+    {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return The number of idle buffers currently held by the pool.
+     */
+    public static int pooledBufferCount()
+    {
+        return pooled.get();
+    }
+
+    /**
+     * Ensures that the byte at `position` is in the buffer, reading from the channel if necessary.
+     * @return False if position is at the limit.
+     */
+    private boolean fill() throws IOException
+    {
+        if (position >= limit)
+            return false;
+        if (position >= bufferOffset && position < bufferOffset + buffer.limit())
+            return true;
+
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+        bufferOffset = position;
+        while (buffer.hasRemaining())
+        {
+            int n = channel.read(buffer, bufferOffset + buffer.position());
+            if (n < 0)
+                break;
+        }
+        buffer.flip();
+        if (buffer.limit() == 0)
+            throw new EOFException("unexpected end of " + channel.path + " at " + position + ", expected " + limit);
+        return true;
+    }
+
+    public String getPath()
+    {
+        return channel.path;
+    }
+
+    public boolean isEOF() throws IOException
+    {
+        return position >= limit;
+    }
+
+    public long bytesRemaining() throws IOException
+    {
+        return limit - position;
+    }
+
+    public FileMark mark()
+    {
+        return new PooledFileDataInputMark(position);
+    }
+
+    public void reset(FileMark mark) throws IOException
+    {
+        assert mark instanceof PooledFileDataInputMark;
+        position = ((PooledFileDataInputMark) mark).position;
+    }
+
+    public int bytesPastMark(FileMark mark)
+    {
+        assert mark instanceof PooledFileDataInputMark;
+        long bytes = position - ((PooledFileDataInputMark) mark).position;
+        assert 0 <= bytes && bytes <= Integer.MAX_VALUE;
+        return (int) bytes;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (buffer == null)
+            return;
+        release(buffer);
+        buffer = null;
+        channel.unreference();
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!fill())
+            return -1;
+        return buffer.get((int) (position++ - bufferOffset)) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+            return 0;
+        if (!fill())
+            return -1;
+        buffer.position((int) (position - bufferOffset));
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        position += n;
+        return n;
+    }
+
+    public void readFully(byte[] b) throws IOException
+    {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len) throws IOException
+    {
+        while (len > 0)
+        {
+            int n = read(b, off, len);
+            if (n < 0)
+                throw new EOFException();
+            off += n;
+            len -= n;
+        }
+    }
+
+    public int skipBytes(int n) throws IOException
+    {
+        assert n >= 0 : "skipping negative bytes is illegal: " + n;
+        long skipped = Math.min(n, limit - position);
+        position += skipped;
+        return (int) skipped;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        return skipBytes((int) Math.min(n, Integer.MAX_VALUE));
+    }
+
+    private int readOrEOF() throws IOException
+    {
+        int b = read();
+        if (b < 0)
+            throw new EOFException();
+        return b;
+    }
+
+    /**
+     * @return True if the next `bytes` bytes are available in the buffer without a read from the channel.
+     */
+    private boolean buffered(int bytes) throws IOException
+    {
+        return fill() && position + bytes <= bufferOffset + buffer.limit();
+    }
+
+    public boolean readBoolean() throws IOException
+    {
+        return readOrEOF() != 0;
+    }
+
+    public byte readByte() throws IOException
+    {
+        return (byte) readOrEOF();
+    }
+
+    public int readUnsignedByte() throws IOException
+    {
+        return readOrEOF();
+    }
+
+    public short readShort() throws IOException
+    {
+        return (short) readUnsignedShort();
+    }
+
+    public int readUnsignedShort() throws IOException
+    {
+        return (readOrEOF() << 8) + readOrEOF();
+    }
+
+    public char readChar() throws IOException
+    {
+        return (char) readUnsignedShort();
+    }
+
+    public int readInt() throws IOException
+    {
+        if (buffered(4))
+        {
+            int v = buffer.getInt((int) (position - bufferOffset));
+            position += 4;
+            return v;
+        }
+        return (readOrEOF() << 24) + (readOrEOF() << 16) + (readOrEOF() << 8) + readOrEOF();
+    }
+
+    public long readLong() throws IOException
+    {
+        if (buffered(8))
+        {
+            long v = buffer.getLong((int) (position - bufferOffset));
+            position += 8;
+            return v;
+        }
+        return ((long) readInt() << 32) + (readInt() & 0xFFFFFFFFL);
+    }
+
+    public float readFloat() throws IOException
+    {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IOException
+    {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Reads bytes up to a '\n', a '\r' or a "\r\n", as RandomAccessFile.readLine does.
+     * @return The line without its terminator, or null at the limit.
+     */
+    public String readLine() throws IOException
+    {
+        int b = read();
+        if (b < 0)
+            return null;
+        StringBuilder line = new StringBuilder(80); // Typical line length
+        while (b >= 0 && b != '\n')
+        {
+            if (b == '\r')
+            {
+                // a "\r\n" terminator is consumed whole
+                if (fill() && buffer.get((int) (position - bufferOffset)) == '\n')
+                    position++;
+                break;
+            }
+            line.append((char) b);
+            b = read();
+        }
+        return line.toString();
+    }
+
+    public String readUTF() throws IOException
+    {
+        return DataInputStream.readUTF(this);
+    }
+
+    private static class PooledFileDataInputMark implements FileMark
+    {
+        final long position;
+
+        PooledFileDataInputMark(long position)
+        {
+            this.position = position;
+        }
+    }
+}
@@ -33,8 +33,8 @@ import org.apache.cassandra.config.Config;
  * position.
  *
  * The JVM can only map up to 2GB at a time, so each segment is at most that size when using mmap i/o. If a segment
- * would need to be longer than 2GB, that segment will not be mmap'd, and a new RandomAccessFile will be created for
- * each access to that segment.
+ * would need to be longer than 2GB, that segment will not be mmap'd, and accesses to it will use positional reads
+ * on a FileChannel that is shared by all readers of the file.
  */
 public abstract class SegmentedFile
 {
@@ -63,6 +63,15 @@ public abstract class SegmentedFile
 
     public abstract FileDataInput getSegment(long position, int bufferSize);
 
+    /**
+     * Releases any resources (such as file descriptors) held by this SegmentedFile: called once the file
+     * will no longer be read.
+     */
+    public void cleanup()
+    {
+        // nothing to release by default
+    }
+
     /**
      * @return An Iterator over segments, beginning with the segment containing the given position: each segment must be closed after use.
      */
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cassandra.io.util;
+
+import java.io.IOError;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single read-only FileChannel that is shared by every reader of a file. Reads are positional (pread), so
+ * concurrent readers never contend on a shared file pointer.
+ *
+ * Interrupting a thread that is blocked in a channel read closes the channel for everyone, so if the channel is
+ * found closed without close() having been called, it is transparently reopened.
+ *
+ * The channel is reference counted: its owner holds one reference, released by close(), and each reader
+ * holds one between reference() and unreference().  The file descriptor is closed with the last of them.
+ */
+public class SharedFileChannel
+{
+    private static final Logger logger = LoggerFactory.getLogger(SharedFileChannel.class);
+
+    public final String path;
+    private volatile FileChannel channel;
+    private volatile boolean closed = false;
+    // the owner's reference, plus one per open reader
+    private final AtomicInteger references = new AtomicInteger(1);
+    private boolean released = false;
+
+    public SharedFileChannel(String path)
+    {
+        this.path = path;
+    }
+
+    /**
+     * Takes a reference for a reader, which must be given back with unreference() once it is done.
+     */
+    public void reference()
+    {
+        while (true)
+        {
+            int n = references.get();
+            if (n <= 0)
+                throw new IOError(new ClosedChannelException());
+            if (references.compareAndSet(n, n + 1))
+                return;
+        }
+    }
+
+    public void unreference() throws IOException
+    {
+        int n = references.decrementAndGet();
+        assert n >= 0 : "unbalanced unreference of " + path;
+        if (n == 0)
+            closeChannel();
+    }
+
+    private FileChannel channel() throws IOException
+    {
+        FileChannel fc = channel;
+        if (fc != null && fc.isOpen())
+            return fc;
+
+        synchronized (this)
+        {
+            if (closed)
+                throw new ClosedChannelException();
+            if (channel == null || !channel.isOpen())
+            {
+                if (channel != null)
+                    logger.debug("Reopening closed channel for {}", path);
+                channel = new RandomAccessFile(path, "r").getChannel();
+            }
+            return channel;
+        }
+    }
+
+    /**
+     * Reads up to dst.remaining() bytes from the given absolute position in the file.
+     * @return The number of bytes read, or -1 if position is at or past the end of the file.
+     */
+    public int read(ByteBuffer dst, long position) throws IOException
+    {
+        try
+        {
+            return channel().read(dst, position);
+        }
+        catch (ClosedChannelException e)
+        {
+            // closed out from under us by an interrupted reader: retry once on a fresh channel
+            if (closed)
+                throw e;
+            return channel().read(dst, position);
+        }
+    }
+
+    /**
+     * Releases the owner's reference: the underlying file descriptor is closed once every reader has
+     * given back its own, after which reads fail.
+     */
+    public void close() throws IOException
+    {
+        synchronized (this)
+        {
+            if (released)
+                return;
+            released = true;
+        }
+        unreference();
+    }
+
+    private synchronized void closeChannel() throws IOException
+    {
+        closed = true;
+        if (channel != null)
+            channel.close();
+    }
+}
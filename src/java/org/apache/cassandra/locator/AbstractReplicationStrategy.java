@@ -22,8 +22,10 @@ package org.apache.cassandra.locator;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,8 +42,6 @@ import org.apache.cassandra.service.QuorumResponseHandler;
 import org.apache.cassandra.service.WriteResponseHandler;
 import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.cassandra.utils.FBUtilities;
-import org.apache.cassandra.utils.Pair;
-import org.cliffc.high_scale_lib.NonBlockingHashMap;
 
 /**
  * A abstract parent for all replication strategies.
@@ -52,7 +52,7 @@ public abstract class AbstractReplicationStrategy
 
     private TokenMetadata tokenMetadata;
     protected final IEndpointSnitch snitch;
-    private volatile Map<EndpointCacheKey, ArrayList<InetAddress>> cachedEndpoints;
+    private final AtomicReference<RingSnapshot> ring;
 
     AbstractReplicationStrategy(TokenMetadata tokenMetadata, IEndpointSnitch snitch)
     {
@@ -60,7 +60,7 @@ public abstract class AbstractReplicationStrategy
         assert tokenMetadata != null;
         this.tokenMetadata = tokenMetadata;
         this.snitch = snitch;
-        cachedEndpoints = new NonBlockingHashMap<EndpointCacheKey, ArrayList<InetAddress>>();
+        ring = new AtomicReference<RingSnapshot>(new RingSnapshot(0, tokenMetadata.cloneOnlyTokenMap()));
         this.tokenMetadata.register(this);
     }
 
@@ -75,23 +75,32 @@ public abstract class AbstractReplicationStrategy
      */
     public ArrayList<InetAddress> getNaturalEndpoints(Token searchToken, String table) throws IllegalStateException
     {
-        int replicas = getReplicationFactor(table);
-        Token keyToken = TokenMetadata.firstToken(tokenMetadata.sortedTokens(), searchToken);
-        EndpointCacheKey cacheKey = new EndpointCacheKey(table, keyToken);
-        ArrayList<InetAddress> endpoints = cachedEndpoints.get(cacheKey);
+        return new ArrayList<InetAddress>(getCachedEndpoints(searchToken, table));
+    }
+
+    /**
+     * Like getNaturalEndpoints, but returns the cached endpoints themselves rather than a copy: once they have
+     * been calculated for the current ring, this takes no locks and allocates nothing, so it is the one to use
+     * on the request path whenever the caller does not need to modify the result.
+     *
+     * @return an unmodifiable list of the natural endpoints for the given token and table
+     * @throws IllegalStateException if the number of requested replicas is greater than the number of known endpints
+     */
+    public List<InetAddress> getCachedEndpoints(Token searchToken, String table) throws IllegalStateException
+    {
+        RingSnapshot snapshot = ring.get();
+        int index = snapshot.rangeIndex(searchToken);
+        List<InetAddress> endpoints = snapshot.getReplicas(table, index);
         if (endpoints == null)
         {
-            TokenMetadata tokenMetadataClone = tokenMetadata.cloneOnlyTokenMap();
-            keyToken = TokenMetadata.firstToken(tokenMetadataClone.sortedTokens(), searchToken);
-            cacheKey = new EndpointCacheKey(table, keyToken);
-            endpoints = new ArrayList<InetAddress>(calculateNaturalEndpoints(searchToken, tokenMetadataClone, table));
-            cachedEndpoints.put(cacheKey, endpoints);
+            Token keyToken = snapshot.rangeToken(index);
+            endpoints = Collections.unmodifiableList(new ArrayList<InetAddress>(calculateNaturalEndpoints(keyToken, snapshot.metadata, table)));
+            // calculateNaturalEndpoints should have checked this already, this is a safety
+            assert getReplicationFactor(table) <= endpoints.size();
+            // if the ring changed meanwhile, this goes to a snapshot nobody reads anymore
+            snapshot.setReplicas(table, index, endpoints);
         }
-
-        // calculateNaturalEndpoints should have checked this already, this is a safety
-        assert replicas <= endpoints.size();
-
-        return new ArrayList<InetAddress>(endpoints);
+        return endpoints;
     }
 
     /**
@@ -219,20 +228,28 @@ public abstract class AbstractReplicationStrategy
         return new QuorumResponseHandler(responseResolver, consistencyLevel, table);
     }
 
-    protected static class EndpointCacheKey extends Pair<String, Token>
-    {
-        public EndpointCacheKey(String table, Token keyToken) {super(table, keyToken);}
-    }
-
+    /**
+     * Forgets the cached endpoints, keeping the current view of the ring.
+     */
     protected void clearCachedEndpoints()
     {
         logger.debug("clearing cached endpoints");
-        cachedEndpoints = new NonBlockingHashMap<EndpointCacheKey, ArrayList<InetAddress>>();
+        RingSnapshot current;
+        do
+        {
+            current = ring.get();
+        }
+        while (!ring.compareAndSet(current, current.withoutReplicas()));
     }
 
+    /**
+     * Called by TokenMetadata whenever the token map changes, with its write lock held (outside of tests): since
+     * changes are serialized by that lock, the snapshot published last is always of the most recent ring.
+     */
     public void invalidateCachedTokenEndpointValues()
     {
-        clearCachedEndpoints();
+        logger.debug("ring changed, rebuilding ring snapshot");
+        ring.set(new RingSnapshot(ring.get().version + 1, tokenMetadata.cloneOnlyTokenMap()));
     }
 
     public void invalidateCachedSnitchValues()
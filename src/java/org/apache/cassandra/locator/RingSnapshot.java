@@ -0,0 +1,103 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+
+package org.apache.cassandra.locator;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.cassandra.dht.Token;
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+
+/**
+ * An immutable view of the ring, as seen by one replication strategy, together with the replicas of each of its
+ * ranges. A new snapshot is published whenever the ring or the snitch changes; readers take no locks, and once
+ * the replicas of a range have been calculated, looking them up again allocates nothing.
+ *
+ * Replicas are calculated the first time each range is looked up, rather than for the whole ring up front, so
+ * that a topology change costs a single copy of the token map.
+ */
+class RingSnapshot
+{
+    /** incremented with every snapshot published by a strategy: a newer version never describes an older ring */
+    public final long version;
+    /** a private copy of the token map, so that calculating replicas never contends with ring changes */
+    public final TokenMetadata metadata;
+    private final ArrayList<Token> sortedTokens;
+    // table -> replicas of the range ending at each (sorted) token, or null if not calculated yet
+    private final ConcurrentMap<String, AtomicReferenceArray<List<InetAddress>>> replicas;
+
+    RingSnapshot(long version, TokenMetadata metadata)
+    {
+        this.version = version;
+        this.metadata = metadata;
+        sortedTokens = metadata.sortedTokens();
+        replicas = new NonBlockingHashMap<String, AtomicReferenceArray<List<InetAddress>>>();
+    }
+
+    /**
+     * @return a snapshot of the same ring, with none of the replicas calculated.
+     */
+    RingSnapshot withoutReplicas()
+    {
+        return new RingSnapshot(version + 1, metadata);
+    }
+
+    /**
+     * @return the index of the token ending the range that contains the given token.
+     */
+    int rangeIndex(Token searchToken)
+    {
+        return TokenMetadata.firstTokenIndex(sortedTokens, searchToken);
+    }
+
+    Token rangeToken(int index)
+    {
+        return sortedTokens.get(index);
+    }
+
+    /**
+     * @return the replicas of the index-th range for the given table, or null if they have not been calculated.
+     */
+    List<InetAddress> getReplicas(String table, int index)
+    {
+        AtomicReferenceArray<List<InetAddress>> tableReplicas = replicas.get(table);
+        return tableReplicas == null ? null : tableReplicas.get(index);
+    }
+
+    /**
+     * Records the replicas of the index-th range for the given table: the list must not be modified afterwards.
+     */
+    void setReplicas(String table, int index, List<InetAddress> endpoints)
+    {
+        AtomicReferenceArray<List<InetAddress>> tableReplicas = replicas.get(table);
+        if (tableReplicas == null)
+        {
+            AtomicReferenceArray<List<InetAddress>> fresh = new AtomicReferenceArray<List<InetAddress>>(sortedTokens.size());
+            tableReplicas = replicas.putIfAbsent(table, fresh);
+            if (tableReplicas == null)
+                tableReplicas = fresh;
+        }
+        tableReplicas.set(index, endpoints);
+    }
+}
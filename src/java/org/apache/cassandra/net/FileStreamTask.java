@@ -24,31 +24,46 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SocketChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
+import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.streaming.PendingFile;
+import org.apache.cassandra.streaming.StreamOutManager;
 import org.apache.cassandra.utils.FBUtilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.utils.Pair;
+import org.apache.cassandra.utils.Throttle;
 import org.apache.cassandra.utils.WrappedRunnable;
 
 public class FileStreamTask extends WrappedRunnable
 {
     private static Logger logger = LoggerFactory.getLogger( FileStreamTask.class );
     
-    public static final int CHUNK_SIZE = 32*1024*1024;
+    // files are sent in chunks of this size, each followed by its CRC32: an interrupted or corrupted
+    // transfer resumes from the last chunk the receiver verified
+    public static final int CHUNK_SIZE = 64*1024;
     // around 10 minutes at the default rpctimeout
     public static final int MAX_CONNECT_ATTEMPTS = 8;
 
+    // shared by every outbound stream, so that the configured cap applies to the node as a whole
+    private static final Throttle throttle = new Throttle("FileStreamTask");
+
     private final PendingFile file;
     private final InetAddress to;
+    private final long offset;
     
-    FileStreamTask(PendingFile file, InetAddress to)
+    /**
+     * @param offset the position to start from, in the concatenation of the sections of the file.
+     */
+    FileStreamTask(PendingFile file, InetAddress to, long offset)
     {
         this.file = file;
         this.to = to;
+        this.offset = offset;
     }
     
     public void runMayThrow() throws IOException
@@ -87,17 +102,42 @@ public class FileStreamTask extends WrappedRunnable
             ByteBuffer buffer = MessagingService.constructStreamHeader(false);
             channel.write(buffer);
             assert buffer.remaining() == 0;
-            
-            // stream sections of the file as returned by PendingFile.currentSection
-            for (Pair<Long, Long> section : file.sections)
+            // the receiver may be receiving several files from us at once: tell it which one this is, and where
+            // we are starting from
+            DataOutputBuffer header = new DataOutputBuffer();
+            header.writeUTF(file.getFilename());
+            header.writeLong(offset);
+            buffer = ByteBuffer.wrap(header.getData(), 0, header.getLength());
+            channel.write(buffer);
+            assert buffer.remaining() == 0;
+
+            // stream the sections of the file, as one sequence of checksummed chunks
+            long size = file.size();
+            long position = offset;
+            Checksum checksum = new CRC32();
+            buffer = ByteBuffer.allocate(CHUNK_SIZE + 8);
+            while (position < size)
             {
-                long length = section.right - section.left;
-                long bytesTransferred = 0;
-                while (bytesTransferred < length)
-                    bytesTransferred += fc.transferTo(section.left + bytesTransferred, length - bytesTransferred, channel);
-                if (logger.isDebugEnabled())
-                    logger.debug("Bytes transferred " + bytesTransferred);
+                int length = (int) Math.min(CHUNK_SIZE, size - position);
+                buffer.clear();
+                buffer.limit(length);
+                read(fc, buffer, position);
+                checksum.reset();
+                checksum.update(buffer.array(), 0, length);
+                buffer.limit(length + 8);
+                buffer.putLong(length, checksum.getValue());
+                buffer.position(0);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+
+                position += length;
+                file.progress = position;
+                StreamOutManager.bytesSent.addAndGet(length);
+                // megabits to bytes
+                throttle.throttle(length, DatabaseDescriptor.getStreamThroughputOutboundMegabitsPerSec() * 125000L);
             }
+            if (logger.isDebugEnabled())
+                logger.debug("Bytes transferred " + (size - offset));
         }
         finally
         {
@@ -112,6 +152,38 @@ public class FileStreamTask extends WrappedRunnable
         }
     }
 
+    /**
+     * Fills the buffer from the sections of the file, starting at the given position in their concatenation.
+     */
+    private void read(FileChannel fc, ByteBuffer buffer, long position) throws IOException
+    {
+        for (Pair<Long, Long> section : file.sections)
+        {
+            long length = section.right - section.left;
+            if (position >= length)
+            {
+                position -= length;
+                continue;
+            }
+
+            int limit = buffer.limit();
+            buffer.limit((int) Math.min(limit, buffer.position() + length - position));
+            while (buffer.hasRemaining())
+            {
+                int n = fc.read(buffer, section.left + position);
+                if (n < 0)
+                    throw new EOFException("Unexpected end of " + file.getFilename());
+                position += n;
+            }
+            buffer.limit(limit);
+            if (!buffer.hasRemaining())
+                return;
+            // continue from the start of the next section
+            position = 0;
+        }
+        throw new EOFException("Read past the last section of " + file);
+    }
+
     /**
      * Connects to the destination, with backoff for failed attempts.
      * TODO: all nodes on a cluster must currently use the same storage port
@@ -0,0 +1,32 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.net;
+
+/**
+ * A callback that also wants to know when MessagingService stops waiting for responses to it, i.e. when the
+ * callback expires from the registry, rpc_timeout after the request was sent, without having been removed.
+ */
+public interface IAsyncCallbackWithTimeout extends IAsyncCallback
+{
+    /**
+     * Called on the expiration timer thread, once for every message the callback was registered for, whether or
+     * not all responses have arrived: it should be cheap, and must not block.
+     */
+    public void onTimeout();
+}
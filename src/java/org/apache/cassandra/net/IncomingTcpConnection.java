@@ -51,6 +51,27 @@ public class IncomingTcpConnection extends Thread
 
     @Override
     public void run()
+    {
+        try
+        {
+            readMessages();
+        }
+        finally
+        {
+            // so that a sender we stopped reading from (e.g. in the middle of a corrupt stream) fails instead of blocking
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                if (logger.isDebugEnabled())
+                    logger.debug("error closing socket", e);
+            }
+        }
+    }
+
+    private void readMessages()
     {
         while (true)
         {
@@ -64,7 +85,7 @@ public class IncomingTcpConnection extends Thread
 
                 if (isStream)
                 {
-                    new IncomingStreamReader(socket.getChannel()).read();
+                    new IncomingStreamReader(socket.getInetAddress(), input).read();
                 }
                 else
                 {
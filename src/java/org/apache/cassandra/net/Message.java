@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 
 import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.io.ICompactSerializer;
 import org.apache.cassandra.service.StorageService;
 
@@ -43,6 +44,8 @@ public class Message
     
     final Header header_;
     private final byte[] body_;
+    // local time at which this message was created, or at which it arrived from another node
+    private long timestamp_;
 
     Message(Header header, byte[] body)
     {
@@ -51,6 +54,7 @@ public class Message
 
         header_ = header;
         body_ = body;
+        timestamp_ = System.currentTimeMillis();
     }
 
     public Message(InetAddress from, String messageType, StorageService.Verb verb, byte[] body)
@@ -98,6 +102,29 @@ public class Message
         header_.setMessageId(id);
     }    
 
+    /**
+     * @return The local time in milliseconds at which this message was created, or at which it was received
+     * if it came from another node. Remote clocks are never consulted, so skew between nodes is irrelevant.
+     */
+    public long getTimestamp()
+    {
+        return timestamp_;
+    }
+
+    void setTimestamp(long timestamp)
+    {
+        timestamp_ = timestamp;
+    }
+
+    /**
+     * @return True if more than rpc_timeout has passed since this message was created: the sender will have given
+     * up on any reply by now.
+     */
+    public boolean isTimedOut()
+    {
+        return System.currentTimeMillis() > timestamp_ + DatabaseDescriptor.getRpcTimeout();
+    }
+
     // TODO should take byte[] + length so we don't have to copy to a byte[] of exactly the right len
     public Message getReply(InetAddress from, byte[] args)
     {
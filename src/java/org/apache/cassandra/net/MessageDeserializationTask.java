@@ -43,13 +43,24 @@ class MessageDeserializationTask extends WrappedRunnable
 
     public void runMayThrow() throws IOException
     {
-        if (System.currentTimeMillis() >  constructionTime + DatabaseDescriptor.getRpcTimeout())
+        if (System.currentTimeMillis() > constructionTime + DatabaseDescriptor.getRpcTimeout())
         {
-            MessagingService.incrementDroppedMessages();
+            // expired while queued: read just the header, for the verb, and skip copying the body
+            Header header = Header.serializer().deserialize(new DataInputStream(bytes));
+            MessagingService.incrementDroppedMessages(header.getVerb());
             return;
         }
 
         Message message = Message.serializer().deserialize(new DataInputStream(bytes));
+        // the sender's clock is not on the wire (see Message.getTimestamp), so the message was stamped when it was
+        // deserialized just now; date it from its arrival instead, so that time queued here counts against it
+        message.setTimestamp(constructionTime);
+        if (message.isTimedOut())
+        {
+            MessagingService.incrementDroppedMessages(message.getVerb());
+            return;
+        }
+
         message = SinkManager.processServerMessageSink(message);
         MessagingService.receive(message);
     }
@@ -18,6 +18,8 @@
 
 package org.apache.cassandra.net;
 
+import com.google.common.base.Function;
+
 import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
 import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.concurrent.StageManager;
@@ -30,6 +32,7 @@ import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.streaming.PendingFile;
 import org.apache.cassandra.utils.ExpiringMap;
 import org.apache.cassandra.utils.GuidGenerator;
+import org.apache.cassandra.utils.Pair;
 import org.apache.cassandra.utils.SimpleCondition;
 import org.cliffc.high_scale_lib.NonBlockingHashMap;
 
@@ -52,6 +55,7 @@ import java.util.TimerTask;
 import java.util.Timer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -86,7 +90,12 @@ public class MessagingService implements IFailureDetectionEventListener
 
     private SocketThread socketThread;
     private SimpleCondition listenGate;
-    private static AtomicInteger droppedMessages = new AtomicInteger();
+    private static final EnumMap<StorageService.Verb, AtomicInteger> droppedMessages = new EnumMap<StorageService.Verb, AtomicInteger>(StorageService.Verb.class);
+    static
+    {
+        for (StorageService.Verb verb : StorageService.Verb.values())
+            droppedMessages.put(verb, new AtomicInteger());
+    }
 
     public Object clone() throws CloneNotSupportedException
     {
@@ -104,7 +113,16 @@ public class MessagingService implements IFailureDetectionEventListener
          * which is the sum of the threads in the pool that adds shit into the table and the 
          * pool that retrives the callback from here.
         */
-        callbackMap_ = new ExpiringMap<String, IAsyncCallback>((long) (1.1 * DatabaseDescriptor.getRpcTimeout()));
+        Function<Pair<String, IAsyncCallback>, ?> timeoutReporter = new Function<Pair<String, IAsyncCallback>, Object>()
+        {
+            public Object apply(Pair<String, IAsyncCallback> pair)
+            {
+                if (pair.right instanceof IAsyncCallbackWithTimeout)
+                    ((IAsyncCallbackWithTimeout) pair.right).onTimeout();
+                return null;
+            }
+        };
+        callbackMap_ = new ExpiringMap<String, IAsyncCallback>((long) (1.1 * DatabaseDescriptor.getRpcTimeout()), timeoutReporter);
         taskCompletionMap_ = new ExpiringMap<String, IAsyncResult>((long) (1.1 * DatabaseDescriptor.getRpcTimeout()));
 
         // read executor puts messages to deserialize on this.
@@ -115,7 +133,13 @@ public class MessagingService implements IFailureDetectionEventListener
                                                                         new LinkedBlockingQueue<Runnable>(),
                                                                         new NamedThreadFactory("MESSAGE-DESERIALIZER-POOL"));
 
-        streamExecutor_ = new JMXEnabledThreadPoolExecutor("MESSAGE-STREAMING-POOL");
+        // a thread per file in flight: StreamOutManager bounds these to concurrent_streams per destination
+        streamExecutor_ = new JMXEnabledThreadPoolExecutor(1,
+                                                           Integer.MAX_VALUE,
+                                                           StageManager.KEEPALIVE,
+                                                           TimeUnit.SECONDS,
+                                                           new SynchronousQueue<Runnable>(),
+                                                           new NamedThreadFactory("MESSAGE-STREAMING-POOL"));
         TimerTask logDropped = new TimerTask()
         {
             public void run()
@@ -345,9 +369,17 @@ public class MessagingService implements IFailureDetectionEventListener
     */
 
     public void stream(PendingFile file, InetAddress to)
+    {
+        stream(file, to, 0);
+    }
+
+    /**
+     * Stream a file from its given offset: the receiver has already verified everything before it.
+     */
+    public void stream(PendingFile file, InetAddress to, long offset)
     {
         /* Streaming asynchronously on streamExector_ threads. */
-        streamExecutor_.execute(new FileStreamTask(file, to));
+        streamExecutor_.execute(new FileStreamTask(file, to, offset));
     }
     
     /** blocks until the processing pools are empty and done. */
@@ -501,16 +533,22 @@ public class MessagingService implements IFailureDetectionEventListener
         return buffer;
     }
 
-    public static int incrementDroppedMessages()
+    /**
+     * Records a message of the given verb that was dropped because its sender will have timed out waiting on it.
+     */
+    public static int incrementDroppedMessages(StorageService.Verb verb)
     {
-        return droppedMessages.incrementAndGet();
+        return droppedMessages.get(verb).incrementAndGet();
     }
                
     private static void logDroppedMessages()
     {
-        if (droppedMessages.get() > 0)
-            logger_.warn("Dropped " + droppedMessages + " messages in the last " + LOG_DROPPED_INTERVAL_IN_MS + "ms");
-        droppedMessages.set(0);
+        for (Map.Entry<StorageService.Verb, AtomicInteger> entry : droppedMessages.entrySet())
+        {
+            int dropped = entry.getValue().getAndSet(0);
+            if (dropped > 0)
+                logger_.warn("Dropped " + dropped + " " + entry.getKey() + " messages in the last " + LOG_DROPPED_INTERVAL_IN_MS + "ms");
+        }
     }
 
     private class SocketThread extends Thread
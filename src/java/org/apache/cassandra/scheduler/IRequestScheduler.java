@@ -20,6 +20,8 @@ package org.apache.cassandra.scheduler;
  * 
  */
 
+import java.util.concurrent.TimeoutException;
+
 /**
  * Implementors of IRequestScheduler must provide a constructor taking a RequestSchedulerOptions object.
  */
@@ -30,8 +32,10 @@ public interface IRequestScheduler
      * 
      * @param t Thread handing the request
      * @param id    Scheduling parameter, an id to distinguish profiles (users/keyspace)
+     * @throws TimeoutException if the scheduler rejects the request rather than queueing it, or if it
+     * could not be scheduled in time
      */
-    public void queue(Thread t, String id);
+    public void queue(Thread t, String id) throws TimeoutException;
 
     /**
      * A convenience method for indicating when a particular request has completed
@@ -0,0 +1,311 @@
+package org.apache.cassandra.scheduler;
+
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.RequestSchedulerOptions;
+import org.apache.cassandra.utils.LatencyTracker;
+import org.apache.cassandra.utils.SimpleCondition;
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A weighted fair-share implementation of the RequestScheduler. Like the RoundRobinScheduler, requests
+ * are grouped by scheduler id (keyspace) and at most throttle_limit of them are in flight at once, but
+ * when requests have to wait, each id receives admissions in proportion to its configured weight
+ * (start-time fair queueing over per-id virtual clocks).
+ *
+ * Each id's queue is bounded by queue_depth_limit: requests beyond that are rejected immediately, as are
+ * requests that cannot be admitted within rpc_timeout, so that an overloaded tenant fails fast instead of
+ * piling up threads. Latencies, including queueing time, are tracked per id and exported over JMX.
+ *
+ * Admission happens on the calling thread when capacity is free, so there is no dedicated scheduler thread.
+ */
+public class WeightedFairScheduler implements IRequestScheduler, WeightedFairSchedulerMBean
+{
+    private static final Logger logger = LoggerFactory.getLogger(WeightedFairScheduler.class);
+
+    public static final String MBEAN_OBJECT_NAME = "org.apache.cassandra.scheduler:type=WeightedFairScheduler";
+
+    private final int throttleLimit;
+    private final int defaultWeight;
+    private final int queueDepthLimit;
+    private final long latencyTargetMicros;
+
+    private final NonBlockingHashMap<String, Tenant> tenants = new NonBlockingHashMap<String, Tenant>();
+
+    // the request admitted for the current thread, if any, so that release() can account for it
+    private final ThreadLocal<Request> admitted = new ThreadLocal<Request>();
+
+    // guarded by `this`
+    private int inFlight = 0;
+    private int waiting = 0;
+    // the start tag of the most recently admitted request
+    private double virtualTime = 0;
+
+    public WeightedFairScheduler(RequestSchedulerOptions options)
+    {
+        throttleLimit = options.throttle_limit;
+        defaultWeight = options.default_weight;
+        queueDepthLimit = options.queue_depth_limit;
+        latencyTargetMicros = options.latency_target_in_ms * 1000L;
+        if (options.weights != null)
+        {
+            for (Map.Entry<String, Integer> entry : options.weights.entrySet())
+                getTenant(entry.getKey()).weight = entry.getValue();
+        }
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            ObjectName name = new ObjectName(MBEAN_OBJECT_NAME);
+            if (mbs.isRegistered(name))
+                mbs.unregisterMBean(name);
+            mbs.registerMBean(this, name);
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+        logger.info("Started the WeightedFair Request Scheduler");
+    }
+
+    public void queue(Thread t, String id) throws TimeoutException
+    {
+        Tenant tenant = getTenant(id);
+        Request request = new Request(tenant);
+        synchronized (this)
+        {
+            if (waiting == 0 && inFlight < throttleLimit)
+            {
+                admit(request);
+                admitted.set(request);
+                return;
+            }
+            if (tenant.queue.size() >= queueDepthLimit)
+            {
+                tenant.rejected.incrementAndGet();
+                throw new TimeoutException("Request queue for " + id + " is full");
+            }
+            tenant.queue.add(request);
+            waiting++;
+        }
+
+        try
+        {
+            request.admission.await(DatabaseDescriptor.getRpcTimeout(), TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException("Interrupted while queueing requests", e);
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                if (!request.admitted)
+                {
+                    tenant.queue.remove(request);
+                    waiting--;
+                }
+            }
+        }
+        if (!request.admitted)
+        {
+            tenant.rejected.incrementAndGet();
+            throw new TimeoutException("Request for " + id + " was not scheduled within rpc_timeout");
+        }
+        admitted.set(request);
+    }
+
+    public void release()
+    {
+        Request request = admitted.get();
+        if (request == null)
+            // queue() rejected this request, so it holds no capacity
+            return;
+        admitted.remove();
+
+        long micros = (System.nanoTime() - request.queuedAt) / 1000;
+        request.tenant.latency.addMicro(micros);
+        if (micros > latencyTargetMicros)
+            request.tenant.targetViolations.incrementAndGet();
+
+        synchronized (this)
+        {
+            inFlight--;
+            while (waiting > 0 && inFlight < throttleLimit)
+                admit(poll());
+        }
+    }
+
+    /**
+     * Removes the waiting request with the earliest start tag. Caller must hold the lock, and waiting must be > 0.
+     */
+    private Request poll()
+    {
+        Tenant next = null;
+        double nextStart = Double.MAX_VALUE;
+        for (Tenant tenant : tenants.values())
+        {
+            if (tenant.queue.isEmpty())
+                continue;
+            double start = Math.max(tenant.finish, virtualTime);
+            if (start < nextStart)
+            {
+                next = tenant;
+                nextStart = start;
+            }
+        }
+        assert next != null;
+        waiting--;
+        return next.queue.poll();
+    }
+
+    /**
+     * Admits the request, advancing its tenant's virtual clock by the inverse of its weight. Caller must hold the lock.
+     */
+    private void admit(Request request)
+    {
+        Tenant tenant = request.tenant;
+        // a tenant that has been idle does not get to bank credit for the time it was away
+        double start = Math.max(tenant.finish, virtualTime);
+        virtualTime = start;
+        tenant.finish = start + 1.0 / tenant.weight;
+        inFlight++;
+        request.admitted = true;
+        request.admission.signal();
+    }
+
+    /*
+     * Get the Tenant for the respective id, if one is not available
+     * create a new one for that corresponding id and return it
+     */
+    private Tenant getTenant(String id)
+    {
+        Tenant tenant = tenants.get(id);
+        if (tenant != null)
+            return tenant;
+
+        Tenant maybenew = new Tenant(defaultWeight);
+        tenant = tenants.putIfAbsent(id, maybenew);
+        return tenant == null ? maybenew : tenant;
+    }
+
+    public synchronized int getInFlightRequests()
+    {
+        return inFlight;
+    }
+
+    public synchronized Map<String, Integer> getQueueDepths()
+    {
+        Map<String, Integer> depths = new HashMap<String, Integer>();
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet())
+            depths.put(entry.getKey(), entry.getValue().queue.size());
+        return depths;
+    }
+
+    public Map<String, Long> getRejectedRequests()
+    {
+        Map<String, Long> rejected = new HashMap<String, Long>();
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet())
+            rejected.put(entry.getKey(), entry.getValue().rejected.get());
+        return rejected;
+    }
+
+    public Map<String, Long> getLatencyTargetViolations()
+    {
+        Map<String, Long> violations = new HashMap<String, Long>();
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet())
+            violations.put(entry.getKey(), entry.getValue().targetViolations.get());
+        return violations;
+    }
+
+    public synchronized int getWeight(String id)
+    {
+        return getTenant(id).weight;
+    }
+
+    public synchronized void setWeight(String id, int weight)
+    {
+        if (weight < 1)
+            throw new IllegalArgumentException("weight must be positive");
+        getTenant(id).weight = weight;
+    }
+
+    public double getRecentLatencyMicros(String id)
+    {
+        return getTenant(id).latency.getRecentLatencyMicros();
+    }
+
+    public long[] getRecentLatencyHistogramMicros(String id)
+    {
+        return getTenant(id).latency.getRecentLatencyHistogramMicros();
+    }
+
+    public long[] getTotalLatencyHistogramMicros(String id)
+    {
+        return getTenant(id).latency.getTotalLatencyHistogramMicros();
+    }
+
+    private static class Tenant
+    {
+        // guarded by the scheduler lock
+        final ArrayDeque<Request> queue = new ArrayDeque<Request>();
+        int weight;
+        double finish = 0;
+
+        final LatencyTracker latency = new LatencyTracker();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong targetViolations = new AtomicLong();
+
+        Tenant(int weight)
+        {
+            this.weight = weight;
+        }
+    }
+
+    private static class Request
+    {
+        final Tenant tenant;
+        final long queuedAt = System.nanoTime();
+        final SimpleCondition admission = new SimpleCondition();
+        // guarded by the scheduler lock
+        boolean admitted = false;
+
+        Request(Tenant tenant)
+        {
+            this.tenant = tenant;
+        }
+    }
+}
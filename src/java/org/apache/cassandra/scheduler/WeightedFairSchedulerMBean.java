@@ -0,0 +1,50 @@
+package org.apache.cassandra.scheduler;
+
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+import java.util.Map;
+
+public interface WeightedFairSchedulerMBean
+{
+    /** requests currently admitted and not yet released */
+    public int getInFlightRequests();
+
+    /** requests waiting to be admitted, per scheduler id */
+    public Map<String, Integer> getQueueDepths();
+
+    /** requests rejected because their queue was full or they waited longer than rpc_timeout, per scheduler id */
+    public Map<String, Long> getRejectedRequests();
+
+    /** requests whose total latency exceeded latency_target_in_ms, per scheduler id */
+    public Map<String, Long> getLatencyTargetViolations();
+
+    public int getWeight(String id);
+
+    public void setWeight(String id, int weight);
+
+    /** average latency in microseconds, including time spent queued, since the last call */
+    public double getRecentLatencyMicros(String id);
+
+    public long[] getRecentLatencyHistogramMicros(String id);
+
+    public long[] getTotalLatencyHistogramMicros(String id);
+}
@@ -2,20 +2,27 @@ package org.apache.cassandra.service;
 
 import java.net.InetAddress;
 import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.common.collect.Multimap;
 import org.apache.cassandra.config.DatabaseDescriptor;
-import org.apache.cassandra.net.IAsyncCallback;
+import org.apache.cassandra.net.IAsyncCallbackWithTimeout;
 import org.apache.cassandra.net.Message;
 import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.cassandra.thrift.UnavailableException;
+import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.SimpleCondition;
+import org.cliffc.high_scale_lib.NonBlockingHashSet;
 
-public abstract class AbstractWriteResponseHandler implements IAsyncCallback
+public abstract class AbstractWriteResponseHandler implements IAsyncCallbackWithTimeout
 {
     protected final SimpleCondition condition = new SimpleCondition();
+    // destinations that have acknowledged the write
+    private final Set<InetAddress> responded = new NonBlockingHashSet<InetAddress>();
+    private final AtomicBoolean timedOut = new AtomicBoolean(false);
     protected final long startTime;
     protected final Collection<InetAddress> writeEndpoints;
     protected final Multimap<InetAddress, InetAddress> hintedEndpoints;
@@ -49,7 +56,28 @@ public abstract class AbstractWriteResponseHandler implements IAsyncCallback
     }
 
     /** null message means "response from local write" */
-    public abstract void response(Message msg);
+    public final void response(Message msg)
+    {
+        responded.add(msg == null ? FBUtilities.getLocalAddress() : msg.getFrom());
+        handleResponse(msg);
+    }
+
+    protected abstract void handleResponse(Message msg);
+
+    /**
+     * Records a timeout for each destination that has not acknowledged the write by the time its callback expires.
+     */
+    public void onTimeout()
+    {
+        // we are registered once per distinct message sent
+        if (!timedOut.compareAndSet(false, true))
+            return;
+        for (InetAddress destination : hintedEndpoints.keySet())
+        {
+            if (!responded.contains(destination))
+                StorageProxy.recordWriteTimeout(destination);
+        }
+    }
 
     public abstract void assureSufficientLiveNodes() throws UnavailableException;
 }
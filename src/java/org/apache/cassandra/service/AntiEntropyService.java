@@ -21,7 +21,6 @@ package org.apache.cassandra.service;
 import java.io.*;
 import java.net.InetAddress;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -352,15 +351,24 @@ public class AntiEntropyService
          */
         public void add(AbstractCompactedRow row)
         {
+            add(rowHash(row));
+        }
+
+        /**
+         * Like add(AbstractCompactedRow), for a row that has already been hashed.
+         */
+        public void add(MerkleTree.RowHash row)
+        {
+            validated++;
             if (mintoken != null)
             {
                 assert ranges != null : "Validator was not prepared()";
 
                 // check for the minimum token special case
-                if (row.key.token.compareTo(mintoken) == 0)
+                if (row.token.compareTo(mintoken) == 0)
                 {
                     // and store it to be appended when we complete
-                    minrows.add(rowHash(row));
+                    minrows.add(row);
                     return;
                 }
                 mintoken = null;
@@ -370,7 +378,7 @@ public class AntiEntropyService
                 range = ranges.next();
 
             // generate new ranges as long as case 1 is true
-            while (!range.contains(row.key.token))
+            while (!range.contains(row.token))
             {
                 // add the empty hash, and move to the next range
                 range.addHash(EMPTY_ROW);
@@ -378,22 +386,12 @@ public class AntiEntropyService
             }
 
             // case 3 must be true: mix in the hashed row
-            range.addHash(rowHash(row));
+            range.addHash(row);
         }
 
         private MerkleTree.RowHash rowHash(AbstractCompactedRow row)
         {
-            validated++;
-            // MerkleTree uses XOR internally, so we want lots of output bits here
-            MessageDigest digest = null;
-            try
-            {
-                digest = MessageDigest.getInstance("SHA-256");
-            }
-            catch (NoSuchAlgorithmException e)
-            {
-                throw new AssertionError(e);
-            }
+            MessageDigest digest = AbstractCompactedRow.newDigest();
             row.update(digest);
             return new MerkleTree.RowHash(row.key.token, digest.digest());
         }
@@ -74,7 +74,7 @@ public class DatacenterSyncWriteResponseHandler extends AbstractWriteResponseHan
         }
     }
 
-    public void response(Message message)
+    protected void handleResponse(Message message)
     {
         String dataCenter = message == null
                             ? localdc
@@ -68,7 +68,7 @@ public class DatacenterWriteResponseHandler extends WriteResponseHandler
 
 
     @Override
-    public void response(Message message)
+    protected void handleResponse(Message message)
     {
         if (message == null || localdc.equals(snitch.getDatacenter(message.getFrom())))
         {
@@ -25,13 +25,19 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.utils.WrappedRunnable;
 import org.apache.cassandra.concurrent.IExecutorMBean;
+import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.CompactionManagerMBean;
+import org.apache.cassandra.db.MeteredFlusher;
 
 import com.sun.management.GarbageCollectorMXBean;
 import com.sun.management.GcInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.lang.management.MemoryUsage;
 import java.lang.management.ManagementFactory;
 import javax.management.JMX;
@@ -39,19 +45,49 @@ import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
-public class GCInspector
+public class GCInspector implements GCInspectorMBean
 {
-    public static final GCInspector instance = new GCInspector();
+    public static final String MBEAN_OBJECT_NAME = "org.apache.cassandra.service:type=GCInspector";
+    public static final GCInspector instance;
 
     private static final Logger logger = LoggerFactory.getLogger(GCInspector.class);
     final static long INTERVAL_IN_MS = 1000;
     final static long MIN_DURATION = 200;
     final static long MIN_DURATION_TPSTATS = 1000;
+    // heap pressure is relieved at most this often, to give flushes time to complete
+    final static long MIN_RELIEF_INTERVAL_IN_MS = 10 * 1000;
+    // once pressure has passed, cache capacities grow back by RECOVERY_STEP of their configured size this often
+    final static long RECOVERY_INTERVAL_IN_MS = 60 * 1000;
+    final static double RECOVERY_STEP = 0.1;
+
+    static
+    {
+        instance = new GCInspector();
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            mbs.registerMBean(instance, new ObjectName(MBEAN_OBJECT_NAME));
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
 
     private HashMap<String, Long> gctimes = new HashMap<String, Long>();
     private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
 
     List<GarbageCollectorMXBean> beans = new ArrayList<GarbageCollectorMXBean>();
+    // the old generation, whose occupancy after it is collected is what live data leaves of the heap; null if
+    // the collector in use has no such pool
+    final String tenuredPool;
+
+    private volatile double postGCHeapUsage;
+    private volatile double cacheCapacityScale = 1.0;
+    private volatile long lastReliefAt;
+    private volatile long lastRecoveryAt;
+    private final AtomicLong reliefCount = new AtomicLong();
+    private final AtomicLong memtablesFlushedForRelief = new AtomicLong();
 
     public GCInspector()
     {
@@ -69,6 +105,14 @@ public class GCInspector
         {
             throw new RuntimeException(e);
         }
+        // eden and survivor spaces are emptied by every young collection, so they don't support usage thresholds
+        String tenured = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported())
+                tenured = pool.getName();
+        }
+        tenuredPool = tenured;
     }
 
     public void start()
@@ -78,6 +122,7 @@ public class GCInspector
             public void run()
             {
                 logIntervalGCStats();
+                maybeRecover(System.currentTimeMillis());
             }
         };
         new Timer("GC inspection").schedule(t, INTERVAL_IN_MS, INTERVAL_IN_MS);
@@ -127,9 +172,94 @@ public class GCInspector
                     throw new RuntimeException(e);
                 }
             }
+
+            // after a young collection the old generation still holds whatever garbage it had
+            if (tenuredPool != null && Arrays.asList(gc.getMemoryPoolNames()).contains(tenuredPool))
+            {
+                MemoryUsage tenured = gci.getMemoryUsageAfterGc().get(tenuredPool);
+                // a pool without a defined maximum (-1) can't be full
+                if (tenured != null && tenured.getMax() > 0)
+                {
+                    postGCHeapUsage = (double) tenured.getUsed() / tenured.getMax();
+                    maybeRelieve(postGCHeapUsage, System.currentTimeMillis());
+                }
+            }
         }
     }
 
+    /**
+     * If the old generation is fuller than heap_pressure_threshold after it is collected, flushes the largest memtables
+     * and shrinks the caches, so that the next collection has something to reclaim.
+     * @return true if pressure was relieved
+     */
+    boolean maybeRelieve(double usage, long now)
+    {
+        double threshold = DatabaseDescriptor.getHeapPressureThreshold();
+        if (usage < threshold || now - lastReliefAt < MIN_RELIEF_INTERVAL_IN_MS)
+            return false;
+        lastReliefAt = now;
+        lastRecoveryAt = now;
+        reliefCount.incrementAndGet();
+
+        logger.warn(String.format("Old generation is %.2f full after GC, over the heap pressure threshold of %.2f. "
+                                  + "Flushing the largest memtables and reducing cache capacities to relieve it",
+                                  usage, threshold));
+        List<ColumnFamilyStore> flushed = MeteredFlusher.flushLargest();
+        memtablesFlushedForRelief.addAndGet(flushed.size());
+        for (ColumnFamilyStore cfs : flushed)
+            logger.warn("Flushed memtable of {} to relieve heap pressure", cfs.getColumnFamilyName());
+
+        setCacheCapacityScale(cacheCapacityScale * DatabaseDescriptor.getReduceCacheCapacityTo());
+        logger.warn(String.format("Key and row caches reduced to %.2f of their configured capacities", cacheCapacityScale));
+        return true;
+    }
+
+    /**
+     * Grows the caches back towards their configured capacities once a full recovery interval has passed
+     * without heap pressure.
+     */
+    void maybeRecover(long now)
+    {
+        if (cacheCapacityScale >= 1.0 || now - lastRecoveryAt < RECOVERY_INTERVAL_IN_MS)
+            return;
+        lastRecoveryAt = now;
+        setCacheCapacityScale(Math.min(1.0, cacheCapacityScale + RECOVERY_STEP));
+        logger.info(String.format("Heap pressure has passed: key and row caches restored to %.2f of their configured capacities",
+                                  cacheCapacityScale));
+    }
+
+    private void setCacheCapacityScale(double scale)
+    {
+        cacheCapacityScale = scale;
+        for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+            cfs.setCacheCapacityScale(scale);
+    }
+
+    public double getPostGCHeapUsage()
+    {
+        return postGCHeapUsage;
+    }
+
+    public double getHeapPressureThreshold()
+    {
+        return DatabaseDescriptor.getHeapPressureThreshold();
+    }
+
+    public double getCacheCapacityScale()
+    {
+        return cacheCapacityScale;
+    }
+
+    public long getHeapPressureReliefCount()
+    {
+        return reliefCount.get();
+    }
+
+    public long getMemtablesFlushedForRelief()
+    {
+        return memtablesFlushedForRelief.get();
+    }
+
     private void logThreadPoolStats() throws MalformedObjectNameException
     {
         ObjectName query = new ObjectName("org.apache.cassandra.concurrent:type=*");
@@ -0,0 +1,52 @@
+package org.apache.cassandra.service;
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+/**
+ * Exports the heap pressure relief state of the GCInspector.
+ */
+public interface GCInspectorMBean
+{
+    /**
+     * @return the fraction of the old generation in use after it was last collected
+     */
+    public double getPostGCHeapUsage();
+
+    /**
+     * @return the fraction of the old generation in use after it is collected beyond which pressure is relieved
+     */
+    public double getHeapPressureThreshold();
+
+    /**
+     * @return the fraction of their configured capacities the key and row caches are currently sized to
+     */
+    public double getCacheCapacityScale();
+
+    /**
+     * @return the number of times heap pressure has been relieved
+     */
+    public long getHeapPressureReliefCount();
+
+    /**
+     * @return the number of memtables flushed to relieve heap pressure
+     */
+    public long getMemtablesFlushedForRelief();
+}
@@ -25,6 +25,7 @@ import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
@@ -54,6 +55,7 @@ import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.cassandra.thrift.UnavailableException;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.LatencyTracker;
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
 import org.apache.cassandra.utils.WrappedRunnable;
 import org.apache.cassandra.db.filter.QueryFilter;
 
@@ -66,6 +68,7 @@ public class StorageProxy implements StorageProxyMBean
     private static final LatencyTracker readStats = new LatencyTracker();
     private static final LatencyTracker rangeStats = new LatencyTracker();
     private static final LatencyTracker writeStats = new LatencyTracker();
+    private static final NonBlockingHashMap<InetAddress, AtomicLong> writeTimeouts = new NonBlockingHashMap<InetAddress, AtomicLong>();
 
     private StorageProxy() {}
     static
@@ -104,7 +107,7 @@ public class StorageProxy implements StorageProxyMBean
                     String table = rm.getTable();
                     AbstractReplicationStrategy rs = ss.getReplicationStrategy(table);
 
-                    List<InetAddress> naturalEndpoints = ss.getNaturalEndpoints(table, rm.key());
+                    List<InetAddress> naturalEndpoints = ss.getCachedNaturalEndpoints(table, StorageService.getPartitioner().getToken(rm.key()));
                     Multimap<InetAddress,InetAddress> hintedEndpoints = rs.getHintedEndpoints(naturalEndpoints);
                     Message unhintedMessage = null; // lazy initialize for non-local, unhinted writes
 
@@ -193,8 +196,9 @@ public class StorageProxy implements StorageProxyMBean
                 String table = rm.getTable();
                 AbstractReplicationStrategy rs = ss.getReplicationStrategy(table);
 
-                List<InetAddress> naturalEndpoints = ss.getNaturalEndpoints(table, rm.key());
-                Collection<InetAddress> writeEndpoints = ss.getTokenMetadata().getWriteEndpoints(StorageService.getPartitioner().getToken(rm.key()), table, naturalEndpoints);
+                Token token = StorageService.getPartitioner().getToken(rm.key());
+                List<InetAddress> naturalEndpoints = ss.getCachedNaturalEndpoints(table, token);
+                Collection<InetAddress> writeEndpoints = ss.getTokenMetadata().getWriteEndpoints(token, table, naturalEndpoints);
                 Multimap<InetAddress, InetAddress> hintedEndpoints = rs.getHintedEndpoints(writeEndpoints);
                 
                 // send out the writes, as in mutate() above, but this time with a callback that tracks responses
@@ -340,7 +344,7 @@ public class StorageProxy implements StorageProxyMBean
 
             for (ReadCommand command: commands)
             {
-                List<InetAddress> endpoints = StorageService.instance.getNaturalEndpoints(command.table, command.key);
+                List<InetAddress> endpoints = StorageService.instance.getCachedNaturalEndpoints(command.table, StorageService.getPartitioner().getToken(command.key));
                 boolean foundLocal = endpoints.contains(FBUtilities.getLocalAddress());
                 //TODO: Throw InvalidRequest if we're in bootstrap mode?
                 if (foundLocal && !StorageService.instance.isBootstrapMode())
@@ -783,6 +787,28 @@ public class StorageProxy implements StorageProxyMBean
         return writeStats.getRecentLatencyMicros();
     }
 
+    /** called when a replica did not acknowledge a write before its callback expired */
+    static void recordWriteTimeout(InetAddress endpoint)
+    {
+        AtomicLong count = writeTimeouts.get(endpoint);
+        if (count == null)
+        {
+            AtomicLong fresh = new AtomicLong();
+            count = writeTimeouts.putIfAbsent(endpoint, fresh);
+            if (count == null)
+                count = fresh;
+        }
+        count.incrementAndGet();
+    }
+
+    public Map<String, Long> getWriteTimeouts()
+    {
+        Map<String, Long> map = new HashMap<String, Long>();
+        for (Map.Entry<InetAddress, AtomicLong> entry : writeTimeouts.entrySet())
+            map.put(entry.getKey().getHostAddress(), entry.getValue().get());
+        return map;
+    }
+
     public static List<Row> scan(IndexScanCommand command, ConsistencyLevel consistency_level)
     throws IOException, TimeoutException
     {
@@ -18,6 +18,8 @@
 */
 package org.apache.cassandra.service;
 
+import java.util.Map;
+
 public interface StorageProxyMBean
 {
     public long getReadOperations();
@@ -31,4 +33,7 @@ public interface StorageProxyMBean
     public long getWriteOperations();
     public long getTotalWriteLatencyMicros();
     public double getRecentWriteLatencyMicros();
+
+    /** @return the number of writes each replica failed to acknowledge within rpc_timeout, by address */
+    public Map<String, Long> getWriteTimeouts();
 }
@@ -1267,6 +1267,14 @@ public class StorageService implements IEndpointStateChangeSubscriber, StorageSe
         return getReplicationStrategy(table).getNaturalEndpoints(token, table);
     }
 
+    /**
+     * Like getNaturalEndpoints, but returns an unmodifiable list shared with other callers instead of a copy.
+     */
+    public List<InetAddress> getCachedNaturalEndpoints(String table, Token token)
+    {
+        return getReplicationStrategy(table).getCachedEndpoints(token, table);
+    }
+
     /**
      * This method attempts to return N endpoints that are responsible for storing the
      * specified key i.e for replication.
@@ -1282,7 +1290,7 @@ public class StorageService implements IEndpointStateChangeSubscriber, StorageSe
     public List<InetAddress> getLiveNaturalEndpoints(String table, Token token)
     {
         List<InetAddress> liveEps = new ArrayList<InetAddress>();
-        List<InetAddress> endpoints = getReplicationStrategy(table).getNaturalEndpoints(token, table);
+        List<InetAddress> endpoints = getReplicationStrategy(table).getCachedEndpoints(token, table);
 
         for (InetAddress endpoint : endpoints)
         {
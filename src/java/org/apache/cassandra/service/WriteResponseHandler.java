@@ -55,7 +55,7 @@ public class WriteResponseHandler extends AbstractWriteResponseHandler
         responses = new AtomicInteger(1);
     }
 
-    public void response(Message m)
+    protected void handleResponse(Message m)
     {
         if (responses.decrementAndGet() == 0)
             condition.signal();
@@ -55,6 +55,8 @@ class FileStatus
 
     private final String file_;
     private Action action_;
+    // for STREAM: the number of bytes of the file the receiver already has and verified
+    private long offset_;
 
     /**
      * Create a FileStatus with the default Action: STREAM.
@@ -80,6 +82,16 @@ class FileStatus
         return action_;
     }
 
+    public void setOffset(long offset)
+    {
+        offset_ = offset;
+    }
+
+    public long getOffset()
+    {
+        return offset_;
+    }
+
     public Message makeStreamStatusMessage() throws IOException
     {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
@@ -94,6 +106,7 @@ class FileStatus
         {
             dos.writeUTF(streamStatus.getFile());
             dos.writeInt(streamStatus.getAction().ordinal());
+            dos.writeLong(streamStatus.getOffset());
         }
 
         public FileStatus deserialize(DataInputStream dis) throws IOException
@@ -108,6 +121,7 @@ class FileStatus
                 streamStatus.setAction(Action.STREAM);
             else
                 throw new IOException("Bad FileStatus.Action: " + ordinal);
+            streamStatus.setOffset(dis.readLong());
 
             return streamStatus;
         }
@@ -73,7 +73,7 @@ class FileStatusHandler
         MessagingService.instance.sendOneWay(streamStatus.makeStreamStatusMessage(), host);
 
         // if all files have been received from this host, remove from bootstrap sources
-        if (StreamInManager.isDone(host) && StorageService.instance.isBootstrapMode())
+        if (StreamInManager.finishIncomingFile(host, pendingFile) && StorageService.instance.isBootstrapMode())
         {
             StorageService.instance.removeBootstrapSource(host, pendingFile.desc.ksname);
         }
@@ -18,90 +18,112 @@
 
 package org.apache.cassandra.streaming;
 
-import java.net.InetSocketAddress;
 import java.net.InetAddress;
-import java.nio.channels.FileChannel;
-import java.nio.channels.SocketChannel;
 import java.io.*;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.net.FileStreamTask;
 import org.apache.cassandra.utils.Pair;
 
+/**
+ * Receives a file as a sequence of checksummed chunks (see FileStreamTask). Only verified chunks are written, so
+ * corruption is detected before the sstable is opened; and when a transfer fails, the verified part of the file is
+ * kept and the source is asked to resume after it.
+ */
 public class IncomingStreamReader
 {
     private static Logger logger = LoggerFactory.getLogger(IncomingStreamReader.class);
-    private PendingFile pendingFile;
-    private FileStatus streamStatus;
-    private SocketChannel socketChannel;
+    private final InetAddress source;
+    private final DataInputStream input;
+    private final PendingFile pendingFile;
+    private final FileStatus streamStatus;
+    private final long offset;
 
-    public IncomingStreamReader(SocketChannel socketChannel)
+    /**
+     * Reads the name of the incoming file and the offset it starts from, which the source sends ahead of the file.
+     */
+    public IncomingStreamReader(InetAddress source, DataInputStream input) throws IOException
     {
-        this.socketChannel = socketChannel;
-        InetSocketAddress remoteAddress = (InetSocketAddress)socketChannel.socket().getRemoteSocketAddress();
-        // this is the part where we are assuming files come in order from a particular host. it is brittle because
-        // any node could send a stream message to this host and it would just assume it is receiving the next file.
-        pendingFile = StreamInManager.getNextIncomingFile(remoteAddress.getAddress());
-        StreamInManager.activeStreams.put(remoteAddress.getAddress(), pendingFile);
-        assert pendingFile != null;
-        streamStatus = StreamInManager.getStreamStatus(remoteAddress.getAddress());
-        assert streamStatus != null;
+        this.source = source;
+        this.input = input;
+        String remoteFilename = input.readUTF();
+        offset = input.readLong();
+        Pair<PendingFile, FileStatus> incoming = StreamInManager.getIncomingFile(source, remoteFilename);
+        pendingFile = incoming.left;
+        streamStatus = incoming.right;
+        StreamInManager.activeStreams.put(source, pendingFile);
     }
 
     public void read() throws IOException
     {
         logger.debug("Receiving stream");
-        InetSocketAddress remoteAddress = (InetSocketAddress)socketChannel.socket().getRemoteSocketAddress();
         if (logger.isDebugEnabled())
-          logger.debug("Creating file for " + pendingFile.getFilename());
-        FileOutputStream fos = new FileOutputStream(pendingFile.getFilename(), true);
-        FileChannel fc = fos.getChannel();
-
-        long offset = 0;
+          logger.debug("Receiving " + pendingFile.getFilename() + " from offset " + offset);
+        RandomAccessFile file = new RandomAccessFile(pendingFile.getFilename(), "rw");
         try
         {
-            for (Pair<Long, Long> section : pendingFile.sections)
-            {
-                long length = section.right - section.left;
-                long bytesRead = 0;
-                while (bytesRead < length)
-                    bytesRead += fc.transferFrom(socketChannel, offset + bytesRead, length - bytesRead);
-                offset += length;
-            }
+            receive(file);
         }
         catch (IOException ex)
         {
-            logger.debug("Receiving stream: recovering from IO error");
-            /* Ask the source node to re-stream this file. */
+            file.close();
+            logger.info("Receiving " + pendingFile + " from " + source + " failed after " + pendingFile.progress + " bytes: requesting the rest", ex);
+            /* Expect the file again, and ask the source node to re-stream it from the last verified chunk. */
+            StreamInManager.activeStreams.remove(source, pendingFile);
+            StreamInManager.addStreamContext(source, pendingFile, streamStatus);
             streamStatus.setAction(FileStatus.Action.STREAM);
-            handleFileStatus(remoteAddress.getAddress());
-            /* Delete the orphaned file. */
-            FileUtils.deleteWithConfirm(new File(pendingFile.getFilename()));
+            streamStatus.setOffset(pendingFile.progress);
+            handleFileStatus();
             throw ex;
         }
-        finally
-        {
-            fc.close();
-            StreamInManager.activeStreams.remove(remoteAddress.getAddress(), pendingFile);
-        }
+        file.close();
 
         if (logger.isDebugEnabled())
             logger.debug("Removing stream context " + pendingFile);
         streamStatus.setAction(FileStatus.Action.DELETE);
-        handleFileStatus(remoteAddress.getAddress());
+        handleFileStatus();
+    }
+
+    private void receive(RandomAccessFile file) throws IOException
+    {
+        if (offset != pendingFile.progress)
+            throw new IOException(String.format("%s sent %s from offset %d, but %d bytes were verified",
+                                                source, pendingFile, offset, pendingFile.progress));
+        // discard anything received after the last verified chunk
+        file.setLength(offset);
+        file.seek(offset);
+
+        long size = pendingFile.size();
+        byte[] chunk = new byte[FileStreamTask.CHUNK_SIZE];
+        Checksum checksum = new CRC32();
+        while (pendingFile.progress < size)
+        {
+            int length = (int) Math.min(chunk.length, size - pendingFile.progress);
+            input.readFully(chunk, 0, length);
+            checksum.reset();
+            checksum.update(chunk, 0, length);
+            if (input.readLong() != checksum.getValue())
+                throw new IOException(String.format("Checksum mismatch in chunk of %s at offset %d", pendingFile, pendingFile.progress));
+            file.write(chunk, 0, length);
+            pendingFile.progress += length;
+            StreamInManager.bytesReceived.addAndGet(length);
+        }
     }
 
-    private void handleFileStatus(InetAddress remoteHost) throws IOException
+    private void handleFileStatus() throws IOException
     {
         /*
          * Streaming is complete. If all the data that has to be received inform the sender via
          * the stream completion callback so that the source may perform the requisite cleanup.
         */
-        FileStatusHandler handler = StreamInManager.getFileStatusHandler(remoteHost);
+        FileStatusHandler handler = StreamInManager.getFileStatusHandler(source);
         if (handler != null)
-            handler.onStatusChange(remoteHost, pendingFile, streamStatus);
+            handler.onStatusChange(source, pendingFile, streamStatus);
+        else if (streamStatus.getAction() == FileStatus.Action.DELETE)
+            StreamInManager.finishIncomingFile(source, pendingFile);
     }
 }
@@ -51,6 +51,8 @@ public class PendingFile
     public final Descriptor desc;
     public final String component;
     public final List<Pair<Long,Long>> sections;
+    // bytes sent or received so far (local to each side: not serialized)
+    public volatile long progress;
 
     public PendingFile(Descriptor desc, PendingFile pf)
     {
@@ -69,6 +71,17 @@ public class PendingFile
         return desc.filenameFor(component);
     }
     
+    /**
+     * @return the number of bytes to transfer: the total length of the sections
+     */
+    public long size()
+    {
+        long size = 0;
+        for (Pair<Long,Long> section : sections)
+            size += section.right - section.left;
+        return size;
+    }
+
     public boolean equals(Object o)
     {
         if ( !(o instanceof PendingFile) )
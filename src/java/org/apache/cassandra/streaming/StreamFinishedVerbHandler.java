@@ -49,12 +49,12 @@ public class StreamFinishedVerbHandler implements IVerbHandler
             switch (streamStatus.getAction())
             {
                 case DELETE:
-                    StreamOutManager.get(message.getFrom()).finishAndStartNext();
+                    StreamOutManager.get(message.getFrom()).finishAndStartNext(streamStatus.getFile());
                     break;
 
                 case STREAM:
-                    logger.warn("Need to re-stream file " + streamStatus.getFile() + " to " + message.getFrom());
-                    StreamOutManager.get(message.getFrom()).startNext();
+                    logger.warn("Need to re-stream file " + streamStatus.getFile() + " to " + message.getFrom() + " from offset " + streamStatus.getOffset());
+                    StreamOutManager.get(message.getFrom()).retry(streamStatus.getFile(), streamStatus.getOffset());
                     break;
 
                 default:
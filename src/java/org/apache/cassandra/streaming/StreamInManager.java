@@ -18,13 +18,16 @@
 
 package org.apache.cassandra.streaming;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.net.InetAddress;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import org.apache.cassandra.streaming.FileStatusHandler;
+import org.apache.cassandra.utils.Pair;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +43,9 @@ class StreamInManager
     /* Maintains a callback handler per endpoint to notify the app that a stream from a given endpoint has been handled */
     public static final Map<InetAddress, FileStatusHandler> streamNotificationHandlers_ = new HashMap<InetAddress, FileStatusHandler>();
 
+    /* total bytes received by streaming since startup */
+    public static final AtomicLong bytesReceived = new AtomicLong();
+
     public static final Multimap<InetAddress, PendingFile> activeStreams = Multimaps.synchronizedMultimap(HashMultimap.<InetAddress, PendingFile>create());
 
     public synchronized static void initContect(InetAddress key)
@@ -52,32 +58,33 @@ class StreamInManager
         }
     }
     /**
-     * gets the next file to be received given a host key.
-     * @param key
-     * @return next file to receive.
-     * @throws IndexOutOfBoundsException if you are unfortunate enough to call this on an empty context. 
+     * Removes a file that is about to be received from the context of the given source.
+     * @param key the source host.
+     * @param remoteFilename the name of the file on the source, which it sends ahead of the file itself: a source
+     * may be sending several files at once, in any order.
+     * @return the local file to receive into, and the status to report to the source once done.
      */
-    public synchronized static PendingFile getNextIncomingFile(InetAddress key)
-    {        
-        List<PendingFile> context = ctxBag_.get(key);
-        if ( context == null )
-            throw new IllegalStateException("Streaming context has not been set for " + key);
-        // will thrown an IndexOutOfBoundsException if nothing is there.
-        PendingFile pendingFile = context.remove(0);
-        if ( context.isEmpty() )
-            ctxBag_.remove(key);
-        return pendingFile;
-    }
-    
-    public synchronized static FileStatus getStreamStatus(InetAddress key)
+    public synchronized static Pair<PendingFile, FileStatus> getIncomingFile(InetAddress key, String remoteFilename) throws IOException
     {
+        List<PendingFile> context = ctxBag_.get(key);
         List<FileStatus> status = streamStatusBag_.get(key);
-        if ( status == null )
-            throw new IllegalStateException("Streaming status has not been set for " + key);
-        FileStatus streamStatus = status.remove(0);
-        if ( status.isEmpty() )
-            streamStatusBag_.remove(key);
-        return streamStatus;
+        // the name comes from the remote host: one we don't expect is a bad stream, not a local bug
+        if (context == null || status == null)
+            throw new IOException("Streaming context has not been set for " + key);
+        // the status of each local file names the corresponding remote file
+        for (int i = 0; i < status.size(); i++)
+        {
+            if (status.get(i).getFile().equals(remoteFilename))
+            {
+                Pair<PendingFile, FileStatus> pair = new Pair<PendingFile, FileStatus>(context.remove(i), status.remove(i));
+                if (context.isEmpty())
+                    ctxBag_.remove(key);
+                if (status.isEmpty())
+                    streamStatusBag_.remove(key);
+                return pair;
+            }
+        }
+        throw new IOException(key + " is not expected to send " + remoteFilename);
     }
 
     /** query method to determine which hosts are streaming to this node. */
@@ -100,13 +107,16 @@ class StreamInManager
         return list;
     }
 
-    /*
-     * This method helps determine if the FileStatusHandler needs
-     * to be invoked for the data being streamed from a source. 
-    */
-    public synchronized static boolean isDone(InetAddress key)
+    /**
+     * Marks a file that was received from the given source as complete: it must have been added to its column
+     * family already, since this is what determines that the source is done.
+     * @return true if this was the last file expected from the source.
+     */
+    public synchronized static boolean finishIncomingFile(InetAddress key, PendingFile pendingFile)
     {
-        return (ctxBag_.get(key) == null);
+        activeStreams.remove(key, pendingFile);
+        // files are received concurrently: others may still be in flight after the last one started
+        return ctxBag_.get(key) == null && activeStreams.get(key).isEmpty();
     }
     
     public synchronized static FileStatusHandler getFileStatusHandler(InetAddress key)
@@ -139,8 +139,9 @@ public class StreamOut
         {
             logger.info("Waiting for transfer to " + target + " to complete");
             StreamOutManager.get(target).waitForStreamCompletion();
-            // todo: it would be good if there were a dafe way to remove the StreamManager for target.
-            // (StreamManager will delete the streamed file on completion.)
+            // todo: it would be good if there were a safe way to remove the StreamManager for target.
+            // (Nothing is deleted on completion: sections are streamed straight from the given sstables, which still
+            // belong to the caller, whether they are live sstables of this node or files given to the bulk loader.)
             logger.info("Done with transfer to " + target);
         }
     }
@@ -29,9 +29,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.net.InetAddress;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.io.util.FileUtils;
@@ -50,6 +52,8 @@ public class StreamOutManager
         
     private static ConcurrentMap<InetAddress, StreamOutManager> streamManagers = new ConcurrentHashMap<InetAddress, StreamOutManager>();
     public static final Set<InetAddress> pendingDestinations = Collections.synchronizedSet(new HashSet<InetAddress>());
+    /* total bytes sent by streaming since startup */
+    public static final AtomicLong bytesSent = new AtomicLong();
 
     public static StreamOutManager get(InetAddress to)
     {
@@ -95,6 +99,8 @@ public class StreamOutManager
     // we need sequential and random access to the files. hence, the map and the list.
     private final List<PendingFile> files = new ArrayList<PendingFile>();
     private final Map<String, PendingFile> fileMap = new HashMap<String, PendingFile>();
+    // files being streamed: at most concurrent_streams at once
+    private final Set<String> activeFiles = new HashSet<String>();
     
     private final InetAddress to;
     private final SimpleCondition condition = new SimpleCondition();
@@ -104,7 +110,7 @@ public class StreamOutManager
         this.to = to;
     }
     
-    public void addFilesToStream(PendingFile[] pendingFiles)
+    public synchronized void addFilesToStream(PendingFile[] pendingFiles)
     {
         // reset the condition in case this SOM is getting reused before it can be removed.
         condition.reset();
@@ -117,21 +123,48 @@ public class StreamOutManager
         }
     }
     
-    public void startNext()
+    /**
+     * Starts streaming files, in order, until concurrent_streams of them are in flight.
+     */
+    public synchronized void startNext()
     {
-        if (files.size() > 0)
+        for (PendingFile pf : files)
         {
-            PendingFile pf = files.get(0);
+            if (activeFiles.size() >= DatabaseDescriptor.getConcurrentStreams())
+                break;
+            if (!activeFiles.add(pf.getFilename()))
+                continue;
             if (logger.isDebugEnabled())
               logger.debug("Streaming " + pf + " ...");
             MessagingService.instance.stream(pf, to);
         }
     }
 
-    public void finishAndStartNext() throws IOException
+    /**
+     * Streams a file that was already started again, after the destination failed to receive it.
+     * @param offset the number of bytes of the file that the destination has already verified.
+     */
+    public synchronized void retry(String file, long offset)
+    {
+        PendingFile pf = fileMap.get(file);
+        if (pf == null)
+        {
+            logger.warn("Cannot re-stream unknown file " + file + " to " + to);
+            return;
+        }
+        MessagingService.instance.stream(pf, to, offset);
+    }
+
+    public synchronized void finishAndStartNext(String file) throws IOException
     {
-        PendingFile pf = files.remove(0);
-        fileMap.remove(pf.getFilename());
+        PendingFile pf = fileMap.remove(file);
+        if (pf == null)
+        {
+            logger.warn("Unknown file " + file + " was reported as received by " + to);
+            return;
+        }
+        files.remove(pf);
+        activeFiles.remove(file);
         if (files.size() > 0)
             startNext();
         else
@@ -154,8 +187,8 @@ public class StreamOutManager
         }
     }
 
-    List<PendingFile> getFiles()
+    synchronized List<PendingFile> getFiles()
     {
-        return Collections.unmodifiableList(files);
+        return new ArrayList<PendingFile>(files);
     }
 }
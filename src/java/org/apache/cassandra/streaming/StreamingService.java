@@ -21,6 +21,8 @@ package org.apache.cassandra.streaming;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
+
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import java.io.IOException;
@@ -58,7 +60,7 @@ public class StreamingService implements StreamingServiceMBean
             sb.append(String.format(" %s:\n", source.getHostAddress()));
             for (PendingFile pf : StreamInManager.getIncomingFiles(source))
             {
-                sb.append(String.format("  %s\n", pf.toString()));
+                sb.append(String.format("  %s\n", describe(pf)));
             }
         }
         sb.append("Sending to:\n");
@@ -67,7 +69,7 @@ public class StreamingService implements StreamingServiceMBean
             sb.append(String.format(" %s:\n", dest.getHostAddress()));
             for (PendingFile pf : StreamOutManager.getPendingFiles(dest))
             {
-                sb.append(String.format("  %s\n", pf.toString()));
+                sb.append(String.format("  %s\n", describe(pf)));
             }
         }
         return sb.toString();
@@ -92,7 +94,7 @@ public class StreamingService implements StreamingServiceMBean
         
         StreamOutManager manager = StreamOutManager.get(dest);
         for (PendingFile f : manager.getFiles())
-            files.add(String.format("%s", f.toString()));
+            files.add(describe(f));
         return files;
     }
 
@@ -108,8 +110,36 @@ public class StreamingService implements StreamingServiceMBean
         List<String> files = new ArrayList<String>();
         for (PendingFile pf : StreamInManager.getIncomingFiles(InetAddress.getByName(host)))
         {
-            files.add(String.format("%s: %s", pf.desc.ksname, pf.toString()));
+            files.add(String.format("%s: %s", pf.desc.ksname, describe(pf)));
         }
         return files;
     }
+
+    public long getBytesSent()
+    {
+        return StreamOutManager.bytesSent.get();
+    }
+
+    public long getBytesReceived()
+    {
+        return StreamInManager.bytesReceived.get();
+    }
+
+    public int getStreamThroughputOutboundMegabitsPerSec()
+    {
+        return DatabaseDescriptor.getStreamThroughputOutboundMegabitsPerSec();
+    }
+
+    public void setStreamThroughputOutboundMegabitsPerSec(int value)
+    {
+        if (value < 0)
+            throw new IllegalArgumentException("stream throughput cannot be negative");
+        DatabaseDescriptor.setStreamThroughputOutboundMegabitsPerSec(value);
+        logger.info("Outbound streaming throughput set to {} Mbps", value);
+    }
+
+    private static String describe(PendingFile pf)
+    {
+        return String.format("%s %d/%d bytes", pf, pf.progress, pf.size());
+    }
 }
@@ -39,4 +39,15 @@ public interface StreamingServiceMBean
     
     /** What's currently happening wrt streaming. */
     public String getStatus();
+
+    /** total bytes sent by streaming since startup */
+    public long getBytesSent();
+
+    /** total bytes received by streaming since startup */
+    public long getBytesReceived();
+
+    /** the cap on outbound streaming throughput of this node, 0 if unthrottled */
+    public int getStreamThroughputOutboundMegabitsPerSec();
+
+    public void setStreamThroughputOutboundMegabitsPerSec(int value);
 }
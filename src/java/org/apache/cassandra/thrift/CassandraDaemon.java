@@ -23,10 +23,14 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.ConfigurationException;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.CompactionManager;
@@ -43,6 +47,7 @@ import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TTransportException;
 import org.apache.thrift.transport.TTransportFactory;
@@ -137,6 +142,23 @@ public class CassandraDaemon extends org.apache.cassandra.service.AbstractCassan
         final CassandraServer cassandraServer = new CassandraServer();
         Cassandra.Processor processor = new Cassandra.Processor(cassandraServer);
 
+        // Protocol factory
+        TProtocolFactory tProtocolFactory = new TBinaryProtocol.Factory(false, 
+                                                                        true, 
+                                                                        DatabaseDescriptor.getThriftMaxMessageLength());
+
+        if (DatabaseDescriptor.getRpcServerType() == Config.RpcServerType.hsha)
+            serverEngine = createHsHaServer(cassandraServer, processor, tProtocolFactory, listenAddr, listenPort);
+        else
+            serverEngine = createSyncServer(cassandraServer, processor, tProtocolFactory, listenAddr, listenPort);
+    }
+
+    private TServer createSyncServer(final CassandraServer cassandraServer,
+                                     Cassandra.Processor processor,
+                                     TProtocolFactory tProtocolFactory,
+                                     InetAddress listenAddr,
+                                     int listenPort) throws IOException
+    {
         // Transport
         TServerSocket tServerSocket = null;
         
@@ -152,11 +174,6 @@ public class CassandraDaemon extends org.apache.cassandra.service.AbstractCassan
         
         logger.info(String.format("Binding thrift service to %s:%s", listenAddr, listenPort));
 
-        // Protocol factory
-        TProtocolFactory tProtocolFactory = new TBinaryProtocol.Factory(false, 
-                                                                        true, 
-                                                                        DatabaseDescriptor.getThriftMaxMessageLength());
-        
         // Transport factory
         TTransportFactory inTransportFactory, outTransportFactory;
         if (DatabaseDescriptor.isThriftFramed())
@@ -193,14 +210,50 @@ public class CassandraDaemon extends org.apache.cassandra.service.AbstractCassan
                 cassandraServer.logout();
             }
         };
-        serverEngine = new CustomTThreadPoolServer(new TProcessorFactory(processor),
-                                             tServerSocket,
-                                             inTransportFactory,
-                                             outTransportFactory,
-                                             tProtocolFactory,
-                                             tProtocolFactory,
-                                             options,
-                                             executorService);
+        return new CustomTThreadPoolServer(new TProcessorFactory(processor),
+                                           tServerSocket,
+                                           inTransportFactory,
+                                           outTransportFactory,
+                                           tProtocolFactory,
+                                           tProtocolFactory,
+                                           options,
+                                           executorService);
+    }
+
+    private TServer createHsHaServer(CassandraServer cassandraServer,
+                                     Cassandra.Processor processor,
+                                     TProtocolFactory tProtocolFactory,
+                                     InetAddress listenAddr,
+                                     int listenPort) throws IOException
+    {
+        TNonblockingServerSocket serverSocket;
+        try
+        {
+            serverSocket = new TNonblockingServerSocket(new InetSocketAddress(listenAddr, listenPort));
+        }
+        catch (TTransportException e)
+        {
+            throw new IOException(String.format("Unable to create thrift socket to %s:%s", listenAddr, listenPort), e);
+        }
+
+        int tFramedTransportSize = DatabaseDescriptor.getThriftFramedTransportSize();
+        int rpcMaxThreads = DatabaseDescriptor.getRpcMaxThreads();
+        logger.info(String.format("Binding thrift service to %s:%s", listenAddr, listenPort));
+        logger.info("Using non-blocking TFramedTransport with a max frame size of {} bytes and {} worker threads.",
+                    tFramedTransportSize, rpcMaxThreads);
+
+        ExecutorService invoker = new JMXEnabledThreadPoolExecutor(rpcMaxThreads,
+                                                                   rpcMaxThreads,
+                                                                   60,
+                                                                   TimeUnit.SECONDS,
+                                                                   new LinkedBlockingQueue<Runnable>(),
+                                                                   new NamedThreadFactory("RPC-THREAD-POOL"));
+        return new CustomTHsHaServer(new TProcessorFactory(processor),
+                                     serverSocket,
+                                     new TFramedTransport.Factory(tFramedTransportSize),
+                                     tProtocolFactory,
+                                     cassandraServer,
+                                     invoker);
     }
 
     /** hook for JSVC */
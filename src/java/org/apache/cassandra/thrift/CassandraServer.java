@@ -61,24 +61,18 @@ public class CassandraServer implements Cassandra.Iface
     private final static List<ColumnOrSuperColumn> EMPTY_COLUMNS = Collections.emptyList();
     private final static List<Column> EMPTY_SUBCOLUMNS = Collections.emptyList();
 
-    // will be set only by login()
-    private ThreadLocal<AccessLevel> loginDone = new ThreadLocal<AccessLevel>() 
+    /*
+     * Session state of the client connection being serviced by the current thread. A server that dedicates
+     * a thread to each connection gets one per thread for free; others must bind it with setClientState.
+     */
+    private ThreadLocal<ClientState> clientState = new ThreadLocal<ClientState>()
     {
         @Override
-        protected AccessLevel initialValue()
+        protected ClientState initialValue()
         {
-            return AccessLevel.NONE;
+            return new ClientState();
         }
     };
-    /*
-     * Keyspace associated with session
-     */
-    private ThreadLocal<String> keySpace = new ThreadLocal<String>();
-
-    /*
-     * An associated Id for scheduling the requests
-     */
-    private ThreadLocal<String> requestSchedulerId = new ThreadLocal<String>();
 
     /*
      * RequestScheduler to perform the scheduling of incoming requests
@@ -263,7 +257,7 @@ public class CassandraServer implements Cassandra.Iface
             logger.debug("get_slice");
         
         checkKeyspaceAndLoginAuthorized(AccessLevel.READONLY);
-        return multigetSliceInternal(keySpace.get(), Arrays.asList(key), column_parent, predicate, consistency_level).get(key);
+        return multigetSliceInternal(clientState.get().keySpace, Arrays.asList(key), column_parent, predicate, consistency_level).get(key);
     }
     
     public Map<byte[], List<ColumnOrSuperColumn>> multiget_slice(List<byte[]> keys, ColumnParent column_parent, SlicePredicate predicate, ConsistencyLevel consistency_level)
@@ -274,7 +268,7 @@ public class CassandraServer implements Cassandra.Iface
 
         checkKeyspaceAndLoginAuthorized(AccessLevel.READONLY);
 
-        return multigetSliceInternal(keySpace.get(), keys, column_parent, predicate, consistency_level);
+        return multigetSliceInternal(clientState.get().keySpace, keys, column_parent, predicate, consistency_level);
     }
 
     private Map<byte[], List<ColumnOrSuperColumn>> multigetSliceInternal(String keyspace, List<byte[]> keys, ColumnParent column_parent, SlicePredicate predicate, ConsistencyLevel consistency_level)
@@ -312,7 +306,7 @@ public class CassandraServer implements Cassandra.Iface
             logger.debug("get");
 
         checkKeyspaceAndLoginAuthorized(AccessLevel.READONLY);
-        String keyspace = keySpace.get();
+        String keyspace = clientState.get().keySpace;
 
         ThriftValidation.validateColumnPath(keyspace, column_path);
 
@@ -370,11 +364,11 @@ public class CassandraServer implements Cassandra.Iface
         checkKeyspaceAndLoginAuthorized(AccessLevel.READWRITE);
 
         ThriftValidation.validateKey(key);
-        ThriftValidation.validateColumnParent(keySpace.get(), column_parent);
-        ThriftValidation.validateColumn(keySpace.get(), column_parent, column);
+        ThriftValidation.validateColumnParent(clientState.get().keySpace, column_parent);
+        ThriftValidation.validateColumn(clientState.get().keySpace, column_parent, column);
         IClock cassandra_clock = ThriftValidation.validateClock(column.clock);
 
-        RowMutation rm = new RowMutation(keySpace.get(), key);
+        RowMutation rm = new RowMutation(clientState.get().keySpace, key);
         try
         {
             rm.add(new QueryPath(column_parent.column_family, column_parent.super_column, column.name), column.value, cassandra_clock, column.ttl);
@@ -425,10 +419,10 @@ public class CassandraServer implements Cassandra.Iface
 
                 for (Mutation mutation : columnFamilyMutations.getValue())
                 {
-                    ThriftValidation.validateMutation(keySpace.get(), cfName, mutation);
+                    ThriftValidation.validateMutation(clientState.get().keySpace, cfName, mutation);
                 }
             }
-            rowMutations.add(RowMutation.getRowMutationFromMutations(keySpace.get(), key, columnFamilyToMutations));
+            rowMutations.add(RowMutation.getRowMutationFromMutations(clientState.get().keySpace, key, columnFamilyToMutations));
         }
 
         doInsert(consistency_level, rowMutations);
@@ -443,11 +437,11 @@ public class CassandraServer implements Cassandra.Iface
         checkKeyspaceAndLoginAuthorized(AccessLevel.FULL);
 
         ThriftValidation.validateKey(key);
-        ThriftValidation.validateColumnPathOrParent(keySpace.get(), column_path);
+        ThriftValidation.validateColumnPathOrParent(clientState.get().keySpace, column_path);
 
         IClock cassandra_clock = ThriftValidation.validateClock(clock);
 
-        RowMutation rm = new RowMutation(keySpace.get(), key);
+        RowMutation rm = new RowMutation(clientState.get().keySpace, key);
         rm.delete(new QueryPath(column_path), cassandra_clock);
 
         doInsert(consistency_level, Arrays.asList(rm));
@@ -465,16 +459,13 @@ public class CassandraServer implements Cassandra.Iface
             }
             else
             {
-                try
-                {
-                    StorageProxy.mutateBlocking(mutations, consistency_level);
-                }
-                catch (TimeoutException e)
-                {
-                    throw new TimedOutException();
-                }
+                StorageProxy.mutateBlocking(mutations, consistency_level);
             }
         }
+        catch (TimeoutException e)
+        {
+            throw new TimedOutException();
+        }
         finally
         {
             release();
@@ -515,7 +506,7 @@ public class CassandraServer implements Cassandra.Iface
         if (logger.isDebugEnabled())
             logger.debug("range_slice");
 
-        String keyspace = keySpace.get();
+        String keyspace = clientState.get().keySpace;
         checkKeyspaceAndLoginAuthorized(AccessLevel.READONLY);
 
         return getRangeSlicesInternal(keyspace, column_parent, range, predicate, consistency_level);
@@ -589,7 +580,7 @@ public class CassandraServer implements Cassandra.Iface
 
         if (row_predicate.keys != null)
         {
-            Map<byte[], List<ColumnOrSuperColumn>> rowMap = multigetSliceInternal(keySpace.get(), row_predicate.keys, column_parent, column_predicate, consistency_level);
+            Map<byte[], List<ColumnOrSuperColumn>> rowMap = multigetSliceInternal(clientState.get().keySpace, row_predicate.keys, column_parent, column_predicate, consistency_level);
             List<KeySlice> rows = new ArrayList<KeySlice>(rowMap.size());
             for (Map.Entry<byte[], List<ColumnOrSuperColumn>> entry : rowMap.entrySet())
             {
@@ -600,12 +591,12 @@ public class CassandraServer implements Cassandra.Iface
 
         if (row_predicate.key_range != null)
         {
-            return getRangeSlicesInternal(keySpace.get(), column_parent, row_predicate.key_range, column_predicate, consistency_level);
+            return getRangeSlicesInternal(clientState.get().keySpace, column_parent, row_predicate.key_range, column_predicate, consistency_level);
         }
 
         if (row_predicate.index_clause != null)
         {
-            return scanIndexInternal(keySpace.get(), column_parent, row_predicate.index_clause, column_predicate, consistency_level);
+            return scanIndexInternal(clientState.get().keySpace, column_parent, row_predicate.index_clause, column_predicate, consistency_level);
         }
 
         throw new InvalidRequestException("row predicate must specify keys, key_range, or index_clause");
@@ -691,41 +682,52 @@ public class CassandraServer implements Cassandra.Iface
     {
         AccessLevel level;
         
-        if (keySpace.get() == null)
+        if (clientState.get().keySpace == null)
         {
             throw new AuthenticationException("You have not set a specific keyspace; please call set_keyspace first");
         }
         
-        level = DatabaseDescriptor.getAuthenticator().login(keySpace.get(), auth_request);
+        level = DatabaseDescriptor.getAuthenticator().login(clientState.get().keySpace, auth_request);
         
         if (logger.isDebugEnabled())
             logger.debug("login confirmed; new access level is " + level);
         
-        loginDone.set(level);
+        clientState.get().loginDone = level;
         return level;
     }
 
     public void logout()
     {
-        keySpace.remove();
-        loginDone.remove();
+        clientState.remove();
 
         if (logger.isDebugEnabled())
             logger.debug("logout complete");
     }
 
+    /**
+     * Binds the current thread to the session state of the given client connection, until the next call to
+     * logout() or setClientState(). A null state unbinds it.
+     */
+    public void setClientState(ClientState state)
+    {
+        if (state == null)
+            clientState.remove();
+        else
+            clientState.set(state);
+    }
+
     protected void checkKeyspaceAndLoginAuthorized(AccessLevel level) throws InvalidRequestException
     {
-        if (keySpace.get() == null)
+        if (clientState.get().keySpace == null)
         {
             throw new InvalidRequestException("You have not assigned a keyspace; please use set_keyspace (and login if necessary)");
         }
         
         if (!(DatabaseDescriptor.getAuthenticator() instanceof AllowAllAuthenticator))
         {
-            if (loginDone.get() == null)
-                throw new InvalidRequestException("You have not logged into keyspace " + keySpace.get());
-            if (loginDone.get().getValue() < level.getValue())
+            if (clientState.get().loginDone == null)
+                throw new InvalidRequestException("You have not logged into keyspace " + clientState.get().keySpace);
+            if (clientState.get().loginDone.getValue() < level.getValue())
                 throw new InvalidRequestException("Your credentials are not sufficient to perform " + level + " operations");
         }
     }
@@ -733,9 +735,9 @@ public class CassandraServer implements Cassandra.Iface
     /**
      * Schedule the current thread for access to the required services
      */
-    private void schedule()
+    private void schedule() throws TimeoutException
     {
-        requestScheduler.queue(Thread.currentThread(), requestSchedulerId.get());
+        requestScheduler.queue(Thread.currentThread(), clientState.get().requestSchedulerId);
     }
 
     /**
@@ -785,7 +787,7 @@ public class CassandraServer implements Cassandra.Iface
 
         try
         {
-            DropColumnFamily drop = new DropColumnFamily(keySpace.get(), column_family, true);
+            DropColumnFamily drop = new DropColumnFamily(clientState.get().keySpace, column_family, true);
             drop.apply();
             drop.announce();
             return DatabaseDescriptor.getDefsVersion().toString();
@@ -814,7 +816,7 @@ public class CassandraServer implements Cassandra.Iface
 
         try
         {
-            RenameColumnFamily rename = new RenameColumnFamily(keySpace.get(), old_name, new_name);
+            RenameColumnFamily rename = new RenameColumnFamily(clientState.get().keySpace, old_name, new_name);
             rename.apply();
             rename.announce();
             return DatabaseDescriptor.getDefsVersion().toString();
@@ -980,12 +982,12 @@ public class CassandraServer implements Cassandra.Iface
 
     public void truncate(String cfname) throws InvalidRequestException, UnavailableException, TException
     {
-        logger.debug("truncating {} in {}", cfname, keySpace.get());
+        logger.debug("truncating {} in {}", cfname, clientState.get().keySpace);
         checkKeyspaceAndLoginAuthorized(AccessLevel.FULL);
         try
         {
             schedule();
-            StorageProxy.truncateBlocking(keySpace.get(), cfname);
+            StorageProxy.truncateBlocking(clientState.get().keySpace, cfname);
         }
         catch (TimeoutException e)
         {
@@ -1009,11 +1011,11 @@ public class CassandraServer implements Cassandra.Iface
         }
         
         // If switching, invalidate previous access level; force a new login.
-        if (keySpace.get() != null && !keySpace.get().equals(keyspace))
-            loginDone.set(AccessLevel.NONE);
+        if (clientState.get().keySpace != null && !clientState.get().keySpace.equals(keyspace))
+            clientState.get().loginDone = AccessLevel.NONE;
         
-        keySpace.set(keyspace);
-        requestSchedulerId.set(keyspace);
+        clientState.get().keySpace = keyspace;
+        clientState.get().requestSchedulerId = keyspace;
     }
 
     public Map<String, List<String>> check_schema_agreement() throws TException, InvalidRequestException
@@ -1023,4 +1025,16 @@ public class CassandraServer implements Cassandra.Iface
     }
 
     // main method moved to CassandraDaemon
+
+    /**
+     * Per-connection session state: the keyspace set by set_keyspace, and the access level granted by login.
+     */
+    public static class ClientState
+    {
+        // will be set only by login()
+        private AccessLevel loginDone = AccessLevel.NONE;
+        private String keySpace;
+        // an associated Id for scheduling the requests
+        private String requestSchedulerId;
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cassandra.thrift;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.TProcessorFactory;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.server.TNonblockingServer;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A half-sync/half-async Thrift server. A single selector thread accepts connections and reads and writes
+ * (framed) requests without blocking, so idle connections cost no thread; each complete frame is handed to a
+ * bounded pool of worker threads for processing.
+ *
+ * Since consecutive requests from one connection may run on different workers, the session state of each
+ * connection is kept alongside it and bound to the worker for the duration of each request.
+ */
+public class CustomTHsHaServer extends TNonblockingServer
+{
+    private static final Logger logger = LoggerFactory.getLogger(CustomTHsHaServer.class);
+
+    private static final int STOP_TIMEOUT_SECONDS = 60;
+
+    private final CassandraServer cassandraServer;
+    private final ExecutorService invoker;
+    // session state per open connection: entries go away with their (unreachable) frame buffers
+    private final Map<FrameBuffer, CassandraServer.ClientState> clientStates = new WeakHashMap<FrameBuffer, CassandraServer.ClientState>();
+
+    public CustomTHsHaServer(TProcessorFactory processorFactory,
+                             TNonblockingServerTransport serverTransport,
+                             TFramedTransport.Factory transportFactory,
+                             TProtocolFactory protocolFactory,
+                             CassandraServer cassandraServer,
+                             ExecutorService invoker)
+    {
+        super(processorFactory, serverTransport, transportFactory, protocolFactory, protocolFactory);
+        this.cassandraServer = cassandraServer;
+        this.invoker = invoker;
+    }
+
+    @Override
+    public void serve()
+    {
+        if (!startListening())
+            return;
+        if (!startSelectorThread())
+            return;
+
+        // blocks until stop() is called
+        joinSelector();
+
+        invoker.shutdown();
+        try
+        {
+            if (!invoker.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                logger.warn("Thrift workers did not finish within {} seconds of stopping", STOP_TIMEOUT_SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+        stopListening();
+    }
+
+    @Override
+    protected void requestInvoke(final FrameBuffer frameBuffer)
+    {
+        final CassandraServer.ClientState state = getClientState(frameBuffer);
+        try
+        {
+            invoker.execute(new Runnable()
+            {
+                public void run()
+                {
+                    cassandraServer.setClientState(state);
+                    try
+                    {
+                        frameBuffer.invoke();
+                    }
+                    finally
+                    {
+                        cassandraServer.setClientState(null);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            // only happens while shutting down
+            logger.debug("Dropping request from a client during shutdown");
+            frameBuffer.close();
+        }
+    }
+
+    private CassandraServer.ClientState getClientState(FrameBuffer frameBuffer)
+    {
+        synchronized (clientStates)
+        {
+            CassandraServer.ClientState state = clientStates.get(frameBuffer);
+            if (state == null)
+            {
+                state = new CassandraServer.ClientState();
+                clientStates.put(frameBuffer, state);
+            }
+            return state;
+        }
+    }
+}
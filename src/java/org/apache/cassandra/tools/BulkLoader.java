@@ -0,0 +1,261 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.streaming.StreamFinishedVerbHandler;
+import org.apache.cassandra.streaming.StreamInitiateDoneVerbHandler;
+import org.apache.cassandra.streaming.StreamOut;
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.TokenRange;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.commons.cli.*;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+
+/**
+ * Streams a directory of prebuilt SSTables (written by SSTableWriter, json2sstable, or copied from another
+ * cluster) into a live cluster. Each node receives only the sections of each sstable that fall in the ranges
+ * it replicates, exactly as if it were bootstrapping: the rows never go through the commitlog or memtables.
+ *
+ * The loader uses the storage protocol, so it needs a configuration whose listen_address is reachable from the
+ * cluster and is not used by a running node, and whose partitioner matches the cluster's. The directory
+ * must be named after the keyspace, and the column families must already exist in the cluster.
+ */
+public class BulkLoader
+{
+    private static final String HOSTS_OPTION = "d";
+    private static final String PORT_OPTION = "p";
+    private static final String PARALLELISM_OPTION = "t";
+    private static Options options;
+    private static CommandLine cmd;
+
+    static
+    {
+        options = new Options();
+        options.addOption(HOSTS_OPTION, true, "comma separated initial hosts to read the ring from (default: seeds)");
+        options.addOption(PORT_OPTION, true, "rpc port of the initial hosts (default: rpc_port)");
+        options.addOption(PARALLELISM_OPTION, true, "number of nodes to stream to at once (default: all)");
+    }
+
+    /**
+     * @return the replicas of the keyspace, and the ranges each of them should receive, according to the first
+     * initial host that answers.
+     */
+    public static Map<InetAddress, Collection<Range>> getEndpointRanges(Collection<String> hosts, int port, String keyspace)
+    {
+        Token.TokenFactory tf = StorageService.getPartitioner().getTokenFactory();
+        Exception lastError = null;
+        for (String host : hosts)
+        {
+            TSocket socket = new TSocket(host, port);
+            TTransport transport = DatabaseDescriptor.isThriftFramed() ? new TFramedTransport(socket) : socket;
+            try
+            {
+                transport.open();
+                Cassandra.Client client = new Cassandra.Client(new TBinaryProtocol(transport, false, false));
+                Map<InetAddress, Collection<Range>> endpointRanges = new HashMap<InetAddress, Collection<Range>>();
+                for (TokenRange tr : client.describe_ring(keyspace))
+                {
+                    Range range = new Range(tf.fromString(tr.start_token), tf.fromString(tr.end_token));
+                    for (String endpoint : tr.endpoints)
+                    {
+                        InetAddress address = InetAddress.getByName(endpoint);
+                        Collection<Range> ranges = endpointRanges.get(address);
+                        if (ranges == null)
+                        {
+                            ranges = new ArrayList<Range>();
+                            endpointRanges.put(address, ranges);
+                        }
+                        ranges.add(range);
+                    }
+                }
+                return endpointRanges;
+            }
+            catch (UnknownHostException e)
+            {
+                throw new AssertionError(e); // endpoints are IPs
+            }
+            catch (Exception e)
+            {
+                lastError = e;
+                System.err.println("Could not read the ring from " + host + ": " + e.getMessage());
+            }
+            finally
+            {
+                transport.close();
+            }
+        }
+        throw new RuntimeException("Could not read the ring of " + keyspace + " from any of " + hosts, lastError);
+    }
+
+    /**
+     * Opens the live sstables in the given keyspace directory, skipping temporary and compacted ones.
+     */
+    public static List<SSTableReader> openSSTables(File directory) throws IOException
+    {
+        List<SSTableReader> sstables = new ArrayList<SSTableReader>();
+        File[] files = directory.listFiles();
+        if (files == null)
+            throw new IOException("Cannot list " + directory);
+        for (File file : files)
+        {
+            if (!file.getName().endsWith("-" + SSTable.COMPONENT_DATA))
+                continue;
+            Descriptor desc = Descriptor.fromFilename(file.getAbsolutePath());
+            if (desc.temporary || new File(desc.filenameFor(SSTable.COMPONENT_COMPACTED)).exists())
+                continue;
+            sstables.add(SSTableReader.open(desc));
+        }
+        return sstables;
+    }
+
+    /**
+     * Streams the relevant sections of the sstables to every endpoint, at most parallelism endpoints at a time.
+     * @return the endpoints that failed.
+     */
+    public static Collection<InetAddress> stream(final String keyspace,
+                                                 final Collection<SSTableReader> sstables,
+                                                 Map<InetAddress, Collection<Range>> endpointRanges,
+                                                 int parallelism) throws InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("BULK-LOADER"));
+        Map<InetAddress, Future<?>> transfers = new HashMap<InetAddress, Future<?>>();
+        for (Map.Entry<InetAddress, Collection<Range>> entry : endpointRanges.entrySet())
+        {
+            final InetAddress endpoint = entry.getKey();
+            final Collection<Range> ranges = entry.getValue();
+            transfers.put(endpoint, executor.submit(new Callable<Object>()
+            {
+                public Object call() throws IOException
+                {
+                    long start = System.currentTimeMillis();
+                    StreamOut.transferSSTables(endpoint, keyspace, sstables, ranges);
+                    System.out.println(String.format("Streamed %d ranges to %s in %d ms",
+                                                     ranges.size(), endpoint, System.currentTimeMillis() - start));
+                    return null;
+                }
+            }));
+        }
+        executor.shutdown();
+
+        List<InetAddress> failed = new ArrayList<InetAddress>();
+        for (Map.Entry<InetAddress, Future<?>> entry : transfers.entrySet())
+        {
+            try
+            {
+                entry.getValue().get();
+            }
+            catch (ExecutionException e)
+            {
+                System.err.println("Streaming to " + entry.getKey() + " failed: " + e.getCause());
+                failed.add(entry.getKey());
+            }
+        }
+        return failed;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        String usage = String.format("Usage: %s [-d host1,host2] [-p rpc_port] [-t parallelism] <keyspace directory>%n",
+                BulkLoader.class.getName());
+
+        CommandLineParser parser = new PosixParser();
+        try
+        {
+            cmd = parser.parse(options, args);
+        }
+        catch (ParseException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(usage);
+            System.exit(1);
+        }
+
+        if (cmd.getArgs().length != 1)
+        {
+            System.err.println(usage);
+            System.exit(1);
+        }
+
+        File directory = new File(cmd.getArgs()[0]);
+        if (!directory.isDirectory())
+        {
+            System.err.println(directory + " is not a directory");
+            System.exit(1);
+        }
+        String keyspace = directory.getAbsoluteFile().getName();
+
+        List<String> hosts = new ArrayList<String>();
+        if (cmd.hasOption(HOSTS_OPTION))
+        {
+            hosts.addAll(Arrays.asList(cmd.getOptionValue(HOSTS_OPTION).split(",")));
+        }
+        else
+        {
+            for (InetAddress seed : DatabaseDescriptor.getSeeds())
+                hosts.add(seed.getHostAddress());
+        }
+        int port = cmd.hasOption(PORT_OPTION) ? Integer.parseInt(cmd.getOptionValue(PORT_OPTION)) : DatabaseDescriptor.getRpcPort();
+
+        List<SSTableReader> sstables = openSSTables(directory);
+        if (sstables.isEmpty())
+        {
+            System.out.println("No sstables to stream in " + directory);
+            System.exit(0);
+        }
+        Map<InetAddress, Collection<Range>> endpointRanges = getEndpointRanges(hosts, port, keyspace);
+        int parallelism = cmd.hasOption(PARALLELISM_OPTION)
+                          ? Integer.parseInt(cmd.getOptionValue(PARALLELISM_OPTION))
+                          : Math.max(1, endpointRanges.size());
+
+        // the targets tell us when to start each file, and when they have it
+        MessagingService.instance.registerVerbHandlers(StorageService.Verb.STREAM_INITIATE_DONE, new StreamInitiateDoneVerbHandler());
+        MessagingService.instance.registerVerbHandlers(StorageService.Verb.STREAM_FINISHED, new StreamFinishedVerbHandler());
+        MessagingService.instance.listen(FBUtilities.getLocalAddress());
+
+        System.out.println(String.format("Streaming %d sstables of %s to %d nodes", sstables.size(), keyspace, endpointRanges.size()));
+        long start = System.currentTimeMillis();
+        Collection<InetAddress> failed = stream(keyspace, sstables, endpointRanges, parallelism);
+        long bytes = 0;
+        for (SSTableReader sstable : sstables)
+            bytes += sstable.length();
+        System.out.println(String.format("Done in %d ms (%d bytes of sstables)", System.currentTimeMillis() - start, bytes));
+
+        MessagingService.shutdown();
+        System.exit(failed.isEmpty() ? 0 : 1);
+    }
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.management.MemoryUsage;
 import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -197,6 +198,7 @@ public class NodeCmd {
     public void printStreamInfo(final InetAddress addr, PrintStream outs)
     {
         outs.println(String.format("Mode: %s", probe.getOperationMode()));
+        outs.println(String.format("Bytes sent: %d, received: %d", probe.getStreamingBytesSent(), probe.getStreamingBytesReceived()));
         Set<InetAddress> hosts = addr == null ? probe.getStreamDestinations() : new HashSet<InetAddress>(){{add(addr);}};
         if (hosts.size() == 0)
             outs.println("Not sending any streams.");
@@ -317,10 +319,14 @@ public class NodeCmd {
             {
                 outs.println("\t\tColumn Family: " + cfstore.getColumnFamilyName());
                 outs.println("\t\tSSTable count: " + cfstore.getLiveSSTableCount());
+                int[] leveledSSTables = cfstore.getSSTableCountPerLevel();
+                if (leveledSSTables != null)
+                    outs.println("\t\tSSTables in each level: " + Arrays.toString(leveledSSTables));
                 outs.println("\t\tSpace used (live): " + cfstore.getLiveDiskSpaceUsed());
                 outs.println("\t\tSpace used (total): " + cfstore.getTotalDiskSpaceUsed());
                 outs.println("\t\tMemtable Columns Count: " + cfstore.getMemtableColumnsCount());
                 outs.println("\t\tMemtable Data Size: " + cfstore.getMemtableDataSize());
+                outs.println("\t\tMemtable Live Size: " + cfstore.getMemtableLiveSize());
                 outs.println("\t\tMemtable Switch Count: " + cfstore.getMemtableSwitchCount());
                 outs.println("\t\tRead Count: " + cfstore.getReadCount());
                 outs.println("\t\tRead Latency: " + String.format("%01.3f", cfstore.getRecentReadLatencyMicros() / 1000) + " ms.");
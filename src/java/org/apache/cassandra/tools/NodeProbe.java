@@ -383,6 +383,16 @@ public class NodeProbe
         return streamProxy.getIncomingFiles(host.getHostAddress());
     }
 
+    public long getStreamingBytesSent()
+    {
+        return streamProxy.getBytesSent();
+    }
+
+    public long getStreamingBytesReceived()
+    {
+        return streamProxy.getBytesReceived();
+    }
+
     public String getOperationMode()
     {
         return ssProxy.getOperationMode();
@@ -111,6 +111,16 @@ public class BloomFilter extends Filter
         return filter_.size();
     }
 
+    public long sizeInBytes()
+    {
+        return filter_.size() / 8;
+    }
+
+    public int[] getHashBuckets(byte[] key)
+    {
+        return Filter.getHashBuckets(key, hashCount, buckets());
+    }
+
     BitSet filter()
     {
         return filter_;
@@ -151,9 +161,9 @@ public class BloomFilter extends Filter
         return serializer_;
     }
 
-    int emptyBuckets()
+    long emptyBuckets()
     {
-        int n = 0;
+        long n = 0;
         for (int i = 0; i < buckets(); i++)
         {
             if (!filter_.get(i))
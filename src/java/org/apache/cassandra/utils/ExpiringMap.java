@@ -19,15 +19,28 @@
 package org.apache.cassandra.utils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import com.google.common.base.Function;
 import org.cliffc.high_scale_lib.NonBlockingHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A map whose entries are removed a fixed time after they were put.
+ *
+ * Expiration uses a hashed timing wheel: each entry is also queued in the bucket of the tick at which it
+ * expires, and a timer thread visits one bucket per tick, so that put, remove and expiring an entry each cost
+ * O(1), and the timer never has to walk the whole map. Removing an entry only removes it from the map; the
+ * timer drops its (now stale) queue entry when it gets to its bucket.
+ */
 public class ExpiringMap<K, V>
 {
     private static final Logger logger = LoggerFactory.getLogger(ExpiringMap.class);
 
+    /** expiration happens within expiration / TICKS_PER_EXPIRATION of the deadline */
+    private static final int TICKS_PER_EXPIRATION = 64;
+
     private static class CacheableObject<T>
     {
         private final T value;
@@ -44,41 +57,47 @@ public class ExpiringMap<K, V>
             return value;
         }
 
-        boolean isReadyToDie(long expiration)
+        boolean isReadyToDie(long expiration, long now)
         {
-            return ((System.currentTimeMillis() - age) > expiration);
+            return ((now - age) > expiration);
         }
     }
 
-    private class CacheMonitor extends TimerTask
+    private static class TimedEntry<K, T>
     {
-        private final long expiration;
+        final K key;
+        final CacheableObject<T> co;
 
-        CacheMonitor(long expiration)
+        TimedEntry(K key, CacheableObject<T> co)
         {
-            this.expiration = expiration;
+            this.key = key;
+            this.co = co;
         }
+    }
+
+    private class WheelMonitor extends TimerTask
+    {
+        // the last tick whose bucket was visited
+        private long tick = System.currentTimeMillis() / tickDuration;
 
         @Override
         public void run()
         {
-            synchronized (cache)
-            {
-                Enumeration<K> e = cache.keys();
-                while (e.hasMoreElements())
-                {
-                    K key = e.nextElement();
-                    CacheableObject co = cache.get(key);
-                    if (co != null && co.isReadyToDie(expiration))
-                    {
-                        cache.remove(key);
-                    }
-                }
-            }
+            long now = System.currentTimeMillis();
+            long currentTick = now / tickDuration;
+            // catch up on any ticks missed while the timer thread was late, but never go around the wheel twice
+            long from = Math.max(tick + 1, currentTick - wheel.length + 1);
+            for (long t = from; t <= currentTick; t++)
+                expire(wheel[(int) (t % wheel.length)], now);
+            tick = currentTick;
         }
     }
 
-    private final NonBlockingHashMap<K, CacheableObject> cache = new NonBlockingHashMap<K, CacheableObject>();
+    private final NonBlockingHashMap<K, CacheableObject<V>> cache = new NonBlockingHashMap<K, CacheableObject<V>>();
+    private final long expiration;
+    private final long tickDuration;
+    private final ConcurrentLinkedQueue<TimedEntry<K, V>>[] wheel;
+    private final Function<Pair<K, V>, ?> postExpireHook;
     private final Timer timer;
     private static int counter = 0;
 
@@ -87,14 +106,64 @@ public class ExpiringMap<K, V>
     * in milliseconds.
     */
     public ExpiringMap(long expiration)
+    {
+        this(expiration, null);
+    }
+
+    /**
+     * @param expiration the TTL for objects in the cache, in milliseconds
+     * @param postExpireHook if not null, called on the timer thread with each entry that expires (but not with
+     * entries that are removed): it should return quickly
+     */
+    public ExpiringMap(long expiration, Function<Pair<K, V>, ?> postExpireHook)
     {
         if (expiration <= 0)
         {
             throw new IllegalArgumentException("Argument specified must be a positive number");
         }
 
+        this.expiration = expiration;
+        this.postExpireHook = postExpireHook;
+        tickDuration = Math.max(1, expiration / TICKS_PER_EXPIRATION);
+        // an entry is queued at most expiration plus two ticks ahead: make sure that never wraps around the wheel
+        wheel = new ConcurrentLinkedQueue[(int) (expiration / tickDuration) + 3];
+        for (int i = 0; i < wheel.length; i++)
+            wheel[i] = new ConcurrentLinkedQueue<TimedEntry<K, V>>();
+
         timer = new Timer("EXPIRING-MAP-TIMER-" + (++counter), true);
-        timer.schedule(new CacheMonitor(expiration), expiration / 2, expiration / 2);
+        timer.schedule(new WheelMonitor(), tickDuration, tickDuration);
+    }
+
+    private void expire(ConcurrentLinkedQueue<TimedEntry<K, V>> bucket, long now)
+    {
+        Iterator<TimedEntry<K, V>> iter = bucket.iterator();
+        while (iter.hasNext())
+        {
+            TimedEntry<K, V> entry = iter.next();
+            if (cache.get(entry.key) != entry.co)
+            {
+                // removed or replaced since
+                iter.remove();
+                continue;
+            }
+            // entries put after the clock moved back may belong to a later turn of the wheel
+            if (!entry.co.isReadyToDie(expiration, now))
+                continue;
+
+            iter.remove();
+            if (cache.remove(entry.key, entry.co) && postExpireHook != null)
+            {
+                try
+                {
+                    postExpireHook.apply(new Pair<K, V>(entry.key, entry.co.getValue()));
+                }
+                catch (Throwable t)
+                {
+                    // the timer thread dies with any exception it lets through
+                    logger.error("Error running the expiration hook for " + entry.key, t);
+                }
+            }
+        }
     }
 
     public void shutdown()
@@ -104,7 +173,11 @@ public class ExpiringMap<K, V>
 
     public void put(K key, V value)
     {
-        cache.put(key, new CacheableObject<V>(value));
+        CacheableObject<V> co = new CacheableObject<V>(value);
+        cache.put(key, co);
+        // the first tick at which the entry is old enough to die
+        long deadlineTick = (co.age + expiration) / tickDuration + 1;
+        wheel[(int) (deadlineTick % wheel.length)].add(new TimedEntry<K, V>(key, co));
     }
 
     public V get(K key)
@@ -189,16 +189,7 @@ public class FBUtilities
         }
         if(null == bytes2) return 1;
 
-        int minLength = Math.min(bytes1.length, bytes2.length);
-        for(int i = 0; i < minLength; i++)
-        {
-            if(bytes1[i] == bytes2[i])
-                continue;
-            // compare non-equal bytes as unsigned
-            return (bytes1[i] & 0xFF) < (bytes2[i] & 0xFF) ? -1 : 1;
-        }
-        if(bytes1.length == bytes2.length) return 0;
-        else return (bytes1.length < bytes2.length)? -1 : 1;
+        return FastByteComparisons.compare(bytes1, bytes2);
     }
 
     /**
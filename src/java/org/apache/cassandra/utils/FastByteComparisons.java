@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.utils;
+
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+
+/**
+ * Unsigned lexicographic comparison of byte arrays, eight bytes at a time where the platform allows unaligned
+ * long reads from arrays (x86 and amd64), and one byte at a time elsewhere.
+ */
+public abstract class FastByteComparisons
+{
+    private static final FastByteComparisons best = getBest();
+
+    static FastByteComparisons getBest()
+    {
+        String arch = System.getProperty("os.arch");
+        if (arch.equals("amd64") || arch.equals("x86_64") || arch.equals("i386") || arch.equals("x86"))
+        {
+            try
+            {
+                return new UnsafeComparisons();
+            }
+            catch (Throwable t)
+            {
+                // no usable Unsafe: fall through
+            }
+        }
+        return new PureJavaComparisons();
+    }
+
+    /**
+     * Compares the arrays as unsigned bytes, a shorter array comparing lower than a longer one it is a prefix of.
+     * @return -1, 0 or 1
+     */
+    public static int compare(byte[] b1, byte[] b2)
+    {
+        return best.compareTo(b1, b2);
+    }
+
+    /**
+     * @return the big-endian long stored at the given offset, which must be followed by at least 8 bytes
+     */
+    public static long getLong(byte[] bytes, int offset)
+    {
+        return best.readLong(bytes, offset);
+    }
+
+    abstract int compareTo(byte[] b1, byte[] b2);
+
+    abstract long readLong(byte[] bytes, int offset);
+
+    static class PureJavaComparisons extends FastByteComparisons
+    {
+        int compareTo(byte[] b1, byte[] b2)
+        {
+            if (b1 == b2)
+                return 0;
+            int minLength = Math.min(b1.length, b2.length);
+            for (int i = 0; i < minLength; i++)
+            {
+                if (b1[i] == b2[i])
+                    continue;
+                return (b1[i] & 0xFF) < (b2[i] & 0xFF) ? -1 : 1;
+            }
+            return b1.length == b2.length ? 0 : (b1.length < b2.length ? -1 : 1);
+        }
+
+        long readLong(byte[] bytes, int offset)
+        {
+            long value = 0;
+            for (int i = offset; i < offset + 8; i++)
+                value = (value << 8) | (bytes[i] & 0xFF);
+            return value;
+        }
+    }
+
+    static class UnsafeComparisons extends FastByteComparisons
+    {
+        private static final boolean littleEndian = ByteOrder.nativeOrder().equals(ByteOrder.LITTLE_ENDIAN);
+        // the only mention of the proprietary type, which javac warns about however it is annotated: the
+        // word-at-a-time reads in compareTo have to be direct calls to be worth doing, so cannot go through
+        // reflection.  Everything else about Unsafe is looked up by name, and getBest() falls back to
+        // PureJavaComparisons on a JVM that does not have it.
+        private final sun.misc.Unsafe unsafe;
+        private final long arrayBaseOffset;
+
+        UnsafeComparisons() throws Exception
+        {
+            unsafe = theUnsafe();
+            arrayBaseOffset = unsafe.arrayBaseOffset(byte[].class);
+            // the compare below relies on byte[] having no padding between elements
+            if (unsafe.arrayIndexScale(byte[].class) != 1)
+                throw new AssertionError();
+        }
+
+        int compareTo(byte[] b1, byte[] b2)
+        {
+            if (b1 == b2)
+                return 0;
+            int minLength = Math.min(b1.length, b2.length);
+            int words = minLength & ~7;
+            for (int i = 0; i < words; i += 8)
+            {
+                long w1 = unsafe.getLong(b1, arrayBaseOffset + i);
+                long w2 = unsafe.getLong(b2, arrayBaseOffset + i);
+                if (w1 == w2)
+                    continue;
+                if (littleEndian)
+                {
+                    // the first differing byte in memory order is the lowest differing byte of the words
+                    int shift = Long.numberOfTrailingZeros(w1 ^ w2) & ~7;
+                    return ((w1 >>> shift) & 0xFF) < ((w2 >>> shift) & 0xFF) ? -1 : 1;
+                }
+                // unsigned comparison of big-endian words
+                return (w1 + Long.MIN_VALUE) < (w2 + Long.MIN_VALUE) ? -1 : 1;
+            }
+            for (int i = words; i < minLength; i++)
+            {
+                if (b1[i] == b2[i])
+                    continue;
+                return (b1[i] & 0xFF) < (b2[i] & 0xFF) ? -1 : 1;
+            }
+            return b1.length == b2.length ? 0 : (b1.length < b2.length ? -1 : 1);
+        }
+
+        long readLong(byte[] bytes, int offset)
+        {
+            if (offset < 0 || offset + 8 > bytes.length)
+                throw new ArrayIndexOutOfBoundsException(offset);
+            long value = unsafe.getLong(bytes, arrayBaseOffset + offset);
+            return littleEndian ? Long.reverseBytes(value) : value;
+        }
+
+        // typed by the caller, so that no cast names the class
+        @SuppressWarnings("unchecked")
+        private static <T> T theUnsafe() throws Exception
+        {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (T) field.get(null);
+        }
+    }
+}
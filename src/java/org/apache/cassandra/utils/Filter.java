@@ -34,19 +34,29 @@ public abstract class Filter
         return hashCount;
     }
 
-    public int[] getHashBuckets(byte[] key)
+    public abstract void add(byte[] key);
+
+    public abstract boolean isPresent(byte[] key);
+
+    /** @return the lowest false positive chance a filter can be built for */
+    public static double minSupportedFalsePositiveChance()
     {
-        return Filter.getHashBuckets(key, hashCount, buckets());
+        int maxBuckets = BloomCalculations.probs.length - 1;
+        return BloomCalculations.probs[maxBuckets][BloomCalculations.probs[maxBuckets].length - 1];
     }
 
-    abstract int buckets();
+    /** @return the memory used by the filter's buckets */
+    public abstract long sizeInBytes();
 
-    public abstract void add(byte[] key);
-
-    public abstract boolean isPresent(byte[] key);
+    /**
+     * Releases any memory the filter holds outside the java heap; the filter must not be used afterwards.
+     */
+    public void close()
+    {
+    }
 
     // for testing
-    abstract int emptyBuckets();
+    abstract long emptyBuckets();
 
     ICompactSerializer<Filter> getSerializer()
     {
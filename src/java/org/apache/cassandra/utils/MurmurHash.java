@@ -24,6 +24,8 @@ package org.apache.cassandra.utils;
  * 
  * <p>The C version of MurmurHash 2.0 found at that site was ported
  * to Java by Andrzej Bialecki (ab at getopt org).</p>
+ *
+ * <p>hash3_x64_128 is a port of the x64 128-bit variant of MurmurHash3.</p>
  */
 public class MurmurHash {  
   public int hash(byte[] data, int length, int seed) {
@@ -74,4 +76,107 @@ public class MurmurHash {
 
     return h;
   }
+
+  private static long getblock(byte[] key, int offset, int index) {
+    int i_8 = offset + (index << 3);
+    return ((long) key[i_8 + 0] & 0xff)
+         | (((long) key[i_8 + 1] & 0xff) << 8)
+         | (((long) key[i_8 + 2] & 0xff) << 16)
+         | (((long) key[i_8 + 3] & 0xff) << 24)
+         | (((long) key[i_8 + 4] & 0xff) << 32)
+         | (((long) key[i_8 + 5] & 0xff) << 40)
+         | (((long) key[i_8 + 6] & 0xff) << 48)
+         | (((long) key[i_8 + 7] & 0xff) << 56);
+  }
+
+  private static long rotl64(long v, int n) {
+    return (v << n) | (v >>> (64 - n));
+  }
+
+  private static long fmix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  /**
+   * @return the two 64-bit halves of the MurmurHash3 (x64, 128-bit) hash of key[offset, offset + length).
+   */
+  public static long[] hash3_x64_128(byte[] key, int offset, int length, long seed) {
+    long[] result = new long[2];
+    hash3_x64_128(key, offset, length, seed, result);
+    return result;
+  }
+
+  /**
+   * Stores the two 64-bit halves of the MurmurHash3 (x64, 128-bit) hash of key[offset, offset + length)
+   * in result[0] and result[1], for callers that hash without allocating.
+   */
+  public static void hash3_x64_128(byte[] key, int offset, int length, long seed, long[] result) {
+    final int nblocks = length >> 4; // process as 128-bit blocks
+
+    long h1 = seed;
+    long h2 = seed;
+
+    long c1 = 0x87c37b91114253d5L;
+    long c2 = 0x4cf5ad432745937fL;
+
+    // body
+    for (int i = 0; i < nblocks; i++) {
+      long k1 = getblock(key, offset, i * 2 + 0);
+      long k2 = getblock(key, offset, i * 2 + 1);
+
+      k1 *= c1; k1 = rotl64(k1, 31); k1 *= c2; h1 ^= k1;
+      h1 = rotl64(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+
+      k2 *= c2; k2 = rotl64(k2, 33); k2 *= c1; h2 ^= k2;
+      h2 = rotl64(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    // tail
+    offset += nblocks * 16;
+
+    long k1 = 0;
+    long k2 = 0;
+
+    switch (length & 15) {
+      case 15: k2 ^= ((long) key[offset + 14] & 0xff) << 48;
+      case 14: k2 ^= ((long) key[offset + 13] & 0xff) << 40;
+      case 13: k2 ^= ((long) key[offset + 12] & 0xff) << 32;
+      case 12: k2 ^= ((long) key[offset + 11] & 0xff) << 24;
+      case 11: k2 ^= ((long) key[offset + 10] & 0xff) << 16;
+      case 10: k2 ^= ((long) key[offset + 9] & 0xff) << 8;
+      case 9: k2 ^= ((long) key[offset + 8] & 0xff);
+        k2 *= c2; k2 = rotl64(k2, 33); k2 *= c1; h2 ^= k2;
+
+      case 8: k1 ^= ((long) key[offset + 7] & 0xff) << 56;
+      case 7: k1 ^= ((long) key[offset + 6] & 0xff) << 48;
+      case 6: k1 ^= ((long) key[offset + 5] & 0xff) << 40;
+      case 5: k1 ^= ((long) key[offset + 4] & 0xff) << 32;
+      case 4: k1 ^= ((long) key[offset + 3] & 0xff) << 24;
+      case 3: k1 ^= ((long) key[offset + 2] & 0xff) << 16;
+      case 2: k1 ^= ((long) key[offset + 1] & 0xff) << 8;
+      case 1: k1 ^= ((long) key[offset] & 0xff);
+        k1 *= c1; k1 = rotl64(k1, 31); k1 *= c2; h1 ^= k1;
+    }
+
+    // finalization
+    h1 ^= length;
+    h2 ^= length;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix(h1);
+    h2 = fmix(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    result[0] = h1;
+    result[1] = h2;
+  }
 }
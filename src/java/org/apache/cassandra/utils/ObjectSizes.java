@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.utils;
+
+/**
+ * Estimates of the heap occupied by the objects that make up memtables. The figures assume a 64-bit JVM without
+ * compressed references, which is the worst common case: on other JVMs they overestimate, which is the safe
+ * direction for deciding when to flush.
+ */
+public class ObjectSizes
+{
+    public static final int OBJECT_HEADER = 16;
+    public static final int ARRAY_HEADER = 24;
+    public static final int REFERENCE = 8;
+
+    /** An AtomicInteger, AtomicLong or AtomicReference. */
+    public static final int ATOMIC = align(OBJECT_HEADER + 8);
+
+    /**
+     * A ConcurrentSkipListMap entry: a node (key, value, next) plus, on average, half an index node (node, down,
+     * right), since each level holds half the entries of the one below it.
+     */
+    public static final int SKIP_LIST_ENTRY = align(OBJECT_HEADER + 3 * REFERENCE) + align(OBJECT_HEADER + 3 * REFERENCE) / 2;
+
+    /** An empty ConcurrentSkipListMap, with its head index and node. */
+    public static final int SKIP_LIST = align(OBJECT_HEADER + 7 * REFERENCE + 4) + align(OBJECT_HEADER + 4 * REFERENCE) + align(OBJECT_HEADER + 3 * REFERENCE);
+
+    public static int align(int size)
+    {
+        return (size + 7) & ~7;
+    }
+
+    public static int sizeOf(byte[] bytes)
+    {
+        return align(ARRAY_HEADER + bytes.length);
+    }
+}
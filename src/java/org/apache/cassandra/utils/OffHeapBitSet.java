@@ -0,0 +1,176 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fixed-size bitset addressed by long, held in direct buffers outside the java heap.
+ *
+ * The bits are split across pages of PAGE_WORDS longs so that the set is not limited
+ * to the 2^31 bytes of a single buffer.  The memory is released by close(), or failing that when
+ * the set is collected; the set must not be used once closed.
+ *
+ * Reads are safe from any thread; writes must not race with each other.
+ */
+public class OffHeapBitSet
+{
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapBitSet.class);
+
+    // sun.nio.ch.DirectBuffer.cleaner() and sun.misc.Cleaner.clean(), when the runtime has them: they are
+    // proprietary, so are looked up by name rather than compiled against
+    private static final Method cleaner;
+    private static final Method clean;
+
+    static
+    {
+        Method cleanerMethod = null;
+        Method cleanMethod = null;
+        try
+        {
+            cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            cleanMethod = cleanerMethod.getReturnType().getMethod("clean");
+            // the methods may exist but be out of reach
+            cleanMethod.invoke(cleanerMethod.invoke(ByteBuffer.allocateDirect(1)));
+        }
+        catch (Exception e)
+        {
+            logger.info("direct buffers cannot be freed explicitly; off-heap bitsets will be freed when collected");
+            cleanerMethod = null;
+        }
+        cleaner = cleanerMethod;
+        clean = cleanMethod;
+    }
+
+    private static final int PAGE_SHIFT = 20;
+    private static final int PAGE_WORDS = 1 << PAGE_SHIFT; // 8MB pages
+    private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+    private ByteBuffer[] pages;
+    private final long words;
+
+    public OffHeapBitSet(long numBits)
+    {
+        assert numBits > 0 : numBits;
+        words = (numBits + 63) >>> 6;
+        int pageCount = (int) ((words + PAGE_WORDS - 1) >>> PAGE_SHIFT);
+        pages = new ByteBuffer[pageCount];
+        for (int i = 0; i < pageCount; i++)
+        {
+            int pageWords = (int) Math.min(PAGE_WORDS, words - ((long) i << PAGE_SHIFT));
+            pages[i] = ByteBuffer.allocateDirect(pageWords * 8).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /** @return the number of bits in the set, a multiple of 64 */
+    public long capacity()
+    {
+        return words << 6;
+    }
+
+    public boolean get(long index)
+    {
+        long word = index >>> 6;
+        return (pages[(int) (word >>> PAGE_SHIFT)].getLong((int) (word & PAGE_MASK) << 3) & (1L << index)) != 0;
+    }
+
+    public void set(long index)
+    {
+        long word = index >>> 6;
+        ByteBuffer page = pages[(int) (word >>> PAGE_SHIFT)];
+        int offset = (int) (word & PAGE_MASK) << 3;
+        page.putLong(offset, page.getLong(offset) | (1L << index));
+    }
+
+    public void clear()
+    {
+        for (ByteBuffer page : pages)
+        {
+            for (int i = 0; i < page.capacity(); i += 8)
+                page.putLong(i, 0L);
+        }
+    }
+
+    /** @return the number of set bits */
+    public long cardinality()
+    {
+        long n = 0;
+        for (ByteBuffer page : pages)
+        {
+            for (int i = 0; i < page.capacity(); i += 8)
+                n += Long.bitCount(page.getLong(i));
+        }
+        return n;
+    }
+
+    public void serialize(DataOutput dos) throws IOException
+    {
+        dos.writeLong(words);
+        for (ByteBuffer page : pages)
+        {
+            for (int i = 0; i < page.capacity(); i += 8)
+                dos.writeLong(page.getLong(i));
+        }
+    }
+
+    public static OffHeapBitSet deserialize(DataInput dis) throws IOException
+    {
+        long words = dis.readLong();
+        OffHeapBitSet bs = new OffHeapBitSet(words << 6);
+        for (ByteBuffer page : bs.pages)
+        {
+            for (int i = 0; i < page.capacity(); i += 8)
+                page.putLong(i, dis.readLong());
+        }
+        return bs;
+    }
+
+    /**
+     * Releases the memory of the set immediately instead of waiting for it to be collected, where the runtime
+     * allows it.
+     */
+    public void close()
+    {
+        if (pages == null)
+            return;
+        if (cleaner != null)
+        {
+            for (ByteBuffer page : pages)
+            {
+                try
+                {
+                    clean.invoke(cleaner.invoke(page));
+                }
+                catch (Exception e)
+                {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+        pages = null;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.cassandra.io.ICompactSerializer;
+
+/**
+ * A bloom filter over an OffHeapBitSet, so it may hold more than 2^31 buckets without
+ * using the java heap.  Bucket positions come from a single 128-bit MurmurHash3 of the key,
+ * combined as in http://www.eecs.harvard.edu/~kirsch/pubs/bbbf/esa06.pdf, and are computed
+ * without allocating.
+ */
+public class OffHeapBloomFilter extends Filter
+{
+    static ICompactSerializer<OffHeapBloomFilter> serializer_ = new OffHeapBloomFilterSerializer();
+
+    private static final int EXCESS = 20;
+
+    // scratch space for the two halves of the key hash
+    private static final ThreadLocal<long[]> hashes = new ThreadLocal<long[]>()
+    {
+        protected long[] initialValue()
+        {
+            return new long[2];
+        }
+    };
+
+    public static ICompactSerializer<OffHeapBloomFilter> serializer()
+    {
+        return serializer_;
+    }
+
+    private final OffHeapBitSet bitset;
+
+    OffHeapBloomFilter(int hashes, OffHeapBitSet bitset)
+    {
+        hashCount = hashes;
+        this.bitset = bitset;
+    }
+
+    private static OffHeapBitSet bucketsFor(long numElements, int bucketsPer)
+    {
+        return new OffHeapBitSet(Math.max(1, numElements) * bucketsPer + EXCESS);
+    }
+
+    /**
+     * @return A filter with the lowest practical false positive probability
+     * for the given number of elements.
+     */
+    public static OffHeapBloomFilter getFilter(long numElements, int targetBucketsPerElem)
+    {
+        int bucketsPerElement = Math.max(1, Math.min(targetBucketsPerElem, BloomCalculations.probs.length - 1));
+        BloomCalculations.BloomSpecification spec = BloomCalculations.computeBloomSpec(bucketsPerElement);
+        return new OffHeapBloomFilter(spec.K, bucketsFor(numElements, spec.bucketsPerElement));
+    }
+
+    /**
+     * @return The smallest filter that can provide the given false positive
+     * probability rate for the given number of elements.
+     */
+    public static OffHeapBloomFilter getFilter(long numElements, double maxFalsePosProbability)
+    {
+        assert maxFalsePosProbability <= 1.0 : "Invalid probability";
+        BloomCalculations.BloomSpecification spec = BloomCalculations.computeBloomSpec(BloomCalculations.probs.length - 1, maxFalsePosProbability);
+        return new OffHeapBloomFilter(spec.K, bucketsFor(numElements, spec.bucketsPerElement));
+    }
+
+    public void clear()
+    {
+        bitset.clear();
+    }
+
+    @Override
+    public void close()
+    {
+        bitset.close();
+    }
+
+    long buckets()
+    {
+        return bitset.capacity();
+    }
+
+    public long sizeInBytes()
+    {
+        return bitset.capacity() / 8;
+    }
+
+    OffHeapBitSet bitset()
+    {
+        return bitset;
+    }
+
+    public boolean isPresent(byte[] key)
+    {
+        long[] hash = hashes.get();
+        MurmurHash.hash3_x64_128(key, 0, key.length, 0L, hash);
+        long max = buckets();
+        for (int i = 0; i < hashCount; i++)
+        {
+            if (!bitset.get(Math.abs((hash[0] + i * hash[1]) % max)))
+                return false;
+        }
+        return true;
+    }
+
+    public void add(byte[] key)
+    {
+        long[] hash = hashes.get();
+        MurmurHash.hash3_x64_128(key, 0, key.length, 0L, hash);
+        long max = buckets();
+        for (int i = 0; i < hashCount; i++)
+            bitset.set(Math.abs((hash[0] + i * hash[1]) % max));
+    }
+
+    long emptyBuckets()
+    {
+        return buckets() - bitset.cardinality();
+    }
+}
+
+class OffHeapBloomFilterSerializer implements ICompactSerializer<OffHeapBloomFilter>
+{
+    public void serialize(OffHeapBloomFilter bf, DataOutputStream dos) throws IOException
+    {
+        dos.writeInt(bf.getHashCount());
+        bf.bitset().serialize(dos);
+    }
+
+    public OffHeapBloomFilter deserialize(DataInputStream dis) throws IOException
+    {
+        int hashes = dis.readInt();
+        OffHeapBitSet bs = OffHeapBitSet.deserialize(dis);
+        return new OffHeapBloomFilter(hashes, bs);
+    }
+}
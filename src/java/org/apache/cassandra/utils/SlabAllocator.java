@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates byte ranges out of large regions ("slabs"), so that data which lives and dies together (e.g. the
+ * contents of a memtable) is held by a few big arrays instead of many small ones. This keeps long-lived data from
+ * fragmenting the old generation, and lets it be freed all at once by dropping the allocator.
+ *
+ * An allocation is addressed by a long reference, which costs no object of its own: see region() and offset().
+ * Allocation is lock-free except when a region fills up. Memory is never reused: an allocator is meant to be
+ * discarded along with everything it allocated.
+ */
+public class SlabAllocator
+{
+    public static final int REGION_SIZE = 1024 * 1024;
+    // allocations this large get a region of their own, rather than wasting the end of a shared one
+    public static final int MAX_CLONED_SIZE = 128 * 1024;
+
+    // every region handed out so far, indexed by the high half of a reference; replaced (never modified) under
+    // the allocator's lock, before any reference into a new region exists
+    private volatile byte[][] regions = new byte[0][];
+    // null until the first allocation, so that idle memtables cost nothing
+    private volatile Region currentRegion;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * @return a reference to size bytes of region(ref), starting at offset(ref)
+     */
+    public long allocate(int size)
+    {
+        assert size >= 0;
+        allocated.addAndGet(size);
+        if (size > MAX_CLONED_SIZE)
+        {
+            synchronized (this)
+            {
+                return reference(addRegion(new byte[size]), 0);
+            }
+        }
+
+        while (true)
+        {
+            Region region = currentRegion;
+            if (region != null)
+            {
+                int offset = region.allocate(size);
+                if (offset >= 0)
+                    return reference(region.index, offset);
+            }
+
+            // the region is full (or there is none yet): the first thread to notice replaces it
+            synchronized (this)
+            {
+                if (currentRegion == region)
+                {
+                    byte[] data = new byte[REGION_SIZE];
+                    currentRegion = new Region(addRegion(data), data.length);
+                }
+            }
+        }
+    }
+
+    // must hold the lock
+    private int addRegion(byte[] data)
+    {
+        byte[][] newRegions = new byte[regions.length + 1][];
+        System.arraycopy(regions, 0, newRegions, 0, regions.length);
+        newRegions[regions.length] = data;
+        regions = newRegions;
+        size.addAndGet(data.length);
+        return newRegions.length - 1;
+    }
+
+    private static long reference(int region, int offset)
+    {
+        return ((long) region << 32) | offset;
+    }
+
+    /**
+     * @return the array holding the allocation with the given reference
+     */
+    public byte[] region(long reference)
+    {
+        return regions[(int) (reference >>> 32)];
+    }
+
+    /**
+     * @return the position of the allocation with the given reference in its region
+     */
+    public static int offset(long reference)
+    {
+        return (int) reference;
+    }
+
+    /**
+     * @return the number of bytes held by this allocator, including the unused ends of regions.
+     */
+    public long size()
+    {
+        return size.get();
+    }
+
+    /**
+     * @return the number of bytes handed out by this allocator.
+     */
+    public long allocated()
+    {
+        return allocated.get();
+    }
+
+    private static class Region
+    {
+        final int index;
+        final int length;
+        final AtomicInteger nextFreeOffset = new AtomicInteger(0);
+
+        Region(int index, int length)
+        {
+            this.index = index;
+            this.length = length;
+        }
+
+        /**
+         * @return the offset of the allocated range, or -1 if the region does not have enough room left.
+         */
+        int allocate(int size)
+        {
+            while (true)
+            {
+                int oldOffset = nextFreeOffset.get();
+                if (oldOffset + size > length)
+                    return -1;
+                if (nextFreeOffset.compareAndSet(oldOffset, oldOffset + size))
+                    return oldOffset;
+            }
+        }
+    }
+}
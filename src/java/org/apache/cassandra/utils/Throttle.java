@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the combined throughput of any number of threads doing the same kind of work (e.g. streaming files).
+ * Each thread reports the bytes it has just processed, and sleeps until the time at which the work reported
+ * so far by all threads would have completed at the target rate.
+ */
+public class Throttle
+{
+    private static final Logger logger = LoggerFactory.getLogger(Throttle.class);
+
+    private final String name;
+    // the time at which everything reported so far is "paid for"
+    private long nextFree = System.nanoTime();
+
+    public Throttle(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * @param bytes The number of bytes just processed by the calling thread.
+     * @param bytesPerSecond The target combined throughput; a value <= 0 disables throttling.
+     */
+    public void throttle(long bytes, long bytesPerSecond)
+    {
+        if (bytesPerSecond <= 0)
+            return;
+
+        long sleepNanos;
+        synchronized (this)
+        {
+            long now = System.nanoTime();
+            // time spent idle is not credited: it would allow a burst above the target rate
+            nextFree = Math.max(nextFree, now) + TimeUnit.SECONDS.toNanos(bytes) / bytesPerSecond;
+            sleepNanos = nextFree - now;
+        }
+
+        if (sleepNanos <= 0)
+            return;
+        if (logger.isTraceEnabled())
+            logger.trace("{} throttled for {} ms", name, TimeUnit.NANOSECONDS.toMillis(sleepNanos));
+        try
+        {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+}
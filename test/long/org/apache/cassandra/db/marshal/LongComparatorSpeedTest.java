@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db.marshal;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.apache.cassandra.dht.BigIntegerToken;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.utils.UUIDGen;
+
+/**
+ * Measures the cost of each comparator on typical column names, in the manner of a microbenchmark: each
+ * measurement is repeated after a warmup so that it runs compiled, and the results are consumed so that the work
+ * cannot be eliminated. The names are compared pairwise with their neighbours in a shuffled array, so that both
+ * equal and unequal prefixes occur as they do in skip list inserts and index searches.
+ */
+public class LongComparatorSpeedTest
+{
+    private static final int NAMES = 100000;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 20;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Random random = new Random(0);
+
+    private byte[][] strings(boolean ascii)
+    {
+        byte[][] names = new byte[NAMES][];
+        for (int i = 0; i < NAMES; i++)
+        {
+            // a shared prefix, as in names like "user:1234:email"
+            StringBuilder name = new StringBuilder("column-name-prefix:");
+            int length = random.nextInt(24);
+            for (int j = 0; j < length; j++)
+                name.append(ascii ? (char) ('a' + random.nextInt(26)) : (char) (0x20 + random.nextInt(0x3000)));
+            names[i] = name.toString().getBytes(UTF8);
+        }
+        return names;
+    }
+
+    private byte[][] longs()
+    {
+        byte[][] names = new byte[NAMES][];
+        for (int i = 0; i < NAMES; i++)
+            names[i] = ByteBuffer.allocate(8).putLong(random.nextInt(NAMES)).array();
+        return names;
+    }
+
+    private byte[][] uuids(boolean time) throws UnknownHostException
+    {
+        InetAddress host = InetAddress.getByName("127.0.0.1");
+        byte[][] names = new byte[NAMES][];
+        for (int i = 0; i < NAMES; i++)
+        {
+            names[i] = UUIDGen.decompose(time ? UUIDGen.makeType1UUIDFromHost(host) : UUID.randomUUID());
+        }
+        return names;
+    }
+
+    private static long compare(AbstractType comparator, byte[][] names)
+    {
+        long sum = 0;
+        for (int i = 1; i < names.length; i++)
+            sum += comparator.compare(names[i - 1], names[i]);
+        // equal names are compared in full
+        for (int i = 0; i < names.length; i += 10)
+            sum += comparator.compare(names[i], names[i].clone());
+        return sum;
+    }
+
+    private static void measure(AbstractType comparator, byte[][] names)
+    {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            sink += compare(comparator, names);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            sink += compare(comparator, names);
+        long nanos = System.nanoTime() - start;
+
+        int comparisons = names.length - 1 + (names.length + 9) / 10;
+        System.out.println(String.format("%s: %.1f ns/compare (%d)",
+                                         comparator.getClass().getSimpleName(),
+                                         (double) nanos / (ITERATIONS * comparisons),
+                                         sink));
+    }
+
+    @Test
+    public void testBytesType()
+    {
+        measure(BytesType.instance, strings(false));
+    }
+
+    @Test
+    public void testAsciiType()
+    {
+        measure(AsciiType.instance, strings(true));
+    }
+
+    @Test
+    public void testUTF8Type()
+    {
+        measure(UTF8Type.instance, strings(false));
+    }
+
+    @Test
+    public void testLongType()
+    {
+        measure(LongType.instance, longs());
+    }
+
+    @Test
+    public void testLexicalUUIDType() throws UnknownHostException
+    {
+        measure(LexicalUUIDType.instance, uuids(false));
+    }
+
+    @Test
+    public void testTimeUUIDType() throws UnknownHostException
+    {
+        measure(TimeUUIDType.instance, uuids(true));
+    }
+
+    @Test
+    public void testLocalByPartitionerType()
+    {
+        measure(new LocalByPartionerType<BigIntegerToken>(new RandomPartitioner()), strings(false));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.dht;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.apache.cassandra.db.DecoratedKey;
+
+/**
+ * Compares the cost of decorating keys and of comparing tokens between partitioners, in the manner of a
+ * microbenchmark: each measurement is repeated after a warmup so that it runs compiled, and the results are
+ * consumed so that the work cannot be eliminated.
+ */
+public class LongPartitionerSpeedTest
+{
+    private static final int KEYS = 100000;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void testRandomPartitioner()
+    {
+        measure(new RandomPartitioner());
+    }
+
+    @Test
+    public void testMurmur3Partitioner()
+    {
+        measure(new Murmur3Partitioner());
+    }
+
+    private static <T extends Token> void measure(IPartitioner<T> partitioner)
+    {
+        Random random = new Random(0);
+        byte[][] keys = new byte[KEYS][];
+        for (int i = 0; i < KEYS; i++)
+        {
+            keys[i] = new byte[16 + random.nextInt(48)];
+            random.nextBytes(keys[i]);
+        }
+
+        DecoratedKey[] decorated = new DecoratedKey[KEYS];
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            sink += decorate(partitioner, keys, decorated) + compare(decorated);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            sink += decorate(partitioner, keys, decorated);
+        long decorateNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            sink += compare(decorated);
+        long compareNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%s: decorateKey=%.1f ns/op compare=%.1f ns/op (%d)",
+                                         partitioner.getClass().getSimpleName(),
+                                         (double) decorateNanos / (ITERATIONS * KEYS),
+                                         (double) compareNanos / (ITERATIONS * KEYS),
+                                         sink));
+    }
+
+    private static <T extends Token> long decorate(IPartitioner<T> partitioner, byte[][] keys, DecoratedKey[] decorated)
+    {
+        for (int i = 0; i < keys.length; i++)
+            decorated[i] = partitioner.decorateKey(keys[i]);
+        return decorated[keys.length - 1].token.hashCode();
+    }
+
+    private static long compare(DecoratedKey[] decorated)
+    {
+        long sum = 0;
+        for (int i = 1; i < decorated.length; i++)
+            sum += decorated[i].token.compareTo(decorated[i - 1].token);
+        return sum;
+    }
+}
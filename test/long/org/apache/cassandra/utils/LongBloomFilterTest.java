@@ -48,6 +48,21 @@ public class LongBloomFilterTest
                                       new KeyGenerator.RandomStringGenerator(new Random().nextInt(), size));
     }
 
+    /**
+     * NB: allocates 512MB of direct memory; needs -XX:MaxDirectMemorySize of at least that
+     */
+    @Test
+    public void testOffHeapBeyondIntegerRange() {
+        // more buckets than a java.util.BitSet can address
+        long size = 200 * 1000 * 1000;
+        OffHeapBloomFilter ohbf = OffHeapBloomFilter.getFilter(size, 20);
+        assert ohbf.buckets() > Integer.MAX_VALUE;
+        int keys = 1000 * 1000;
+        FilterTest.testFalsePositives(ohbf,
+                                      new KeyGenerator.RandomStringGenerator(new Random().nextInt(), keys),
+                                      new KeyGenerator.RandomStringGenerator(new Random().nextInt(), keys));
+    }
+
     @Test
     public void timeit() {
         int size = 300 * FilterTest.ELEMENTS;
@@ -0,0 +1,59 @@
+package org.apache.cassandra.cache;
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrequencySketchTest
+{
+    @Test
+    public void testFrequency()
+    {
+        FrequencySketch sketch = new FrequencySketch(1000);
+        assertEquals(2048, sketch.width());
+        for (int i = 0; i < 5; i++)
+            sketch.increment("hot");
+        sketch.increment("warm");
+        assertEquals(5, sketch.frequency("hot"));
+        assertEquals(1, sketch.frequency("warm"));
+        assertEquals(0, sketch.frequency("cold"));
+
+        // counters saturate
+        for (int i = 0; i < 100; i++)
+            sketch.increment("hot");
+        assertEquals(15, sketch.frequency("hot"));
+    }
+
+    @Test
+    public void testAging()
+    {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; i++)
+            sketch.increment("old");
+        // enough other accesses to halve every counter at least once
+        for (int i = 0; i < 10 * sketch.width(); i++)
+            sketch.increment(i);
+        assertTrue(sketch.frequency("old") < 8);
+    }
+}
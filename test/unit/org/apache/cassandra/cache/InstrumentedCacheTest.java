@@ -0,0 +1,115 @@
+package org.apache.cassandra.cache;
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InstrumentedCacheTest
+{
+    @Test
+    public void testAdmissionFilter()
+    {
+        InstrumentedCache<Integer, String> cache = new InstrumentedCache<Integer, String>(10, true);
+        for (int pass = 0; pass < 3; pass++)
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                if (cache.get(i) == null)
+                    cache.put(i, "hot");
+            }
+        }
+        assertEquals(10, cache.getSize());
+
+        // a sweep over cold keys is kept out of the full cache
+        for (int i = 100; i < 200; i++)
+        {
+            if (cache.get(i) == null)
+                cache.put(i, "cold");
+        }
+        // (looking the keys up would count as using them, and change what gets evicted next)
+        for (int i = 0; i < 10; i++)
+            assertTrue(cache.getKeySet().contains(i));
+        assertTrue(cache.getAdmissionRejections() > 90);
+
+        // but a key asked for more often than the one it evicts gets in
+        for (int i = 0; i < 5; i++)
+            cache.get(1000);
+        cache.put(1000, "hotter");
+        assertNotNull(cache.getInternal(1000));
+        assertEquals(10, cache.getSize());
+        // displacing exactly one of the hot entries, which is not put back
+        int hot = 0;
+        for (int i = 0; i < 10; i++)
+        {
+            if (cache.getKeySet().contains(i))
+                hot++;
+        }
+        assertEquals(9, hot);
+    }
+
+    @Test
+    public void testEvictionSampleCoversAllKeys()
+    {
+        InstrumentedCache<Integer, String> cache = new InstrumentedCache<Integer, String>(64, true);
+        for (int i = 0; i < 64; i++)
+            cache.put(i, "v");
+        // every cached key is in demand except the last one in iteration order, out of reach of the first sample
+        Integer cold = null;
+        for (Integer key : cache.getKeySet())
+            cold = key;
+        for (int pass = 0; pass < 5; pass++)
+        {
+            for (int i = 0; i < 64; i++)
+            {
+                if (i != cold)
+                    cache.get(i);
+            }
+        }
+
+        // keys asked for twice are rejected in favour of the hot ones, until a sample reaches the cold key
+        for (int i = 100; i < 100 + 64 / 8; i++)
+        {
+            cache.get(i);
+            cache.get(i);
+            cache.put(i, "warm");
+            if (cache.getInternal(cold) == null)
+                break;
+        }
+        assertNull(cache.getInternal(cold));
+        assertEquals(64, cache.getSize());
+    }
+
+    @Test
+    public void testWithoutAdmissionFilter()
+    {
+        InstrumentedCache<Integer, String> cache = new InstrumentedCache<Integer, String>(10);
+        for (int i = 0; i < 20; i++)
+            cache.put(i, "v");
+        assertNull(cache.getInternal(0));
+        assertNotNull(cache.getInternal(19));
+        assertEquals(0, cache.getAdmissionRejections());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import org.apache.cassandra.db.ClockType;
+import org.apache.cassandra.db.ColumnFamilyType;
+import org.apache.cassandra.db.LeveledCompactionStrategy;
+import org.apache.cassandra.db.clock.TimestampReconciler;
+import org.apache.cassandra.db.marshal.AsciiType;
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.locator.RackUnawareStrategy;
+import org.apache.cassandra.thrift.IndexType;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CFMetaDataTest
+{
+    /** writes a definition the way it was serialized before the format was versioned */
+    private static void writeUnversioned(CFMetaData cfm, DataOutputStream dout) throws IOException
+    {
+        dout.writeUTF(cfm.tableName);
+        dout.writeUTF(cfm.cfName);
+        dout.writeUTF(cfm.cfType.name());
+        dout.writeUTF(cfm.clockType.name());
+        dout.writeUTF(cfm.comparator.getClass().getName());
+        dout.writeBoolean(cfm.subcolumnComparator != null);
+        if (cfm.subcolumnComparator != null)
+            dout.writeUTF(cfm.subcolumnComparator.getClass().getName());
+        dout.writeUTF(cfm.reconciler.getClass().getName());
+        dout.writeBoolean(cfm.comment != null);
+        if (cfm.comment != null)
+            dout.writeUTF(cfm.comment);
+        dout.writeDouble(cfm.rowCacheSize);
+        dout.writeBoolean(cfm.preloadRowCache);
+        dout.writeDouble(cfm.keyCacheSize);
+        dout.writeDouble(cfm.readRepairChance);
+        dout.writeInt(cfm.cfId);
+        dout.writeInt(cfm.column_metadata.size());
+        for (ColumnDefinition cd : cfm.column_metadata.values())
+        {
+            byte[] cdBytes = ColumnDefinition.serialize(cd);
+            dout.writeInt(cdBytes.length);
+            dout.write(cdBytes);
+        }
+    }
+
+    private static CFMetaData standard(String cfName) throws Exception
+    {
+        Map<byte[], ColumnDefinition> columns = new TreeMap<byte[], ColumnDefinition>(FBUtilities.byteArrayComparator);
+        ColumnDefinition cd = new ColumnDefinition("birthdate".getBytes("UTF8"), "LongType", IndexType.KEYS, "birthdate_index");
+        columns.put(cd.name, cd);
+        return new CFMetaData("Keyspace1", cfName, ColumnFamilyType.Standard, ClockType.Timestamp, AsciiType.instance, null, new TimestampReconciler(), "a comment", 100, true, 0.5, 0.25, columns);
+    }
+
+    private static CFMetaData superCf(String cfName)
+    {
+        return new CFMetaData("Keyspace1", cfName, ColumnFamilyType.Super, ClockType.Timestamp, UTF8Type.instance, BytesType.instance, new TimestampReconciler(), null, 0, false, 200000, 1.0, Collections.<byte[], ColumnDefinition>emptyMap());
+    }
+
+    @Test
+    public void testReadUnversionedKeyspace() throws Exception
+    {
+        CFMetaData cfm0 = standard("Unversioned0");
+        CFMetaData cfm1 = superCf("Unversioned1");
+
+        // a keyspace definition as stored by DefsTable before the format was versioned
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream dout = new DataOutputStream(bout);
+        dout.writeUTF("Keyspace1");
+        dout.writeBoolean(true);
+        dout.writeUTF(RackUnawareStrategy.class.getName());
+        dout.writeInt(1);
+        dout.writeInt(2);
+        writeUnversioned(cfm0, dout);
+        writeUnversioned(cfm1, dout);
+        dout.close();
+
+        KSMetaData ksm = KSMetaData.deserialize(new ByteArrayInputStream(bout.toByteArray()));
+        assertEquals(2, ksm.cfMetaData().size());
+        assertEquals(cfm0, ksm.cfMetaData().get("Unversioned0"));
+        assertEquals(cfm1, ksm.cfMetaData().get("Unversioned1"));
+        CFMetaData read = ksm.cfMetaData().get("Unversioned0");
+        assertEquals(CFMetaData.DEFAULT_ROW_CACHE_HEAD_COLUMNS, read.rowCacheHeadColumns);
+        assertNull(read.bloomFilterFpChance);
+        assertEquals(CFMetaData.DEFAULT_COMPACTION_STRATEGY_CLASS, read.compactionStrategyClass);
+    }
+
+    @Test
+    public void testRoundTripTrailingFields() throws Exception
+    {
+        CFMetaData cfm = standard("Versioned0");
+        cfm.rowCacheHeadColumns = 10;
+        cfm.bloomFilterFpChance = 0.01;
+        cfm.compactionStrategyClass = LeveledCompactionStrategy.class;
+
+        // followed by a second definition, as in a keyspace, to check nothing is left unread
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        bout.write(CFMetaData.serialize(cfm));
+        bout.write(CFMetaData.serialize(superCf("Versioned1")));
+        ByteArrayInputStream in = new ByteArrayInputStream(bout.toByteArray());
+
+        CFMetaData read = CFMetaData.deserialize(in);
+        assertEquals(cfm, read);
+        assertEquals(10, read.rowCacheHeadColumns);
+        assertEquals(0.01, read.bloomFilterFpChance, 0.0);
+        assertEquals(LeveledCompactionStrategy.class, read.compactionStrategyClass);
+        assertEquals("Versioned1", CFMetaData.deserialize(in).cfName);
+        assertEquals(0, in.available());
+    }
+}
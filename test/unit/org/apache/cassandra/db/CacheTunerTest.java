@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.filter.QueryFilter;
+import org.apache.cassandra.db.filter.QueryPath;
+import org.apache.cassandra.io.sstable.SSTableTracker;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class CacheTunerTest extends CleanupHelper
+{
+    @Test
+    public void testTuning() throws Exception
+    {
+        ColumnFamilyStore cfs = Table.open("Keyspace1").getColumnFamilyStore("Standard1");
+        SSTableTracker tracker = cfs.getSSTableTracker();
+        assertEquals(10, tracker.getRowCache().getCapacity());
+
+        // read twice as many rows as the row cache holds, twice: the rows it admitted the first time are hits the second
+        for (int i = 0; i < 20; i++)
+        {
+            RowMutation rm = new RowMutation("Keyspace1", ("key" + i).getBytes());
+            rm.add(new QueryPath("Standard1", null, "c".getBytes()), "v".getBytes(), new TimestampClock(0));
+            rm.apply();
+        }
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (int i = 0; i < 20; i++)
+                cfs.getColumnFamily(QueryFilter.getIdentityFilter(Util.dk("key" + i), new QueryPath("Standard1")));
+        }
+        assertEquals(10, tracker.getRowCache().getSize());
+        assertTrue(tracker.getRowCache().getHits() > 0);
+
+        // with no room to spare, capacity moves from idle caches to the one serving hits
+        CacheTuner tuner = new CacheTuner();
+        List<CacheTuner.TunedCache> before = CacheTuner.tunedCaches();
+        long budget = CacheTuner.totalBytes(before);
+        tuner.tune(budget);
+        assertTrue(tracker.getRowCache().getCapacity() > 10);
+        List<CacheTuner.TunedCache> after = CacheTuner.tunedCaches();
+        assertTrue(CacheTuner.totalBytes(after) <= budget);
+        int shrunk = 0;
+        for (int i = 0; i < before.size(); i++)
+        {
+            if (after.get(i).capacity < before.get(i).capacity)
+                shrunk++;
+        }
+        assertEquals(1, shrunk);
+
+        // caches that outgrow the budget are all shrunk
+        int rowCacheCapacity = tracker.getRowCache().getCapacity();
+        tuner.tune(budget / 2);
+        assertTrue(tracker.getRowCache().getCapacity() < rowCacheCapacity);
+        assertTrue(CacheTuner.totalBytes(CacheTuner.tunedCaches()) < budget);
+    }
+}
@@ -18,6 +18,7 @@
 */
 package org.apache.cassandra.db;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
@@ -30,6 +31,7 @@ import org.junit.Test;
 import static junit.framework.Assert.assertEquals;
 import org.apache.cassandra.CleanupHelper;
 import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.filter.*;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.thrift.IndexClause;
@@ -106,6 +108,25 @@ public class ColumnFamilyStoreTest extends CleanupHelper
         TableTest.reTest(store, r);
     }
 
+    @Test
+    public void testExpiredDeadline() throws IOException
+    {
+        Table table = Table.open("Keyspace1");
+        ColumnFamilyStore store = table.getColumnFamilyStore("Standard2");
+        RowMutation rm = new RowMutation("Keyspace1", "key-deadline".getBytes());
+        for (int i = 0; i < 1000; i++)
+            rm.add(new QueryPath("Standard2", null, String.format("%04d", i).getBytes()), "asdf".getBytes(), new TimestampClock(0));
+        rm.apply();
+
+        QueryFilter filter = QueryFilter.getSliceFilter(Util.dk("key-deadline"), new QueryPath("Standard2", null, null), ArrayUtils.EMPTY_BYTE_ARRAY, ArrayUtils.EMPTY_BYTE_ARRAY, null, false, 1000);
+        assertEquals(1000, store.getColumnFamily(filter).getColumnCount());
+
+        // a read whose deadline has already passed gives up early
+        filter.setDeadline(0);
+        assert filter.isExpired();
+        assert store.getColumnFamily(filter).getColumnCount() < 1000;
+    }
+
     /**
      * Writes out a bunch of keys into an SSTable, then runs anticompaction on a range.
      * Checks to see if anticompaction returns true.
@@ -197,6 +218,88 @@ public class ColumnFamilyStoreTest extends CleanupHelper
         assert Arrays.equals(FBUtilities.toByteArray(1L), rows.get(1).cf.getColumn("birthdate".getBytes("UTF8")).value());
     }
 
+    @Test
+    public void testBloomFilterFpChance() throws IOException, ExecutionException, InterruptedException
+    {
+        ColumnFamilyStore cfs = Table.open("Keyspace1").getColumnFamilyStore("StandardLong2");
+        assertNull(cfs.getBloomFilterFpChance());
+        insertLongKeys(cfs, "default", 15);
+        long defaultSize = cfs.getSSTables().iterator().next().getBloomFilterSizeInBytes();
+        assertEquals(defaultSize, cfs.getBloomFilterSpaceUsed());
+
+        // a loose target gives smaller filters, starting with the next sstable written
+        // (few enough keys per sstable that the memtable is not flushed early)
+        cfs.setBloomFilterFpChance(0.5);
+        try
+        {
+            insertLongKeys(cfs, "loose", 15);
+            assertEquals(2, cfs.getSSTables().size());
+            long looseSize = cfs.getBloomFilterSpaceUsed() - defaultSize;
+            assert looseSize < defaultSize / 2 : looseSize + " vs " + defaultSize;
+
+            // compaction rebuilds the filter of the older sstable too (the default is 15 bits per key)
+            CompactionManager.instance.submitMajor(cfs, 0, Integer.MAX_VALUE).get();
+            assertEquals(1, cfs.getSSTables().size());
+            SSTableReader compacted = cfs.getSSTables().iterator().next();
+            assert compacted.getBloomFilterSizeInBytes() * 8 < 15 * compacted.estimatedKeys();
+        }
+        finally
+        {
+            cfs.setBloomFilterFpChance(null);
+        }
+    }
+
+    private static void insertLongKeys(ColumnFamilyStore cfs, String prefix, int count) throws IOException, ExecutionException, InterruptedException
+    {
+        for (int i = 0; i < count; i++)
+        {
+            RowMutation rm = new RowMutation("Keyspace1", (prefix + i).getBytes());
+            rm.add(new QueryPath(cfs.getColumnFamilyName(), null, FBUtilities.toByteArray(1L)), "v".getBytes(), new TimestampClock(0));
+            rm.apply();
+        }
+        cfs.forceBlockingFlush();
+    }
+
+    @Test
+    public void testIncrementalBackupAndSnapshot() throws IOException, ExecutionException, InterruptedException
+    {
+        ColumnFamilyStore cfs = Table.open("Keyspace1").getColumnFamilyStore("StandardLong1");
+        Set<SSTableReader> existing = new HashSet<SSTableReader>(cfs.getSSTables());
+        DatabaseDescriptor.setIncrementalBackupsEnabled(true);
+        try
+        {
+            RowMutation rm = new RowMutation("Keyspace1", "backup".getBytes());
+            rm.add(new QueryPath("StandardLong1", null, FBUtilities.toByteArray(1L)), "asdf".getBytes(), new TimestampClock(0));
+            rm.apply();
+            cfs.forceBlockingFlush();
+        }
+        finally
+        {
+            DatabaseDescriptor.setIncrementalBackupsEnabled(false);
+        }
+
+        cfs.snapshot("backuptest");
+        assert !existing.containsAll(cfs.getSSTables());
+        for (SSTableReader sstable : cfs.getSSTables())
+        {
+            File dataFile = new File(sstable.getFilename());
+            String dataDirectory = dataFile.getParentFile().getParent();
+            // only sstables written while backups were enabled are backed up; all are snapshotted
+            List<String> dirs = new ArrayList<String>();
+            dirs.add(Table.getSnapshotPath(dataDirectory, "Keyspace1", "backuptest"));
+            if (!existing.contains(sstable))
+                dirs.add(Table.getBackupsPath(dataDirectory, "Keyspace1"));
+            for (String dir : dirs)
+            {
+                File link = new File(dir, dataFile.getName());
+                assert link.exists() : link;
+                assert link.length() == dataFile.length();
+                assert new File(dir, new File(sstable.indexFilename()).getName()).exists();
+                assert new File(dir, new File(sstable.filterFilename()).getName()).exists();
+            }
+        }
+    }
+
     private ColumnFamilyStore insertKey1Key2() throws IOException, ExecutionException, InterruptedException
     {
         List<RowMutation> rms = new LinkedList<RowMutation>();
@@ -28,6 +28,7 @@ import org.apache.cassandra.SchemaLoader;
 import org.junit.Test;
 
 import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.db.clock.TimestampReconciler;
 import org.apache.cassandra.db.filter.QueryPath;
 import static org.apache.cassandra.Util.column;
 
@@ -130,4 +131,34 @@ public class ColumnFamilyTest extends SchemaLoader
         //addcolumns will only add if timestamp >= old timestamp
         assert Arrays.equals(val, cf_result.getColumn("col2".getBytes()).value());
     }
+
+    @Test
+    public void testTimestampColumns() throws IOException
+    {
+        // timestamps are held as primitives, but read back as the same clocks
+        ColumnFamily cf = ColumnFamily.create("Keyspace1", "Standard1");
+        cf.addColumn(QueryPath.column("live".getBytes()), "v".getBytes(), new TimestampClock(5));
+        cf.addColumn(QueryPath.column("expiring".getBytes()), "v".getBytes(), new TimestampClock(6), 1000);
+        cf.deleteColumn("deleted".getBytes(), 100, new TimestampClock(7));
+        DataOutputBuffer bufOut = new DataOutputBuffer();
+        ColumnFamily.serializer().serialize(cf, bufOut);
+        ColumnFamily cf2 = ColumnFamily.serializer().deserialize(new DataInputStream(new ByteArrayInputStream(bufOut.getData(), 0, bufOut.getLength())));
+        for (IColumn column : cf.getSortedColumns())
+        {
+            IColumn column2 = cf2.getColumn(column.name());
+            assert column.equals(column2) : column2;
+            assert column.clock().equals(column2.clock());
+            assert column2.getClass() == column.getClass();
+        }
+        assert new TimestampClock(7).equals(cf2.getColumn("deleted".getBytes()).getMarkedForDeleteAt());
+
+        // the newer timestamp wins
+        Column older = new Column("c".getBytes(), "z".getBytes(), 1);
+        Column newer = new Column("c".getBytes(), "a".getBytes(), 2);
+        assert new TimestampReconciler().reconcile(older, newer) == newer;
+        assert new TimestampReconciler().reconcile(newer, older) == newer;
+        assert newer.diff(older) == null && older.diff(newer) == newer;
+        assert older.comparePriority(newer) == IClock.ClockRelationship.LESS_THAN;
+        assert new DeletedColumn("c".getBytes(), 100, new TimestampClock(2)).comparePriority(newer) == IClock.ClockRelationship.GREATER_THAN;
+    }
 }
@@ -0,0 +1,119 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.db;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.filter.QueryPath;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.SimpleCondition;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+
+public class FlushWritersTest extends CleanupHelper
+{
+    private static String tempDirectory() throws Exception
+    {
+        File dir = File.createTempFile("flushwriters", "");
+        dir.delete();
+        dir.mkdir();
+        dir.deleteOnExit();
+        return dir.getAbsolutePath();
+    }
+
+    @Test
+    public void testSpreadsPendingFlushes() throws Exception
+    {
+        String dir1 = tempDirectory();
+        String dir2 = tempDirectory();
+        FlushWriters writers = new FlushWriters("TEST-FLUSH-WRITER", new String[]{ dir1, dir2 }, 2);
+
+        // with nothing queued, both directories are candidates; once one has work, the other is chosen
+        FlushWriters.Writer first = writers.getWriter(100);
+        FlushWriters.Writer second = writers.getWriter(10);
+        assertNotSame(first, second);
+        assertEquals(100L, (long) writers.getPendingFlushBytes().get(first.directory));
+        assertEquals(10L, (long) writers.getPendingFlushBytes().get(second.directory));
+        // the directory with the least queued
+        assertEquals(second, writers.getWriter(50));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final SimpleCondition done = new SimpleCondition();
+        first.submit(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    latch.await();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new AssertionError(e);
+                }
+                done.signalAll();
+            }
+        }, 100);
+        assertEquals(100L, (long) writers.getPendingFlushBytes().get(first.directory));
+        latch.countDown();
+        done.await();
+        // the bytes are released just after the flush itself returns
+        for (int i = 0; i < 100 && writers.getPendingFlushBytes().get(first.directory) != 0; i++)
+            Thread.sleep(10);
+        assertEquals(0L, (long) writers.getPendingFlushBytes().get(first.directory));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInsufficientSpace() throws Exception
+    {
+        FlushWriters writers = new FlushWriters("TEST-FLUSH-WRITER-FULL", new String[]{ tempDirectory() }, 1);
+        writers.getWriter(Long.MAX_VALUE / 4);
+    }
+
+    @Test
+    public void testUnwritableFlushIsNotPending() throws Exception
+    {
+        // a directory that does not exist has no free space
+        File missing = new File(tempDirectory(), "missing");
+        FlushWriters writers = new FlushWriters("TEST-FLUSH-WRITER-MISSING", new String[]{ missing.getAbsolutePath() }, 1);
+        ColumnFamilyStore cfs = Table.open("Keyspace1").getColumnFamilyStore("Standard1");
+        Memtable memtable = new Memtable(cfs, StorageService.getPartitioner());
+        ColumnFamily cf = ColumnFamily.create("Keyspace1", "Standard1");
+        cf.addColumn(new QueryPath("Standard1", null, "c".getBytes()), "v".getBytes(), new TimestampClock(0));
+        memtable.put(Util.dk("key1"), cf);
+
+        try
+        {
+            memtable.flushAndSignal(new SimpleCondition(), null, writers);
+            throw new AssertionError("flushed without disk space");
+        }
+        catch (RuntimeException e)
+        {
+            // expected
+        }
+        assertFalse(cfs.getMemtablesPendingFlush().contains(memtable));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.db;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.filter.QueryFilter;
+import org.apache.cassandra.db.filter.QueryPath;
+import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.SSTableReader;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+public class LeveledCompactionStrategyTest extends CleanupHelper
+{
+    private static final String TABLE1 = "Keyspace1";
+    private static final String CF_LEVELED = "StandardLeveled1";
+
+    @Test
+    public void testLeveledCompaction() throws IOException, ExecutionException, InterruptedException
+    {
+        CompactionManager.instance.disableAutoCompaction();
+        ColumnFamilyStore store = Table.open(TABLE1).getColumnFamilyStore(CF_LEVELED);
+        LeveledCompactionStrategy strategy = (LeveledCompactionStrategy) store.getCompactionStrategy();
+        assertEquals(LeveledCompactionStrategy.class.getName(), store.getCompactionStrategyClass());
+        strategy.setMaxSSTableSize(1024);
+
+        // every flush spans the whole key range, so level 0 sstables all overlap one another
+        final int FLUSHES = 20;
+        final int ROWS_PER_FLUSH = 20;
+        byte[] value = new byte[100];
+        for (int j = 0; j < FLUSHES; j++)
+        {
+            for (int i = 0; i < ROWS_PER_FLUSH; i++)
+            {
+                RowMutation rm = new RowMutation(TABLE1, keyFor(i * FLUSHES + j).key);
+                rm.add(new QueryPath(CF_LEVELED, null, "c".getBytes()), value, new TimestampClock(j));
+                rm.apply();
+            }
+            store.forceBlockingFlush();
+        }
+        assertEquals(store.getSSTables().size(), strategy.getSSTableCountPerLevel()[0]);
+
+        CompactionManager.instance.setMinimumCompactionThreshold(4);
+        CompactionManager.instance.setMaximumCompactionThreshold(32);
+        do
+        {
+            CompactionManager.instance.submitMinorIfNeeded(store).get();
+        }
+        while (strategy.getEstimatedRemainingTasks() > 0);
+
+        int[] counts = store.getSSTableCountPerLevel();
+        long[] bytes = store.getSSTableBytesPerLevel();
+        assertTrue(Arrays.toString(counts), counts.length > 2);
+        assertTrue(Arrays.toString(counts), counts[0] < 4);
+        int total = 0;
+        for (int level = 0; level < counts.length; level++)
+        {
+            total += counts[level];
+            assertEquals(SSTable.getTotalBytes(strategy.getSSTables(level)), bytes[level]);
+        }
+        assertEquals(store.getSSTables().size(), total);
+
+        // sstables above level 0 never overlap within their level
+        for (int level = 1; level < counts.length; level++)
+        {
+            List<SSTableReader> sstables = new ArrayList<SSTableReader>(strategy.getSSTables(level));
+            for (int a = 0; a < sstables.size(); a++)
+            {
+                for (int b = a + 1; b < sstables.size(); b++)
+                {
+                    SSTableReader s1 = sstables.get(a);
+                    SSTableReader s2 = sstables.get(b);
+                    assertTrue(s1 + " overlaps " + s2,
+                               s1.getLastKey().compareTo(s2.getFirstKey()) < 0 || s2.getLastKey().compareTo(s1.getFirstKey()) < 0);
+                }
+            }
+        }
+
+        assertEquals(FLUSHES * ROWS_PER_FLUSH, Util.getRangeSlice(store).size());
+        for (int n = 0; n < FLUSHES * ROWS_PER_FLUSH; n += 37)
+        {
+            ColumnFamily cf = store.getColumnFamily(QueryFilter.getIdentityFilter(keyFor(n), new QueryPath(CF_LEVELED)));
+            assertNotNull(cf);
+            assertNotNull(cf.getColumn("c".getBytes()));
+        }
+
+        // levels survive a restart
+        LeveledCompactionStrategy reloaded = new LeveledCompactionStrategy(store);
+        assertEquals(Arrays.toString(counts), Arrays.toString(reloaded.getSSTableCountPerLevel()));
+    }
+
+    @Test
+    public void testSizeTieredReportsNoLevels()
+    {
+        ColumnFamilyStore store = Table.open(TABLE1).getColumnFamilyStore("Standard1");
+        assertEquals(SizeTieredCompactionStrategy.class.getName(), store.getCompactionStrategyClass());
+        assertEquals(null, store.getSSTableCountPerLevel());
+        assertEquals(null, store.getSSTableBytesPerLevel());
+    }
+
+    private static DecoratedKey keyFor(int n)
+    {
+        return Util.dk(String.format("key%04d", n));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.db;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.filter.QueryPath;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class MeteredFlusherTest extends CleanupHelper
+{
+    private static final String TABLE = "Keyspace1";
+
+    private static ColumnFamily standard(String name, int valueSize, long timestamp)
+    {
+        ColumnFamily cf = ColumnFamily.create(TABLE, "Standard1");
+        cf.addColumn(new QueryPath("Standard1", null, name.getBytes()), new byte[valueSize], new TimestampClock(timestamp));
+        return cf;
+    }
+
+    @Test
+    public void testLiveSize()
+    {
+        Memtable memtable = new Memtable(Table.open(TABLE).getColumnFamilyStore("Standard1"), StorageService.getPartitioner());
+        for (int i = 0; i < 100; i++)
+            memtable.put(Util.dk("key" + i), standard("c", 1, 0));
+        // small columns cost far more on the heap than serialized
+        long liveSize = memtable.getLiveSize();
+        assertTrue(liveSize > 5 * memtable.getCurrentThroughput());
+
+        // overwriting a column with one of the same size replaces it
+        for (int i = 0; i < 100; i++)
+            memtable.put(Util.dk("key" + i), standard("c", 1, 1));
+        assertEquals(liveSize, memtable.getLiveSize());
+        // an older version is ignored
+        memtable.put(Util.dk("key0"), standard("c", 1000, 0));
+        assertEquals(liveSize, memtable.getLiveSize());
+        // a new column adds to it
+        memtable.put(Util.dk("key0"), standard("d", 1000, 0));
+        assertTrue(memtable.getLiveSize() > liveSize + 1000);
+    }
+
+    @Test
+    public void testLiveSizeOfSuperColumns()
+    {
+        Memtable memtable = new Memtable(Table.open(TABLE).getColumnFamilyStore("Super1"), StorageService.getPartitioner());
+        memtable.put(Util.dk("key"), superColumn("sc", 1, 10, 0));
+        long liveSize = memtable.getLiveSize();
+
+        // replacing a subcolumn with one of the same size leaves the size alone
+        memtable.put(Util.dk("key"), superColumn("sc", 1, 10, 1));
+        assertEquals(liveSize, memtable.getLiveSize());
+        // a new subcolumn adds to it
+        memtable.put(Util.dk("key"), superColumn("sc", 2, 1000, 0));
+        assertTrue(memtable.getLiveSize() > liveSize + 1000);
+    }
+
+    private static ColumnFamily superColumn(String superName, long name, int valueSize, long timestamp)
+    {
+        ColumnFamily cf = ColumnFamily.create(TABLE, "Super1");
+        cf.addColumn(new QueryPath("Super1", superName.getBytes(), FBUtilities.toByteArray(name)), new byte[valueSize], new TimestampClock(timestamp));
+        return cf;
+    }
+
+    @Test
+    public void testFlushesLargest() throws Exception
+    {
+        ColumnFamilyStore large = Table.open(TABLE).getColumnFamilyStore("Standard1");
+        ColumnFamilyStore small = Table.open(TABLE).getColumnFamilyStore("Standard2");
+        for (int i = 0; i < 10; i++)
+        {
+            RowMutation rm = new RowMutation(TABLE, ("key" + i).getBytes());
+            rm.add(new QueryPath("Standard1", null, "c".getBytes()), new byte[10000], new TimestampClock(0));
+            rm.apply();
+        }
+        RowMutation rm = new RowMutation(TABLE, "key".getBytes());
+        rm.add(new QueryPath("Standard2", null, "c".getBytes()), new byte[10], new TimestampClock(0));
+        rm.apply();
+        assertTrue(large.getMemtableLiveSize() > small.getMemtableLiveSize());
+
+        long total = 0;
+        for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+            total += cfs.getMemtableLiveSize() + cfs.getMemtablesPendingFlushLiveSize();
+        assertEquals(0, MeteredFlusher.flush(total).size());
+        // flushing the largest memtable is enough to get back within budget
+        assertEquals(Arrays.asList(large), MeteredFlusher.flush(total - 1));
+        assertEquals(0, large.getMemtableLiveSize());
+        assertTrue(small.getMemtableLiveSize() > 0);
+    }
+
+    @Test
+    public void testWaitsForPendingFlushes() throws Exception
+    {
+        ColumnFamilyStore cfs = Table.open(TABLE).getColumnFamilyStore("Standard1");
+        // let flushes started by earlier tests finish
+        while (cfs.getMemtablesPendingFlushLiveSize() > 0)
+            Thread.sleep(10);
+        for (int i = 0; i < 10; i++)
+        {
+            RowMutation rm = new RowMutation(TABLE, ("key" + i).getBytes());
+            rm.add(new QueryPath("Standard1", null, "c".getBytes()), new byte[10000], new TimestampClock(0));
+            rm.apply();
+        }
+        // a memtable being written that fills the budget by itself
+        Memtable pending = new Memtable(cfs, StorageService.getPartitioner());
+        for (int i = 0; i < 10; i++)
+            pending.put(Util.dk("key" + i), standard("c", 10000, 0));
+        cfs.getMemtablesPendingFlush().add(pending);
+        try
+        {
+            long active = cfs.getMemtableLiveSize();
+            assertEquals(0, MeteredFlusher.flush(pending.getLiveSize()).size());
+            assertEquals(active, cfs.getMemtableLiveSize());
+            // with room for half of the active memtable, it is flushed
+            assertEquals(Arrays.asList(cfs), MeteredFlusher.flush(pending.getLiveSize() + active / 2));
+        }
+        finally
+        {
+            cfs.getMemtablesPendingFlush().remove(pending);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.apache.cassandra.db;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.commitlog.CommitLog;
+
+import static org.apache.cassandra.Util.column;
+import static org.apache.cassandra.db.TableTest.assertColumns;
+import static org.junit.Assert.assertEquals;
+
+public class RecoveryManager4Test extends CleanupHelper
+{
+    @Test
+    public void testManyRows() throws IOException
+    {
+        Table table1 = Table.open("Keyspace1");
+
+        // several mutations per row, spread over the replay workers (but few enough not to trigger a flush)
+        for (int i = 0; i < 3; i++)
+        {
+            for (int k = 0; k < 6; k++)
+            {
+                RowMutation rm = new RowMutation("Keyspace1", ("key" + k).getBytes());
+                ColumnFamily cf = ColumnFamily.create("Keyspace1", "Standard1");
+                cf.addColumn(column("col" + i, "val" + i, new TimestampClock(i)));
+                rm.add(cf);
+                rm.apply();
+            }
+        }
+
+        // overwrites with equal timestamps are settled by the order they are applied in, so the replay workers
+        // must apply each key's mutations in commit log order. (Few enough that neither the writes nor their
+        // replay flush: across sstables, equal timestamps have no order.)
+        for (int i = 0; i < 3; i++)
+        {
+            for (int k = 0; k < 3; k++)
+            {
+                RowMutation rm = new RowMutation("Keyspace1", ("key" + k).getBytes());
+                ColumnFamily cf = ColumnFamily.create("Keyspace1", "Standard3");
+                cf.addColumn(column("col", "val" + i, new TimestampClock(0)));
+                rm.add(cf);
+                rm.apply();
+            }
+        }
+
+        table1.getColumnFamilyStore("Standard1").clearUnsafe();
+        table1.getColumnFamilyStore("Standard3").clearUnsafe();
+
+        CommitLog.recover();
+
+        for (int k = 0; k < 6; k++)
+            assertColumns(Util.getColumnFamily(table1, Util.dk("key" + k), "Standard1"), "col0", "col1", "col2");
+        for (int k = 0; k < 3; k++)
+            assertEquals("val2", new String(Util.getColumnFamily(table1, Util.dk("key" + k), "Standard3").getColumn("col".getBytes()).value()));
+    }
+
+}
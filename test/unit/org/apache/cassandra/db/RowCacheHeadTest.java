@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.filter.QueryFilter;
+import org.apache.cassandra.db.filter.QueryPath;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+public class RowCacheHeadTest extends CleanupHelper
+{
+    private static final String CF = "StandardHead1";
+
+    @Test
+    public void testWideRow() throws Exception
+    {
+        ColumnFamilyStore cfs = Table.open("Keyspace1").getColumnFamilyStore(CF);
+        assertEquals(10, cfs.metadata.rowCacheHeadColumns);
+        DecoratedKey key = Util.dk("wide");
+        for (long i = 0; i < 30; i++)
+            insert("wide", i);
+        cfs.forceBlockingFlush();
+
+        // reads inside the head are served from it; only the head is cached
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), slice(cfs, key, -1, -1, false, 5));
+        assertEquals(10, cfs.getRawCachedRow(key).getColumnCount());
+        assertEquals(Arrays.asList(5L, 4L, 3L), slice(cfs, key, 5, -1, true, 3));
+        assertEquals(Arrays.asList(3L, 6L), names(cfs, key, 3, 6));
+
+        // reads past the head fall through to the sstables
+        assertEquals(20, slice(cfs, key, -1, -1, false, 20).size());
+        assertEquals(Arrays.asList(20L, 21L, 22L), slice(cfs, key, 20, 22, false, 100));
+        assertEquals(Arrays.asList(29L, 28L), slice(cfs, key, -1, -1, true, 2));
+        assertEquals(Arrays.asList(3L, 25L), names(cfs, key, 3, 25));
+        assertEquals(10, cfs.getRawCachedRow(key).getColumnCount());
+
+        // writes inside the head update it, writes past it leave it alone
+        insert("wide", 50);
+        RowMutation rm = new RowMutation("Keyspace1", "wide".getBytes());
+        rm.delete(new QueryPath(CF, null, FBUtilities.toByteArray(1L)), new TimestampClock(1));
+        rm.apply();
+        ColumnFamily cached = cfs.getRawCachedRow(key);
+        assertNull(cached.getColumn(FBUtilities.toByteArray(50L)));
+        assertEquals(Arrays.asList(0L, 2L, 3L, 4L, 5L), slice(cfs, key, -1, -1, false, 5));
+        assertEquals(Arrays.asList(29L, 50L), slice(cfs, key, 29, -1, false, 100));
+
+        // a head that grows too far past its size is dropped
+        for (long i = -1; i >= -11; i--)
+            insert("wide", i);
+        assertNull(cfs.getRawCachedRow(key));
+        assertEquals(Arrays.asList(-11L, -10L), slice(cfs, key, -1, -1, false, 2));
+        assertNotNull(cfs.getRawCachedRow(key));
+    }
+
+    @Test
+    public void testCompleteHead() throws Exception
+    {
+        ColumnFamilyStore cfs = Table.open("Keyspace1").getColumnFamilyStore(CF);
+        DecoratedKey key = Util.dk("narrow");
+        for (long i = 0; i < 3; i++)
+            insert("narrow", i);
+
+        // a row shorter than the head is cached whole, and answers any query
+        assertEquals(Arrays.asList(0L, 1L, 2L), slice(cfs, key, -1, -1, false, 100));
+        insert("narrow", 1000);
+        assertEquals(4, cfs.getRawCachedRow(key).getColumnCount());
+        assertEquals(Arrays.asList(1000L, 2L), slice(cfs, key, -1, -1, true, 2));
+        assertEquals(Arrays.asList(1000L), names(cfs, key, 1000));
+    }
+
+    private static void insert(String key, long column) throws IOException
+    {
+        RowMutation rm = new RowMutation("Keyspace1", key.getBytes());
+        rm.add(new QueryPath(CF, null, FBUtilities.toByteArray(column)), "v".getBytes(), new TimestampClock(0));
+        rm.apply();
+    }
+
+    private static List<Long> slice(ColumnFamilyStore cfs, DecoratedKey key, long start, long finish, boolean reversed, int count)
+    {
+        byte[] startBytes = start < 0 ? ArrayUtils.EMPTY_BYTE_ARRAY : FBUtilities.toByteArray(start);
+        byte[] finishBytes = finish < 0 ? ArrayUtils.EMPTY_BYTE_ARRAY : FBUtilities.toByteArray(finish);
+        ColumnFamily cf = cfs.getColumnFamily(key, new QueryPath(CF), startBytes, finishBytes, reversed, count);
+        return columnNames(cf, reversed);
+    }
+
+    private static List<Long> names(ColumnFamilyStore cfs, DecoratedKey key, long... columns)
+    {
+        TreeSet<byte[]> names = new TreeSet<byte[]>(LongType.instance);
+        for (long column : columns)
+            names.add(FBUtilities.toByteArray(column));
+        return columnNames(cfs.getColumnFamily(QueryFilter.getNamesFilter(key, new QueryPath(CF), names)), false);
+    }
+
+    private static List<Long> columnNames(ColumnFamily cf, boolean reversed)
+    {
+        List<Long> names = new ArrayList<Long>();
+        for (IColumn column : reversed ? cf.getReverseSortedColumns() : cf.getSortedColumns())
+        {
+            if (!column.isMarkedForDelete())
+                names.add(ByteBuffer.wrap(column.name()).getLong());
+        }
+        return names;
+    }
+}
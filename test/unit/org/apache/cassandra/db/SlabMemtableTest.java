@@ -0,0 +1,260 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.db;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.filter.NamesQueryFilter;
+import org.apache.cassandra.db.filter.QueryPath;
+import org.apache.cassandra.db.filter.SliceQueryFilter;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.SimpleCondition;
+import org.apache.cassandra.utils.SlabAllocator;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class SlabMemtableTest extends CleanupHelper
+{
+    private static final String TABLE = "Keyspace1";
+
+    private static ColumnFamilyStore store(String cfName)
+    {
+        return Table.open(TABLE).getColumnFamilyStore(cfName);
+    }
+
+    private static SlabMemtable memtable(String cfName)
+    {
+        return new SlabMemtable(store(cfName), StorageService.getPartitioner());
+    }
+
+    private static ColumnFamily standard(String name, String value, long timestamp)
+    {
+        ColumnFamily cf = ColumnFamily.create(TABLE, "Standard1");
+        cf.addColumn(new QueryPath("Standard1", null, name.getBytes()), value.getBytes(), new TimestampClock(timestamp));
+        return cf;
+    }
+
+    private static String value(ColumnFamily cf, String name)
+    {
+        return new String(cf.getColumn(name.getBytes()).value());
+    }
+
+    @Test
+    public void testOverwrites()
+    {
+        SlabMemtable memtable = memtable("Standard1");
+        DecoratedKey key = Util.dk("key1");
+        for (int i = 0; i < 50; i++)
+        {
+            memtable.put(key, standard("c" + (i % 7), "v" + i, i));
+            ColumnFamily cf = memtable.getColumnFamily(key);
+            assertEquals(Math.min(i + 1, 7), cf.getColumnCount());
+            assertEquals("v" + i, value(cf, "c" + (i % 7)));
+        }
+        // an older write does not override a newer one
+        memtable.put(key, standard("c0", "old", -1));
+        assertEquals("v49", value(memtable.getColumnFamily(key), "c0"));
+        assertNull(memtable.getColumnFamily(Util.dk("key2")));
+    }
+
+    @Test
+    public void testDeletions()
+    {
+        SlabMemtable memtable = memtable("Standard1");
+        DecoratedKey key = Util.dk("key1");
+        memtable.put(key, standard("c", "v", 1));
+
+        ColumnFamily deletion = ColumnFamily.create(TABLE, "Standard1");
+        deletion.delete(100, new TimestampClock(2));
+        memtable.put(key, deletion);
+        ColumnFamily tombstone = ColumnFamily.create(TABLE, "Standard1");
+        tombstone.deleteColumn("d".getBytes(), 100, new TimestampClock(3));
+        memtable.put(key, tombstone);
+
+        ColumnFamily cf = memtable.getColumnFamily(key);
+        assertTrue(cf.isMarkedForDelete());
+        assertEquals(new TimestampClock(2), cf.getMarkedForDeleteAt());
+        assertTrue(cf.getColumn("d".getBytes()).isMarkedForDelete());
+        assertEquals(2, cf.getColumnCount());
+    }
+
+    @Test
+    public void testSuperColumns()
+    {
+        SlabMemtable memtable = memtable("Super1");
+        DecoratedKey key = Util.dk("key1");
+        for (int i = 0; i < 20; i++)
+        {
+            ColumnFamily cf = ColumnFamily.create(TABLE, "Super1");
+            cf.addColumn(new QueryPath("Super1", "sc".getBytes(), FBUtilities.toByteArray((long) i)), "v".getBytes(), new TimestampClock(i));
+            memtable.put(key, cf);
+        }
+        SuperColumn sc = (SuperColumn) memtable.getColumnFamily(key).getColumn("sc".getBytes());
+        assertEquals(20, sc.getSubColumns().size());
+    }
+
+    @Test
+    public void testFilteredReads()
+    {
+        SlabMemtable memtable = memtable("Standard1");
+        DecoratedKey key = Util.dk("key1");
+        // written out of order, and over several puts
+        for (int i : new int[]{ 5, 1, 8, 3, 0, 9, 2, 7, 4, 6 })
+            memtable.put(key, standard("c" + i, "v" + i, 0));
+
+        SortedSet<byte[]> names = new TreeSet<byte[]>(store("Standard1").getComparator());
+        names.addAll(Arrays.asList("c2".getBytes(), "c7".getBytes(), "x".getBytes()));
+        ColumnFamily cf = memtable.getColumnFamily(key, new NamesQueryFilter(names));
+        assertEquals(2, cf.getColumnCount());
+        assertEquals("v7", value(cf, "c7"));
+
+        cf = memtable.getColumnFamily(key, new SliceQueryFilter("c3".getBytes(), "c5".getBytes(), null, false, 100));
+        assertEquals(3, cf.getColumnCount());
+        assertEquals("c3", new String(cf.getColumnNames().first()));
+        assertEquals("c5", new String(cf.getColumnNames().last()));
+        // reversed slices run from start down to finish
+        cf = memtable.getColumnFamily(key, new SliceQueryFilter("c55".getBytes(), "".getBytes(), null, true, 100));
+        assertEquals(6, cf.getColumnCount());
+        assertEquals("v5", value(cf, "c5"));
+        cf = memtable.getColumnFamily(key, new SliceQueryFilter("c6".getBytes(), "c2".getBytes(), null, false, 100));
+        assertEquals(0, cf.getColumnCount());
+    }
+
+    @Test
+    public void testIterationAndFootprint()
+    {
+        SlabMemtable memtable = memtable("Standard1");
+        assertTrue(memtable.isClean());
+        assertEquals(0, memtable.getCurrentThroughput());
+        assertEquals(0, memtable.getLiveSize());
+        for (int i = 0; i < 100; i++)
+            memtable.put(Util.dk("key" + i), standard("c", "v", 0));
+        assertEquals(100, memtable.getRowCount());
+        // every column is copied, serialized, into the slab
+        assertEquals(100 * standard("c", "v", 0).getColumn("c".getBytes()).serializedSize(), memtable.getCurrentThroughput());
+        assertTrue(memtable.getLiveSize() > SlabAllocator.REGION_SIZE);
+
+        DecoratedKey last = null;
+        int count = 0;
+        Iterator<Map.Entry<DecoratedKey, ColumnFamily>> iter = memtable.getEntryIterator(Util.dk("key5"));
+        while (iter.hasNext())
+        {
+            Map.Entry<DecoratedKey, ColumnFamily> entry = iter.next();
+            assertTrue(last == null || last.compareTo(entry.getKey()) < 0);
+            assertEquals(1, entry.getValue().getColumnCount());
+            last = entry.getKey();
+            count++;
+        }
+        int expected = 0;
+        for (int i = 0; i < 100; i++)
+            if (Util.dk("key" + i).compareTo(Util.dk("key5")) >= 0)
+                expected++;
+        assertEquals(expected, count);
+    }
+
+    @Test
+    public void testFewerLiveObjects() throws Exception
+    {
+        ColumnFamilyStore cfs = store("Standard3");
+        Memtable heap = new Memtable(cfs, StorageService.getPartitioner());
+        SlabMemtable slab = new SlabMemtable(cfs, StorageService.getPartitioner());
+        for (int i = 0; i < 100; i++)
+        {
+            ColumnFamily cf = ColumnFamily.create(TABLE, "Standard3");
+            for (int j = 0; j < 10; j++)
+                cf.addColumn(new QueryPath("Standard3", null, ("c" + j).getBytes()), ("v" + i).getBytes(), new TimestampClock(0));
+            heap.put(Util.dk("key" + i), cf);
+            slab.put(Util.dk("key" + i), cf);
+        }
+
+        // what each memtable would leave for the old generation to collect once it is flushed
+        int heapObjects = countObjects(field(Memtable.class, "columnFamilies").get(heap));
+        int slabObjects = countObjects(field(SlabMemtable.class, "rows").get(slab), field(SlabMemtable.class, "allocator").get(slab));
+        assertTrue(heapObjects + " heap objects vs " + slabObjects + " slab objects", slabObjects * 5 < heapObjects);
+
+        // and both flush the same rows
+        int sstables = cfs.getSSTables().size();
+        SimpleCondition condition = new SimpleCondition();
+        slab.flushAndSignal(condition, null, FlushWriters.instance);
+        condition.await();
+        assertEquals(sstables + 1, cfs.getSSTables().size());
+        for (int i : new int[]{ 0, 42, 99 })
+        {
+            ColumnFamily cf = Util.getColumnFamily(Table.open(TABLE), Util.dk("key" + i), "Standard3");
+            assertEquals(10, cf.getColumnCount());
+            assertEquals("v" + i, value(cf, "c9"));
+        }
+    }
+
+    private static Field field(Class<?> klass, String name) throws Exception
+    {
+        Field field = klass.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    /**
+     * @return the number of distinct objects reachable from the given roots, not counting classes
+     */
+    private static int countObjects(Object... roots) throws Exception
+    {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Deque<Object> pending = new ArrayDeque<Object>(Arrays.asList(roots));
+        while (!pending.isEmpty())
+        {
+            Object object = pending.pop();
+            if (object instanceof Class || !seen.add(object))
+                continue;
+            Class<?> klass = object.getClass();
+            if (klass.isArray())
+            {
+                if (!klass.getComponentType().isPrimitive())
+                {
+                    for (int i = 0; i < Array.getLength(object); i++)
+                        if (Array.get(object, i) != null)
+                            pending.push(Array.get(object, i));
+                }
+                continue;
+            }
+            for (; klass != null; klass = klass.getSuperclass())
+            {
+                for (Field field : klass.getDeclaredFields())
+                {
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive())
+                        continue;
+                    field.setAccessible(true);
+                    Object value = field.get(object);
+                    if (value != null)
+                        pending.push(value);
+                }
+            }
+        }
+        return seen.size();
+    }
+}
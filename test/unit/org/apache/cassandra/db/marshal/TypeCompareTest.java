@@ -23,6 +23,7 @@ package org.apache.cassandra.db.marshal;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.Random;
 import java.util.UUID;
 
 import org.apache.commons.lang.ArrayUtils;
@@ -84,4 +85,41 @@ public class TypeCompareTest
 
         assert new TimeUUIDType().compare(bytes1, bytes2) != 0;
     }
+
+    @Test
+    public void testLong()
+    {
+        Random random = new Random(0);
+        byte[][] values = new byte[1000][];
+        for (int i = 0; i < values.length; i++)
+            values[i] = ByteBuffer.allocate(8).putLong(i < 4 ? new long[]{ Long.MIN_VALUE, -1, 0, Long.MAX_VALUE }[i] : random.nextLong()).array();
+        for (byte[] v1 : values)
+        {
+            for (byte[] v2 : values)
+            {
+                long l1 = ByteBuffer.wrap(v1).getLong();
+                long l2 = ByteBuffer.wrap(v2).getLong();
+                assert Integer.signum(LongType.instance.compare(v1, v2)) == Long.valueOf(l1).compareTo(l2);
+            }
+        }
+    }
+
+    @Test
+    public void testLexicalUUID()
+    {
+        Random random = new Random(0);
+        UUID[] uuids = new UUID[300];
+        for (int i = 0; i < uuids.length; i++)
+            // small most significant bits, so that many pairs tie on them
+            uuids[i] = new UUID(i % 2 == 0 ? random.nextInt(5) - 2 : random.nextLong(), random.nextLong());
+        for (UUID u1 : uuids)
+        {
+            for (UUID u2 : uuids)
+            {
+                byte[] b1 = ByteBuffer.allocate(16).putLong(u1.getMostSignificantBits()).putLong(u1.getLeastSignificantBits()).array();
+                byte[] b2 = ByteBuffer.allocate(16).putLong(u2.getMostSignificantBits()).putLong(u2.getLeastSignificantBits()).array();
+                assert Integer.signum(LexicalUUIDType.instance.compare(b1, b2)) == u1.compareTo(u2);
+            }
+        }
+    }
 }
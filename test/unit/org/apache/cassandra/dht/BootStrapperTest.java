@@ -21,8 +21,10 @@ package org.apache.cassandra.dht;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.cassandra.CleanupHelper;
@@ -31,6 +33,7 @@ import org.apache.commons.lang.StringUtils;
 import static org.junit.Assert.assertEquals;
 import org.junit.Test;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import org.apache.cassandra.gms.IFailureDetectionEventListener;
 import org.apache.cassandra.gms.IFailureDetector;
@@ -194,6 +197,58 @@ public class BootStrapperTest extends CleanupHelper
         assert !temp.keySet().iterator().next().equals(myEndpoint);
     }
 
+    @Test
+    public void testSplitRange()
+    {
+        RandomPartitioner partitioner = new RandomPartitioner();
+        Range range = new Range(new BigIntegerToken("100"), new BigIntegerToken("900"));
+        List<Range> parts = BootStrapper.split(range, 4, partitioner);
+        assertEquals(Arrays.asList(new Range(new BigIntegerToken("100"), new BigIntegerToken("300")),
+                                   new Range(new BigIntegerToken("300"), new BigIntegerToken("500")),
+                                   new Range(new BigIntegerToken("500"), new BigIntegerToken("700")),
+                                   new Range(new BigIntegerToken("700"), new BigIntegerToken("900"))),
+                     parts);
+
+        // too small to split
+        range = new Range(new BigIntegerToken("100"), new BigIntegerToken("101"));
+        assertEquals(Arrays.asList(range), BootStrapper.split(range, 3, partitioner));
+    }
+
+    @Test
+    public void testWorkMapSplitsRangesBetweenSources() throws UnknownHostException
+    {
+        IPartitioner<?> p = StorageService.getPartitioner();
+        Token left = p.getRandomToken();
+        Token right = p.getRandomToken();
+        Range range = new Range(left, right);
+        Multimap<Range, InetAddress> rangesWithSources = ArrayListMultimap.create();
+        for (int i = 2; i <= 4; i++)
+            rangesWithSources.put(range, InetAddress.getByName("127.0.0." + i));
+
+        Multimap<InetAddress, Range> workMap = BootStrapper.getWorkMap(rangesWithSources, new IFailureDetector()
+        {
+            public boolean isAlive(InetAddress ep)
+            {
+                // the last source is down
+                return !ep.getHostAddress().equals("127.0.0.4");
+            }
+
+            public void interpret(InetAddress ep) { throw new UnsupportedOperationException(); }
+            public void report(InetAddress ep) { throw new UnsupportedOperationException(); }
+            public void registerFailureDetectionEventListener(IFailureDetectionEventListener listener) { throw new UnsupportedOperationException(); }
+            public void unregisterFailureDetectionEventListener(IFailureDetectionEventListener listener) { throw new UnsupportedOperationException(); }
+            public void remove(InetAddress ep) { throw new UnsupportedOperationException(); }
+        });
+
+        // each live source streams a contiguous part of the range
+        assertEquals(2, workMap.keySet().size());
+        Range first = workMap.get(InetAddress.getByName("127.0.0.2")).iterator().next();
+        Range second = workMap.get(InetAddress.getByName("127.0.0.3")).iterator().next();
+        assertEquals(left, first.left);
+        assertEquals(first.right, second.left);
+        assertEquals(right, second.right);
+    }
+
     private void generateFakeEndpoints(int numOldNodes) throws UnknownHostException
     {
         TokenMetadata tmd = StorageService.instance.getTokenMetadata();
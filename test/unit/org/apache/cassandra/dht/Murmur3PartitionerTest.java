@@ -0,0 +1,66 @@
+package org.apache.cassandra.dht;
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+
+import org.junit.Test;
+
+import org.apache.cassandra.utils.MurmurHash;
+
+import static org.junit.Assert.assertEquals;
+
+public class Murmur3PartitionerTest extends PartitionerTestCase<LongToken>
+{
+    public void initPartitioner()
+    {
+        partitioner = new Murmur3Partitioner();
+    }
+
+    @Override
+    @Test
+    public void testMidpointMinimum()
+    {
+        // with 64-bit tokens the ring can only be halved 63 times before ranges stop having a distinct midpoint
+        LongToken mintoken = partitioner.getMinimumToken();
+        assert mintoken.compareTo(partitioner.midpoint(mintoken, mintoken)) != 0;
+        assertMidpoint(mintoken, tok("a"), 16);
+        assertMidpoint(mintoken, tok("aaa"), 16);
+        assertMidpoint(mintoken, mintoken, 62);
+        assertMidpoint(tok("a"), mintoken, 16);
+    }
+
+    @Test
+    public void testHashVector()
+    {
+        // reference value of the x64 128-bit MurmurHash3 with seed 0
+        long[] hash = MurmurHash.hash3_x64_128("hello".getBytes(), 0, 5, 0);
+        assertEquals(0xcbd8a7b341bd9b02L, hash[0]);
+        assertEquals(0x5b1e906a48ae1d19L, hash[1]);
+        assertEquals(new LongToken(0xcbd8a7b341bd9b02L), tok("hello"));
+    }
+
+    @Test
+    public void testMinimumToken()
+    {
+        assertEquals(partitioner.getMinimumToken(), tok(new byte[0]));
+        assert partitioner.getMinimumToken().compareTo(tok("a")) < 0;
+    }
+}
@@ -0,0 +1,177 @@
+package org.apache.cassandra.io;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.filter.QueryPath;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.io.sstable.SSTableWriter;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.MerkleTree;
+
+import static junit.framework.Assert.assertEquals;
+
+public class ValidationIteratorTest extends CleanupHelper
+{
+    private static final String TABLE = "Keyspace1";
+    private static final String CF = "Standard2";
+
+    private static void insert(int from, int to, long timestamp) throws IOException
+    {
+        for (int i = from; i < to; i++)
+        {
+            RowMutation rm = new RowMutation(TABLE, ("key" + i).getBytes());
+            rm.add(new QueryPath(CF, null, "c".getBytes()), ("value" + timestamp).getBytes(), new TimestampClock(timestamp));
+            rm.apply();
+        }
+    }
+
+    private static List<byte[]> validationHashes(Collection<SSTableReader> sstables) throws IOException
+    {
+        List<byte[]> hashes = new ArrayList<byte[]>();
+        ValidationIterator vi = new ValidationIterator(sstables, CompactionManager.getDefaultGCBefore());
+        while (vi.hasNext())
+        {
+            MerkleTree.RowHash hash = vi.next();
+            if (hash != null)
+                hashes.add(hash.hash);
+        }
+        vi.close();
+        return hashes;
+    }
+
+    /**
+     * Asserts that ValidationIterator produces the same hashes as hashing a major compaction, and returns it.
+     */
+    private static ValidationIterator assertHashes(Collection<SSTableReader> sstables) throws IOException
+    {
+        int gcBefore = CompactionManager.getDefaultGCBefore();
+        List<byte[]> expected = new ArrayList<byte[]>();
+        CompactionIterator ci = new CompactionIterator(sstables, gcBefore, true);
+        while (ci.hasNext())
+        {
+            AbstractCompactedRow row = ci.next();
+            if (row == null)
+                continue;
+            MessageDigest digest = AbstractCompactedRow.newDigest();
+            row.update(digest);
+            expected.add(digest.digest());
+        }
+        ci.close();
+
+        ValidationIterator vi = new ValidationIterator(sstables, gcBefore);
+        int i = 0;
+        while (vi.hasNext())
+        {
+            MerkleTree.RowHash hash = vi.next();
+            if (hash == null)
+                continue;
+            assert Arrays.equals(expected.get(i++), hash.hash) : "hash mismatch for row " + i;
+        }
+        vi.close();
+        assertEquals(expected.size(), i);
+        return vi;
+    }
+
+    @Test
+    public void testReuseAndMerge() throws IOException, ExecutionException, InterruptedException
+    {
+        CompactionManager.instance.disableAutoCompaction();
+        ColumnFamilyStore cfs = Table.open(TABLE).getColumnFamilyStore(CF);
+
+        insert(0, 10, 0);
+        cfs.forceBlockingFlush();
+        insert(5, 15, 1);
+        // a tombstone: cannot be hashed in advance
+        RowMutation rm = new RowMutation(TABLE, "key12".getBytes());
+        rm.delete(new QueryPath(CF, null, "d".getBytes()), new TimestampClock(1));
+        rm.apply();
+        cfs.forceBlockingFlush();
+
+        ValidationIterator vi = assertHashes(cfs.getSSTables());
+        // key0-4 and key10-14 (but not key12) have a single version
+        assertEquals(9, vi.getRowsReused());
+        assertEquals(6, vi.getRowsRead());
+        // progress is reported as for a compaction
+        assertEquals(SSTableReader.getTotalBytes(cfs.getSSTables()), vi.getTotalBytes());
+        assert vi.getBytesRead() > 0 && vi.getBytesRead() <= vi.getTotalBytes();
+
+        // a minor compaction copies single versions as they are, and should still be able to hash them
+        SSTableWriter writer = new SSTableWriter(cfs.getFlushPath(), 15, StorageService.getPartitioner());
+        CompactionIterator ci = new CompactionIterator(cfs.getSSTables(), CompactionManager.getDefaultGCBefore(), false);
+        while (ci.hasNext())
+            writer.append(ci.next());
+        ci.close();
+        List<SSTableReader> compacted = Arrays.asList(writer.closeAndOpenReader());
+
+        vi = assertHashes(compacted);
+        assertEquals(14, vi.getRowsReused());
+        assertEquals(1, vi.getRowsRead());
+    }
+
+    @Test
+    public void testHashesIgnoreFilterSizing() throws IOException, ExecutionException, InterruptedException
+    {
+        CompactionManager.instance.disableAutoCompaction();
+        ColumnFamilyStore cfs = Table.open(TABLE).getColumnFamilyStore("Standard1");
+
+        // the same rows, flushed with two different row-level bloom filter sizes
+        List<SSTableReader> flushed = new ArrayList<SSTableReader>();
+        for (Double fpChance : Arrays.asList(null, 0.5))
+        {
+            cfs.setBloomFilterFpChance(fpChance);
+            SSTableWriter writer = new SSTableWriter(cfs.getFlushPath(), 5, StorageService.getPartitioner());
+            for (int i = 0; i < 5; i++)
+            {
+                ColumnFamily cf = ColumnFamily.create(TABLE, "Standard1");
+                for (int j = 0; j < 50; j++)
+                    cf.addColumn(new Column(("c" + j).getBytes(), "value".getBytes(), new TimestampClock(0)));
+                writer.append(Util.dk("key" + i), cf);
+            }
+            flushed.add(writer.closeAndOpenReader());
+        }
+        cfs.setBloomFilterFpChance(null);
+        assert flushed.get(0).length() != flushed.get(1).length();
+
+        List<byte[]> hashes0 = validationHashes(Arrays.asList(flushed.get(0)));
+        List<byte[]> hashes1 = validationHashes(Arrays.asList(flushed.get(1)));
+        assertEquals(5, hashes0.size());
+        assertEquals(hashes0.size(), hashes1.size());
+        for (int i = 0; i < hashes0.size(); i++)
+            assert Arrays.equals(hashes0.get(i), hashes1.get(i)) : "hash mismatch for row " + i;
+        // and the persisted hashes agree with the hashes of the rows read back
+        assertHashes(Arrays.asList(flushed.get(0)));
+        assertHashes(Arrays.asList(flushed.get(1)));
+    }
+}
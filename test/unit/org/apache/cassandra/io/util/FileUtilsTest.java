@@ -0,0 +1,63 @@
+package org.apache.cassandra.io.util;
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FileUtilsTest
+{
+    @Test
+    public void testCreateHardLink() throws IOException
+    {
+        File source = File.createTempFile("linktest", "bin");
+        source.deleteOnExit();
+        File destination = new File(source.getPath() + ".link");
+        destination.deleteOnExit();
+
+        FileOutputStream out = new FileOutputStream(source);
+        out.write(new byte[]{ 1, 2, 3 });
+        out.close();
+        FileUtils.createHardLink(source, destination);
+        assertEquals(3, destination.length());
+
+        // both names refer to the same file, so writes through one are visible through the other
+        out = new FileOutputStream(source, true);
+        out.write(4);
+        out.close();
+        assertEquals(4, destination.length());
+    }
+
+    @Test(expected = IOException.class)
+    public void testCreateHardLinkToExistingFile() throws IOException
+    {
+        File source = File.createTempFile("linktest", "bin");
+        source.deleteOnExit();
+        File destination = File.createTempFile("linktest", "bin");
+        destination.deleteOnExit();
+        FileUtils.createHardLink(source, destination);
+    }
+}
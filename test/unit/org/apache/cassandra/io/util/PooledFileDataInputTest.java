@@ -0,0 +1,176 @@
+package org.apache.cassandra.io.util;
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOError;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PooledFileDataInputTest
+{
+    private static File writeLongs(int count) throws IOException
+    {
+        File tmpFile = File.createTempFile("pooledtest", "bin");
+        tmpFile.deleteOnExit();
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(tmpFile));
+        for (long i = 0; i < count; i++)
+            out.writeLong(i);
+        out.close();
+        return tmpFile;
+    }
+
+    @Test
+    public void testReadAcrossBuffers() throws IOException
+    {
+        // enough longs to span several pooled buffers, with an odd starting offset so reads straddle boundaries
+        int count = 3 * PooledFileDataInput.BUFFER_SIZE / 8;
+        File file = writeLongs(count);
+        SharedFileChannel channel = new SharedFileChannel(file.getPath());
+
+        PooledFileDataInput in = new PooledFileDataInput(channel, 8, file.length());
+        for (long i = 1; i < count; i++)
+            assertEquals(i, in.readLong());
+        assertTrue(in.isEOF());
+        assertEquals(-1, in.read());
+        in.close();
+        channel.close();
+    }
+
+    @Test
+    public void testSegmentBufferSize() throws IOException
+    {
+        // a buffer size that is not a multiple of 8, so longs straddle every boundary
+        int bufferSize = 1000;
+        int count = 3 * bufferSize / 8;
+        File file = writeLongs(count);
+        SegmentedFile segmented = new BufferedSegmentedFile(file.getPath(), file.length());
+
+        FileDataInput in = segmented.getSegment(8, bufferSize);
+        assertEquals(bufferSize, ((PooledFileDataInput) in).bufferSize());
+        for (long i = 1; i < count; i++)
+            assertEquals(i, in.readLong());
+        assertTrue(in.isEOF());
+        in.close();
+
+        // buffers of another size are pooled apart
+        in = segmented.getSegment(0, PooledFileDataInput.BUFFER_SIZE);
+        assertEquals(PooledFileDataInput.BUFFER_SIZE, ((PooledFileDataInput) in).bufferSize());
+        in.close();
+        segmented.cleanup();
+    }
+
+    @Test
+    public void testBoundedByLimit() throws IOException
+    {
+        File file = writeLongs(16);
+        SharedFileChannel channel = new SharedFileChannel(file.getPath());
+
+        PooledFileDataInput in = new PooledFileDataInput(channel, 4, 20);
+        assertEquals(16, in.bytesRemaining());
+        assertEquals(0, in.readInt());
+        FileMark mark = in.mark();
+        assertEquals(1, in.readLong());
+        assertEquals(8, in.bytesPastMark(mark));
+        in.reset(mark);
+        assertEquals(1, in.readLong());
+        assertEquals(0, in.readInt());
+        assertTrue(in.isEOF());
+        try
+        {
+            in.readInt();
+            throw new AssertionError("read past the limit");
+        }
+        catch (EOFException e)
+        {
+            // expected
+        }
+        in.close();
+        channel.close();
+    }
+
+    @Test
+    public void testBuffersArePooled() throws IOException
+    {
+        File file = writeLongs(16);
+        SharedFileChannel channel = new SharedFileChannel(file.getPath());
+
+        new PooledFileDataInput(channel, 0, file.length()).close();
+        int pooled = PooledFileDataInput.pooledBufferCount();
+        assertTrue(pooled > 0);
+        PooledFileDataInput in = new PooledFileDataInput(channel, 0, file.length());
+        assertEquals(pooled - 1, PooledFileDataInput.pooledBufferCount());
+        in.close();
+        assertEquals(pooled, PooledFileDataInput.pooledBufferCount());
+        channel.close();
+    }
+
+    @Test
+    public void testReadLine() throws IOException
+    {
+        File file = File.createTempFile("pooledtest", "txt");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("one\ntwo\r\nthree\rfour".getBytes());
+        out.close();
+        SharedFileChannel channel = new SharedFileChannel(file.getPath());
+
+        PooledFileDataInput in = new PooledFileDataInput(channel, 0, file.length());
+        assertEquals("one", in.readLine());
+        assertEquals("two", in.readLine());
+        assertEquals("three", in.readLine());
+        assertEquals("four", in.readLine());
+        assertEquals(null, in.readLine());
+        in.close();
+        channel.close();
+    }
+
+    @Test
+    public void testChannelOutlivesOwnerWhileReaderOpen() throws IOException
+    {
+        File file = writeLongs(16);
+        SharedFileChannel channel = new SharedFileChannel(file.getPath());
+
+        PooledFileDataInput in = new PooledFileDataInput(channel, 0, file.length());
+        channel.close();
+        channel.close();
+        // the open reader still holds the descriptor
+        assertEquals(0, in.readLong());
+        in.close();
+        try
+        {
+            new PooledFileDataInput(channel, 0, file.length());
+            throw new AssertionError("opened a reader on a released channel");
+        }
+        catch (IOError e)
+        {
+            // expected
+        }
+    }
+}
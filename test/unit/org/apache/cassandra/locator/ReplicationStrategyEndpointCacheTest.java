@@ -23,6 +23,7 @@ import java.lang.reflect.Constructor;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
@@ -70,6 +71,31 @@ public class ReplicationStrategyEndpointCacheTest extends SchemaLoader
         assert strategy.getNaturalEndpoints(searchToken, "Keyspace3").equals(strategy.getNaturalEndpoints(searchToken, "Keyspace3"));
     }
 
+    @Test
+    public void testCachedEndpointsAreShared() throws Exception
+    {
+        setup(RackUnawareStrategy.class);
+        List<InetAddress> cached = strategy.getCachedEndpoints(searchToken, "Keyspace3");
+        // any token in the same range maps to the same list
+        assert cached == strategy.getCachedEndpoints(new BigIntegerToken(String.valueOf(12)), "Keyspace3");
+        assert cached.equals(strategy.getNaturalEndpoints(searchToken, "Keyspace3"));
+        try
+        {
+            cached.add(InetAddress.getByName("127.0.0.5"));
+            assert false : "cached endpoints should not be modifiable";
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // expected
+        }
+
+        // snitch changes recalculate the endpoints, without a ring change
+        strategy.invalidateCachedSnitchValues();
+        List<InetAddress> recalculated = strategy.getCachedEndpoints(searchToken, "Keyspace3");
+        assert recalculated != cached;
+        assert recalculated.equals(cached);
+    }
+
     @Test
     public void testCacheRespectsTokenChanges() throws Exception
     {
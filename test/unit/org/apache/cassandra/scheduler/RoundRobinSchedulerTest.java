@@ -29,6 +29,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.cassandra.config.RequestSchedulerOptions;
@@ -136,7 +137,14 @@ public class RoundRobinSchedulerTest
 
         public void run()
         {
-            scheduler.queue(Thread.currentThread(), id);
+            try
+            {
+                scheduler.queue(Thread.currentThread(), id);
+            }
+            catch (TimeoutException e)
+            {
+                throw new AssertionError(e);
+            }
 
             runCount = counter.incrementAndGet();
 
@@ -0,0 +1,152 @@
+package org.apache.cassandra.scheduler;
+
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.cassandra.config.RequestSchedulerOptions;
+import org.junit.Test;
+
+public class WeightedFairSchedulerTest
+{
+    static final String HEAVY = "HeavyKeyspace";
+    static final String LIGHT = "LightKeyspace";
+
+    private static WeightedFairScheduler newScheduler(int queueDepthLimit)
+    {
+        RequestSchedulerOptions options = new RequestSchedulerOptions();
+        options.throttle_limit = 1;
+        options.queue_depth_limit = queueDepthLimit;
+        options.weights = Collections.singletonMap(HEAVY, 3);
+        return new WeightedFairScheduler(options);
+    }
+
+    private static void awaitQueued(WeightedFairScheduler scheduler, String id, int count) throws InterruptedException
+    {
+        while (scheduler.getQueueDepths().get(id) == null || scheduler.getQueueDepths().get(id) < count)
+            Thread.sleep(10);
+    }
+
+    @Test
+    public void testWeightedShares() throws Exception
+    {
+        final WeightedFairScheduler scheduler = newScheduler(100);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        // occupy the only slot, so that everything below has to queue
+        scheduler.queue(Thread.currentThread(), LIGHT);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (String id : new String[]{ HEAVY, LIGHT })
+        {
+            for (int i = 0; i < 8; i++)
+            {
+                Thread t = new Thread(new Worker(scheduler, id, order));
+                t.start();
+                threads.add(t);
+            }
+            awaitQueued(scheduler, id, 8);
+        }
+        scheduler.release();
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals(16, order.size());
+        // with a 3:1 weighting, the heavy keyspace should get roughly 6 of the first 8 slots
+        int heavy = Collections.frequency(order.subList(0, 8), HEAVY);
+        assertTrue("heavy keyspace admitted " + heavy + " of 8: " + order, heavy >= 5 && heavy <= 7);
+        assertEquals(0, scheduler.getInFlightRequests());
+    }
+
+    @Test
+    public void testRejectWhenQueueFull() throws Exception
+    {
+        final WeightedFairScheduler scheduler = newScheduler(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        scheduler.queue(Thread.currentThread(), LIGHT);
+
+        Thread queued = new Thread(new Worker(scheduler, HEAVY, order));
+        queued.start();
+        awaitQueued(scheduler, HEAVY, 1);
+
+        final boolean[] rejected = new boolean[1];
+        Thread overflow = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    scheduler.queue(Thread.currentThread(), HEAVY);
+                }
+                catch (TimeoutException e)
+                {
+                    rejected[0] = true;
+                }
+                // a rejected request holds no capacity, so releasing it must be harmless
+                scheduler.release();
+            }
+        });
+        overflow.start();
+        overflow.join();
+        assertTrue(rejected[0]);
+        assertEquals(1L, (long) scheduler.getRejectedRequests().get(HEAVY));
+        assertEquals(1, scheduler.getInFlightRequests());
+
+        scheduler.release();
+        queued.join();
+        assertEquals(Collections.singletonList(HEAVY), order);
+        assertEquals(0, scheduler.getInFlightRequests());
+    }
+
+    static class Worker implements Runnable
+    {
+        final IRequestScheduler scheduler;
+        final String id;
+        final List<String> order;
+
+        Worker(IRequestScheduler scheduler, String id, List<String> order)
+        {
+            this.scheduler = scheduler;
+            this.id = id;
+            this.order = order;
+        }
+
+        public void run()
+        {
+            try
+            {
+                scheduler.queue(Thread.currentThread(), id);
+            }
+            catch (TimeoutException e)
+            {
+                throw new AssertionError(e);
+            }
+            order.add(id);
+            scheduler.release();
+        }
+    }
+}
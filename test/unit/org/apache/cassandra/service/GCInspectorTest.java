@@ -0,0 +1,80 @@
+package org.apache.cassandra.service;
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.cache.JMXInstrumentedCacheMBean;
+import org.apache.cassandra.db.Table;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+public class GCInspectorTest extends CleanupHelper
+{
+    @Test
+    public void testFindsTenuredPool()
+    {
+        // the young generation is emptied by every collection, so only the old one shows pressure
+        String pool = new GCInspector().tenuredPool;
+        assertNotNull(pool);
+        assertFalse(pool, pool.contains("Eden") || pool.contains("Survivor"));
+    }
+
+    @Test
+    public void testHeapPressureRelief() throws Exception
+    {
+        Table.open("Keyspace1");
+        ObjectName name = new ObjectName("org.apache.cassandra.db:type=Caches,keyspace=Keyspace1,cache=Super1RowCache");
+        JMXInstrumentedCacheMBean rowCache = JMX.newMBeanProxy(ManagementFactory.getPlatformMBeanServer(), name, JMXInstrumentedCacheMBean.class);
+        assertEquals(1000, rowCache.getCapacity());
+
+        GCInspector inspector = new GCInspector();
+        long now = System.currentTimeMillis();
+        assertFalse(inspector.maybeRelieve(0.5, now));
+        assertEquals(1.0, inspector.getCacheCapacityScale());
+
+        assertTrue(inspector.maybeRelieve(0.99, now));
+        assertEquals(600, rowCache.getCapacity());
+        assertEquals(1, inspector.getHeapPressureReliefCount());
+
+        // flushes need time to take effect before pressure is relieved again
+        assertFalse(inspector.maybeRelieve(0.99, now + 1000));
+        assertTrue(inspector.maybeRelieve(0.99, now + GCInspector.MIN_RELIEF_INTERVAL_IN_MS));
+        assertEquals(360, rowCache.getCapacity());
+
+        // capacities recover a step at a time, once pressure has passed for a full interval
+        now += GCInspector.MIN_RELIEF_INTERVAL_IN_MS;
+        inspector.maybeRecover(now + GCInspector.RECOVERY_INTERVAL_IN_MS / 2);
+        assertEquals(360, rowCache.getCapacity());
+        for (int i = 1; i <= 7; i++)
+            inspector.maybeRecover(now + i * GCInspector.RECOVERY_INTERVAL_IN_MS);
+        assertEquals(1000, rowCache.getCapacity());
+        assertEquals(1.0, inspector.getCacheCapacityScale());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.streaming;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.net.FileStreamTask;
+import org.apache.cassandra.utils.Pair;
+
+public class IncomingStreamReaderTest
+{
+    private static final int CHUNK = FileStreamTask.CHUNK_SIZE;
+
+    @Test
+    public void testResumeAfterCorruptChunk() throws IOException
+    {
+        InetAddress source = InetAddress.getByName("127.0.0.2");
+        byte[] data = new byte[CHUNK * 5 / 2];
+        new Random(0).nextBytes(data);
+
+        // the remote file is sent from two sections, and received into a local temporary sstable
+        PendingFile remote = new PendingFile(new Descriptor(new File("/remote"), "Keyspace1", "Standard1", 7, false),
+                                             "Data.db",
+                                             Arrays.asList(new Pair<Long, Long>(0L, 1000L),
+                                                           new Pair<Long, Long>(5000L, 5000L + data.length - 1000)));
+        File directory = new File(System.getProperty("java.io.tmpdir"));
+        PendingFile local = new PendingFile(new Descriptor(directory, "Keyspace1", "Standard1", 1, true), remote);
+        File localFile = new File(local.getFilename());
+        localFile.delete();
+        FileStatus status = new FileStatus(remote.getFilename());
+        StreamInManager.addStreamContext(source, local, status);
+
+        try
+        {
+            // the second chunk is corrupt: the first must be kept, and the rest requested
+            try
+            {
+                new IncomingStreamReader(source, stream(remote, data, 0, 1)).read();
+                assert false : "corrupt chunk was accepted";
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+            assertEquals(CHUNK, local.progress);
+            assertEquals(CHUNK, localFile.length());
+            assertEquals(FileStatus.Action.STREAM, status.getAction());
+            assertEquals(CHUNK, status.getOffset());
+            assert StreamInManager.getIncomingFiles(source).contains(local);
+
+            // resume from the acknowledged offset
+            new IncomingStreamReader(source, stream(remote, data, CHUNK, -1)).read();
+            assertEquals(FileStatus.Action.DELETE, status.getAction());
+            assert !StreamInManager.getSources().contains(source);
+
+            byte[] received = new byte[data.length];
+            DataInputStream in = new DataInputStream(new FileInputStream(localFile));
+            in.readFully(received);
+            assertEquals(-1, in.read());
+            in.close();
+            assert Arrays.equals(data, received);
+        }
+        finally
+        {
+            localFile.delete();
+        }
+    }
+
+    @Test
+    public void testUnexpectedFile() throws IOException
+    {
+        InetAddress source = InetAddress.getByName("127.0.0.3");
+        PendingFile remote = new PendingFile(new Descriptor(new File("/remote"), "Keyspace1", "Standard1", 8, false),
+                                             "Data.db",
+                                             Arrays.asList(new Pair<Long, Long>(0L, 10L)));
+        // a file from a source we expect nothing from is a bad stream, which closes the connection
+        try
+        {
+            new IncomingStreamReader(source, stream(remote, new byte[10], 0, -1));
+            assert false : "unexpected file was accepted";
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * @return what a source sends for the given file from the given offset, after the stream header.
+     */
+    private static DataInputStream stream(PendingFile remote, byte[] data, int offset, int corruptChunk) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(remote.getFilename());
+        out.writeLong(offset);
+        CRC32 checksum = new CRC32();
+        for (int position = offset, chunk = 0; position < data.length; position += CHUNK, chunk++)
+        {
+            int length = Math.min(CHUNK, data.length - position);
+            out.write(data, position, length);
+            checksum.reset();
+            checksum.update(data, position, length);
+            out.writeLong(chunk == corruptChunk ? checksum.getValue() + 1 : checksum.getValue());
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.thrift;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.service.StorageService;
+import org.apache.thrift.TProcessorFactory;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerSocket;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CustomTHsHaServerTest extends CleanupHelper
+{
+    private static final long TIMESTAMP = 1L;
+
+    private static int port;
+    private static CustomTHsHaServer server;
+    private static Thread serverThread;
+
+    @BeforeClass
+    public static void startServer() throws Exception
+    {
+        StorageService.instance.initServer();
+
+        ServerSocket probe = new ServerSocket(0);
+        port = probe.getLocalPort();
+        probe.close();
+
+        // a single worker, so that every request from every connection runs on the same thread
+        ExecutorService invoker = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        CassandraServer cassandraServer = new CassandraServer();
+        server = new CustomTHsHaServer(new TProcessorFactory(new Cassandra.Processor(cassandraServer)),
+                                       new TNonblockingServerSocket(new InetSocketAddress("127.0.0.1", port)),
+                                       new TFramedTransport.Factory(),
+                                       new TBinaryProtocol.Factory(),
+                                       cassandraServer,
+                                       invoker);
+        serverThread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                server.serve();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception
+    {
+        server.stop();
+        serverThread.join(10000);
+    }
+
+    private static Cassandra.Client connect() throws Exception
+    {
+        // the selector thread may not be listening yet
+        for (int attempt = 0; ; attempt++)
+        {
+            TTransport transport = new TFramedTransport(new TSocket("127.0.0.1", port));
+            try
+            {
+                transport.open();
+                return new Cassandra.Client(new TBinaryProtocol(transport));
+            }
+            catch (Exception e)
+            {
+                if (attempt == 50)
+                    throw e;
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static void insert(Cassandra.Client client, String key, String value) throws Exception
+    {
+        Clock clock = new Clock();
+        clock.setTimestamp(TIMESTAMP);
+        client.insert(key.getBytes(), new ColumnParent("Standard1"), new Column("c".getBytes(), value.getBytes(), clock), ConsistencyLevel.ONE);
+    }
+
+    private static String get(Cassandra.Client client, String key) throws Exception
+    {
+        ColumnPath path = new ColumnPath("Standard1");
+        path.setColumn("c".getBytes());
+        return new String(client.get(key.getBytes(), path, ConsistencyLevel.ONE).getColumn().getValue());
+    }
+
+    @Test
+    public void testRequest() throws Exception
+    {
+        Cassandra.Client client = connect();
+        client.set_keyspace("Keyspace1");
+        insert(client, "hsha0", "v0");
+        assertEquals("v0", get(client, "hsha0"));
+        client.getInputProtocol().getTransport().close();
+    }
+
+    @Test
+    public void testClientStateIsPerConnection() throws Exception
+    {
+        Cassandra.Client first = connect();
+        Cassandra.Client second = connect();
+
+        first.set_keyspace("Keyspace1");
+        assertEquals(AccessLevel.FULL, first.login(new AuthenticationRequest(new HashMap<String, String>())));
+        insert(first, "hsha1", "v1");
+
+        // neither the keyspace nor the login of the first connection carries over to the second
+        try
+        {
+            get(second, "hsha1");
+            fail("the second connection has not set a keyspace");
+        }
+        catch (InvalidRequestException e)
+        {
+            // expected
+        }
+        try
+        {
+            second.login(new AuthenticationRequest(new HashMap<String, String>()));
+            fail("the second connection has not set a keyspace");
+        }
+        catch (AuthenticationException e)
+        {
+            // expected
+        }
+
+        // and switching keyspace on the second does not affect the first
+        second.set_keyspace("Keyspace2");
+        assertEquals("v1", get(first, "hsha1"));
+
+        first.getInputProtocol().getTransport().close();
+        second.getInputProtocol().getTransport().close();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.tools;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.*;
+
+import org.junit.Test;
+
+import org.apache.cassandra.CleanupHelper;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Row;
+import org.apache.cassandra.db.Table;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.SSTableReader;
+import org.apache.cassandra.io.sstable.SSTableUtils;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class BulkLoaderTest extends CleanupHelper
+{
+    @Test
+    public void testLoadDirectory() throws Exception
+    {
+        StorageService.instance.initServer();
+
+        // an sstable written outside the node, in a directory named after its keyspace
+        SSTableReader written = SSTableUtils.writeSSTable(new HashSet<String>(Arrays.asList("key1", "key2", "key3")));
+        File directory = new File(written.getFilename()).getParentFile();
+        assertEquals(written.getTableName(), directory.getName());
+        List<SSTableReader> sstables = BulkLoader.openSSTables(directory);
+        assertEquals(1, sstables.size());
+
+        // this node owns the whole ring
+        IPartitioner p = StorageService.getPartitioner();
+        Map<InetAddress, Collection<Range>> endpointRanges = new HashMap<InetAddress, Collection<Range>>();
+        endpointRanges.put(FBUtilities.getLocalAddress(), Arrays.asList(new Range(p.getMinimumToken(), p.getMinimumToken())));
+        assertTrue(BulkLoader.stream(written.getTableName(), sstables, endpointRanges, 1).isEmpty());
+
+        // the rows arrived
+        ColumnFamilyStore cfs = Table.open(written.getTableName()).getColumnFamilyStore(written.getColumnFamilyName());
+        List<Row> rows = Util.getRangeSlice(cfs);
+        assertEquals(3, rows.size());
+        assertTrue(Arrays.equals("key1".getBytes(), rows.get(0).key.key));
+
+        // and the loaded files are left as they were
+        Descriptor desc = Descriptor.fromFilename(written.getFilename());
+        for (String component : SSTable.components)
+            assertTrue(component, new File(desc.filenameFor(component)).exists());
+        assertEquals(1, BulkLoader.openSSTables(directory).size());
+    }
+}
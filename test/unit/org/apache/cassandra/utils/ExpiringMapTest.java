@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.utils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.base.Function;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExpiringMapTest
+{
+    private static final long EXPIRATION = 200;
+
+    @Test
+    public void testExpiration() throws InterruptedException
+    {
+        final Set<String> expired = Collections.synchronizedSet(new HashSet<String>());
+        ExpiringMap<String, String> map = new ExpiringMap<String, String>(EXPIRATION, new Function<Pair<String, String>, Object>()
+        {
+            public Object apply(Pair<String, String> pair)
+            {
+                expired.add(pair.left + "=" + pair.right);
+                return null;
+            }
+        });
+
+        try
+        {
+            for (int i = 0; i < 100; i++)
+                map.put("key" + i, "value" + i);
+            // removed entries never expire
+            map.remove("key0");
+            // replaced entries expire with their new value
+            map.put("key1", "replaced");
+            assertEquals("value2", map.get("key2"));
+            assertEquals(99, map.size());
+
+            Thread.sleep(EXPIRATION * 3);
+
+            assertNull(map.get("key2"));
+            assertEquals(0, map.size());
+            assertEquals(99, expired.size());
+            assert !expired.contains("key0=value0");
+            assert !expired.contains("key1=value1");
+            assert expired.contains("key1=replaced");
+        }
+        finally
+        {
+            map.shutdown();
+        }
+    }
+
+    @Test
+    public void testNotExpiredEarly() throws InterruptedException
+    {
+        ExpiringMap<String, String> map = new ExpiringMap<String, String>(EXPIRATION * 5);
+        try
+        {
+            map.put("key", "value");
+            Thread.sleep(EXPIRATION);
+            assertEquals("value", map.get("key"));
+        }
+        finally
+        {
+            map.shutdown();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FastByteComparisonsTest
+{
+    private static int reference(byte[] b1, byte[] b2)
+    {
+        int minLength = Math.min(b1.length, b2.length);
+        for (int i = 0; i < minLength; i++)
+        {
+            int c = (b1[i] & 0xFF) - (b2[i] & 0xFF);
+            if (c != 0)
+                return c < 0 ? -1 : 1;
+        }
+        return b1.length == b2.length ? 0 : (b1.length < b2.length ? -1 : 1);
+    }
+
+    private static void check(FastByteComparisons comparisons)
+    {
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++)
+        {
+            // arrays that share a prefix of random length, so that the difference lands in every position of a word
+            byte[] b1 = new byte[random.nextInt(40)];
+            random.nextBytes(b1);
+            byte[] b2 = new byte[random.nextInt(40)];
+            random.nextBytes(b2);
+            System.arraycopy(b1, 0, b2, 0, Math.min(random.nextInt(40), Math.min(b1.length, b2.length)));
+            assertEquals(reference(b1, b2), comparisons.compareTo(b1, b2));
+            assertEquals(reference(b2, b1), comparisons.compareTo(b2, b1));
+            assertEquals(0, comparisons.compareTo(b1, b1.clone()));
+
+            if (b1.length >= 8)
+            {
+                int offset = random.nextInt(b1.length - 7);
+                assertEquals(ByteBuffer.wrap(b1, offset, 8).getLong(), comparisons.readLong(b1, offset));
+            }
+        }
+    }
+
+    @Test
+    public void testPureJava()
+    {
+        check(new FastByteComparisons.PureJavaComparisons());
+    }
+
+    @Test
+    public void testUnsafe() throws Exception
+    {
+        // Unsafe is looked up reflectively; this fails if it was not found, rather than quietly falling back
+        check(new FastByteComparisons.UnsafeComparisons());
+    }
+
+    @Test
+    public void testBest()
+    {
+        // the word-at-a-time version on x86 and amd64
+        check(FastByteComparisons.getBest());
+    }
+}
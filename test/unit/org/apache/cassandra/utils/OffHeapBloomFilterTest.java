@@ -0,0 +1,91 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.utils;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OffHeapBloomFilterTest
+{
+    public OffHeapBloomFilter bf;
+
+    public OffHeapBloomFilterTest()
+    {
+        bf = OffHeapBloomFilter.getFilter(FilterTest.ELEMENTS, FilterTest.MAX_FAILURE_RATE);
+    }
+
+    @Before
+    public void clear()
+    {
+        bf.clear();
+    }
+
+    @Test
+    public void testOne()
+    {
+        bf.add("a".getBytes());
+        assert bf.isPresent("a".getBytes());
+        assert !bf.isPresent("b".getBytes());
+    }
+
+    @Test
+    public void testFalsePositivesInt()
+    {
+        FilterTest.testFalsePositives(bf, FilterTest.intKeys(), FilterTest.randomKeys2());
+    }
+
+    @Test
+    public void testFalsePositivesRandom()
+    {
+        FilterTest.testFalsePositives(bf, FilterTest.randomKeys(), FilterTest.randomKeys2());
+    }
+
+    @Test
+    public void testSerialize() throws IOException
+    {
+        OffHeapBloomFilter f2 = (OffHeapBloomFilter) FilterTest.testSerialize(bf);
+        assert f2.buckets() == bf.buckets();
+        assert f2.emptyBuckets() == bf.emptyBuckets();
+        f2.close();
+    }
+
+    @Test
+    public void testBitSet()
+    {
+        // spans several pages, with a partial last page
+        long bits = (3L << 26) + 100;
+        OffHeapBitSet bs = new OffHeapBitSet(bits);
+        assert bs.capacity() >= bits && bs.capacity() < bits + 64;
+        long[] indexes = { 0, 63, 64, (1L << 26) - 1, 1L << 26, bits - 1 };
+        for (long index : indexes)
+            bs.set(index);
+        for (long index : indexes)
+            assert bs.get(index) : index;
+        assert !bs.get(1);
+        assert !bs.get(bits - 2);
+        assert bs.cardinality() == indexes.length;
+        bs.clear();
+        assert bs.cardinality() == 0;
+        bs.close();
+        // closing again is harmless
+        bs.close();
+    }
+}